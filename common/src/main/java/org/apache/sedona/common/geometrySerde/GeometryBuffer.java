@@ -44,6 +44,10 @@ interface GeometryBuffer {
 
   int getInt(int offset);
 
+  void putDouble(int offset, double value);
+
+  double getDouble(int offset);
+
   void putCoordinate(int offset, Coordinate coordinate);
 
   CoordinateSequence getCoordinate(int offset);
@@ -20,6 +20,7 @@ package org.apache.sedona.common.geometrySerde;
 
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -33,10 +34,28 @@ import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.locationtech.jts.io.WKBConstants;
 
+/**
+ * Serializer of the internal geometry format of Sedona. A serialized geometry starts with an
+ * 8-byte header: [preamble][srid (3 bytes)][numCoordinates (4 bytes)]. The preamble byte holds the
+ * geometry type (bits 4-6), the coordinate type (bits 1-3) and whether the SRID is present (bit 0).
+ *
+ * <p>The highest bit of the preamble byte indicates that the header is followed by a bounding box
+ * of the geometry, stored as 4 doubles (minX, minY, maxX, maxY). The bounding box is written for
+ * non-point geometries having at least {@link #BBOX_MIN_COORDINATES} coordinates, so that the
+ * envelope of large geometries could be read without deserializing them. Buffers without the
+ * bounding box are still readable.
+ */
 public class GeometrySerializer {
   private static final Coordinate NULL_COORDINATE = new Coordinate(Double.NaN, Double.NaN);
   private static final PrecisionModel PRECISION_MODEL = new PrecisionModel();
 
+  /** Minimum number of coordinates of a geometry for having a bounding box in its header. */
+  public static final int BBOX_MIN_COORDINATES = 64;
+
+  private static final int BBOX_FLAG = 0x80;
+  private static final int HEADER_SIZE = 8;
+  private static final int BBOX_HEADER_SIZE = HEADER_SIZE + 32;
+
   public static byte[] serialize(Geometry geometry) {
     GeometryBuffer buffer;
     if (geometry instanceof Point) {
@@ -70,9 +89,11 @@ public class GeometrySerializer {
   }
 
   public static Geometry deserialize(GeometryBuffer buffer, GeometryFactory factory) {
-    checkBufferSize(buffer, 8);
+    checkBufferSize(buffer, HEADER_SIZE);
     int preambleByte = buffer.getByte(0) & 0xFF;
-    int wkbType = preambleByte >> 4;
+    int wkbType = (preambleByte >> 4) & 0x07;
+    int headerSize = (preambleByte & BBOX_FLAG) != 0 ? BBOX_HEADER_SIZE : HEADER_SIZE;
+    checkBufferSize(buffer, headerSize);
     CoordinateType coordType = CoordinateType.valueOf((preambleByte & 0x0F) >> 1);
     boolean hasSrid = (preambleByte & 0x01) != 0;
     buffer.setCoordinateType(coordType);
@@ -86,25 +107,88 @@ public class GeometrySerializer {
     if (factory == null) {
       factory = createGeometryFactory(srid);
     }
-    return deserialize(buffer, wkbType, factory);
+    return deserialize(buffer, wkbType, headerSize, factory);
+  }
+
+  /**
+   * Read the envelope of a serialized geometry without constructing the geometry object. The
+   * envelope is read from the bounding box in the header when present, otherwise it is computed
+   * from the serialized coordinates.
+   *
+   * @param bytes the serialized geometry
+   * @return the envelope of the geometry, which is a null envelope for empty geometries
+   */
+  public static Envelope deserializeEnvelope(byte[] bytes) {
+    GeometryBuffer buffer = GeometryBufferFactory.wrap(bytes);
+    return deserializeEnvelope(buffer);
+  }
+
+  public static Envelope deserializeEnvelope(GeometryBuffer buffer) {
+    checkBufferSize(buffer, HEADER_SIZE);
+    int preambleByte = buffer.getByte(0) & 0xFF;
+    int wkbType = (preambleByte >> 4) & 0x07;
+    if ((preambleByte & BBOX_FLAG) != 0) {
+      checkBufferSize(buffer, BBOX_HEADER_SIZE);
+      return new Envelope(
+          buffer.getDouble(HEADER_SIZE),
+          buffer.getDouble(HEADER_SIZE + 16),
+          buffer.getDouble(HEADER_SIZE + 8),
+          buffer.getDouble(HEADER_SIZE + 24));
+    }
+    if (wkbType == WKBConstants.wkbGeometryCollection) {
+      // Members of geometry collections are not stored contiguously, we simply deserialize the
+      // whole collection since geometry collections are rarely seen in hot paths.
+      return deserialize(buffer).getEnvelopeInternal();
+    }
+    CoordinateType coordType = CoordinateType.valueOf((preambleByte & 0x0F) >> 1);
+    int numCoordinates = getBoundedInt(buffer, 4);
+    checkBufferSize(buffer, HEADER_SIZE + numCoordinates * coordType.bytes);
+    Envelope envelope = new Envelope();
+    int offset = HEADER_SIZE;
+    for (int k = 0; k < numCoordinates; k++) {
+      double x = buffer.getDouble(offset);
+      // Empty points in multi points are serialized as NaN coordinates
+      if (!Double.isNaN(x)) {
+        envelope.expandToInclude(x, buffer.getDouble(offset + 8));
+      }
+      offset += coordType.bytes;
+    }
+    return envelope;
+  }
+
+  /**
+   * Check if the envelope of a serialized geometry could be read in constant time by {@link
+   * #deserializeEnvelope(byte[])}. This is the case for points and geometries having a bounding box
+   * in the header.
+   *
+   * @param bytes the serialized geometry
+   * @return true if the envelope could be read without scanning the coordinates
+   */
+  public static boolean hasBoundingBox(byte[] bytes) {
+    if (bytes.length < HEADER_SIZE) {
+      return false;
+    }
+    int preambleByte = bytes[0] & 0xFF;
+    return (preambleByte & BBOX_FLAG) != 0 || (preambleByte >> 4) == WKBConstants.wkbPoint;
   }
 
-  private static Geometry deserialize(GeometryBuffer buffer, int wkbType, GeometryFactory factory) {
+  private static Geometry deserialize(
+      GeometryBuffer buffer, int wkbType, int headerSize, GeometryFactory factory) {
     switch (wkbType) {
       case WKBConstants.wkbPoint:
-        return deserializePoint(buffer, factory);
+        return deserializePoint(buffer, headerSize, factory);
       case WKBConstants.wkbMultiPoint:
-        return deserializeMultiPoint(buffer, factory);
+        return deserializeMultiPoint(buffer, headerSize, factory);
       case WKBConstants.wkbLineString:
-        return deserializeLineString(buffer, factory);
+        return deserializeLineString(buffer, headerSize, factory);
       case WKBConstants.wkbMultiLineString:
-        return deserializeMultiLineString(buffer, factory);
+        return deserializeMultiLineString(buffer, headerSize, factory);
       case WKBConstants.wkbPolygon:
-        return deserializePolygon(buffer, factory);
+        return deserializePolygon(buffer, headerSize, factory);
       case WKBConstants.wkbMultiPolygon:
-        return deserializeMultiPolygon(buffer, factory);
+        return deserializeMultiPolygon(buffer, headerSize, factory);
       case WKBConstants.wkbGeometryCollection:
-        return deserializeGeometryCollection(buffer, factory);
+        return deserializeGeometryCollection(buffer, headerSize, factory);
       default:
         throw new IllegalArgumentException(
             "Cannot deserialize buffer containing unknown geometry type ID: " + wkbType);
@@ -114,27 +198,30 @@ public class GeometrySerializer {
   private static GeometryBuffer serializePoint(Point point) {
     Coordinate coordinate = point.getCoordinate();
     if (coordinate == null) {
-      return createGeometryBuffer(WKBConstants.wkbPoint, CoordinateType.XY, point.getSRID(), 8, 0);
+      return createGeometryBuffer(
+          WKBConstants.wkbPoint, CoordinateType.XY, point.getSRID(), HEADER_SIZE, 0, null);
     }
     CoordinateType coordType = getCoordinateType(coordinate);
-    int bufferSize = 8 + coordType.bytes;
+    int bufferSize = HEADER_SIZE + coordType.bytes;
     GeometryBuffer buffer =
-        createGeometryBuffer(WKBConstants.wkbPoint, coordType, point.getSRID(), bufferSize, 1);
-    buffer.putCoordinate(8, coordinate);
+        createGeometryBuffer(
+            WKBConstants.wkbPoint, coordType, point.getSRID(), bufferSize, 1, null);
+    buffer.putCoordinate(HEADER_SIZE, coordinate);
     return buffer;
   }
 
-  private static Point deserializePoint(GeometryBuffer buffer, GeometryFactory factory) {
+  private static Point deserializePoint(
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     CoordinateType coordType = buffer.getCoordinateType();
     int numCoordinates = getBoundedInt(buffer, 4);
     Point point;
     if (numCoordinates == 0) {
       point = factory.createPoint();
-      buffer.mark(8);
+      buffer.mark(headerSize);
     } else {
-      int bufferSize = 8 + coordType.bytes;
+      int bufferSize = headerSize + coordType.bytes;
       checkBufferSize(buffer, bufferSize);
-      CoordinateSequence coordinates = buffer.getCoordinate(8);
+      CoordinateSequence coordinates = buffer.getCoordinate(headerSize);
       point = factory.createPoint(coordinates);
       buffer.mark(bufferSize);
     }
@@ -145,17 +232,29 @@ public class GeometrySerializer {
     int numPoints = multiPoint.getNumGeometries();
     if (numPoints == 0) {
       return createGeometryBuffer(
-          WKBConstants.wkbMultiPoint, CoordinateType.XY, multiPoint.getSRID(), 8, 0);
+          WKBConstants.wkbMultiPoint,
+          CoordinateType.XY,
+          multiPoint.getSRID(),
+          HEADER_SIZE,
+          0,
+          null);
     }
     CoordinateType coordType = getCoordinateType(multiPoint);
-    int bufferSize = 8 + numPoints * coordType.bytes;
+    Envelope bbox = getBoundingBox(multiPoint, numPoints);
+    int headerSize = getHeaderSize(bbox);
+    int bufferSize = headerSize + numPoints * coordType.bytes;
     GeometryBuffer buffer =
         createGeometryBuffer(
-            WKBConstants.wkbMultiPoint, coordType, multiPoint.getSRID(), bufferSize, numPoints);
+            WKBConstants.wkbMultiPoint,
+            coordType,
+            multiPoint.getSRID(),
+            bufferSize,
+            numPoints,
+            bbox);
     for (int k = 0; k < numPoints; k++) {
       Point point = (Point) multiPoint.getGeometryN(k);
       Coordinate coordinate = point.getCoordinate();
-      int coordinateOffset = 8 + k * coordType.bytes;
+      int coordinateOffset = headerSize + k * coordType.bytes;
       if (coordinate == null) {
         buffer.putCoordinate(coordinateOffset, NULL_COORDINATE);
       } else {
@@ -165,14 +264,15 @@ public class GeometrySerializer {
     return buffer;
   }
 
-  private static MultiPoint deserializeMultiPoint(GeometryBuffer buffer, GeometryFactory factory) {
+  private static MultiPoint deserializeMultiPoint(
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     CoordinateType coordType = buffer.getCoordinateType();
     int numPoints = getBoundedInt(buffer, 4);
-    int bufferSize = 8 + numPoints * coordType.bytes;
+    int bufferSize = headerSize + numPoints * coordType.bytes;
     checkBufferSize(buffer, bufferSize);
     Point[] points = new Point[numPoints];
     for (int i = 0; i < numPoints; i++) {
-      CoordinateSequence coordinates = buffer.getCoordinate(8 + i * coordType.bytes);
+      CoordinateSequence coordinates = buffer.getCoordinate(headerSize + i * coordType.bytes);
       Coordinate coordinate = coordinates.getCoordinate(0);
       if (Double.isNaN(coordinate.x)) {
         points[i] = factory.createPoint();
@@ -189,27 +289,36 @@ public class GeometrySerializer {
     int numCoordinates = coordinates.size();
     if (numCoordinates == 0) {
       return createGeometryBuffer(
-          WKBConstants.wkbLineString, CoordinateType.XY, lineString.getSRID(), 8, 0);
+          WKBConstants.wkbLineString,
+          CoordinateType.XY,
+          lineString.getSRID(),
+          HEADER_SIZE,
+          0,
+          null);
     }
     CoordinateType coordType = getCoordinateType(coordinates.getCoordinate(0));
-    int bufferSize = 8 + numCoordinates * coordType.bytes;
+    Envelope bbox = getBoundingBox(lineString, numCoordinates);
+    int headerSize = getHeaderSize(bbox);
+    int bufferSize = headerSize + numCoordinates * coordType.bytes;
     GeometryBuffer buffer =
         createGeometryBuffer(
             WKBConstants.wkbLineString,
             coordType,
             lineString.getSRID(),
             bufferSize,
-            numCoordinates);
-    buffer.putCoordinates(8, coordinates);
+            numCoordinates,
+            bbox);
+    buffer.putCoordinates(headerSize, coordinates);
     return buffer;
   }
 
-  private static LineString deserializeLineString(GeometryBuffer buffer, GeometryFactory factory) {
+  private static LineString deserializeLineString(
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     CoordinateType coordType = buffer.getCoordinateType();
     int numCoordinates = getBoundedInt(buffer, 4);
-    int bufferSize = 8 + numCoordinates * coordType.bytes;
+    int bufferSize = headerSize + numCoordinates * coordType.bytes;
     checkBufferSize(buffer, bufferSize);
-    CoordinateSequence coordinates = buffer.getCoordinates(8, numCoordinates);
+    CoordinateSequence coordinates = buffer.getCoordinates(headerSize, numCoordinates);
     buffer.mark(bufferSize);
     return factory.createLineString(coordinates);
   }
@@ -218,8 +327,9 @@ public class GeometrySerializer {
     int numLineStrings = multiLineString.getNumGeometries();
     CoordinateType coordType = getCoordinateType(multiLineString);
     int numCoordinates = multiLineString.getNumPoints();
-    int coordsOffset = 8;
-    int numOffset = 8 + numCoordinates * coordType.bytes;
+    Envelope bbox = getBoundingBox(multiLineString, numCoordinates);
+    int coordsOffset = getHeaderSize(bbox);
+    int numOffset = coordsOffset + numCoordinates * coordType.bytes;
     int bufferSize = numOffset + 4 + numLineStrings * 4;
     GeometryBuffer buffer =
         createGeometryBuffer(
@@ -227,7 +337,8 @@ public class GeometrySerializer {
             coordType,
             multiLineString.getSRID(),
             bufferSize,
-            numCoordinates);
+            numCoordinates,
+            bbox);
     GeomPartSerializer serializer =
         new GeomPartSerializer(buffer, coordsOffset, numOffset, multiLineString.getFactory());
     serializer.writeInt(numLineStrings);
@@ -240,11 +351,11 @@ public class GeometrySerializer {
   }
 
   private static MultiLineString deserializeMultiLineString(
-      GeometryBuffer buffer, GeometryFactory factory) {
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     CoordinateType coordType = buffer.getCoordinateType();
     int numCoordinates = getBoundedInt(buffer, 4);
-    int coordsOffset = 8;
-    int numOffset = 8 + numCoordinates * coordType.bytes;
+    int coordsOffset = headerSize;
+    int numOffset = headerSize + numCoordinates * coordType.bytes;
     GeomPartSerializer serializer =
         new GeomPartSerializer(buffer, coordsOffset, numOffset, factory);
     int numLineStrings = serializer.checkedReadBoundedInt();
@@ -262,18 +373,24 @@ public class GeometrySerializer {
     LinearRing exteriorRing = polygon.getExteriorRing();
     if (exteriorRing == null || exteriorRing.isEmpty()) {
       return createGeometryBuffer(
-          WKBConstants.wkbPolygon, CoordinateType.XY, polygon.getSRID(), 8, 0);
+          WKBConstants.wkbPolygon, CoordinateType.XY, polygon.getSRID(), HEADER_SIZE, 0, null);
     }
     CoordinateSequence coordinates = exteriorRing.getCoordinateSequence();
     CoordinateType coordType = getCoordinateType(coordinates.getCoordinate(0));
     int numCoordinates = polygon.getNumPoints();
     int numInteriorRings = polygon.getNumInteriorRing();
-    int coordsOffset = 8;
-    int numRingsOffset = 8 + numCoordinates * coordType.bytes;
+    Envelope bbox = getBoundingBox(polygon, numCoordinates);
+    int coordsOffset = getHeaderSize(bbox);
+    int numRingsOffset = coordsOffset + numCoordinates * coordType.bytes;
     int bufferSize = numRingsOffset + 4 + 4 * (numInteriorRings + 1);
     GeometryBuffer buffer =
         createGeometryBuffer(
-            WKBConstants.wkbPolygon, coordType, polygon.getSRID(), bufferSize, numCoordinates);
+            WKBConstants.wkbPolygon,
+            coordType,
+            polygon.getSRID(),
+            bufferSize,
+            numCoordinates,
+            bbox);
     GeomPartSerializer serializer =
         new GeomPartSerializer(buffer, coordsOffset, numRingsOffset, polygon.getFactory());
     serializer.write(polygon);
@@ -281,15 +398,16 @@ public class GeometrySerializer {
     return buffer;
   }
 
-  private static Polygon deserializePolygon(GeometryBuffer buffer, GeometryFactory factory) {
+  private static Polygon deserializePolygon(
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     CoordinateType coordType = buffer.getCoordinateType();
     int numCoordinates = getBoundedInt(buffer, 4);
     if (numCoordinates == 0) {
-      buffer.mark(8);
+      buffer.mark(headerSize);
       return factory.createPolygon();
     }
-    int coordsOffset = 8;
-    int numRingsOffset = 8 + numCoordinates * coordType.bytes;
+    int coordsOffset = headerSize;
+    int numRingsOffset = headerSize + numCoordinates * coordType.bytes;
     GeomPartSerializer serializer =
         new GeomPartSerializer(buffer, coordsOffset, numRingsOffset, factory);
     Polygon polygon = serializer.readPolygon();
@@ -310,8 +428,9 @@ public class GeometrySerializer {
         numCoordinates += polygon.getNumPoints();
       }
     }
-    int coordsOffset = 8;
-    int numPolygonsOffset = 8 + numCoordinates * coordType.bytes;
+    Envelope bbox = getBoundingBox(multiPolygon, numCoordinates);
+    int coordsOffset = getHeaderSize(bbox);
+    int numPolygonsOffset = coordsOffset + numCoordinates * coordType.bytes;
     int bufferSize = numPolygonsOffset + 4 + (numPolygons * 4) + (totalRings * 4);
     GeometryBuffer buffer =
         createGeometryBuffer(
@@ -319,7 +438,8 @@ public class GeometrySerializer {
             coordType,
             multiPolygon.getSRID(),
             bufferSize,
-            numCoordinates);
+            numCoordinates,
+            bbox);
     GeomPartSerializer serializer =
         new GeomPartSerializer(buffer, coordsOffset, numPolygonsOffset, multiPolygon.getFactory());
     serializer.writeInt(numPolygons);
@@ -332,11 +452,11 @@ public class GeometrySerializer {
   }
 
   private static MultiPolygon deserializeMultiPolygon(
-      GeometryBuffer buffer, GeometryFactory factory) {
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     CoordinateType coordType = buffer.getCoordinateType();
     int numCoordinates = getBoundedInt(buffer, 4);
-    int coordsOffset = 8;
-    int numPolygonsOffset = 8 + numCoordinates * coordType.bytes;
+    int coordsOffset = headerSize;
+    int numPolygonsOffset = headerSize + numCoordinates * coordType.bytes;
     GeomPartSerializer serializer =
         new GeomPartSerializer(buffer, coordsOffset, numPolygonsOffset, factory);
     int numPolygons = serializer.checkedReadBoundedInt();
@@ -356,8 +476,9 @@ public class GeometrySerializer {
           WKBConstants.wkbGeometryCollection,
           CoordinateType.XY,
           geometryCollection.getSRID(),
-          8,
-          0);
+          HEADER_SIZE,
+          0,
+          null);
     }
     byte[][] buffers = new byte[numGeometries][];
     int totalBytes = 0;
@@ -366,15 +487,16 @@ public class GeometrySerializer {
       buffers[k] = buf;
       totalBytes += alignedOffset(buf.length);
     }
-    int bufferSize = 8 + totalBytes;
+    int bufferSize = HEADER_SIZE + totalBytes;
     GeometryBuffer buffer =
         createGeometryBuffer(
             WKBConstants.wkbGeometryCollection,
             CoordinateType.XY,
             geometryCollection.getSRID(),
             bufferSize,
-            numGeometries);
-    int offset = 8;
+            numGeometries,
+            null);
+    int offset = HEADER_SIZE;
     for (int k = 0; k < numGeometries; k++) {
       byte[] buf = buffers[k];
       buffer.putBytes(offset, buf);
@@ -385,14 +507,14 @@ public class GeometrySerializer {
   }
 
   private static GeometryCollection deserializeGeometryCollection(
-      GeometryBuffer buffer, GeometryFactory factory) {
+      GeometryBuffer buffer, int headerSize, GeometryFactory factory) {
     int numGeometries = getBoundedInt(buffer, 4);
     if (numGeometries == 0) {
-      buffer.mark(8);
+      buffer.mark(headerSize);
       return factory.createGeometryCollection();
     }
     Geometry[] geometries = new Geometry[numGeometries];
-    int offset = 8;
+    int offset = headerSize;
     for (int k = 0; k < numGeometries; k++) {
       GeometryBuffer geomBuffer = buffer.slice(offset);
       Geometry geometry = deserialize(geomBuffer, factory);
@@ -405,13 +527,21 @@ public class GeometrySerializer {
   }
 
   private static GeometryBuffer createGeometryBuffer(
-      int wkbType, CoordinateType coordType, int srid, int bufferSize, int numCoordinates) {
+      int wkbType,
+      CoordinateType coordType,
+      int srid,
+      int bufferSize,
+      int numCoordinates,
+      Envelope bbox) {
     GeometryBuffer buffer = GeometryBufferFactory.create(bufferSize);
     buffer.setCoordinateType(coordType);
 
     // Set header bytes [preamble][srid (3 bytes)][numCoordinates (4 bytes)]
     int hasSridBit = (srid != 0 ? 1 : 0);
     int preambleByte = (wkbType << 4) | (coordType.value << 1) | hasSridBit;
+    if (bbox != null) {
+      preambleByte |= BBOX_FLAG;
+    }
     buffer.putByte(0, (byte) preambleByte);
     if (srid != 0) {
       // Store SRID in the next 3 bytes in big endian byte order, with the highest bit set
@@ -421,9 +551,29 @@ public class GeometrySerializer {
       buffer.putByte(3, (byte) srid);
     }
     buffer.putInt(4, numCoordinates);
+
+    // Set bounding box [minX][minY][maxX][maxY] following the header
+    if (bbox != null) {
+      buffer.putDouble(HEADER_SIZE, bbox.getMinX());
+      buffer.putDouble(HEADER_SIZE + 8, bbox.getMinY());
+      buffer.putDouble(HEADER_SIZE + 16, bbox.getMaxX());
+      buffer.putDouble(HEADER_SIZE + 24, bbox.getMaxY());
+    }
     return buffer;
   }
 
+  private static Envelope getBoundingBox(Geometry geometry, int numCoordinates) {
+    if (numCoordinates < BBOX_MIN_COORDINATES) {
+      return null;
+    }
+    Envelope envelope = geometry.getEnvelopeInternal();
+    return envelope.isNull() ? null : envelope;
+  }
+
+  private static int getHeaderSize(Envelope bbox) {
+    return bbox != null ? BBOX_HEADER_SIZE : HEADER_SIZE;
+  }
+
   private static void checkBufferSize(GeometryBuffer buffer, int minimumSize) {
     if (buffer.getLength() < minimumSize) {
       throw new IllegalArgumentException("Buffer to be deserialized is incomplete");
@@ -131,6 +131,18 @@ class UnsafeGeometryBuffer implements GeometryBuffer {
     return UNSAFE.getInt(bytes, baseOffset + offset);
   }
 
+  @Override
+  public void putDouble(int offset, double value) {
+    assert baseOffset + offset + 8 <= bytes.length + BYTE_ARRAY_BASE_OFFSET;
+    UNSAFE.putDouble(bytes, baseOffset + offset, value);
+  }
+
+  @Override
+  public double getDouble(int offset) {
+    assert baseOffset + offset + 8 <= bytes.length + BYTE_ARRAY_BASE_OFFSET;
+    return UNSAFE.getDouble(bytes, baseOffset + offset);
+  }
+
   @Override
   public void putCoordinate(int offset, Coordinate coordinate) {
     long coordOffset = baseOffset + offset;
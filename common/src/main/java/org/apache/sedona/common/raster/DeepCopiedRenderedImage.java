@@ -20,6 +20,7 @@ package org.apache.sedona.common.raster;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.JavaSerializer;
@@ -429,6 +430,17 @@ public final class DeepCopiedRenderedImage
 
   @Override
   public void write(Kryo kryo, Output output) {
+    write(kryo, output, awtRasterSerializer);
+  }
+
+  /**
+   * Writes this image with a custom serializer for its raster.
+   *
+   * @param kryo the kryo instance
+   * @param output the output to write to
+   * @param rasterSerializer the serializer for the raster holding the pixels of this image
+   */
+  public void write(Kryo kryo, Output output, Serializer<Raster> rasterSerializer) {
     // write basic properties
     output.writeInt(minX);
     output.writeInt(minY);
@@ -450,12 +462,23 @@ public final class DeepCopiedRenderedImage
     } else {
       serializedRaster = imageRaster;
     }
-    awtRasterSerializer.write(kryo, output, serializedRaster);
+    rasterSerializer.write(kryo, output, serializedRaster);
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public void read(Kryo kryo, Input input) {
+    read(kryo, input, awtRasterSerializer);
+  }
+
+  /**
+   * Reads an image written by {@link #write(Kryo, Output, Serializer)}.
+   *
+   * @param kryo the kryo instance
+   * @param input the input to read from
+   * @param rasterSerializer the serializer for the raster holding the pixels of this image
+   */
+  @SuppressWarnings("unchecked")
+  public void read(Kryo kryo, Input input, Serializer<Raster> rasterSerializer) {
     // read basic properties
     minX = input.readInt();
     minY = input.readInt();
@@ -481,7 +504,7 @@ public final class DeepCopiedRenderedImage
     this.colorModel = (ColorModel) cmState.getObject();
 
     // read raster
-    this.imageRaster = awtRasterSerializer.read(kryo, input, Raster.class);
+    this.imageRaster = rasterSerializer.read(kryo, input, Raster.class);
 
     // The deserialized rendered image contains only one tile (imageRaster). We need to update
     // the sample model and tile properties to reflect this.
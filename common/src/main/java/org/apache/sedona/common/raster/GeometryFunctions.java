@@ -140,12 +140,16 @@ public class GeometryFunctions {
   }
 
   public static Geometry envelope(GridCoverage2D raster) throws FactoryException {
-    ReferencedEnvelope envelope2D = raster.getEnvelope2D();
+    return envelope(RasterHeader.of(raster));
+  }
+
+  public static Geometry envelope(RasterHeader header) throws FactoryException {
+    ReferencedEnvelope envelope2D = header.getGridGeometry().getEnvelope2D();
 
     Envelope envelope =
         new Envelope(
             envelope2D.getMinX(), envelope2D.getMaxX(), envelope2D.getMinY(), envelope2D.getMaxY());
-    int srid = RasterAccessors.srid(raster);
+    int srid = RasterAccessors.srid(header);
     return new GeometryFactory(new PrecisionModel(), srid).toGeometry(envelope);
   }
 }
@@ -19,20 +19,25 @@
 package org.apache.sedona.common.raster;
 
 import it.geosolutions.jaiext.jiffle.JiffleBuilder;
+import it.geosolutions.jaiext.jiffle.JiffleException;
+import it.geosolutions.jaiext.jiffle.runtime.CoordinateTransforms;
 import it.geosolutions.jaiext.jiffle.runtime.JiffleDirectRuntime;
-import java.awt.image.BufferedImage;
+import java.awt.Rectangle;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.awt.image.WritableRenderedImage;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
 import org.apache.sedona.common.utils.RasterUtils;
 import org.geotools.coverage.grid.GridCoverage2D;
 
@@ -51,14 +56,30 @@ public class MapAlgebra {
       return null;
     }
 
-    Raster raster = RasterUtils.getRaster(rasterGeom.getRenderedImage());
+    RenderedImage image = rasterGeom.getRenderedImage();
     // Get the width and height of the raster
-    int width = raster.getWidth();
-    int height = raster.getHeight();
+    int width = image.getWidth();
+    int height = image.getHeight();
 
     // Array to hold the band values
     double[] bandValues = new double[width * height];
-    return raster.getSamples(0, 0, width, height, bandIndex - 1, bandValues);
+    if (RasterUtils.isBackedByBufferedImage(image)) {
+      Raster raster = RasterUtils.getRaster(image);
+      return raster.getSamples(0, 0, width, height, bandIndex - 1, bandValues);
+    }
+
+    // Fetching the data of other images copies all the bands of the requested region, so the
+    // band is fetched one strip of rows at a time instead of copying the whole image at once
+    int stripRows = Math.min(stripHeight(width), height);
+    double[] stripValues = new double[width * stripRows];
+    for (int y0 = 0; y0 < height; y0 += stripRows) {
+      int rows = Math.min(stripRows, height - y0);
+      Raster strip =
+          image.getData(new Rectangle(image.getMinX(), image.getMinY() + y0, width, rows));
+      strip.getSamples(strip.getMinX(), strip.getMinY(), width, rows, bandIndex - 1, stripValues);
+      System.arraycopy(stripValues, 0, bandValues, y0 * width, width * rows);
+    }
+    return bandValues;
   }
 
   /**
@@ -119,6 +140,13 @@ public class MapAlgebra {
   private static final ThreadLocal<String> previousScript = new ThreadLocal<>();
   private static final ThreadLocal<JiffleDirectRuntime> previousRuntime = new ThreadLocal<>();
 
+  /**
+   * Number of pixels map algebra evaluates at once. Scripts are evaluated one strip of rows at a
+   * time, so that the intermediate double image Jiffle writes into never exceeds one strip,
+   * whatever the size of the raster.
+   */
+  static final int STRIP_PIXELS = 1 << 20;
+
   /**
    * Applies a map algebra script to the given raster.
    *
@@ -134,62 +162,15 @@ public class MapAlgebra {
     if (gridCoverage2D == null || script == null) {
       return null;
     }
-    RenderedImage renderedImage = gridCoverage2D.getRenderedImage();
-    int rasterDataType =
-        pixelType != null
-            ? RasterUtils.getDataTypeCode(pixelType)
-            : renderedImage.getSampleModel().getDataType();
-    int width = renderedImage.getWidth();
-    int height = renderedImage.getHeight();
-    // ImageUtils.createConstantImage is slow, manually constructing a buffered image proved to be
-    // faster.
-    // It also eliminates the data-copying overhead when converting raster data types after running
-    // jiffle script.
-    WritableRaster resultRaster =
-        RasterFactory.createBandedRaster(DataBuffer.TYPE_DOUBLE, width, height, 1, null);
-    ColorModel cm = fetchColorModel(renderedImage.getColorModel(), resultRaster);
-    WritableRenderedImage resultImage = new BufferedImage(cm, resultRaster, false, null);
-    try {
-      String prevScript = previousScript.get();
-      JiffleDirectRuntime prevRuntime = previousRuntime.get();
-      JiffleDirectRuntime runtime;
-      if (prevRuntime != null && script.equals(prevScript)) {
-        // Reuse the runtime to avoid recompiling the script
-        runtime = prevRuntime;
-        runtime.setSourceImage("rast", renderedImage);
-        runtime.setDestinationImage("out", resultImage);
-        runtime.setDefaultBounds();
-      } else {
-        JiffleBuilder builder = new JiffleBuilder();
-        runtime =
-            builder
-                .script(script)
-                .source("rast", renderedImage)
-                .dest("out", resultImage)
-                .getRuntime();
-        previousScript.set(script);
-        previousRuntime.set(runtime);
-      }
-
-      runtime.evaluateAll(null);
-
-      // If pixelType does not match with the data type of the result image (should be double since
-      // Jiffle only supports
-      // double destination image), we need to convert the resultImage to the specified pixel type.
-      if (rasterDataType != resultImage.getSampleModel().getDataType()) {
-        // Copy the resultImage to a new raster with the specified pixel type
-        WritableRaster convertedRaster =
-            RasterFactory.createBandedRaster(rasterDataType, width, height, 1, null);
-        double[] samples = resultRaster.getSamples(0, 0, width, height, 0, (double[]) null);
-        convertedRaster.setSamples(0, 0, width, height, 0, samples);
-        return RasterUtils.clone(convertedRaster, null, gridCoverage2D, noDataValue, false);
-      } else {
-        // build a new GridCoverage2D from the resultImage
-        return RasterUtils.clone(resultImage, null, gridCoverage2D, noDataValue, false);
-      }
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to run map algebra", e);
-    }
+    Map<String, RenderedImage> sourceImages = new LinkedHashMap<>();
+    sourceImages.put("rast", gridCoverage2D.getRenderedImage());
+    return mapAlgebra(
+        gridCoverage2D,
+        sourceImages,
+        pixelType,
+        script,
+        noDataValue,
+        stripHeight(gridCoverage2D.getRenderedImage().getWidth()));
   }
 
   public static GridCoverage2D mapAlgebra(
@@ -197,15 +178,6 @@ public class MapAlgebra {
     return mapAlgebra(gridCoverage2D, pixelType, script, null);
   }
 
-  private static ColorModel fetchColorModel(
-      ColorModel originalColorModel, WritableRaster resultRaster) {
-    if (originalColorModel.isCompatibleRaster(resultRaster)) {
-      return originalColorModel;
-    } else {
-      return PlanarImage.createColorModel(resultRaster.getSampleModel());
-    }
-  }
-
   public static GridCoverage2D mapAlgebra(
       GridCoverage2D rast0,
       GridCoverage2D rast1,
@@ -216,70 +188,109 @@ public class MapAlgebra {
       return null;
     }
     RasterUtils.isRasterSameShape(rast0, rast1);
+    Map<String, RenderedImage> sourceImages = new LinkedHashMap<>();
+    sourceImages.put("rast0", rast0.getRenderedImage());
+    sourceImages.put("rast1", rast1.getRenderedImage());
+    return mapAlgebra(
+        rast0,
+        sourceImages,
+        pixelType,
+        script,
+        noDataValue,
+        stripHeight(rast0.getRenderedImage().getWidth()));
+  }
+
+  static int stripHeight(int width) {
+    return Math.max(1, STRIP_PIXELS / Math.max(1, width));
+  }
 
-    RenderedImage renderedImageRast0 = rast0.getRenderedImage();
+  /**
+   * Evaluates a map algebra script over strips of rows. Jiffle only writes double destination
+   * images, so each strip is evaluated into a double image and copied into the result raster,
+   * which is allocated with the requested pixel type up front. This avoids both a full size double
+   * image and a second full size copy for converting it to the requested pixel type.
+   *
+   * @param referenceRaster The raster providing the shape, pixel type and georeference of the
+   *     result
+   * @param sourceImages The images bound to the source variables of the script
+   * @param pixelType The pixel type of the output raster. If null, the pixel type of the reference
+   *     raster is used.
+   * @param script The script to apply
+   * @param noDataValue The no data value of the output raster.
+   * @param stripHeight The number of rows evaluated at once
+   * @return The result of the map algebra script
+   */
+  static GridCoverage2D mapAlgebra(
+      GridCoverage2D referenceRaster,
+      Map<String, RenderedImage> sourceImages,
+      String pixelType,
+      String script,
+      Double noDataValue,
+      int stripHeight) {
+    RenderedImage referenceImage = referenceRaster.getRenderedImage();
     int rasterDataType =
         pixelType != null
             ? RasterUtils.getDataTypeCode(pixelType)
-            : renderedImageRast0.getSampleModel().getDataType();
-    int width = renderedImageRast0.getWidth();
-    int height = renderedImageRast0.getHeight();
-    // ImageUtils.createConstantImage is slow, manually constructing a buffered image proved to be
-    // faster.
-    // It also eliminates the data-copying overhead when converting raster data types after running
-    // jiffle script.
+            : referenceImage.getSampleModel().getDataType();
+    int width = referenceImage.getWidth();
+    int height = referenceImage.getHeight();
+    int stripRows = Math.max(1, Math.min(stripHeight, height));
     WritableRaster resultRaster =
-        RasterFactory.createBandedRaster(DataBuffer.TYPE_DOUBLE, width, height, 1, null);
-
-    ColorModel cmRast0 = fetchColorModel(renderedImageRast0.getColorModel(), resultRaster);
-    RenderedImage renderedImageRast1 = rast1.getRenderedImage();
-
-    WritableRenderedImage resultImage = new BufferedImage(cmRast0, resultRaster, false, null);
+        RasterFactory.createBandedRaster(rasterDataType, width, height, 1, null);
+    SampleModel stripSampleModel =
+        RasterFactory.createBandedSampleModel(DataBuffer.TYPE_DOUBLE, width, stripRows, 1);
+    ColorModel stripColorModel = PlanarImage.createColorModel(stripSampleModel);
+    double[] samples = new double[width * stripRows];
     try {
-      String prevScript = previousScript.get();
-      JiffleDirectRuntime prevRuntime = previousRuntime.get();
-      JiffleDirectRuntime runtime;
-      if (prevRuntime != null && script.equals(prevScript)) {
-        // Reuse the runtime to avoid recompiling the script
-        runtime = prevRuntime;
-        runtime.setSourceImage("rast0", renderedImageRast0);
-        runtime.setSourceImage("rast1", renderedImageRast1);
-        runtime.setDestinationImage("out", resultImage);
-        runtime.setDefaultBounds();
-      } else {
-        JiffleBuilder builder = new JiffleBuilder();
-        runtime =
-            builder
-                .script(script)
-                .source("rast0", renderedImageRast0)
-                .source("rast1", renderedImageRast1)
-                .dest("out", resultImage)
-                .getRuntime();
-        previousScript.set(script);
-        previousRuntime.set(runtime);
-      }
-
-      runtime.evaluateAll(null);
-
-      // If pixelType does not match with the data type of the result image (should be double since
-      // Jiffle only supports
-      // double destination image), we need to convert the resultImage to the specified pixel type.
-      if (rasterDataType != resultImage.getSampleModel().getDataType()) {
-        // Copy the resultImage to a new raster with the specified pixel type
-        WritableRaster convertedRaster =
-            RasterFactory.createBandedRaster(rasterDataType, width, height, 1, null);
-        double[] samples = resultRaster.getSamples(0, 0, width, height, 0, (double[]) null);
-        convertedRaster.setSamples(0, 0, width, height, 0, samples);
-        return RasterUtils.clone(convertedRaster, null, rast0, noDataValue, false);
-      } else {
-        // build a new GridCoverage2D from the resultImage
-        return RasterUtils.clone(resultImage, null, rast0, noDataValue, false);
+      JiffleDirectRuntime runtime = null;
+      for (int y0 = 0; y0 < height; y0 += stripRows) {
+        int rows = Math.min(stripRows, height - y0);
+        TiledImage stripImage =
+            new TiledImage(0, y0, width, stripRows, 0, y0, stripSampleModel, stripColorModel);
+        if (runtime == null) {
+          runtime = fetchRuntime(script, sourceImages, stripImage);
+          // The world spans the whole raster so that functions such as width() and height() see
+          // the full raster rather than the current strip
+          runtime.setWorldByResolution(new Rectangle(0, 0, width, height), 1, 1);
+          for (Map.Entry<String, RenderedImage> source : sourceImages.entrySet()) {
+            runtime.setSourceImage(
+                source.getKey(), source.getValue(), CoordinateTransforms.identity());
+          }
+        }
+        runtime.setDestinationImage("out", stripImage, CoordinateTransforms.identity());
+        for (int y = y0; y < y0 + rows; y++) {
+          for (int x = 0; x < width; x++) {
+            runtime.evaluate(x, y);
+          }
+        }
+        stripImage.getTile(0, 0).getSamples(0, y0, width, rows, 0, samples);
+        resultRaster.setSamples(0, y0, width, rows, 0, samples);
       }
+      return RasterUtils.clone(resultRaster, null, referenceRaster, noDataValue, false);
     } catch (Exception e) {
       throw new RuntimeException("Failed to run map algebra", e);
     }
   }
 
+  private static JiffleDirectRuntime fetchRuntime(
+      String script, Map<String, RenderedImage> sourceImages, WritableRenderedImage destImage)
+      throws JiffleException {
+    String prevScript = previousScript.get();
+    JiffleDirectRuntime prevRuntime = previousRuntime.get();
+    if (prevRuntime != null && script.equals(prevScript)) {
+      // Reuse the runtime to avoid recompiling the script
+      return prevRuntime;
+    }
+    JiffleBuilder builder = new JiffleBuilder().script(script);
+    for (Map.Entry<String, RenderedImage> source : sourceImages.entrySet()) {
+      builder.source(source.getKey(), source.getValue());
+    }
+    JiffleDirectRuntime runtime = builder.dest("out", destImage).getRuntime();
+    previousScript.set(script);
+    previousRuntime.set(runtime);
+    return runtime;
+  }
+
   /**
    * @param band1 band values
    * @param band2 band values
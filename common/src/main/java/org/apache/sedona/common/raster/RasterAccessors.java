@@ -19,7 +19,6 @@
 package org.apache.sedona.common.raster;
 
 import java.awt.geom.Point2D;
-import java.awt.image.RenderedImage;
 import java.util.Arrays;
 import java.util.Set;
 import org.apache.sedona.common.utils.RasterUtils;
@@ -38,7 +37,14 @@ import org.locationtech.jts.geom.Point;
 
 public class RasterAccessors {
   public static int srid(GridCoverage2D raster) throws FactoryException {
-    CoordinateReferenceSystem crs = raster.getCoordinateReferenceSystem();
+    return srid(raster.getCoordinateReferenceSystem());
+  }
+
+  public static int srid(RasterHeader header) throws FactoryException {
+    return srid(header.getCoordinateReferenceSystem());
+  }
+
+  private static int srid(CoordinateReferenceSystem crs) {
     if (crs instanceof DefaultEngineeringCRS) {
       // GeoTools defaults to internal non-standard epsg codes, like 404000, if crs is missing.
       // We need to check for this case and return 0 instead.
@@ -62,14 +68,26 @@ public class RasterAccessors {
     return raster.getNumSampleDimensions();
   }
 
+  public static int numBands(RasterHeader header) {
+    return header.getNumBands();
+  }
+
   public static int getWidth(GridCoverage2D raster) {
     return raster.getGridGeometry().getGridRange().getSpan(0);
   }
 
+  public static int getWidth(RasterHeader header) {
+    return header.getGridGeometry().getGridRange().getSpan(0);
+  }
+
   public static int getHeight(GridCoverage2D raster) {
     return raster.getGridGeometry().getGridRange().getSpan(1);
   }
 
+  public static int getHeight(RasterHeader header) {
+    return header.getGridGeometry().getGridRange().getSpan(1);
+  }
+
   public static double getUpperLeftX(GridCoverage2D raster) {
     AffineTransform2D affine = RasterUtils.getGDALAffineTransform(raster);
     return affine.getTranslateX();
@@ -119,12 +137,21 @@ public class RasterAccessors {
   }
 
   public static String getGeoReference(GridCoverage2D raster, String format) {
-    double scaleX = getScaleX(raster);
-    double skewX = getSkewX(raster);
-    double skewY = getSkewY(raster);
-    double scaleY = getScaleY(raster);
-    double upperLeftX = getUpperLeftX(raster);
-    double upperLeftY = getUpperLeftY(raster);
+    return getGeoReference(RasterHeader.of(raster), format);
+  }
+
+  public static String getGeoReference(RasterHeader header) {
+    return getGeoReference(header, "GDAL");
+  }
+
+  public static String getGeoReference(RasterHeader header, String format) {
+    AffineTransform2D affine = RasterUtils.getGDALAffineTransform(header.getGridGeometry());
+    double scaleX = affine.getScaleX();
+    double skewX = affine.getShearX();
+    double skewY = affine.getShearY();
+    double scaleY = affine.getScaleY();
+    double upperLeftX = affine.getTranslateX();
+    double upperLeftY = affine.getTranslateY();
 
     if (format.equalsIgnoreCase("GDAL")) {
       return String.format(
@@ -264,10 +291,21 @@ public class RasterAccessors {
    * @throws FactoryException
    */
   public static double[] metadata(GridCoverage2D raster) throws FactoryException {
+    return metadata(RasterHeader.of(raster));
+  }
+
+  /**
+   * Returns the metadata of a raster as an array of doubles, see {@link
+   * #metadata(GridCoverage2D)}.
+   *
+   * @param header the header of the raster
+   * @return double[] with the metadata of the raster
+   * @throws FactoryException
+   */
+  public static double[] metadata(RasterHeader header) throws FactoryException {
     // Get Geo-reference metadata
-    GridEnvelope2D gridRange = raster.getGridGeometry().getGridRange2D();
-    AffineTransform2D affine = RasterUtils.getGDALAffineTransform(raster);
-    RenderedImage image = raster.getRenderedImage();
+    GridEnvelope2D gridRange = header.getGridGeometry().getGridRange2D();
+    AffineTransform2D affine = RasterUtils.getGDALAffineTransform(header.getGridGeometry());
 
     // Get the affine parameters
     double upperLeftX = affine.getTranslateX();
@@ -276,8 +314,8 @@ public class RasterAccessors {
     double scaleY = affine.getScaleY();
     double skewX = affine.getShearX();
     double skewY = affine.getShearY();
-    double tileWidth = image.getTileWidth();
-    double tileHeight = image.getTileHeight();
+    double tileWidth = header.getTileWidth();
+    double tileHeight = header.getTileHeight();
     return new double[] {
       upperLeftX,
       upperLeftY,
@@ -287,8 +325,8 @@ public class RasterAccessors {
       scaleY,
       skewX,
       skewY,
-      srid(raster),
-      raster.getNumSampleDimensions(),
+      srid(header),
+      header.getNumBands(),
       tileWidth,
       tileHeight
     };
@@ -344,7 +382,19 @@ public class RasterAccessors {
    * @throws FactoryException
    */
   public static RasterMetadata rasterMetadata(GridCoverage2D raster) throws FactoryException {
-    double[] meta = metadata(raster);
+    return rasterMetadata(RasterHeader.of(raster));
+  }
+
+  /**
+   * Returns the metadata of a raster as a {@link RasterMetadata} object, see {@link
+   * #rasterMetadata(GridCoverage2D)}.
+   *
+   * @param header the header of the raster
+   * @return a {@link RasterMetadata} object
+   * @throws FactoryException
+   */
+  public static RasterMetadata rasterMetadata(RasterHeader header) throws FactoryException {
+    double[] meta = metadata(header);
     return new RasterMetadata(
         meta[0],
         meta[1],
@@ -25,10 +25,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import javax.media.jai.RasterFactory;
-import org.apache.commons.math3.stat.StatUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
-import org.apache.sedona.common.Functions;
 import org.apache.sedona.common.utils.RasterUtils;
 import org.geotools.api.referencing.FactoryException;
 import org.geotools.coverage.GridSampleDimension;
@@ -107,42 +105,60 @@ public class RasterBandAccessors {
       boolean excludeNoData,
       boolean lenient)
       throws FactoryException {
-    List<Object> objects = getStatObjects(raster, roi, band, allTouched, excludeNoData, lenient);
-    if (objects == null) {
+    ZonalStatistics stats =
+        ZonalStatistics.compute(raster, roi, band, allTouched, excludeNoData, lenient, true);
+    if (stats == null) {
       return null;
     }
-    DescriptiveStatistics stats = (DescriptiveStatistics) objects.get(0);
-    double[] pixelData = (double[]) objects.get(1);
+    return toZonalStatsArray(stats);
+  }
+
+  /**
+   * Computes all the zonal statistics of many zones over a raster. The zones are rasterized once
+   * into a label grid and the band is read in a single sweep over it, which is much cheaper than
+   * computing the statistics of each zone on its own.
+   *
+   * @param raster Raster to use for computing stats
+   * @param zones Geometries defining the zones
+   * @param band Band to be used for computation
+   * @param allTouched Include pixels touched by the zones
+   * @param excludeNoData Specifies whether to exclude no-data value or not
+   * @return An array with all the stats for each zone, in the same order as the zones. The entry
+   *     of a zone is null if the zone is null or does not intersect the raster.
+   * @throws FactoryException
+   */
+  public static Double[][] getZonalStatsAll(
+      GridCoverage2D raster, Geometry[] zones, int band, boolean allTouched, boolean excludeNoData)
+      throws FactoryException {
+    ZonalStatistics[] stats =
+        ZonalStatistics.computeBatch(raster, Arrays.asList(zones), band, allTouched, excludeNoData);
+    Double[][] result = new Double[stats.length][];
+    for (int i = 0; i < stats.length; i++) {
+      result[i] = stats[i] == null ? null : toZonalStatsArray(stats[i]);
+    }
+    return result;
+  }
 
+  private static Double[] toZonalStatsArray(ZonalStatistics stats) {
     // Shortcut for an edge case where ROI barely intersects with raster's extent, but it doesn't
     // intersect with the centroid of the pixel.
     // This happens when allTouched parameter is false.
-    if (pixelData.length == 0) {
+    if (stats.count() == 0) {
       return new Double[] {0.0, null, null, null, null, null, null, null, null};
     }
 
     // order of stats
     // count, sum, mean, median, mode, stddev, variance, min, max
     Double[] result = new Double[9];
-    result[0] = (double) stats.getN();
-    if (stats.getN() == 0) {
-      result[1] = null;
-    } else {
-      result[1] = stats.getSum();
-    }
-    double mean = stats.getMean();
-    result[2] = Double.isNaN(mean) ? null : mean;
-    double median = stats.getPercentile(50);
-    result[3] = Double.isNaN(median) ? null : median;
-    result[4] = zonalMode(pixelData);
-    double stdDev = stats.getStandardDeviation();
-    result[5] = Double.isNaN(stdDev) ? null : stats.getStandardDeviation();
-    double variance = stats.getVariance();
-    result[6] = Double.isNaN(variance) ? null : variance;
-    double min = stats.getMin();
-    result[7] = Double.isNaN(min) ? null : min;
-    double max = stats.getMax();
-    result[8] = Double.isNaN(max) ? null : max;
+    result[0] = (double) stats.count();
+    result[1] = stats.sum();
+    result[2] = stats.mean();
+    result[3] = stats.median();
+    result[4] = stats.mode();
+    result[5] = stats.stdDev();
+    result[6] = stats.variance();
+    result[7] = stats.min();
+    result[8] = stats.max();
 
     return result;
   }
@@ -221,45 +237,37 @@ public class RasterBandAccessors {
       boolean excludeNoData,
       boolean lenient)
       throws FactoryException {
-    List<Object> objects = getStatObjects(raster, roi, band, allTouched, excludeNoData, lenient);
-    if (objects == null) {
+    String stat = statType.toLowerCase();
+    // Only the median and the mode need the pixel values, other statistics are streamed
+    boolean keepValues = stat.equals("median") || stat.equals("mode");
+    ZonalStatistics stats =
+        ZonalStatistics.compute(raster, roi, band, allTouched, excludeNoData, lenient, keepValues);
+    if (stats == null) {
       return null;
     }
-    DescriptiveStatistics stats = (DescriptiveStatistics) objects.get(0);
-    double[] pixelData = (double[]) objects.get(1);
 
-    switch (statType.toLowerCase()) {
+    switch (stat) {
       case "sum":
-        if (pixelData.length == 0) {
-          return null;
-        } else {
-          return stats.getSum();
-        }
+        return stats.sum();
       case "average":
       case "avg":
       case "mean":
-        double mean = stats.getMean();
-        return Double.isNaN(mean) ? null : mean;
+        return stats.mean();
       case "count":
-        return (double) stats.getN();
+        return (double) stats.count();
       case "max":
-        double max = stats.getMax();
-        return Double.isNaN(max) ? null : max;
+        return stats.max();
       case "min":
-        double min = stats.getMin();
-        return Double.isNaN(min) ? null : min;
+        return stats.min();
       case "stddev":
       case "sd":
-        double stdDev = stats.getStandardDeviation();
-        return Double.isNaN(stdDev) ? null : stdDev;
+        return stats.stdDev();
       case "median":
-        double median = stats.getPercentile(50);
-        return Double.isNaN(median) ? null : median;
+        return stats.median();
       case "mode":
-        return zonalMode(pixelData);
+        return stats.mode();
       case "variance":
-        double variance = stats.getVariance();
-        return Double.isNaN(variance) ? null : variance;
+        return stats.variance();
       default:
         throw new IllegalArgumentException(
             "Please select from the accepted options. Some of the valid options are sum, mean, stddev, etc.");
@@ -332,104 +340,6 @@ public class RasterBandAccessors {
     return getZonalStats(raster, roi, 1, statType, false);
   }
 
-  /**
-   * @param pixelData An array of double with pixel values
-   * @return Mode of the pixel values. If there is multiple with same occurrence, then the largest
-   *     value will be returned.
-   */
-  private static Double zonalMode(double[] pixelData) {
-    double[] modes = StatUtils.mode(pixelData);
-    // Return NaN when ROI and raster's extent overlap, but there's no pixel data.
-    // This behavior only happens when allTouched parameter is false.
-    if (modes.length == 0) {
-      return null;
-    }
-    return modes[modes.length - 1];
-  }
-
-  /**
-   * An intermediate function to compute zonal statistics
-   *
-   * @param raster Raster to use for computing stats
-   * @param roi Geometry to define the region of interest
-   * @param band Band to be used for computation
-   * @param allTouched Include pixels touched by roi geometry
-   * @param excludeNoData Specifies whether to exclude no-data value or not
-   * @param lenient Return null if the raster and roi do not intersect when set to true, otherwise
-   *     will throw an exception
-   * @return an object of DescriptiveStatistics and an array of double with pixel data.
-   * @throws FactoryException
-   */
-  private static List<Object> getStatObjects(
-      GridCoverage2D raster,
-      Geometry roi,
-      int band,
-      boolean allTouched,
-      boolean excludeNoData,
-      boolean lenient)
-      throws FactoryException {
-    RasterUtils.ensureBand(raster, band);
-
-    if (RasterAccessors.srid(raster) != roi.getSRID()) {
-      // implicitly converting roi geometry CRS to raster CRS
-      roi = RasterUtils.convertCRSIfNeeded(roi, raster.getCoordinateReferenceSystem());
-      // have to set the SRID as RasterUtils.convertCRSIfNeeded doesn't set it even though the
-      // geometry is in raster's CRS
-      roi = Functions.setSRID(roi, RasterAccessors.srid(raster));
-    }
-
-    // checking if the raster contains the geometry
-    if (!RasterPredicates.rsIntersects(raster, roi)) {
-      if (lenient) {
-        return null;
-      } else {
-        throw new IllegalArgumentException(
-            "The provided geometry is not intersecting the raster. Please provide a geometry that is in the raster's extent.");
-      }
-    }
-
-    Raster rasterData = RasterUtils.getRaster(raster.getRenderedImage());
-    String datatype = RasterBandAccessors.getBandType(raster, band);
-    Double noDataValue = RasterBandAccessors.getBandNoDataValue(raster, band);
-    // Adding an arbitrary value '150' for the pixels that are under the geometry.
-    GridCoverage2D rasterizedGeom =
-        RasterConstructors.asRasterWithRasterExtent(roi, raster, datatype, allTouched, 150, null);
-    Raster rasterizedData = RasterUtils.getRaster(rasterizedGeom.getRenderedImage());
-    int width = RasterAccessors.getWidth(rasterizedGeom),
-        height = RasterAccessors.getHeight(rasterizedGeom);
-    double[] rasterizedPixelData =
-        rasterizedData.getSamples(0, 0, width, height, 0, (double[]) null);
-    double[] rasterPixelData =
-        rasterData.getSamples(0, 0, width, height, band - 1, (double[]) null);
-
-    List<Double> pixelData = new ArrayList<>();
-
-    for (int k = 0; k < rasterPixelData.length; k++) {
-
-      // Pixels with a value of 0 in the rasterizedPixelData are skipped during computation,
-      // as they fall outside the geometry specified by 'roi'.
-      // The region of interest defined by 'roi' contains pixel values of 150,
-      // as initialized when constructing the raster via
-      // RasterConstructors.asRasterWithRasterExtent.
-      if (rasterizedPixelData[k] == 0
-          || excludeNoData && noDataValue != null && rasterPixelData[k] == noDataValue) {
-        continue;
-      } else {
-        pixelData.add(rasterPixelData[k]);
-      }
-    }
-
-    double[] pixelsArray = pixelData.stream().mapToDouble(d -> d).toArray();
-
-    DescriptiveStatistics stats = new DescriptiveStatistics(pixelsArray);
-
-    List<Object> statObjects = new ArrayList<>();
-
-    statObjects.add(stats);
-    statObjects.add(pixelsArray);
-    return statObjects;
-  }
-
   public static double getSummaryStats(
       GridCoverage2D rasterGeom, String statType, int band, boolean excludeNoDataValue) {
     double[] stats = getSummaryStatsAll(rasterGeom, band, excludeNoDataValue);
@@ -644,76 +644,109 @@ public class RasterConstructors {
       int tileHeight,
       boolean padWithNoData,
       double padNoDataValue) {
+    RenderedImage image = gridCoverage2D.getRenderedImage();
+    int numTileX = (int) Math.ceil((double) image.getWidth() / tileWidth);
+    int numTileY = (int) Math.ceil((double) image.getHeight() / tileHeight);
+    Tile[] tiles = new Tile[numTileX * numTileY];
+    for (int tileY = 0; tileY < numTileY; tileY++) {
+      for (int tileX = 0; tileX < numTileX; tileX++) {
+        tiles[tileY * numTileX + tileX] =
+            generateTile(
+                gridCoverage2D,
+                bandIndices,
+                tileWidth,
+                tileHeight,
+                tileX,
+                tileY,
+                padWithNoData,
+                padNoDataValue);
+      }
+    }
+
+    return tiles;
+  }
+
+  /**
+   * Generate a single tile of a grid coverage. Only the pixels covered by the tile are fetched
+   * from the rendered image of the grid coverage, so calling this on a lazily loaded grid coverage
+   * only reads the image blocks the tile intersects.
+   *
+   * @param gridCoverage2D the grid coverage
+   * @param bandIndices the indices of the bands to select (1-based)
+   * @param tileWidth the width of the tiles
+   * @param tileHeight the height of the tiles
+   * @param tileX the column index of the tile
+   * @param tileY the row index of the tile
+   * @param padWithNoData whether to pad the tile with no data value
+   * @param padNoDataValue the no data value for padded tiles, only used when padWithNoData is true.
+   *     If the value is NaN, the no data value of the original band will be used.
+   * @return the tile
+   */
+  public static Tile generateTile(
+      GridCoverage2D gridCoverage2D,
+      int[] bandIndices,
+      int tileWidth,
+      int tileHeight,
+      int tileX,
+      int tileY,
+      boolean padWithNoData,
+      double padNoDataValue) {
     AffineTransform2D affine =
         RasterUtils.getAffineTransform(gridCoverage2D, PixelOrientation.CENTER);
     RenderedImage image = gridCoverage2D.getRenderedImage();
-    double[] noDataValues = new double[bandIndices.length];
-    for (int i = 0; i < bandIndices.length; i++) {
-      noDataValues[i] =
-          RasterUtils.getNoDataValue(gridCoverage2D.getSampleDimension(bandIndices[i] - 1));
-    }
     int width = image.getWidth();
     int height = image.getHeight();
-    int numTileX = (int) Math.ceil((double) width / tileWidth);
-    int numTileY = (int) Math.ceil((double) height / tileHeight);
-    Tile[] tiles = new Tile[numTileX * numTileY];
-    for (int tileY = 0; tileY < numTileY; tileY++) {
-      for (int tileX = 0; tileX < numTileX; tileX++) {
-        int x0 = tileX * tileWidth;
-        int y0 = tileY * tileHeight;
-
-        // Rect to copy from the original image
-        int rectWidth = Math.min(tileWidth, width - x0);
-        int rectHeight = Math.min(tileHeight, height - y0);
-
-        // If we don't pad with no data, the tiles on the boundary may have a different size
-        int currentTileWidth = padWithNoData ? tileWidth : rectWidth;
-        int currentTileHeight = padWithNoData ? tileHeight : rectHeight;
-        boolean needPadding = padWithNoData && (rectWidth < tileWidth || rectHeight < tileHeight);
-
-        // Create a new affine transformation for this tile
-        AffineTransform2D tileAffine = RasterUtils.translateAffineTransform(affine, x0, y0);
-        GridGeometry2D gridGeometry2D =
-            new GridGeometry2D(
-                new GridEnvelope2D(0, 0, currentTileWidth, currentTileHeight),
-                PixelInCell.CELL_CENTER,
-                tileAffine,
-                gridCoverage2D.getCoordinateReferenceSystem(),
-                null);
-
-        // Prepare a new image for this tile, and copy the data from the original image
-        WritableRaster raster =
-            RasterFactory.createBandedRaster(
-                image.getSampleModel().getDataType(),
-                currentTileWidth,
-                currentTileHeight,
-                bandIndices.length,
-                null);
-        GridSampleDimension[] sampleDimensions = new GridSampleDimension[bandIndices.length];
-        Raster sourceRaster = image.getData(new Rectangle(x0, y0, rectWidth, rectHeight));
-        for (int k = 0; k < bandIndices.length; k++) {
-          int bandIndex = bandIndices[k] - 1;
-
-          // Copy sample dimensions from source bands, and pad with no data value if necessary
-          GridSampleDimension sampleDimension = gridCoverage2D.getSampleDimension(bandIndex);
-          double noDataValue = noDataValues[k];
-          if (needPadding && !Double.isNaN(padNoDataValue)) {
-            sampleDimension =
-                RasterUtils.createSampleDimensionWithNoDataValue(sampleDimension, padNoDataValue);
-            noDataValue = padNoDataValue;
-          }
-          sampleDimensions[k] = sampleDimension;
-
-          // Copy data from original image to tile image
-          ImageUtils.copyRasterWithPadding(sourceRaster, bandIndex, raster, k, noDataValue);
-        }
+    int x0 = tileX * tileWidth;
+    int y0 = tileY * tileHeight;
+
+    // Rect to copy from the original image
+    int rectWidth = Math.min(tileWidth, width - x0);
+    int rectHeight = Math.min(tileHeight, height - y0);
 
-        GridCoverage2D tile = RasterUtils.create(raster, gridGeometry2D, sampleDimensions);
-        tiles[tileY * numTileX + tileX] = new Tile(tileX, tileY, tile);
+    // If we don't pad with no data, the tiles on the boundary may have a different size
+    int currentTileWidth = padWithNoData ? tileWidth : rectWidth;
+    int currentTileHeight = padWithNoData ? tileHeight : rectHeight;
+    boolean needPadding = padWithNoData && (rectWidth < tileWidth || rectHeight < tileHeight);
+
+    // Create a new affine transformation for this tile
+    AffineTransform2D tileAffine = RasterUtils.translateAffineTransform(affine, x0, y0);
+    GridGeometry2D gridGeometry2D =
+        new GridGeometry2D(
+            new GridEnvelope2D(0, 0, currentTileWidth, currentTileHeight),
+            PixelInCell.CELL_CENTER,
+            tileAffine,
+            gridCoverage2D.getCoordinateReferenceSystem(),
+            null);
+
+    // Prepare a new image for this tile, and copy the data from the original image
+    WritableRaster raster =
+        RasterFactory.createBandedRaster(
+            image.getSampleModel().getDataType(),
+            currentTileWidth,
+            currentTileHeight,
+            bandIndices.length,
+            null);
+    GridSampleDimension[] sampleDimensions = new GridSampleDimension[bandIndices.length];
+    Raster sourceRaster = image.getData(new Rectangle(x0, y0, rectWidth, rectHeight));
+    for (int k = 0; k < bandIndices.length; k++) {
+      int bandIndex = bandIndices[k] - 1;
+
+      // Copy sample dimensions from source bands, and pad with no data value if necessary
+      GridSampleDimension sampleDimension = gridCoverage2D.getSampleDimension(bandIndex);
+      double noDataValue = RasterUtils.getNoDataValue(sampleDimension);
+      if (needPadding && !Double.isNaN(padNoDataValue)) {
+        sampleDimension =
+            RasterUtils.createSampleDimensionWithNoDataValue(sampleDimension, padNoDataValue);
+        noDataValue = padNoDataValue;
       }
+      sampleDimensions[k] = sampleDimension;
+
+      // Copy data from original image to tile image
+      ImageUtils.copyRasterWithPadding(sourceRaster, bandIndex, raster, k, noDataValue);
     }
 
-    return tiles;
+    GridCoverage2D tile = RasterUtils.create(raster, gridGeometry2D, sampleDimensions);
+    return new Tile(tileX, tileY, tile);
   }
 
   public static GridCoverage2D[] rsTile(
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.common.raster;
+
+import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+
+/**
+ * A lightweight view of the metadata of a raster: its grid geometry, number of bands and tile
+ * layout. A raster header can be read from a serialized raster without reading its pixels, which
+ * makes it suitable for functions that only look at the georeference of rasters.
+ */
+public class RasterHeader {
+  private final GridGeometry2D gridGeometry;
+  private final int numBands;
+  private final int tileWidth;
+  private final int tileHeight;
+
+  public RasterHeader(GridGeometry2D gridGeometry, int numBands, int tileWidth, int tileHeight) {
+    this.gridGeometry = gridGeometry;
+    this.numBands = numBands;
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+  }
+
+  /**
+   * Returns the header of a raster.
+   *
+   * @param raster the raster
+   * @return the header of the raster
+   */
+  public static RasterHeader of(GridCoverage2D raster) {
+    return new RasterHeader(
+        raster.getGridGeometry(),
+        raster.getNumSampleDimensions(),
+        raster.getRenderedImage().getTileWidth(),
+        raster.getRenderedImage().getTileHeight());
+  }
+
+  public GridGeometry2D getGridGeometry() {
+    return gridGeometry;
+  }
+
+  public CoordinateReferenceSystem getCoordinateReferenceSystem() {
+    return gridGeometry.getCoordinateReferenceSystem();
+  }
+
+  public int getNumBands() {
+    return numBands;
+  }
+
+  public int getTileWidth() {
+    return tileWidth;
+  }
+
+  public int getTileHeight() {
+    return tileHeight;
+  }
+}
@@ -77,6 +77,37 @@ public class Rasterization {
     return objects;
   }
 
+  /**
+   * Rasterizes zones into a label grid with the extent of the raster. Each pixel holds the 1-based
+   * index of the zone covering it, or 0 when it is outside of all zones. A pixel covered by several
+   * zones keeps the label of the first one, and the indices of the other zones are set in
+   * overlappingZones, since their labels in the grid do not cover all of their pixels.
+   *
+   * @param zones Zones in the CRS of the raster, null entries are skipped
+   * @param raster The reference raster
+   * @param allTouched When set to true, rasterizes all pixels touched by the zones
+   * @param overlappingZones Receives the indices of the zones overlapping an earlier zone
+   * @return The label grid
+   * @throws FactoryException
+   */
+  static WritableRaster rasterizeZones(
+      List<Geometry> zones, GridCoverage2D raster, boolean allTouched, BitSet overlappingZones)
+      throws FactoryException {
+    double[] metadata = RasterAccessors.metadata(raster);
+    validateRasterMetadata(metadata);
+    RasterizationParams params = calculateRasterizationParams(raster, false, metadata, null, "i");
+    params.overlappingZones = overlappingZones;
+    for (int i = 0; i < zones.size(); i++) {
+      Geometry zone = zones.get(i);
+      if (zone == null) {
+        continue;
+      }
+      ReferencedEnvelope zoneExtent = rasterizeGeomExtent(zone, raster, metadata, allTouched);
+      rasterizeGeometry(raster, metadata, zone, params, zoneExtent, i + 1, allTouched);
+    }
+    return params.writableRaster;
+  }
+
   private static void rasterizeGeometry(
       GridCoverage2D raster,
       double[] metadata,
@@ -155,7 +186,7 @@ public class Rasterization {
             geom.intersects(JTS.toGeometry(new Envelope(worldX, cellMaxX, worldY, cellMaxY)));
 
         if (intersects) {
-          params.writableRaster.setSample(x, yIndex, 0, value);
+          params.burn(x, yIndex, value);
         }
       }
     }
@@ -226,7 +257,7 @@ public class Rasterization {
           && rasterX < params.writableRaster.getWidth()
           && rasterY >= 0
           && rasterY < params.writableRaster.getHeight()) {
-        params.writableRaster.setSample(rasterX, rasterY, 0, value);
+        params.burn(rasterX, rasterY, value);
       }
 
       // Increment by fractional steps
@@ -506,6 +537,8 @@ public class Rasterization {
     double scaleY;
     double upperLeftX;
     double upperLeftY;
+    // Set when rasterizing zones into a label grid, see rasterizeZones
+    BitSet overlappingZones;
 
     RasterizationParams(
         WritableRaster writableRaster,
@@ -521,6 +554,21 @@ public class Rasterization {
       this.upperLeftX = upperLeftX;
       this.upperLeftY = upperLeftY;
     }
+
+    /**
+     * Burns a value into a pixel. In a label grid, a pixel already claimed by another zone keeps
+     * its label, and the zone being burned is recorded as overlapping instead.
+     */
+    void burn(int x, int y, double value) {
+      if (overlappingZones != null) {
+        int label = writableRaster.getSample(x, y, 0);
+        if (label != 0 && label != value) {
+          overlappingZones.set((int) value - 1);
+          return;
+        }
+      }
+      writableRaster.setSample(x, y, 0, value);
+    }
   }
 
   public static void rasterizePolygon(
@@ -697,14 +745,14 @@ public class Rasterization {
       int y = entry.getKey();
       for (int[] range : entry.getValue()) {
         if (range.length == 1) {
-          params.writableRaster.setSample(range[0], y, 0, value);
+          params.burn(range[0], y, value);
           continue;
         }
         int xStart = range[0];
         int xEnd = range[1];
 
         for (int x = xStart; x <= xEnd; x++) {
-          params.writableRaster.setSample(x, y, 0, value);
+          params.burn(x, y, value);
         }
       }
     }
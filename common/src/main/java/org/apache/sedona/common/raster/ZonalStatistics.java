@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.common.raster;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.sedona.common.Functions;
+import org.apache.sedona.common.utils.RasterUtils;
+import org.geotools.api.referencing.FactoryException;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Zonal statistics of a raster band computed by streaming over the pixels inside a region of
+ * interest. The region is rasterized into a mask by the scanline rasterizer, and only the runs of
+ * masked pixels within the snapped extent of the region are read from the band.
+ *
+ * <p>Count, sum, min, max, mean and variance are accumulated in a single pass without storing
+ * pixel values, the mean and the variance using Welford's online algorithm. Pixel values are only
+ * buffered when the median or the mode is asked for.
+ */
+final class ZonalStatistics {
+  private final Raster mask;
+  private final Raster data;
+  private final int band;
+  private final Rectangle window;
+  private final Double excludedValue;
+
+  // Results of the streaming pass
+  private long count;
+  private double sum;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+  private double mean = Double.NaN;
+  // Sum of the squared deviations from the mean
+  private double m2;
+  private double[] values;
+
+  private ZonalStatistics(
+      Raster mask, Raster data, int band, Rectangle window, Double excludedValue) {
+    this.mask = mask;
+    this.data = data;
+    this.band = band;
+    this.window = window;
+    this.excludedValue = excludedValue;
+  }
+
+  /**
+   * Prepares the zonal statistics of a band over a region of interest.
+   *
+   * @param raster Raster to use for computing stats
+   * @param roi Geometry to define the region of interest
+   * @param band Band to be used for computation
+   * @param allTouched Include pixels touched by roi geometry
+   * @param excludeNoData Specifies whether to exclude no-data value or not
+   * @param lenient Return null if the raster and roi do not intersect when set to true, otherwise
+   *     will throw an exception
+   * @param keepValues Buffer the pixel values, required for computing the median and the mode
+   * @return the zonal statistics, or null if lenient is true and the roi does not intersect the
+   *     raster
+   * @throws FactoryException
+   */
+  static ZonalStatistics compute(
+      GridCoverage2D raster,
+      Geometry roi,
+      int band,
+      boolean allTouched,
+      boolean excludeNoData,
+      boolean lenient,
+      boolean keepValues)
+      throws FactoryException {
+    RasterUtils.ensureBand(raster, band);
+
+    roi = toRasterCRS(raster, roi);
+
+    // checking if the raster contains the geometry
+    if (!RasterPredicates.rsIntersects(raster, roi)) {
+      if (lenient) {
+        return null;
+      } else {
+        throw new IllegalArgumentException(
+            "The provided geometry is not intersecting the raster. Please provide a geometry that is in the raster's extent.");
+      }
+    }
+
+    String datatype = RasterBandAccessors.getBandType(raster, band);
+    Double noDataValue = RasterBandAccessors.getBandNoDataValue(raster, band);
+    // Adding an arbitrary value '150' for the pixels that are under the geometry.
+    GridCoverage2D rasterizedGeom =
+        RasterConstructors.asRasterWithRasterExtent(roi, raster, datatype, allTouched, 150, null);
+    Raster mask = RasterUtils.getRaster(rasterizedGeom.getRenderedImage());
+    Rectangle window = roiWindow(raster, roi, allTouched);
+
+    // Only copy the part of the image covered by the roi, unless the pixels can be accessed in
+    // place
+    RenderedImage image = raster.getRenderedImage();
+    Raster data;
+    if (RasterUtils.isBackedByBufferedImage(image)) {
+      data = RasterUtils.getRaster(image);
+    } else {
+      data = window.isEmpty() ? null : image.getData(window);
+    }
+
+    Double excludedValue = excludeNoData ? noDataValue : null;
+    ZonalStatistics stats = new ZonalStatistics(mask, data, band - 1, window, excludedValue);
+    stats.accumulate(keepValues);
+    return stats;
+  }
+
+  /**
+   * Computes the zonal statistics of many zones over a raster. All the zones are rasterized into a
+   * single label grid, and the pixels of the band are read in one sweep over that grid, instead of
+   * clipping and reading the raster once per zone. The pixel values of every zone are kept, so all
+   * the statistics are available.
+   *
+   * <p>Zones overlapping an earlier zone cannot be represented in the label grid, so their
+   * statistics are computed separately.
+   *
+   * @param raster Raster to use for computing stats
+   * @param zones Geometries defining the zones
+   * @param band Band to be used for computation
+   * @param allTouched Include pixels touched by the zones
+   * @param excludeNoData Specifies whether to exclude no-data value or not
+   * @return the zonal statistics of each zone, null for the zones that are null or do not intersect
+   *     the raster
+   * @throws FactoryException
+   */
+  static ZonalStatistics[] computeBatch(
+      GridCoverage2D raster,
+      List<Geometry> zones,
+      int band,
+      boolean allTouched,
+      boolean excludeNoData)
+      throws FactoryException {
+    RasterUtils.ensureBand(raster, band);
+
+    int numZones = zones.size();
+    List<Geometry> rasterZones = new ArrayList<>(numZones);
+    Rectangle window = new Rectangle();
+    for (Geometry zone : zones) {
+      if (zone != null) {
+        zone = toRasterCRS(raster, zone);
+        if (RasterPredicates.rsIntersects(raster, zone)) {
+          window = window.union(roiWindow(raster, zone, allTouched));
+        } else {
+          zone = null;
+        }
+      }
+      rasterZones.add(zone);
+    }
+
+    BitSet overlappingZones = new BitSet(numZones);
+    Raster labels = Rasterization.rasterizeZones(rasterZones, raster, allTouched, overlappingZones);
+
+    RenderedImage image = raster.getRenderedImage();
+    Raster data;
+    if (RasterUtils.isBackedByBufferedImage(image)) {
+      data = RasterUtils.getRaster(image);
+    } else {
+      data = window.isEmpty() ? null : image.getData(window);
+    }
+
+    Double noDataValue = RasterBandAccessors.getBandNoDataValue(raster, band);
+    Double excludedValue = excludeNoData ? noDataValue : null;
+    ZonalStatistics[] stats = new ZonalStatistics[numZones];
+    for (int i = 0; i < numZones; i++) {
+      if (rasterZones.get(i) != null && !overlappingZones.get(i)) {
+        stats[i] = new ZonalStatistics(null, null, band - 1, null, excludedValue);
+        stats[i].values = new double[16];
+      }
+    }
+
+    // Visit the runs of pixels sharing a label in row-major order, so the pixel values of each
+    // zone are kept in the same order as when computing its statistics on its own
+    int[] labelRow = new int[window.width];
+    double[] dataRun = new double[window.width];
+    for (int y = window.y; y < window.y + window.height; y++) {
+      labels.getSamples(window.x, y, window.width, 1, 0, labelRow);
+      int x = 0;
+      while (x < window.width) {
+        int label = labelRow[x];
+        int start = x;
+        while (x < window.width && labelRow[x] == label) {
+          x++;
+        }
+        if (label == 0 || stats[label - 1] == null) {
+          continue;
+        }
+        ZonalStatistics zoneStats = stats[label - 1];
+        int runLength = x - start;
+        data.getSamples(window.x + start, y, runLength, 1, band - 1, dataRun);
+        for (int k = 0; k < runLength; k++) {
+          double value = dataRun[k];
+          if (excludedValue == null || value != excludedValue) {
+            zoneStats.add(value);
+          }
+        }
+      }
+    }
+
+    for (int i = overlappingZones.nextSetBit(0); i >= 0; i = overlappingZones.nextSetBit(i + 1)) {
+      stats[i] = compute(raster, rasterZones.get(i), band, allTouched, excludeNoData, true, true);
+    }
+    return stats;
+  }
+
+  private static Geometry toRasterCRS(GridCoverage2D raster, Geometry roi)
+      throws FactoryException {
+    if (RasterAccessors.srid(raster) != roi.getSRID()) {
+      // implicitly converting roi geometry CRS to raster CRS
+      roi = RasterUtils.convertCRSIfNeeded(roi, raster.getCoordinateReferenceSystem());
+      // have to set the SRID as RasterUtils.convertCRSIfNeeded doesn't set it even though the
+      // geometry is in raster's CRS
+      roi = Functions.setSRID(roi, RasterAccessors.srid(raster));
+    }
+    return roi;
+  }
+
+  /**
+   * The pixels burned by the rasterizer lie within the extent of the roi snapped to the pixel
+   * grid, see {@link Rasterization#rasterizeGeomExtent}. One pixel of slack on each side guards
+   * against rounding when converting that extent back to pixel indices.
+   */
+  private static Rectangle roiWindow(GridCoverage2D raster, Geometry roi, boolean allTouched)
+      throws FactoryException {
+    int width = RasterAccessors.getWidth(raster);
+    int height = RasterAccessors.getHeight(raster);
+    double[] metadata = RasterAccessors.metadata(raster);
+    ReferencedEnvelope extent =
+        Rasterization.rasterizeGeomExtent(roi, raster, metadata, allTouched);
+    if (extent == null) {
+      return new Rectangle(0, 0, width, height);
+    }
+    double upperLeftX = metadata[0];
+    double upperLeftY = metadata[1];
+    double scaleX = metadata[4];
+    double scaleY = metadata[5];
+    int minCol = (int) Math.floor((extent.getMinX() - upperLeftX) / scaleX) - 1;
+    int maxCol = (int) Math.ceil((extent.getMaxX() - upperLeftX) / scaleX) + 1;
+    int minRow = (int) Math.floor((extent.getMaxY() - upperLeftY) / scaleY) - 1;
+    int maxRow = (int) Math.ceil((extent.getMinY() - upperLeftY) / scaleY) + 1;
+    minCol = Math.max(minCol, 0);
+    minRow = Math.max(minRow, 0);
+    maxCol = Math.min(maxCol, width);
+    maxRow = Math.min(maxRow, height);
+    if (maxCol <= minCol || maxRow <= minRow) {
+      return new Rectangle();
+    }
+    return new Rectangle(minCol, minRow, maxCol - minCol, maxRow - minRow);
+  }
+
+  /**
+   * Accumulates the values of the pixels inside the roi in row-major order, skipping the excluded
+   * no data value.
+   */
+  private void accumulate(boolean keepValues) {
+    if (keepValues) {
+      values = new double[1024];
+    }
+    double[] maskRow = new double[window.width];
+    double[] dataRun = new double[window.width];
+    for (int y = window.y; y < window.y + window.height; y++) {
+      mask.getSamples(window.x, y, window.width, 1, 0, maskRow);
+      int x = 0;
+      while (x < window.width) {
+        // Pixels with a value of 0 in the mask fall outside the roi
+        if (maskRow[x] == 0) {
+          x++;
+          continue;
+        }
+        int start = x;
+        while (x < window.width && maskRow[x] != 0) {
+          x++;
+        }
+        int runLength = x - start;
+        data.getSamples(window.x + start, y, runLength, 1, band, dataRun);
+        for (int k = 0; k < runLength; k++) {
+          double value = dataRun[k];
+          if (excludedValue == null || value != excludedValue) {
+            add(value);
+          }
+        }
+      }
+    }
+  }
+
+  private void add(double value) {
+    if (values != null) {
+      if (count == values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+      values[(int) count] = value;
+    }
+    count++;
+    sum += value;
+    if (count == 1) {
+      min = value;
+      max = value;
+      mean = value;
+    } else {
+      if (!Double.isNaN(value)) {
+        min = (min < value) ? min : value;
+        max = (max > value) ? max : value;
+      }
+      double delta = value - mean;
+      mean += delta / count;
+      m2 += delta * (value - mean);
+    }
+  }
+
+  long count() {
+    return count;
+  }
+
+  Double sum() {
+    return count == 0 ? null : sum;
+  }
+
+  Double min() {
+    return toNullable(min);
+  }
+
+  Double max() {
+    return toNullable(max);
+  }
+
+  Double mean() {
+    return toNullable(mean);
+  }
+
+  Double variance() {
+    return toNullable(rawVariance());
+  }
+
+  Double stdDev() {
+    if (count == 0) {
+      return null;
+    }
+    return count == 1 ? 0.0 : toNullable(Math.sqrt(rawVariance()));
+  }
+
+  Double median() {
+    ensureValues();
+    return toNullable(StatUtils.percentile(values, 0, (int) count, 50));
+  }
+
+  /**
+   * @return Mode of the pixel values. If there is multiple with same occurrence, then the largest
+   *     value will be returned.
+   */
+  Double mode() {
+    ensureValues();
+    if (count == 0) {
+      return null;
+    }
+    double[] modes = StatUtils.mode(values, 0, (int) count);
+    return modes[modes.length - 1];
+  }
+
+  private double rawVariance() {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    if (count == 1) {
+      return 0.0;
+    }
+    // Bias corrected, same as org.apache.commons.math3.stat.descriptive.moment.Variance
+    return m2 / (count - 1.0);
+  }
+
+  private void ensureValues() {
+    if (values == null) {
+      throw new IllegalStateException("Pixel values were not kept for computing this statistic");
+    }
+  }
+
+  private static Double toNullable(double value) {
+    return Double.isNaN(value) ? null : value;
+  }
+}
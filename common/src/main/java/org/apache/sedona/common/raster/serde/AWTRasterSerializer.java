@@ -30,7 +30,15 @@ import java.awt.image.WritableRaster;
 
 public class AWTRasterSerializer extends Serializer<Raster> {
   private static final SampleModelSerializer sampleModelSerializer = new SampleModelSerializer();
-  private static final DataBufferSerializer dataBufferSerializer = new DataBufferSerializer();
+  private final Serializer<DataBuffer> dataBufferSerializer;
+
+  public AWTRasterSerializer() {
+    this(new DataBufferSerializer());
+  }
+
+  public AWTRasterSerializer(Serializer<DataBuffer> dataBufferSerializer) {
+    this.dataBufferSerializer = dataBufferSerializer;
+  }
 
   @Override
   public void write(Kryo kryo, Output output, Raster raster) {
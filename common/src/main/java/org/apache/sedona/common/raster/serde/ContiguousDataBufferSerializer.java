@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.common.raster.serde;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.sun.media.jai.util.DataBufferUtils;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Serializes the banks of a data buffer as contiguous little-endian band data, stored after the
+ * header of a serialized raster instead of inline. Only the layout of the banks is written inline.
+ *
+ * <p>The band data is written and read in bulk. The banks of deserialized data buffers are trimmed
+ * to the size of the data buffer, so that serializing them again, e.g. by {@link
+ * DataBufferSerializer} or Java serialization, does not write the whole serialized raster once per
+ * bank.
+ */
+class ContiguousDataBufferSerializer extends Serializer<DataBuffer> {
+  private final byte[] bytes;
+  private int dataOffset;
+  private DataBuffer dataBuffer;
+
+  /** Creates a serializer for writing a data buffer. */
+  ContiguousDataBufferSerializer() {
+    this(null, 0);
+  }
+
+  /**
+   * Creates a serializer for reading a data buffer.
+   *
+   * @param bytes the serialized raster
+   * @param dataOffset the offset of the band data in the serialized raster
+   */
+  ContiguousDataBufferSerializer(byte[] bytes, int dataOffset) {
+    this.bytes = bytes;
+    this.dataOffset = dataOffset;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output, DataBuffer dataBuffer) {
+    if (this.dataBuffer != null) {
+      throw new IllegalStateException("Only one data buffer can be written");
+    }
+    int dataType = dataBuffer.getDataType();
+    if (elementSize(dataType) == 0) {
+      throw new RuntimeException("Unknown data type: " + dataType);
+    }
+    this.dataBuffer = dataBuffer;
+    output.writeInt(dataType);
+    // The banks are trimmed to the size of the data buffer, so the offsets are all zero
+    KryoUtil.writeIntArray(output, new int[dataBuffer.getNumBanks()]);
+    output.writeInt(dataBuffer.getSize());
+    output.writeInt(dataBuffer.getNumBanks());
+  }
+
+  /** @return the length of the band data of the written data buffer, in bytes */
+  int dataLength() {
+    if (dataBuffer == null) {
+      return 0;
+    }
+    int dataType = dataBuffer.getDataType();
+    return Math.multiplyExact(
+        Math.multiplyExact(dataBuffer.getNumBanks(), dataBuffer.getSize()), elementSize(dataType));
+  }
+
+  /**
+   * Writes the band data of the written data buffer.
+   *
+   * @param target the array to write to
+   * @param offset the offset in the target array
+   */
+  void writeData(byte[] target, int offset) {
+    if (dataBuffer == null) {
+      return;
+    }
+    int size = dataBuffer.getSize();
+    int[] offsets = dataBuffer.getOffsets();
+    int bankLength = size * elementSize(dataBuffer.getDataType());
+    for (int bank = 0; bank < dataBuffer.getNumBanks(); bank++) {
+      int start = offsets[bank];
+      ByteBuffer buffer =
+          ByteBuffer.wrap(target, offset + bank * bankLength, bankLength)
+              .order(ByteOrder.LITTLE_ENDIAN);
+      switch (dataBuffer.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+          buffer.put(((DataBufferByte) dataBuffer).getData(bank), start, size);
+          break;
+        case DataBuffer.TYPE_USHORT:
+          buffer.asShortBuffer().put(((DataBufferUShort) dataBuffer).getData(bank), start, size);
+          break;
+        case DataBuffer.TYPE_SHORT:
+          buffer.asShortBuffer().put(((DataBufferShort) dataBuffer).getData(bank), start, size);
+          break;
+        case DataBuffer.TYPE_INT:
+          buffer.asIntBuffer().put(((DataBufferInt) dataBuffer).getData(bank), start, size);
+          break;
+        case DataBuffer.TYPE_FLOAT:
+          float[] floats = DataBufferUtils.getBankDataFloat(dataBuffer)[bank];
+          buffer.asFloatBuffer().put(floats, start, size);
+          break;
+        default:
+          double[] doubles = DataBufferUtils.getBankDataDouble(dataBuffer)[bank];
+          buffer.asDoubleBuffer().put(doubles, start, size);
+          break;
+      }
+    }
+  }
+
+  @Override
+  public DataBuffer read(Kryo kryo, Input input, Class<DataBuffer> type) {
+    int dataType = input.readInt();
+    int[] offsets = KryoUtil.readIntArray(input);
+    int size = input.readInt();
+    int numBanks = input.readInt();
+    int bankLength = size * elementSize(dataType);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    DataBuffer dataBuffer;
+    switch (dataType) {
+      case DataBuffer.TYPE_BYTE:
+        {
+          byte[][] banks = new byte[numBanks][];
+          for (int bank = 0; bank < numBanks; bank++) {
+            banks[bank] = Arrays.copyOfRange(bytes, dataOffset, dataOffset + bankLength);
+            dataOffset += bankLength;
+          }
+          dataBuffer = new DataBufferByte(banks, size, offsets);
+          break;
+        }
+      case DataBuffer.TYPE_USHORT:
+      case DataBuffer.TYPE_SHORT:
+        {
+          short[][] banks = new short[numBanks][size];
+          for (short[] bank : banks) {
+            ((ByteBuffer) buffer.position(dataOffset)).asShortBuffer().get(bank);
+            dataOffset += bankLength;
+          }
+          dataBuffer =
+              dataType == DataBuffer.TYPE_USHORT
+                  ? new DataBufferUShort(banks, size, offsets)
+                  : new DataBufferShort(banks, size, offsets);
+          break;
+        }
+      case DataBuffer.TYPE_INT:
+        {
+          int[][] banks = new int[numBanks][size];
+          for (int[] bank : banks) {
+            ((ByteBuffer) buffer.position(dataOffset)).asIntBuffer().get(bank);
+            dataOffset += bankLength;
+          }
+          dataBuffer = new DataBufferInt(banks, size, offsets);
+          break;
+        }
+      case DataBuffer.TYPE_FLOAT:
+        {
+          float[][] banks = new float[numBanks][size];
+          for (float[] bank : banks) {
+            ((ByteBuffer) buffer.position(dataOffset)).asFloatBuffer().get(bank);
+            dataOffset += bankLength;
+          }
+          dataBuffer = DataBufferUtils.createDataBufferFloat(banks, size, offsets);
+          break;
+        }
+      case DataBuffer.TYPE_DOUBLE:
+        {
+          double[][] banks = new double[numBanks][size];
+          for (double[] bank : banks) {
+            ((ByteBuffer) buffer.position(dataOffset)).asDoubleBuffer().get(bank);
+            dataOffset += bankLength;
+          }
+          dataBuffer = DataBufferUtils.createDataBufferDouble(banks, size, offsets);
+          break;
+        }
+      default:
+        throw new RuntimeException("Unknown data type: " + dataType);
+    }
+    return dataBuffer;
+  }
+
+  private static int elementSize(int dataType) {
+    switch (dataType) {
+      case DataBuffer.TYPE_BYTE:
+        return 1;
+      case DataBuffer.TYPE_USHORT:
+      case DataBuffer.TYPE_SHORT:
+        return 2;
+      case DataBuffer.TYPE_INT:
+      case DataBuffer.TYPE_FLOAT:
+        return 4;
+      case DataBuffer.TYPE_DOUBLE:
+        return 8;
+      default:
+        return 0;
+    }
+  }
+}
@@ -31,6 +31,7 @@ import java.io.Serializable;
 import java.net.URI;
 import javax.media.jai.RenderedImageAdapter;
 import org.apache.sedona.common.raster.DeepCopiedRenderedImage;
+import org.apache.sedona.common.raster.RasterHeader;
 import org.geotools.api.referencing.operation.MathTransform;
 import org.geotools.coverage.GridSampleDimension;
 import org.geotools.coverage.grid.GridCoverage2D;
@@ -96,9 +97,12 @@ public class Serde {
     public DeepCopiedRenderedImage image;
 
     public GridCoverage2D restore() {
-      GridGeometry2D gridGeometry =
-          new GridGeometry2D(gridEnvelope2D, gridToCRS, CRSSerializer.deserialize(serializedCRS));
-      return new GridCoverageFactory().create(name, image, gridGeometry, bands, null, null);
+      return new GridCoverageFactory().create(name, image, gridGeometry(), bands, null, null);
+    }
+
+    public GridGeometry2D gridGeometry() {
+      return new GridGeometry2D(
+          gridEnvelope2D, gridToCRS, CRSSerializer.deserialize(serializedCRS));
     }
 
     private static final GridEnvelopeSerializer gridEnvelopeSerializer =
@@ -110,6 +114,18 @@ public class Serde {
 
     @Override
     public void write(Kryo kryo, Output output) {
+      writeMetadata(kryo, output);
+      image.write(kryo, output);
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+      readMetadata(kryo, input);
+      image = new DeepCopiedRenderedImage();
+      image.read(kryo, input);
+    }
+
+    private void writeMetadata(Kryo kryo, Output output) {
       KryoUtil.writeUTF8String(output, name.toString());
       gridEnvelopeSerializer.write(kryo, output, gridEnvelope2D);
       if (!(gridToCRS instanceof AffineTransform2D)) {
@@ -122,11 +138,9 @@ public class Serde {
       for (GridSampleDimension band : bands) {
         gridSampleDimensionSerializer.write(kryo, output, band);
       }
-      image.write(kryo, output);
     }
 
-    @Override
-    public void read(Kryo kryo, Input input) {
+    private void readMetadata(Kryo kryo, Input input) {
       name = KryoUtil.readUTF8String(input);
       gridEnvelope2D = gridEnvelopeSerializer.read(kryo, input, GridEnvelope2D.class);
       gridToCRS = affineTransform2DSerializer.read(kryo, input, AffineTransform2D.class);
@@ -137,16 +151,79 @@ public class Serde {
       for (int i = 0; i < bandCount; i++) {
         bands[i] = gridSampleDimensionSerializer.read(kryo, input, GridSampleDimension.class);
       }
-      image = new DeepCopiedRenderedImage();
-      image.read(kryo, input);
+    }
+  }
+
+  /** The metadata of a raster, that is everything but its pixels. */
+  public static class Metadata {
+    private final CharSequence name;
+    private final GridGeometry2D gridGeometry;
+    private final GridSampleDimension[] bands;
+
+    private Metadata(CharSequence name, GridGeometry2D gridGeometry, GridSampleDimension[] bands) {
+      this.name = name;
+      this.gridGeometry = gridGeometry;
+      this.bands = bands;
+    }
+
+    public CharSequence getName() {
+      return name;
+    }
+
+    public GridGeometry2D getGridGeometry() {
+      return gridGeometry;
+    }
+
+    public GridSampleDimension[] getBands() {
+      return bands;
     }
   }
 
   // A byte reserved for supporting rasters with other storage schemes
   private static final int IN_DB = 0;
 
+  // In-DB raster whose band data is stored as contiguous little-endian arrays after a header. The
+  // header starts with the offset of the band data.
+  private static final int IN_DB_CONTIGUOUS = 1;
+
   public static byte[] serialize(GridCoverage2D raster) throws IOException {
     Kryo kryo = kryos.get();
+    SerializableState state = serializableState(raster);
+    ContiguousDataBufferSerializer dataBufferSerializer = new ContiguousDataBufferSerializer();
+    try (UnsafeOutput out = new UnsafeOutput(4096, -1)) {
+      out.writeByte(IN_DB_CONTIGUOUS);
+      out.writeInt(0); // placeholder for the offset of the band data
+      state.writeMetadata(kryo, out);
+      state.image.write(kryo, out, new AWTRasterSerializer(dataBufferSerializer));
+      int dataOffset = out.position();
+      out.setPosition(1);
+      out.writeInt(dataOffset);
+
+      // The band data is written in bulk into an array of the exact size of the serialized raster
+      byte[] bytes = new byte[Math.addExact(dataOffset, dataBufferSerializer.dataLength())];
+      System.arraycopy(out.getBuffer(), 0, bytes, 0, dataOffset);
+      dataBufferSerializer.writeData(bytes, dataOffset);
+      return bytes;
+    }
+  }
+
+  /**
+   * Serializes a raster in the IN_DB format, which is no longer written but still read.
+   *
+   * @param raster the raster
+   * @return the serialized raster
+   */
+  static byte[] serializeInDb(GridCoverage2D raster) {
+    Kryo kryo = kryos.get();
+    SerializableState state = serializableState(raster);
+    try (UnsafeOutput out = new UnsafeOutput(4096, -1)) {
+      out.writeByte(IN_DB);
+      state.write(kryo, out);
+      return out.toBytes();
+    }
+  }
+
+  private static SerializableState serializableState(GridCoverage2D raster) {
     // GridCoverage2D created by GridCoverage2DReaders contain references that are not serializable.
     // Wrap the RenderedImage in DeepCopiedRenderedImage to make it serializable.
     DeepCopiedRenderedImage deepCopiedRenderedImage = null;
@@ -160,6 +237,69 @@ public class Serde {
       deepCopiedRenderedImage = new DeepCopiedRenderedImage(renderedImage);
     }
 
+    SerializableState state = metadataState(raster);
+    state.image = deepCopiedRenderedImage;
+    return state;
+  }
+
+  /**
+   * Serializes the metadata of a raster without its pixels. This is useful for keeping the pixels
+   * of a raster apart from its metadata, as the pixels are not copied.
+   *
+   * @param raster the raster
+   * @return the serialized metadata, to be read by {@link #deserializeMetadata(byte[])}
+   */
+  public static byte[] serializeMetadata(GridCoverage2D raster) {
+    Kryo kryo = kryos.get();
+    SerializableState state = metadataState(raster);
+    try (UnsafeOutput out = new UnsafeOutput(1024, -1)) {
+      state.writeMetadata(kryo, out);
+      return out.toBytes();
+    }
+  }
+
+  public static Metadata deserializeMetadata(byte[] bytes) {
+    Kryo kryo = kryos.get();
+    try (UnsafeInput in = new UnsafeInput(bytes)) {
+      SerializableState state = new SerializableState();
+      state.readMetadata(kryo, in);
+      return new Metadata(state.name, state.gridGeometry(), state.bands);
+    }
+  }
+
+  /**
+   * Deserializes the header of a serialized raster. Only the metadata of the raster and the bounds
+   * of its image are read, they are placed before the pixels, which are not touched at all.
+   *
+   * @param bytes the serialized raster
+   * @return the header of the raster
+   */
+  public static RasterHeader deserializeHeader(byte[] bytes) {
+    Kryo kryo = kryos.get();
+    try (UnsafeInput in = new UnsafeInput(bytes)) {
+      int rasterType = in.readByte();
+      switch (rasterType) {
+        case IN_DB:
+          break;
+        case IN_DB_CONTIGUOUS:
+          in.readInt(); // skip the offset of the band data
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported raster type: " + rasterType);
+      }
+      SerializableState state = new SerializableState();
+      state.readMetadata(kryo, in);
+
+      // The deserialized image has only one tile, which covers the whole image
+      in.readInt(); // skip minX of the image
+      in.readInt(); // skip minY of the image
+      int width = in.readInt();
+      int height = in.readInt();
+      return new RasterHeader(state.gridGeometry(), state.bands.length, width, height);
+    }
+  }
+
+  private static SerializableState metadataState(GridCoverage2D raster) {
     SerializableState state = new SerializableState();
     GridGeometry2D gridGeometry = raster.getGridGeometry();
     state.name = raster.getName();
@@ -167,24 +307,37 @@ public class Serde {
     state.gridToCRS = gridGeometry.getGridToCRS2D();
     state.serializedCRS = CRSSerializer.serialize(gridGeometry.getCoordinateReferenceSystem());
     state.bands = raster.getSampleDimensions();
-    state.image = deepCopiedRenderedImage;
-    try (UnsafeOutput out = new UnsafeOutput(4096, -1)) {
-      out.writeByte(IN_DB);
-      state.write(kryo, out);
-      return out.toBytes();
-    }
+    return state;
   }
 
+  /**
+   * Deserializes a raster.
+   *
+   * @param bytes the serialized raster
+   * @return the raster
+   */
   public static GridCoverage2D deserialize(byte[] bytes)
       throws IOException, ClassNotFoundException {
     Kryo kryo = kryos.get();
     try (UnsafeInput in = new UnsafeInput(bytes)) {
       int rasterType = in.readByte();
-      if (rasterType != IN_DB) {
-        throw new IllegalArgumentException("Unsupported raster type: " + rasterType);
-      }
       SerializableState state = new SerializableState();
-      state.read(kryo, in);
+      switch (rasterType) {
+        case IN_DB:
+          state.read(kryo, in);
+          break;
+        case IN_DB_CONTIGUOUS:
+          int dataOffset = in.readInt();
+          state.readMetadata(kryo, in);
+          state.image = new DeepCopiedRenderedImage();
+          state.image.read(
+              kryo,
+              in,
+              new AWTRasterSerializer(new ContiguousDataBufferSerializer(bytes, dataOffset)));
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported raster type: " + rasterType);
+      }
       return state.restore();
     }
   }
@@ -49,11 +49,26 @@ public class Haversine {
         geom2.getGeometryType().equals("Point")
             ? geom2.getCoordinate()
             : geom2.getCentroid().getCoordinate();
-    // Calculate the distance between the two points
-    double lon1 = coordinate1.getX();
-    double lat1 = coordinate1.getY();
-    double lon2 = coordinate2.getX();
-    double lat2 = coordinate2.getY();
+    return pointDistance(
+        coordinate1.getX(),
+        coordinate1.getY(),
+        coordinate2.getX(),
+        coordinate2.getY(),
+        avg_earth_radius);
+  }
+
+  /**
+   * Calculate the haversine distance between two points given by their coordinates in degrees.
+   *
+   * @param lon1 longitude of the first point
+   * @param lat1 latitude of the first point
+   * @param lon2 longitude of the second point
+   * @param lat2 latitude of the second point
+   * @param avg_earth_radius radius of the sphere in meter
+   * @return the distance in meter
+   */
+  public static double pointDistance(
+      double lon1, double lat1, double lon2, double lat2, double avg_earth_radius) {
     double latDistance = toRadians(lat2 - lat1);
     double lngDistance = toRadians(lon2 - lon1);
     double a =
@@ -430,9 +430,24 @@ public class RasterUtils {
     return getAffineTransform(raster, PixelOrientation.UPPER_LEFT);
   }
 
+  /**
+   * Get a GDAL-compliant affine transform from the given grid geometry of a raster.
+   *
+   * @param gridGeometry The grid geometry to get the affine transform from.
+   * @return The affine transform.
+   */
+  public static AffineTransform2D getGDALAffineTransform(GridGeometry2D gridGeometry) {
+    return getAffineTransform(gridGeometry, PixelOrientation.UPPER_LEFT);
+  }
+
   public static AffineTransform2D getAffineTransform(
       GridCoverage2D raster, PixelOrientation orientation) throws UnsupportedOperationException {
-    GridGeometry2D gridGeometry2D = raster.getGridGeometry();
+    return getAffineTransform(raster.getGridGeometry(), orientation);
+  }
+
+  public static AffineTransform2D getAffineTransform(
+      GridGeometry2D gridGeometry2D, PixelOrientation orientation)
+      throws UnsupportedOperationException {
     MathTransform crsTransform = gridGeometry2D.getGridToCRS2D(orientation);
     if (!(crsTransform instanceof AffineTransform2D)) {
       throw new UnsupportedOperationException("Only AffineTransform2D is supported");
@@ -528,9 +543,7 @@ public class RasterUtils {
   }
 
   public static Raster getRaster(RenderedImage renderedImage) {
-    while (renderedImage instanceof RenderedImageAdapter) {
-      renderedImage = ((RenderedImageAdapter) renderedImage).getWrappedImage();
-    }
+    renderedImage = unwrapRenderedImage(renderedImage);
     if (renderedImage instanceof BufferedImage) {
       // This is a fast path for BufferedImage. If we call getData() directly, it will make a
       // hard copy of the raster. We can avoid this overhead by calling getRaster().
@@ -540,6 +553,24 @@ public class RasterUtils {
     }
   }
 
+  /**
+   * Check if the rendered image is a BufferedImage, possibly wrapped in RenderedImageAdapters. The
+   * pixels of such images can be accessed by {@link #getRaster(RenderedImage)} without copying.
+   *
+   * @param renderedImage the rendered image
+   * @return true if the image is backed by a BufferedImage
+   */
+  public static boolean isBackedByBufferedImage(RenderedImage renderedImage) {
+    return unwrapRenderedImage(renderedImage) instanceof BufferedImage;
+  }
+
+  private static RenderedImage unwrapRenderedImage(RenderedImage renderedImage) {
+    while (renderedImage instanceof RenderedImageAdapter) {
+      renderedImage = ((RenderedImageAdapter) renderedImage).getWrappedImage();
+    }
+    return renderedImage;
+  }
+
   public static Geometry convertCRSIfNeeded(
       Geometry geometry, CoordinateReferenceSystem targetCRS) {
     int geomSRID = geometry.getSRID();
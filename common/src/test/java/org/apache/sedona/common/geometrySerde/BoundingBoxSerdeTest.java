@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.common.geometrySerde;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+public class BoundingBoxSerdeTest {
+  private static final GeometryFactory gf = new GeometryFactory();
+
+  private static Coordinate[] circle(int numPoints, double cx, double cy, double radius) {
+    Coordinate[] coordinates = new Coordinate[numPoints + 1];
+    for (int k = 0; k < numPoints; k++) {
+      double angle = 2 * Math.PI * k / numPoints;
+      coordinates[k] = new Coordinate(cx + radius * Math.cos(angle), cy + radius * Math.sin(angle));
+    }
+    coordinates[numPoints] = coordinates[0];
+    return coordinates;
+  }
+
+  @Test
+  public void testLargePolygonHasBoundingBox() {
+    Polygon polygon = gf.createPolygon(circle(100, 10, 20, 5));
+    polygon.setSRID(4326);
+    byte[] bytes = GeometrySerializer.serialize(polygon);
+    Assert.assertTrue(GeometrySerializer.hasBoundingBox(bytes));
+    Assert.assertEquals(
+        polygon.getEnvelopeInternal(), GeometrySerializer.deserializeEnvelope(bytes));
+    Geometry geom = GeometrySerializer.deserialize(bytes);
+    Assert.assertEquals(4326, geom.getSRID());
+    Assert.assertEquals(polygon, geom);
+  }
+
+  @Test
+  public void testSmallLineStringHasNoBoundingBox() {
+    LineString lineString =
+        gf.createLineString(new Coordinate[] {new Coordinate(1, 2), new Coordinate(3, -4)});
+    byte[] bytes = GeometrySerializer.serialize(lineString);
+    Assert.assertFalse(GeometrySerializer.hasBoundingBox(bytes));
+    Assert.assertEquals(new Envelope(1, 3, -4, 2), GeometrySerializer.deserializeEnvelope(bytes));
+    Assert.assertEquals(lineString, GeometrySerializer.deserialize(bytes));
+  }
+
+  @Test
+  public void testPointEnvelope() {
+    Point point = gf.createPoint(new Coordinate(1, 2, 3));
+    byte[] bytes = GeometrySerializer.serialize(point);
+    Assert.assertTrue(GeometrySerializer.hasBoundingBox(bytes));
+    Assert.assertEquals(new Envelope(1, 1, 2, 2), GeometrySerializer.deserializeEnvelope(bytes));
+
+    byte[] emptyBytes = GeometrySerializer.serialize(gf.createPoint());
+    Assert.assertTrue(GeometrySerializer.deserializeEnvelope(emptyBytes).isNull());
+  }
+
+  @Test
+  public void testMultiPointWithEmptyPointEnvelope() {
+    MultiPoint multiPoint =
+        gf.createMultiPoint(
+            new Point[] {
+              gf.createPoint(new Coordinate(1, 2)),
+              gf.createPoint(),
+              gf.createPoint(new Coordinate(-3, 5))
+            });
+    byte[] bytes = GeometrySerializer.serialize(multiPoint);
+    Assert.assertEquals(
+        multiPoint.getEnvelopeInternal(), GeometrySerializer.deserializeEnvelope(bytes));
+  }
+
+  @Test
+  public void testLargeLineStringXYZ() {
+    Coordinate[] coordinates = new Coordinate[GeometrySerializer.BBOX_MIN_COORDINATES];
+    for (int k = 0; k < coordinates.length; k++) {
+      coordinates[k] = new Coordinate(k, -k, k * 10);
+    }
+    LineString lineString = gf.createLineString(coordinates);
+    byte[] bytes = GeometrySerializer.serialize(lineString);
+    Assert.assertTrue(GeometrySerializer.hasBoundingBox(bytes));
+    Assert.assertEquals(
+        lineString.getEnvelopeInternal(), GeometrySerializer.deserializeEnvelope(bytes));
+    Geometry geom = GeometrySerializer.deserialize(bytes);
+    Assert.assertTrue(lineString.equalsExact(geom));
+    Assert.assertEquals(10 * (coordinates.length - 1), geom.getCoordinates()[63].getZ(), 0);
+  }
+
+  @Test
+  public void testGeometryCollectionWithLargeMember() {
+    Polygon polygon = gf.createPolygon(circle(80, 0, 0, 1));
+    Point point = gf.createPoint(new Coordinate(10, 10));
+    Geometry collection = gf.createGeometryCollection(new Geometry[] {polygon, point});
+    byte[] bytes = GeometrySerializer.serialize(collection);
+    Assert.assertEquals(collection, GeometrySerializer.deserialize(bytes));
+    Assert.assertEquals(
+        collection.getEnvelopeInternal(), GeometrySerializer.deserializeEnvelope(bytes));
+  }
+
+  @Test
+  public void testReadLargeLineStringWithoutBoundingBox() {
+    // Large geometries serialized by earlier versions don't have a bounding box in the header
+    int numCoordinates = GeometrySerializer.BBOX_MIN_COORDINATES * 2;
+    ByteBuffer buffer =
+        ByteBuffer.allocate(8 + 16 * numCoordinates).order(ByteOrder.nativeOrder());
+    buffer.put(0, (byte) (2 << 4 | 1 << 1));
+    buffer.putInt(4, numCoordinates);
+    Coordinate[] coordinates = new Coordinate[numCoordinates];
+    for (int k = 0; k < numCoordinates; k++) {
+      coordinates[k] = new Coordinate(k, k * 2);
+      buffer.putDouble(8 + 16 * k, k);
+      buffer.putDouble(16 + 16 * k, k * 2);
+    }
+    byte[] bytes = buffer.array();
+    Assert.assertFalse(GeometrySerializer.hasBoundingBox(bytes));
+    Assert.assertEquals(gf.createLineString(coordinates), GeometrySerializer.deserialize(bytes));
+    Assert.assertEquals(
+        new Envelope(0, numCoordinates - 1, 0, 2 * (numCoordinates - 1)),
+        GeometrySerializer.deserializeEnvelope(bytes));
+  }
+}
@@ -21,6 +21,9 @@ package org.apache.sedona.common.raster;
 import static org.junit.Assert.*;
 
 import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import org.apache.sedona.common.utils.RasterUtils;
 import org.geotools.api.referencing.FactoryException;
@@ -600,6 +603,38 @@ public class MapAlgebraTest extends RasterTestBase {
     }
   }
 
+  @Test
+  public void testMapAlgebraInStrips() throws FactoryException {
+    int width = 37;
+    int height = 53;
+    GridCoverage2D raster = RasterConstructors.makeEmptyRaster(1, "d", width, height, 10, 20, 1);
+    double[] band = new double[width * height];
+    for (int i = 0; i < band.length; i++) {
+      band[i] = i % 7;
+    }
+    raster = MapAlgebra.addBandFromArray(raster, band, 1);
+    Map<String, RenderedImage> sourceImages = new LinkedHashMap<>();
+    sourceImages.put("rast", raster.getRenderedImage());
+    // y() and height() must refer to the whole raster rather than the strip being evaluated
+    String script = "out = rast[0] * 2 + y() * 10 + height();";
+    for (String pixelType : new String[] {"i", "d"}) {
+      for (int stripHeight : new int[] {1, 5, height, height + 10}) {
+        GridCoverage2D result =
+            MapAlgebra.mapAlgebra(raster, sourceImages, pixelType, script, null, stripHeight);
+        assertEquals(
+            RasterUtils.getDataTypeCode(pixelType),
+            result.getRenderedImage().getSampleModel().getDataType());
+        double[] actual = MapAlgebra.bandAsArray(result, 1);
+        for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+            double expected = band[y * width + x] * 2 + y * 10 + height;
+            assertEquals(expected, actual[y * width + x], 1e-9);
+          }
+        }
+      }
+    }
+  }
+
   private void testMapAlgebra(int width, int height, String pixelType, Double noDataValue)
       throws FactoryException {
     GridCoverage2D raster = RasterConstructors.makeEmptyRaster(2, "b", width, height, 10, 20, 1);
@@ -342,6 +342,41 @@ public class RasterBandAccessorsTest extends RasterTestBase {
                 raster, nonIntersectingGeom, 1, false, false, false));
   }
 
+  @Test
+  public void testZonalStatsAllOfManyZones() throws IOException, FactoryException, ParseException {
+    GridCoverage2D raster =
+        rasterFromGeoTiff(resourceFolder + "raster_geotiff_color/FAA_UTM18N_NAD83.tif");
+    Geometry[] zones =
+        new Geometry[] {
+          Constructors.geomFromWKT(
+              "POLYGON ((236722 4204770, 243900 4204770, 243900 4197590, 221170 4197590, 236722 4204770))",
+              RasterAccessors.srid(raster)),
+          // Overlaps the first zone
+          Constructors.geomFromWKT(
+              "POLYGON ((230000 4200000, 238000 4200000, 238000 4195000, 230000 4195000, 230000 4200000))",
+              RasterAccessors.srid(raster)),
+          Constructors.geomFromWKT(
+              "POLYGON ((-77.96672569800863073 37.91971182746296876, -77.9688630154902711 37.89620133516485367, -77.93936803424354309 37.90517806858776595, -77.96672569800863073 37.91971182746296876))",
+              0),
+          Constructors.geomFromWKT(
+              "POLYGON ((-78.22106647832458748 37.76411511479908967, -78.20183062098976734 37.72863564460374874, -78.18088490966962922 37.76753482276972562, -78.22106647832458748 37.76411511479908967))",
+              0),
+          null
+        };
+
+    for (boolean allTouched : new boolean[] {false, true}) {
+      Double[][] actual = RasterBandAccessors.getZonalStatsAll(raster, zones, 2, allTouched, true);
+      assertEquals(zones.length, actual.length);
+      for (int i = 0; i < zones.length - 1; i++) {
+        Double[] expected =
+            RasterBandAccessors.getZonalStatsAll(raster, zones[i], 2, allTouched, true, true);
+        assertArrayEquals(expected, actual[i]);
+      }
+      assertNull(actual[3]);
+      assertNull(actual[4]);
+    }
+  }
+
   @Test
   public void testZonalStatsAllWithNoData() throws IOException, FactoryException, ParseException {
     GridCoverage2D raster =
@@ -391,6 +426,78 @@ public class RasterBandAccessorsTest extends RasterTestBase {
     assertArrayEquals(expected, actual, FP_TOLERANCE);
   }
 
+  @Test
+  public void testZonalStatsAllWithGeometryPartlyOutsideRaster()
+      throws FactoryException, ParseException {
+    GridCoverage2D raster = RasterConstructors.makeEmptyRaster(1, 4, 4, 0, 0, 1, -1, 0, 0, 0);
+    double[] bandValue = new double[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+    raster = MapAlgebra.addBandFromArray(raster, bandValue, 1);
+
+    // Overflows the lower right corner of the raster
+    Geometry geom = Constructors.geomFromWKT("POLYGON((2 -2, 6 -2, 6 -6, 2 -6, 2 -2))", 0);
+    double[] actual =
+        Arrays.stream(RasterBandAccessors.getZonalStatsAll(raster, geom, 1, false, false))
+            .mapToDouble(Double::doubleValue)
+            .toArray();
+    double[] expected = new double[] {4.0, 54.0, 13.5, 13.5, 16.0, 2.3805, 5.6667, 11.0, 16.0};
+    assertArrayEquals(expected, actual, FP_TOLERANCE);
+
+    // Overflows the upper left corner of the raster
+    geom = Constructors.geomFromWKT("POLYGON((-2 2, 1 2, 1 -1, -2 -1, -2 2))", 0);
+    actual =
+        Arrays.stream(RasterBandAccessors.getZonalStatsAll(raster, geom, 1, false, false))
+            .mapToDouble(Double::doubleValue)
+            .toArray();
+    expected = new double[] {1.0, 1.0, 1.0, 1.0, 1.0, 0.0, 0.0, 1.0, 1.0};
+    assertArrayEquals(expected, actual, FP_TOLERANCE);
+  }
+
+  @Test
+  public void testZonalStatsAllTouchedWithGeometryOnCellEdges()
+      throws FactoryException, ParseException {
+    GridCoverage2D raster = RasterConstructors.makeEmptyRaster(1, 6, 6, 0, 0, 1, -1, 0, 0, 0);
+    double[] bandValue = new double[36];
+    for (int i = 0; i < bandValue.length; i++) {
+      bandValue[i] = i + 1;
+    }
+    raster = MapAlgebra.addBandFromArray(raster, bandValue, 1);
+
+    String[] wkts =
+        new String[] {
+          "POLYGON((1 -1, 3 -1, 3 -3, 1 -3, 1 -1))",
+          "POLYGON((2 -1, 5 -1, 5 -5, 2 -5, 2 -1))",
+          "LINESTRING(1 -2, 5 -2)",
+          "LINESTRING(3 -1, 3 -5)"
+        };
+    for (String wkt : wkts) {
+      Geometry geom = Constructors.geomFromWKT(wkt, 0);
+      // Reference statistics read from the whole rasterized roi, without narrowing the window
+      double[] mask =
+          MapAlgebra.bandAsArray(
+              RasterConstructors.asRasterWithRasterExtent(geom, raster, "d", true, 150, null), 1);
+      double count = 0;
+      double sum = 0;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < mask.length; i++) {
+        if (mask[i] != 0) {
+          count++;
+          sum += bandValue[i];
+          min = Math.min(min, bandValue[i]);
+          max = Math.max(max, bandValue[i]);
+        }
+      }
+      assertTrue(wkt, count > 0);
+
+      Double[] actual = RasterBandAccessors.getZonalStatsAll(raster, geom, 1, true, false);
+      assertEquals(wkt, count, actual[0], FP_TOLERANCE);
+      assertEquals(wkt, sum, actual[1], FP_TOLERANCE);
+      assertEquals(wkt, sum / count, actual[2], FP_TOLERANCE);
+      assertEquals(wkt, min, actual[7], FP_TOLERANCE);
+      assertEquals(wkt, max, actual[8], FP_TOLERANCE);
+    }
+  }
+
   @Test
   public void testSummaryStatsAllWithAllNoData() throws FactoryException {
     GridCoverage2D emptyRaster = RasterConstructors.makeEmptyRaster(1, 5, 5, 0, 0, 1, -1, 0, 0, 0);
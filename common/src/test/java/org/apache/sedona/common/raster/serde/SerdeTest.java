@@ -18,15 +18,27 @@
  */
 package org.apache.sedona.common.raster.serde;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 import java.io.File;
 import java.io.IOException;
+import org.apache.sedona.common.raster.GeometryFunctions;
+import org.apache.sedona.common.raster.MapAlgebra;
+import org.apache.sedona.common.raster.RasterAccessors;
 import org.apache.sedona.common.raster.RasterConstructors;
+import org.apache.sedona.common.raster.RasterHeader;
 import org.apache.sedona.common.raster.RasterTestBase;
+import org.apache.sedona.common.utils.RasterUtils;
 import org.geotools.api.referencing.FactoryException;
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.referencing.CRS;
 import org.junit.Test;
 
 public class SerdeTest extends RasterTestBase {
@@ -69,6 +81,89 @@ public class SerdeTest extends RasterTestBase {
     testRoundTrip(raster);
   }
 
+  @Test
+  public void testRoundTripAllDataTypes() throws IOException, ClassNotFoundException {
+    double[] values = new double[6 * 5];
+    for (int k = 0; k < values.length; k++) {
+      values[k] = k * 7 % 31;
+    }
+    for (String dataType : new String[] {"B", "S", "US", "I", "F", "D"}) {
+      GridCoverage2D raster = RasterConstructors.makeEmptyRaster(2, dataType, 6, 5, 10, 20, 1);
+      raster = MapAlgebra.addBandFromArray(raster, values, 1);
+      raster = MapAlgebra.addBandFromArray(raster, values, 2);
+      testRoundTrip(raster, 1);
+    }
+  }
+
+  @Test
+  public void testDeserializedByteBandsAreTrimmed() throws IOException, ClassNotFoundException {
+    GridCoverage2D raster = RasterConstructors.makeEmptyRaster(3, "B", 8, 4, 0, 0, 1);
+    byte[] bytes = Serde.serialize(raster);
+    GridCoverage2D roundTripRaster = Serde.deserialize(bytes);
+    DataBuffer dataBuffer =
+        RasterUtils.getRaster(roundTripRaster.getRenderedImage()).getDataBuffer();
+    assertEquals(3, dataBuffer.getNumBanks());
+    for (int bank = 0; bank < dataBuffer.getNumBanks(); bank++) {
+      assertEquals(0, dataBuffer.getOffsets()[bank]);
+      assertEquals(8 * 4, ((DataBufferByte) dataBuffer).getData(bank).length);
+    }
+    assertSameCoverage(raster, roundTripRaster, 1);
+
+    // Serializing the raster again does not copy the whole serialized raster into each band
+    assertEquals(bytes.length, Serde.serialize(roundTripRaster).length);
+    assertTrue(Serde.serializeInDb(roundTripRaster).length < 2 * bytes.length);
+  }
+
+  @Test
+  public void testDeserializeInDbFormat() throws IOException, ClassNotFoundException {
+    for (String testFilePath : testFilePaths) {
+      GeoTiffReader reader = new GeoTiffReader(new File(testFilePath));
+      GridCoverage2D raster = reader.read(null);
+      GridCoverage2D roundTripRaster = Serde.deserialize(Serde.serializeInDb(raster));
+      assertSameCoverage(raster, roundTripRaster, 10);
+      assertEquals(
+          RasterAccessors.getGeoReference(raster),
+          RasterAccessors.getGeoReference(Serde.deserializeHeader(Serde.serializeInDb(raster))));
+    }
+    GridCoverage2D raster = RasterConstructors.makeEmptyRaster(2, "D", 6, 5, 10, 20, 1);
+    assertSameCoverage(raster, Serde.deserialize(Serde.serializeInDb(raster)), 1);
+  }
+
+  @Test
+  public void testRoundTripMetadata() {
+    Serde.Metadata metadata = Serde.deserializeMetadata(Serde.serializeMetadata(multiBandRaster));
+    GridGeometry2D gridGeometry = metadata.getGridGeometry();
+    assertEquals(multiBandRaster.getName().toString(), metadata.getName().toString());
+    assertEquals(multiBandRaster.getGridGeometry().getGridRange2D(), gridGeometry.getGridRange2D());
+    assertSameBounds(multiBandRaster.getEnvelope(), gridGeometry.getEnvelope(), 1e-6);
+    assertTrue(
+        CRS.equalsIgnoreMetadata(
+            multiBandRaster.getCoordinateReferenceSystem(),
+            gridGeometry.getCoordinateReferenceSystem()));
+    assertEquals(multiBandRaster.getNumSampleDimensions(), metadata.getBands().length);
+  }
+
+  @Test
+  public void testDeserializeHeader()
+      throws IOException, ClassNotFoundException, FactoryException {
+    for (String testFilePath : testFilePaths) {
+      GeoTiffReader reader = new GeoTiffReader(new File(testFilePath));
+      GridCoverage2D raster = reader.read(null);
+      // Headers are read from serialized rasters, whose images have only one tile
+      GridCoverage2D deserializedRaster = Serde.deserialize(Serde.serialize(raster));
+      RasterHeader header = Serde.deserializeHeader(Serde.serialize(raster));
+      assertEquals(RasterAccessors.getWidth(raster), RasterAccessors.getWidth(header));
+      assertEquals(RasterAccessors.getHeight(raster), RasterAccessors.getHeight(header));
+      assertEquals(RasterAccessors.srid(raster), RasterAccessors.srid(header));
+      assertEquals(RasterAccessors.numBands(raster), RasterAccessors.numBands(header));
+      assertEquals(
+          RasterAccessors.getGeoReference(raster), RasterAccessors.getGeoReference(header));
+      assertArrayEquals(
+          RasterAccessors.metadata(deserializedRaster), RasterAccessors.metadata(header), 1e-9);
+      assertEquals(GeometryFunctions.envelope(raster), GeometryFunctions.envelope(header));
+    }
+  }
+
   private GridCoverage2D testRoundTrip(GridCoverage2D raster)
       throws IOException, ClassNotFoundException {
     return testRoundTrip(raster, 10);
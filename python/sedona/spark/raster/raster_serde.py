@@ -37,6 +37,7 @@ from .sedona_raster import InDbSedonaRaster, SedonaRaster
 
 class RasterTypes:
     IN_DB = 0
+    IN_DB_CONTIGUOUS = 1
 
 
 def deserialize(buf: Union[bytearray, bytes]) -> Optional[SedonaRaster]:
@@ -49,6 +50,10 @@ def deserialize(buf: Union[bytearray, bytes]) -> Optional[SedonaRaster]:
 
 
 def _deserialize(bio: BytesIO, raster_type: int) -> SedonaRaster:
+    data_offset = None
+    if raster_type == RasterTypes.IN_DB_CONTIGUOUS:
+        # Band data is stored as contiguous little-endian arrays after the header
+        (data_offset,) = struct.unpack("=i", bio.read(4))
     name = _read_utf8_string(bio)
     width, height, x, y = _read_grid_envelope(bio)
     affine_trans = _read_affine_transformation(bio)
@@ -56,9 +61,9 @@ def _deserialize(bio: BytesIO, raster_type: int) -> SedonaRaster:
     affine_trans = affine_trans.with_anchor(PixelAnchor.UPPER_LEFT)
     crs_wkt = _read_crs_wkt(bio)
     bands_meta = _read_sample_dimensions(bio)
-    if raster_type == RasterTypes.IN_DB:
+    if raster_type in [RasterTypes.IN_DB, RasterTypes.IN_DB_CONTIGUOUS]:
         # In-DB raster
-        awt_raster = _read_awt_raster(bio)
+        awt_raster = _read_awt_raster(bio, data_offset)
         return InDbSedonaRaster(
             width, height, bands_meta, affine_trans, crs_wkt, awt_raster
         )
@@ -98,7 +103,9 @@ def _read_sample_dimensions(bio: BytesIO) -> List[SampleDimension]:
     return bands_meta
 
 
-def _read_awt_raster(bio: BytesIO) -> AWTRaster:
+def _read_awt_raster(
+    bio: BytesIO, data_offset: Optional[int] = None
+) -> AWTRaster:
     min_x, min_y, width, height = struct.unpack("=iiii", bio.read(4 * 4))
     _ignore_java_object(bio)  # image properties
     _ignore_java_object(bio)  # color model
@@ -108,7 +115,10 @@ def _read_awt_raster(bio: BytesIO) -> AWTRaster:
             "malformed serialized raster: minx/miny of the image cannot match with minx/miny of the AWT raster"
         )
     sample_model = _read_sample_model(bio)
-    data_buffer = _read_data_buffer(bio)
+    if data_offset is None:
+        data_buffer = _read_data_buffer(bio)
+    else:
+        data_buffer = _read_contiguous_data_buffer(bio, data_offset)
     return AWTRaster(min_x, min_y, width, height, sample_model, data_buffer)
 
 
@@ -190,6 +200,36 @@ def _read_data_buffer(bio: BytesIO) -> DataBuffer:
     return DataBuffer(data_type, banks, size, offsets)
 
 
+def _read_contiguous_data_buffer(bio: BytesIO, data_offset: int) -> DataBuffer:
+    (data_type,) = struct.unpack("=i", bio.read(4))
+    offsets = _read_int_array(bio)
+    size, num_banks = struct.unpack("=ii", bio.read(4 * 2))
+    if data_type == DataBuffer.TYPE_BYTE:
+        dtype = np.dtype(np.uint8)
+    elif data_type == DataBuffer.TYPE_SHORT:
+        dtype = np.dtype("<i2")
+    elif data_type == DataBuffer.TYPE_USHORT:
+        dtype = np.dtype("<u2")
+    elif data_type == DataBuffer.TYPE_INT:
+        dtype = np.dtype("<i4")
+    elif data_type == DataBuffer.TYPE_FLOAT:
+        dtype = np.dtype("<f4")
+    elif data_type == DataBuffer.TYPE_DOUBLE:
+        dtype = np.dtype("<f8")
+    else:
+        raise ValueError(f"unknown data_type {data_type}")
+
+    buf = bio.getbuffer()
+    bank_length = size * dtype.itemsize
+    banks = [
+        np.frombuffer(
+            buf, dtype=dtype, count=size, offset=data_offset + i * bank_length
+        )
+        for i in range(num_banks)
+    ]
+    return DataBuffer(data_type, banks, size, offsets)
+
+
 def _read_utf8_string(bio: BytesIO) -> str:
     (size,) = struct.unpack("=i", bio.read(4))
     utf8_bytes = bio.read(size)
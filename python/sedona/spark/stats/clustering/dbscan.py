@@ -17,8 +17,8 @@
 
 """DBSCAN is a popular clustering algorithm for spatial data.
 
-It identifies groups of data where enough records are close enough to each other. This implementation leverages spark,
-sedona and graphframes to support large scale datasets and various, heterogeneous geometric feature types.
+It identifies groups of data where enough records are close enough to each other. This implementation leverages spark
+and sedona spatial partitioning to support large scale datasets and various, heterogeneous geometric feature types.
 """
 from typing import Optional
 
@@ -39,7 +39,7 @@ def dbscan(
 ):
     """Annotates a dataframe with a cluster label for each data record using the DBSCAN algorithm.
 
-    The dataframe should contain at least one GeometryType column. Rows must be unique. If one geometry column is
+    The dataframe should contain at least one GeometryType column. If one geometry column is
     present it will be used automatically. If two are present, the one named 'geometry' will be used. If more than one
     are present and neither is named 'geometry', the column name must be provided.
 
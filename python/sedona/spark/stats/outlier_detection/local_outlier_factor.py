@@ -31,10 +31,11 @@ def local_outlier_factor(
     handle_ties: bool = False,
     use_spheroid=False,
     result_column_name: str = "lof",
+    id_column: Optional[str] = None,
 ):
     """Annotates a dataframe with a column containing the local outlier factor for each data record.
 
-    The dataframe should contain at least one GeometryType column. Rows must be unique. If one geometry column is
+    The dataframe should contain at least one GeometryType column. If one geometry column is
     present it will be used automatically. If two are present, the one named 'geometry' will be used. If more than one
     are present and neither is named 'geometry', the column name must be provided.
 
@@ -45,6 +46,8 @@ def local_outlier_factor(
         handle_ties: whether to handle ties in the k-distance calculation. Default is false
         use_spheroid: whether to use a cartesian or spheroidal distance calculation. Default is false
         result_column_name: the name of the column containing the lof for each row. Default is "lof"
+        id_column: the name of a column uniquely identifying the records. Default is None, in which case row ids are
+            generated.
 
     Returns:
         A PySpark DataFrame containing the lof for each row
@@ -58,6 +61,7 @@ def local_outlier_factor(
         handle_ties,
         use_spheroid,
         result_column_name,
+        id_column,
     )
 
     return DataFrame(result_df, sedona)
@@ -34,10 +34,11 @@ def add_distance_band_column(
     use_spheroid: bool = False,
     saved_attributes: List[str] = None,
     result_name: str = "weights",
+    id_column: Optional[str] = None,
 ) -> DataFrame:
     """Annotates a dataframe with a weights column containing the other records within the threshold and their weight.
 
-    The dataframe should contain at least one GeometryType column. Rows must be unique. If one
+    The dataframe should contain at least one GeometryType column. If one
     geometry column is present it will be used automatically. If two are present, the one named
     'geometry' will be used. If more than one are present and neither is named 'geometry', the
     column name must be provided. The new column will be named 'cluster'.
@@ -55,6 +56,8 @@ def add_distance_band_column(
         use_spheroid: whether to use a cartesian or spheroidal distance calculation. Default is false
         saved_attributes: the attributes to save in the neighbor column. Default is all columns.
         result_name: the name of the resulting column. Default is 'weights'.
+        id_column: the name of a column uniquely identifying the records. Default is None, in which case row ids are
+            generated.
     Returns:
         The input DataFrame with a weight column added containing neighbors and their weights added to each row.
 
@@ -73,6 +76,7 @@ def add_distance_band_column(
             use_spheroid,
             saved_attributes,
             result_name,
+            id_column,
         ),
         sedona,
     )
@@ -90,8 +94,8 @@ def add_binary_distance_band_column(
 ) -> DataFrame:
     """Annotates a dataframe with a weights column containing the other records within the threshold and their weight.
 
-    Weights will always be 1.0. The dataframe should contain at least one GeometryType column. Rows must be unique. If
-    one geometry column is present it will be used automatically. If two are present, the one named 'geometry' will be
+    Weights will always be 1.0. The dataframe should contain at least one GeometryType column. If one
+    geometry column is present it will be used automatically. If two are present, the one named 'geometry' will be
     used. If more than one are present and neither is named 'geometry', the column name must be provided. The new column
     will be named 'cluster'.
 
@@ -126,6 +130,7 @@ def add_binary_distance_band_column(
             use_spheroid,
             saved_attributes,
             result_name,
+            None,
         ),
         sedona,
     )
@@ -145,8 +150,8 @@ def add_weighted_distance_band_column(
 ) -> DataFrame:
     """Annotates a dataframe with a weights column containing the other records within the threshold and their weight.
 
-    Weights will be distance^alpha. The dataframe should contain at least one GeometryType column. Rows must be unique. If
-    one geometry column is present it will be used automatically. If two are present, the one named 'geometry' will be
+    Weights will be distance^alpha. The dataframe should contain at least one GeometryType column. If one
+    geometry column is present it will be used automatically. If two are present, the one named 'geometry' will be
     used. If more than one are present and neither is named 'geometry', the column name must be provided. The new column
     will be named 'cluster'.
 
@@ -183,6 +188,7 @@ def add_weighted_distance_band_column(
             use_spheroid,
             saved_attributes,
             result_name,
+            None,
         ),
         sedona,
     )
@@ -46,6 +46,10 @@ ListCoordType = Union[
 
 GET_COORDS_NUMPY_THRESHOLD = 50
 
+HEADER_SIZE = 8
+BBOX_HEADER_SIZE = 40
+BBOX_FLAG = 0x80
+
 
 class GeometryTypeID:
     """
@@ -212,12 +216,15 @@ def deserialize(buffer: bytes) -> Optional[BaseGeometry]:
     if buffer is None:
         return None
     preamble_byte = buffer[0]
-    geom_type = (preamble_byte >> 4) & 0x0F
+    geom_type = (preamble_byte >> 4) & 0x07
     coord_type = (preamble_byte >> 1) & 0x07
+    # The highest bit of the preamble indicates that the header is followed by a bounding box
+    # of 4 doubles, which is not needed for deserializing the geometry.
+    header_size = BBOX_HEADER_SIZE if preamble_byte & BBOX_FLAG else HEADER_SIZE
     num_coords = struct.unpack_from("i", buffer, 4)[0]
     if num_coords > len(buffer):
         raise ValueError("num_coords cannot be larger than buffer size")
-    geom_buffer = GeometryBuffer(buffer, coord_type, 8, num_coords)
+    geom_buffer = GeometryBuffer(buffer, coord_type, header_size, num_coords)
     if geom_type == GeometryTypeID.POINT:
         geom = deserialize_point(geom_buffer)
     elif geom_type == GeometryTypeID.LINESTRING:
@@ -555,8 +562,8 @@ def deserialize_geometry_collection(geom_buffer: GeometryBuffer) -> GeometryColl
     if num_geometries == 0:
         return wkt_loads("GEOMETRYCOLLECTION EMPTY")
     geometries = []
-    geom_end_offset = 8
-    buffer = geom_buffer.buffer[8:]
+    geom_end_offset = geom_buffer.coords_offset
+    buffer = geom_buffer.buffer[geom_end_offset:]
     for k in range(0, num_geometries):
         geom, offset = deserialize(buffer)
         geometries.append(geom)
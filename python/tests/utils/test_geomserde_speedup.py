@@ -15,6 +15,8 @@
 # specific language governing permissions and limitations
 # under the License.
 
+import struct
+
 import pytest
 import shapely
 from shapely.geometry import (
@@ -137,6 +139,16 @@ class TestGeomSerdeSpeedup:
         ]
         self._test_serde_roundtrip(geometry_collections)
 
+    def test_deserialize_with_bbox_header(self):
+        # Large geometries serialized by the JVM have a bounding box following the header
+        linestring = LineString([(k, k * 2) for k in range(100)])
+        buffer = bytes(geometry_serde.serialize(linestring))
+        bbox = struct.pack("dddd", *linestring.bounds)
+        buffer = bytes([buffer[0] | 0x80]) + buffer[1:8] + bbox + buffer[8:]
+        geom, offset = geometry_serde.deserialize(buffer)
+        assert geom.equals_exact(linestring, 1e-6)
+        assert offset == len(buffer)
+
     @pytest.mark.skipif(
         shapely.__version__ < "2", reason="SRID functions require Shapely >= 2.0"
     )
@@ -29,7 +29,13 @@ public enum IndexType implements Serializable {
   QUADTREE,
 
   /** The rtree. */
-  RTREE;
+  RTREE,
+
+  /**
+   * The packed Hilbert R-tree. Broadcast index joins broadcast it as primitive arrays, other
+   * queries use an rtree instead.
+   */
+  PACKED_RTREE;
 
   /**
    * Gets the index type.
@@ -120,6 +120,7 @@ public class DynamicIndexLookupJudgement<T extends Geometry, U extends Geometry>
   private SpatialIndex newIndex() {
     switch (indexType) {
       case RTREE:
+      case PACKED_RTREE:
         return new STRtree();
       case QUADTREE:
         return new Quadtree();
@@ -26,8 +26,10 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.sedona.core.enums.DistanceMetric;
+import org.apache.sedona.core.knnJudgement.PointKDTree;
 import org.apache.sedona.core.wrapper.UniqueGeometry;
 import org.apache.spark.util.LongAccumulator;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.index.strtree.ItemDistance;
@@ -36,7 +38,9 @@ import org.locationtech.jts.index.strtree.STRtree;
 public class InMemoryKNNJoinIterator<T extends Geometry, U extends Geometry>
     implements Iterator<Pair<T, U>> {
   private final Iterator<T> querySideIterator;
-  private final STRtree strTree;
+  private STRtree strTree;
+  private final PointKDTree<U> pointIndex;
+  private final PointKDTree<U>.Searcher pointSearcher;
 
   private final int k;
   private final DistanceMetric distanceMetric;
@@ -57,8 +61,53 @@ public class InMemoryKNNJoinIterator<T extends Geometry, U extends Geometry>
       boolean includeTies,
       LongAccumulator streamCount,
       LongAccumulator resultCount) {
+    this(
+        querySideIterator,
+        strTree,
+        null,
+        k,
+        distanceMetric,
+        includeTies,
+        streamCount,
+        resultCount);
+  }
+
+  /**
+   * Create an iterator that answers the queries of points using a KD-tree over the points on the
+   * object side. Queries of other geometries use an STRtree built from the KD-tree on demand.
+   */
+  public InMemoryKNNJoinIterator(
+      Iterator<T> querySideIterator,
+      PointKDTree<U> pointIndex,
+      int k,
+      DistanceMetric distanceMetric,
+      boolean includeTies,
+      LongAccumulator streamCount,
+      LongAccumulator resultCount) {
+    this(
+        querySideIterator,
+        null,
+        pointIndex,
+        k,
+        distanceMetric,
+        includeTies,
+        streamCount,
+        resultCount);
+  }
+
+  private InMemoryKNNJoinIterator(
+      Iterator<T> querySideIterator,
+      STRtree strTree,
+      PointKDTree<U> pointIndex,
+      int k,
+      DistanceMetric distanceMetric,
+      boolean includeTies,
+      LongAccumulator streamCount,
+      LongAccumulator resultCount) {
     this.querySideIterator = querySideIterator;
     this.strTree = strTree;
+    this.pointIndex = pointIndex;
+    this.pointSearcher = pointIndex != null ? pointIndex.searcher(k, distanceMetric) : null;
 
     this.k = k;
     this.distanceMetric = distanceMetric;
@@ -106,10 +155,24 @@ public class InMemoryKNNJoinIterator<T extends Geometry, U extends Geometry>
     }
     streamCount.add(1);
 
-    Object[] localK =
-        strTree.nearestNeighbour(queryGeom.getEnvelopeInternal(), queryGeom, itemDistance, k);
+    Object[] localK;
+    boolean usePointIndex = pointIndex != null && pointIndex.supports(queryGeom, distanceMetric);
+    if (usePointIndex) {
+      Coordinate coordinate = queryGeom.getCoordinate();
+      int[] ids = pointSearcher.nearestNeighbors(coordinate.x, coordinate.y);
+      localK = new Object[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        localK[i] = pointIndex.get(ids[i]);
+      }
+    } else {
+      if (strTree == null) {
+        strTree = pointIndex.toSTRtree();
+      }
+      localK =
+          strTree.nearestNeighbour(queryGeom.getEnvelopeInternal(), queryGeom, itemDistance, k);
+    }
     if (includeTies) {
-      localK = getUpdatedLocalKWithTies(queryGeom, localK, strTree);
+      localK = getUpdatedLocalKWithTies(queryGeom, localK, usePointIndex);
     }
 
     for (Object obj : localK) {
@@ -121,7 +184,7 @@ public class InMemoryKNNJoinIterator<T extends Geometry, U extends Geometry>
   }
 
   private Object[] getUpdatedLocalKWithTies(
-      Geometry streamShape, Object[] localK, STRtree strTree) {
+      Geometry streamShape, Object[] localK, boolean usePointIndex) {
     Envelope searchEnvelope = streamShape.getEnvelopeInternal();
     // get the maximum distance from the k nearest neighbors
     double maxDistance = 0.0;
@@ -135,7 +198,14 @@ public class InMemoryKNNJoinIterator<T extends Geometry, U extends Geometry>
       }
     }
     searchEnvelope.expandBy(maxDistance);
-    List<U> candidates = strTree.query(searchEnvelope);
+    List<U> candidates;
+    if (usePointIndex) {
+      List<U> pointCandidates = new ArrayList<>();
+      pointIndex.query(searchEnvelope, id -> pointCandidates.add(pointIndex.get(id)));
+      candidates = pointCandidates;
+    } else {
+      candidates = strTree.query(searchEnvelope);
+    }
     if (!candidates.isEmpty()) {
       // update localK with all candidates that are within the maxDistance
       List<Object> tiedResults = new ArrayList<>();
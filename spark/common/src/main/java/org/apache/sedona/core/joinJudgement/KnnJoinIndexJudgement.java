@@ -19,6 +19,7 @@
 package org.apache.sedona.core.joinJudgement;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -26,6 +27,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.sedona.core.enums.DistanceMetric;
 import org.apache.sedona.core.knnJudgement.EuclideanItemDistance;
 import org.apache.sedona.core.knnJudgement.HaversineItemDistance;
+import org.apache.sedona.core.knnJudgement.PointKDTree;
 import org.apache.sedona.core.knnJudgement.SpheroidDistance;
 import org.apache.spark.api.java.function.FlatMapFunction2;
 import org.apache.spark.broadcast.Broadcast;
@@ -50,6 +52,7 @@ public class KnnJoinIndexJudgement<T extends Geometry, U extends Geometry>
   private final boolean includeTies;
   private final Broadcast<List<T>> broadcastQueryObjects;
   private final Broadcast<STRtree> broadcastObjectsTreeIndex;
+  private final Broadcast<PointKDTree<U>> broadcastObjectsPointIndex;
 
   /**
    * Constructor for the KnnJoinIndexJudgement class.
@@ -73,12 +76,51 @@ public class KnnJoinIndexJudgement<T extends Geometry, U extends Geometry>
       LongAccumulator streamCount,
       LongAccumulator resultCount,
       LongAccumulator candidateCount) {
+    this(
+        k,
+        distanceMetric,
+        includeTies,
+        broadcastQueryObjects,
+        broadcastObjectsTreeIndex,
+        null,
+        buildCount,
+        streamCount,
+        resultCount,
+        candidateCount);
+  }
+
+  /**
+   * Constructor for the KnnJoinIndexJudgement class.
+   *
+   * @param k the number of nearest neighbors to find
+   * @param distanceMetric the distance metric to use
+   * @param broadcastQueryObjects the broadcast geometries on queries
+   * @param broadcastObjectsTreeIndex the broadcast spatial index on objects
+   * @param broadcastObjectsPointIndex the broadcast KD-tree on objects, used instead of {@code
+   *     broadcastObjectsTreeIndex} when all objects are points
+   * @param buildCount accumulator for the number of geometries processed from the build side
+   * @param streamCount accumulator for the number of geometries processed from the stream side
+   * @param resultCount accumulator for the number of join results
+   * @param candidateCount accumulator for the number of candidate matches
+   */
+  public KnnJoinIndexJudgement(
+      int k,
+      DistanceMetric distanceMetric,
+      boolean includeTies,
+      Broadcast<List<T>> broadcastQueryObjects,
+      Broadcast<STRtree> broadcastObjectsTreeIndex,
+      Broadcast<PointKDTree<U>> broadcastObjectsPointIndex,
+      LongAccumulator buildCount,
+      LongAccumulator streamCount,
+      LongAccumulator resultCount,
+      LongAccumulator candidateCount) {
     super(null, buildCount, streamCount, resultCount, candidateCount);
     this.k = k;
     this.distanceMetric = distanceMetric;
     this.includeTies = includeTies;
     this.broadcastQueryObjects = broadcastQueryObjects;
     this.broadcastObjectsTreeIndex = broadcastObjectsTreeIndex;
+    this.broadcastObjectsPointIndex = broadcastObjectsPointIndex;
   }
 
   /**
@@ -102,9 +144,7 @@ public class KnnJoinIndexJudgement<T extends Geometry, U extends Geometry>
       return Collections.emptyIterator();
     }
 
-    STRtree strTree = buildSTRtree(objectShapes);
-    return new InMemoryKNNJoinIterator<>(
-        queryShapes, strTree, k, distanceMetric, includeTies, streamCount, resultCount);
+    return buildJoinIterator(queryShapes, objectShapes);
   }
 
   /**
@@ -125,6 +165,16 @@ public class KnnJoinIndexJudgement<T extends Geometry, U extends Geometry>
 
     // There's no need to use external spatial index, since the object side is small enough to be
     // broadcasted, the STRtree built from the broadcasted object should be able to fit into memory.
+    if (broadcastObjectsPointIndex != null) {
+      return new InMemoryKNNJoinIterator<>(
+          queryShapes,
+          broadcastObjectsPointIndex.getValue(),
+          k,
+          distanceMetric,
+          includeTies,
+          streamCount,
+          resultCount);
+    }
     STRtree strTree = broadcastObjectsTreeIndex.getValue();
     return new InMemoryKNNJoinIterator<>(
         queryShapes, strTree, k, distanceMetric, includeTies, streamCount, resultCount);
@@ -146,20 +196,33 @@ public class KnnJoinIndexJudgement<T extends Geometry, U extends Geometry>
     }
 
     List<T> queryItems = broadcastQueryObjects.getValue();
-    STRtree strTree = buildSTRtree(objectShapes);
-    return new InMemoryKNNJoinIterator<>(
-        queryItems.iterator(), strTree, k, distanceMetric, includeTies, streamCount, resultCount);
+    return buildJoinIterator(queryItems.iterator(), objectShapes);
   }
 
-  private STRtree buildSTRtree(Iterator<U> objectShapes) {
-    STRtree strTree = new STRtree();
+  /**
+   * Index the geometries on the object side and create an iterator over the join results. Points
+   * are indexed using a KD-tree, other geometries using an STRtree.
+   */
+  private Iterator<Pair<T, U>> buildJoinIterator(
+      Iterator<T> queryShapes, Iterator<U> objectShapes) {
+    List<U> spatialObjects = new ArrayList<>();
     while (objectShapes.hasNext()) {
-      U spatialObject = objectShapes.next();
-      strTree.insert(spatialObject.getEnvelopeInternal(), spatialObject);
+      spatialObjects.add(objectShapes.next());
       buildCount.add(1);
     }
+    PointKDTree<U> pointIndex = PointKDTree.build(spatialObjects);
+    if (pointIndex != null) {
+      return new InMemoryKNNJoinIterator<>(
+          queryShapes, pointIndex, k, distanceMetric, includeTies, streamCount, resultCount);
+    }
+
+    STRtree strTree = new STRtree();
+    for (U spatialObject : spatialObjects) {
+      strTree.insert(spatialObject.getEnvelopeInternal(), spatialObject);
+    }
     strTree.build();
-    return strTree;
+    return new InMemoryKNNJoinIterator<>(
+        queryShapes, strTree, k, distanceMetric, includeTies, streamCount, resultCount);
   }
 
   /**
@@ -0,0 +1,484 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.knnJudgement;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import org.apache.sedona.common.sphere.Haversine;
+import org.apache.sedona.common.sphere.Spheroid;
+import org.apache.sedona.core.enums.DistanceMetric;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * A KD-tree over points for answering k nearest neighbor queries. The coordinates of the points
+ * are stored in primitive arrays, and the tree is implicit: each range of the arrays is split at
+ * its median along alternating axes, so that there are no node objects to traverse.
+ *
+ * <p>The tree supports the Euclidean, Haversine and Spheroid distance metrics. For the latter two,
+ * the coordinates are longitudes and latitudes in degrees, and subtrees are pruned using a lower
+ * bound of the great circle distance between the query point and the bounding box of the subtree.
+ *
+ * @param <T> the type of the indexed points
+ */
+public class PointKDTree<T extends Geometry> implements Serializable {
+
+  /** Ranges of at most this many points are scanned instead of being split further. */
+  private static final int LEAF_SIZE = 8;
+
+  /** Relative slack applied to the lower bounds to absorb rounding errors. */
+  private static final double BOUND_SLACK = 1 - 1e-9;
+
+  private final double[] xs;
+  private final double[] ys;
+  private final int[] ids;
+  private final List<T> items;
+  private final Envelope extent;
+  private final boolean geographic;
+
+  private PointKDTree(List<T> items) {
+    int n = items.size();
+    this.items = items;
+    this.xs = new double[n];
+    this.ys = new double[n];
+    this.ids = new int[n];
+    this.extent = new Envelope();
+    boolean geographic = true;
+    for (int i = 0; i < n; i++) {
+      Coordinate coordinate = items.get(i).getCoordinate();
+      xs[i] = coordinate.x;
+      ys[i] = coordinate.y;
+      ids[i] = i;
+      extent.expandToInclude(coordinate);
+      geographic &= isGeographic(coordinate.x, coordinate.y);
+    }
+    this.geographic = geographic;
+    build(0, n, 0);
+  }
+
+  /**
+   * Build a KD-tree over the given geometries.
+   *
+   * @param items the geometries to index
+   * @return the KD-tree, or null if some of the geometries are not points with finite coordinates
+   */
+  public static <T extends Geometry> PointKDTree<T> build(List<T> items) {
+    if (items.isEmpty()) {
+      return null;
+    }
+    for (T item : items) {
+      if (!isPoint(item)) {
+        return null;
+      }
+    }
+    return new PointKDTree<>(items);
+  }
+
+  /**
+   * Build a KD-tree over the geometries indexed by an STRtree.
+   *
+   * @param strTree the STRtree
+   * @return the KD-tree, or null if some of the geometries are not points with finite coordinates
+   */
+  public static <T extends Geometry> PointKDTree<T> build(STRtree strTree) {
+    if (strTree.isEmpty()) {
+      return null;
+    }
+    Envelope bounds = (Envelope) strTree.getRoot().getBounds();
+    List<T> items = new ArrayList<>(strTree.size());
+    strTree.query(bounds, item -> items.add((T) item));
+    return build(items);
+  }
+
+  /**
+   * Build an STRtree over the indexed points. This is used for queries that cannot be answered by
+   * the KD-tree, such as queries using non-point geometries.
+   *
+   * @return the STRtree
+   */
+  public STRtree toSTRtree() {
+    STRtree strTree = new STRtree();
+    for (T item : items) {
+      strTree.insert(item.getEnvelopeInternal(), item);
+    }
+    strTree.build();
+    return strTree;
+  }
+
+  public int size() {
+    return items.size();
+  }
+
+  public T get(int id) {
+    return items.get(id);
+  }
+
+  /**
+   * Check if a query geometry can be answered by this tree using the given distance metric.
+   *
+   * @param queryGeom the query geometry
+   * @param distanceMetric the distance metric
+   * @return true if the query geometry is a point with finite coordinates, and the coordinates are
+   *     longitudes and latitudes when the distance metric is Haversine or Spheroid
+   */
+  public boolean supports(Geometry queryGeom, DistanceMetric distanceMetric) {
+    if (!isPoint(queryGeom)) {
+      return false;
+    }
+    if (isSpherical(distanceMetric)) {
+      Coordinate coordinate = queryGeom.getCoordinate();
+      return geographic && isGeographic(coordinate.x, coordinate.y);
+    }
+    return true;
+  }
+
+  /**
+   * Create a searcher for running k nearest neighbor queries against this tree. The searcher
+   * reuses its buffers across queries, and should be used by one thread only.
+   *
+   * @param k the number of nearest neighbors to find
+   * @param distanceMetric the distance metric
+   * @return the searcher
+   */
+  public Searcher searcher(int k, DistanceMetric distanceMetric) {
+    return new Searcher(k, distanceMetric);
+  }
+
+  /**
+   * Visit the ids of the points within an envelope.
+   *
+   * @param envelope the envelope
+   * @param visitor the visitor of point ids
+   */
+  public void query(Envelope envelope, IntConsumer visitor) {
+    query(0, xs.length, 0, envelope, visitor);
+  }
+
+  private void query(int lo, int hi, int depth, Envelope envelope, IntConsumer visitor) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; i++) {
+        if (envelope.contains(xs[i], ys[i])) {
+          visitor.accept(ids[i]);
+        }
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    if (envelope.contains(xs[mid], ys[mid])) {
+      visitor.accept(ids[mid]);
+    }
+    boolean splitX = (depth & 1) == 0;
+    double split = splitX ? xs[mid] : ys[mid];
+    double min = splitX ? envelope.getMinX() : envelope.getMinY();
+    double max = splitX ? envelope.getMaxX() : envelope.getMaxY();
+    if (min <= split) {
+      query(lo, mid, depth + 1, envelope, visitor);
+    }
+    if (max >= split) {
+      query(mid + 1, hi, depth + 1, envelope, visitor);
+    }
+  }
+
+  /** Searches the k nearest neighbors of query points using a bounded max-heap. */
+  public class Searcher {
+    private final int k;
+    private final DistanceMetric distanceMetric;
+    private final boolean spherical;
+    private final double[] heapDistances;
+    private final int[] heapPositions;
+    private int heapSize;
+    private double queryX;
+    private double queryY;
+
+    private Searcher(int k, DistanceMetric distanceMetric) {
+      this.k = k;
+      this.distanceMetric = distanceMetric;
+      this.spherical = isSpherical(distanceMetric);
+      this.heapDistances = new double[k];
+      this.heapPositions = new int[k];
+    }
+
+    /**
+     * Find the k nearest neighbors of a query point. Neighbors at the same distance as the k-th
+     * nearest neighbor are chosen arbitrarily.
+     *
+     * @param x the x coordinate of the query point
+     * @param y the y coordinate of the query point
+     * @return the ids of the nearest neighbors, nearest first
+     */
+    public int[] nearestNeighbors(double x, double y) {
+      queryX = x;
+      queryY = y;
+      heapSize = 0;
+      if (k > 0) {
+        search(
+            0,
+            xs.length,
+            0,
+            extent.getMinX(),
+            extent.getMinY(),
+            extent.getMaxX(),
+            extent.getMaxY());
+      }
+      int[] result = new int[heapSize];
+      while (heapSize > 0) {
+        result[heapSize - 1] = ids[heapPositions[0]];
+        pop();
+      }
+      return result;
+    }
+
+    private void search(
+        int lo, int hi, int depth, double minX, double minY, double maxX, double maxY) {
+      if (hi - lo <= LEAF_SIZE) {
+        for (int i = lo; i < hi; i++) {
+          offer(i);
+        }
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      offer(mid);
+      if ((depth & 1) == 0) {
+        double split = xs[mid];
+        if (queryX < split) {
+          searchIfNear(lo, mid, depth + 1, minX, minY, split, maxY);
+          searchIfNear(mid + 1, hi, depth + 1, split, minY, maxX, maxY);
+        } else {
+          searchIfNear(mid + 1, hi, depth + 1, split, minY, maxX, maxY);
+          searchIfNear(lo, mid, depth + 1, minX, minY, split, maxY);
+        }
+      } else {
+        double split = ys[mid];
+        if (queryY < split) {
+          searchIfNear(lo, mid, depth + 1, minX, minY, maxX, split);
+          searchIfNear(mid + 1, hi, depth + 1, minX, split, maxX, maxY);
+        } else {
+          searchIfNear(mid + 1, hi, depth + 1, minX, split, maxX, maxY);
+          searchIfNear(lo, mid, depth + 1, minX, minY, maxX, split);
+        }
+      }
+    }
+
+    private void searchIfNear(
+        int lo, int hi, int depth, double minX, double minY, double maxX, double maxY) {
+      if (lo < hi
+          && (heapSize < k || lowerBound(minX, minY, maxX, maxY) <= heapDistances[0])) {
+        search(lo, hi, depth, minX, minY, maxX, maxY);
+      }
+    }
+
+    private void offer(int pos) {
+      double distance;
+      if (!spherical) {
+        double dx = xs[pos] - queryX;
+        double dy = ys[pos] - queryY;
+        distance = dx * dx + dy * dy;
+      } else {
+        distance =
+            Haversine.pointDistance(queryX, queryY, xs[pos], ys[pos], Haversine.AVG_EARTH_RADIUS);
+        if (distanceMetric == DistanceMetric.SPHEROID) {
+          // The geodesic distance is expensive, skip it when the point cannot be a neighbor
+          if (heapSize == k
+              && distance * Spheroid.HAVERSINE_DISTANCE_LOWER_BOUND_RATIO > heapDistances[0]) {
+            return;
+          }
+          distance = Spheroid.pointDistance(queryX, queryY, xs[pos], ys[pos]);
+        }
+      }
+      if (heapSize < k) {
+        push(distance, pos);
+      } else if (distance < heapDistances[0]) {
+        pop();
+        push(distance, pos);
+      }
+    }
+
+    /**
+     * Lower bound of the distance between the query point and the points in a bounding box, in
+     * the same unit as the distances in the heap.
+     */
+    private double lowerBound(double minX, double minY, double maxX, double maxY) {
+      if (!spherical) {
+        double dx = queryX < minX ? minX - queryX : (queryX > maxX ? queryX - maxX : 0);
+        double dy = queryY < minY ? minY - queryY : (queryY > maxY ? queryY - maxY : 0);
+        return dx * dx + dy * dy;
+      }
+      double bound =
+          sphericalLowerBound(queryX, queryY, minX, minY, maxX, maxY)
+              * Haversine.AVG_EARTH_RADIUS
+              * BOUND_SLACK;
+      if (distanceMetric == DistanceMetric.SPHEROID) {
+        bound *= Spheroid.HAVERSINE_DISTANCE_LOWER_BOUND_RATIO;
+      }
+      return bound;
+    }
+
+    private void push(double distance, int pos) {
+      int i = heapSize++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (heapDistances[parent] >= distance) {
+          break;
+        }
+        heapDistances[i] = heapDistances[parent];
+        heapPositions[i] = heapPositions[parent];
+        i = parent;
+      }
+      heapDistances[i] = distance;
+      heapPositions[i] = pos;
+    }
+
+    private void pop() {
+      heapSize--;
+      double distance = heapDistances[heapSize];
+      int pos = heapPositions[heapSize];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize) {
+          break;
+        }
+        if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+          child++;
+        }
+        if (heapDistances[child] <= distance) {
+          break;
+        }
+        heapDistances[i] = heapDistances[child];
+        heapPositions[i] = heapPositions[child];
+        i = child;
+      }
+      heapDistances[i] = distance;
+      heapPositions[i] = pos;
+    }
+  }
+
+  /**
+   * Lower bound of the great circle distance in radians between a point and the points in a
+   * bounding box, all in degrees. The distance is at least the difference of latitudes, and at
+   * least the distance to the great circles of the meridians bounding the box, which is {@code
+   * asin(cos(lat) * sin(deltaLon))}.
+   */
+  static double sphericalLowerBound(
+      double lon, double lat, double minLon, double minLat, double maxLon, double maxLat) {
+    double latGap = lat < minLat ? minLat - lat : (lat > maxLat ? lat - maxLat : 0);
+    double lonBound = 0;
+    double width = maxLon - minLon;
+    if (width < 360 && positiveModulo(lon - minLon) > width) {
+      double deltaMinLon = longitudeDifference(lon, minLon);
+      double deltaMaxLon = longitudeDifference(lon, maxLon);
+      double nearest = Math.min(deltaMinLon, deltaMaxLon);
+      double farthest =
+          positiveModulo(lon + 180 - minLon) <= width
+              ? 180
+              : Math.max(deltaMinLon, deltaMaxLon);
+      // |sin| is concave on [0, 180], so its minimum over the range of longitude differences is
+      // reached at one of the ends of the range
+      double sinDeltaLon =
+          Math.min(Math.sin(Math.toRadians(nearest)), Math.sin(Math.toRadians(farthest)));
+      lonBound = Math.asin(Math.min(1, Math.cos(Math.toRadians(lat)) * sinDeltaLon));
+    }
+    return Math.max(Math.toRadians(latGap), lonBound);
+  }
+
+  private static double positiveModulo(double degrees) {
+    double result = degrees % 360;
+    return result < 0 ? result + 360 : result;
+  }
+
+  /** Absolute difference of two longitudes in degrees, between 0 and 180. */
+  private static double longitudeDifference(double lon1, double lon2) {
+    return Math.abs(positiveModulo(lon2 - lon1 + 180) - 180);
+  }
+
+  private static boolean isPoint(Geometry geometry) {
+    if (!(geometry instanceof Point) || geometry.isEmpty()) {
+      return false;
+    }
+    Coordinate coordinate = geometry.getCoordinate();
+    return Double.isFinite(coordinate.x) && Double.isFinite(coordinate.y);
+  }
+
+  private static boolean isSpherical(DistanceMetric distanceMetric) {
+    return distanceMetric == DistanceMetric.HAVERSINE || distanceMetric == DistanceMetric.SPHEROID;
+  }
+
+  private static boolean isGeographic(double lon, double lat) {
+    return lat >= -90 && lat <= 90;
+  }
+
+  /** Arrange the points in [lo, hi) as a subtree split at the median along an axis. */
+  private void build(int lo, int hi, int depth) {
+    if (hi - lo <= LEAF_SIZE) {
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    select(lo, hi - 1, mid, (depth & 1) == 0 ? xs : ys);
+    build(lo, mid, depth + 1);
+    build(mid + 1, hi, depth + 1);
+  }
+
+  /**
+   * Partially sort the points in [lo, hi] along an axis, such that the point at position n is the
+   * one that would be there if the range was sorted, preceded by smaller or equal points and
+   * followed by larger or equal points.
+   */
+  private void select(int lo, int hi, int n, double[] keys) {
+    while (hi > lo) {
+      double pivot = keys[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (keys[i] < pivot) {
+          i++;
+        }
+        while (keys[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      if (n <= j) {
+        hi = j;
+      } else if (n >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    double x = xs[i];
+    xs[i] = xs[j];
+    xs[j] = x;
+    double y = ys[i];
+    ys[i] = ys[j];
+    ys[j] = y;
+    int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+  }
+}
@@ -24,8 +24,12 @@ import org.apache.spark.util.LongAccumulator;
 public class Metrics {
 
   public static LongAccumulator createMetric(SparkContext sc, String name) {
+    return createMetric(sc, "spatialjoin", name);
+  }
+
+  public static LongAccumulator createMetric(SparkContext sc, String group, String name) {
     LongAccumulator acc = new LongAccumulator();
-    sc.register(acc, "sedona.spatialjoin." + name);
+    sc.register(acc, "sedona." + group + "." + name);
     return acc;
   }
 }
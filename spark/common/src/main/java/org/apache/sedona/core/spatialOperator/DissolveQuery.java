@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.spatialOperator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.sedona.core.enums.GridType;
+import org.apache.sedona.core.spatialRDD.SpatialRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.storage.StorageLevel;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import scala.Tuple2;
+
+/** The Class DissolveQuery. */
+public class DissolveQuery implements Serializable {
+
+  /**
+   * Spatial dissolve. Unions all geometries of the SpatialRDD using the whole cluster, and returns
+   * the components of the union, e.g. the polygons of the union of polygons. The number of
+   * partitions of the raw RDD is used as the target number of spatial partitions.
+   *
+   * @param spatialRDD the spatial RDD
+   * @return the java RDD of the components of the union
+   * @throws Exception the exception
+   */
+  public static <T extends Geometry> JavaRDD<Geometry> SpatialDissolve(SpatialRDD<T> spatialRDD)
+      throws Exception {
+    return SpatialDissolve(spatialRDD, spatialRDD.rawSpatialRDD.getNumPartitions());
+  }
+
+  /**
+   * Spatial dissolve. Unions all geometries of the SpatialRDD using the whole cluster, and returns
+   * the components of the union, e.g. the polygons of the union of polygons.
+   *
+   * <p>The geometries are partitioned with a KDB-tree. Each partition unions its geometries and
+   * clips the union to the extent of the partition, so that the clipped unions of all partitions
+   * tile the union of the whole RDD. The components that do not touch the border of their
+   * partition are final. Only the components touching it are stitched together in a second, much
+   * smaller, merge phase. The merge phase runs in a single task, so the operator is meant for
+   * polygons, whose unions lose their internal edges. Line components are not merged across the
+   * partition borders. The components are computed eagerly and persisted.
+   *
+   * @param spatialRDD the spatial RDD
+   * @param numPartitions the target number of spatial partitions
+   * @return the java RDD of the components of the union
+   * @throws Exception the exception
+   */
+  public static <T extends Geometry> JavaRDD<Geometry> SpatialDissolve(
+      SpatialRDD<T> spatialRDD, int numPartitions) throws Exception {
+    if (numPartitions <= 0) {
+      throw new IllegalArgumentException("Number of partitions must be > 0");
+    }
+
+    SpatialRDD<Geometry> geometries = new SpatialRDD<>();
+    geometries.setRawSpatialRDD(
+        spatialRDD.rawSpatialRDD.filter(geometry -> !geometry.isEmpty()).map(geometry -> geometry));
+    if (spatialRDD.boundaryEnvelope != null && spatialRDD.approximateTotalCount >= 0) {
+      geometries.boundaryEnvelope = spatialRDD.boundaryEnvelope;
+      geometries.approximateTotalCount = spatialRDD.approximateTotalCount;
+    } else {
+      geometries.analyze();
+    }
+    if (geometries.boundaryEnvelope == null || geometries.approximateTotalCount == 0) {
+      return geometries.rawSpatialRDD;
+    }
+
+    geometries.spatialPartitioning(
+        GridType.KDBTREE,
+        (int) Math.max(1, Math.min(numPartitions, geometries.approximateTotalCount)));
+    final List<Envelope> grids = geometries.getPartitioner().getGrids();
+
+    // Phase 1: union and clip each partition, flagging the components touching its border
+    JavaRDD<Tuple2<Boolean, Geometry>> fragments =
+        geometries
+            .spatialPartitionedRDD
+            .mapPartitionsWithIndex(
+                (index, partition) -> dissolvePartition(grids.get(index), partition), true)
+            .persist(StorageLevel.MEMORY_AND_DISK());
+
+    // Phase 2: stitch the components touching the borders of their partitions
+    JavaRDD<Geometry> stitched =
+        fragments
+            .filter(Tuple2::_1)
+            .map(Tuple2::_2)
+            .coalesce(1)
+            .mapPartitions(DissolveQuery::unionComponents);
+
+    // The fragments are only kept until both phases have been computed
+    JavaRDD<Geometry> dissolved =
+        fragments
+            .filter(fragment -> !fragment._1())
+            .map(Tuple2::_2)
+            .union(stitched)
+            .persist(StorageLevel.MEMORY_AND_DISK());
+    dissolved.count();
+    fragments.unpersist(false);
+    return dissolved;
+  }
+
+  private static Iterator<Tuple2<Boolean, Geometry>> dissolvePartition(
+      Envelope extent, Iterator<Geometry> partition) {
+    List<Geometry> geometries = new ArrayList<>();
+    partition.forEachRemaining(geometries::add);
+    if (geometries.isEmpty()) {
+      return Collections.emptyIterator();
+    }
+
+    Geometry union = OverlayNGRobust.union(geometries);
+    Geometry clipWindow = union.getFactory().toGeometry(extent);
+    List<Tuple2<Boolean, Geometry>> fragments = new ArrayList<>();
+    for (int i = 0; i < union.getNumGeometries(); i++) {
+      Geometry component = union.getGeometryN(i);
+      if (isInterior(component.getEnvelopeInternal(), extent)) {
+        fragments.add(new Tuple2<>(false, component));
+        continue;
+      }
+      // Keep the clipped parts of the dimension of the component, dropping the lower dimensional
+      // ones produced when it only touches the extent
+      Geometry clipped =
+          OverlayNGRobust.overlay(component, clipWindow, OverlayNG.INTERSECTION);
+      for (int j = 0; j < clipped.getNumGeometries(); j++) {
+        Geometry part = clipped.getGeometryN(j);
+        if (!part.isEmpty() && part.getDimension() == component.getDimension()) {
+          fragments.add(new Tuple2<>(!isInterior(part.getEnvelopeInternal(), extent), part));
+        }
+      }
+    }
+    return fragments.iterator();
+  }
+
+  private static boolean isInterior(Envelope envelope, Envelope extent) {
+    return envelope.getMinX() > extent.getMinX()
+        && envelope.getMaxX() < extent.getMaxX()
+        && envelope.getMinY() > extent.getMinY()
+        && envelope.getMaxY() < extent.getMaxY();
+  }
+
+  private static Iterator<Geometry> unionComponents(Iterator<Geometry> fragments) {
+    List<Geometry> geometries = new ArrayList<>();
+    fragments.forEachRemaining(geometries::add);
+    if (geometries.isEmpty()) {
+      return Collections.emptyIterator();
+    }
+    Geometry union = OverlayNGRobust.union(geometries);
+    List<Geometry> components = new ArrayList<>(union.getNumGeometries());
+    for (int i = 0; i < union.getNumGeometries(); i++) {
+      components.add(union.getGeometryN(i));
+    }
+    return components.iterator();
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.sedona.core.enums.DistanceMetric;
 import org.apache.sedona.core.enums.IndexType;
 import org.apache.sedona.core.enums.JoinBuildSide;
 import org.apache.sedona.core.joinJudgement.*;
+import org.apache.sedona.core.knnJudgement.PointKDTree;
 import org.apache.sedona.core.monitoring.Metrics;
 import org.apache.sedona.core.spatialPartitioning.SpatialPartitioner;
 import org.apache.sedona.core.spatialRDD.CircleRDD;
@@ -783,6 +784,7 @@ public class JoinQuery {
     LongAccumulator candidateCount = Metrics.createMetric(sparkContext, "candidateCount");
 
     final Broadcast<STRtree> broadcastObjectsTreeIndex;
+    final Broadcast<PointKDTree<T>> broadcastObjectsPointIndex;
     final Broadcast<List<UniqueGeometry<U>>> broadcastQueryObjects;
     if (broadcastJoin && objectRDD.indexedRawRDD != null && objectRDD.indexedRDD == null) {
       // If broadcastJoin is true and rawIndex is created on object side
@@ -796,23 +798,36 @@ public class JoinQuery {
       broadcastQueryObjects =
           JavaSparkContext.fromSparkContext(sparkContext).broadcast(uniqueQueryObjects);
       broadcastObjectsTreeIndex = null;
+      broadcastObjectsPointIndex = null;
     } else if (broadcastJoin && objectRDD.indexedRawRDD == null && objectRDD.indexedRDD == null) {
       // If broadcastJoin is true and index and rawIndex are NOT created on object side
       // we will broadcast objectRDD to queryRDD
       STRtree strTree = objectRDD.coalesceAndBuildRawIndex(IndexType.RTREE);
-      broadcastObjectsTreeIndex =
-          JavaSparkContext.fromSparkContext(sparkContext).broadcast(strTree);
+      // Points are indexed using a KD-tree, which answers KNN queries of points faster
+      PointKDTree<T> pointIndex = PointKDTree.build(strTree);
+      if (pointIndex != null) {
+        broadcastObjectsPointIndex =
+            JavaSparkContext.fromSparkContext(sparkContext).broadcast(pointIndex);
+        broadcastObjectsTreeIndex = null;
+      } else {
+        broadcastObjectsTreeIndex =
+            JavaSparkContext.fromSparkContext(sparkContext).broadcast(strTree);
+        broadcastObjectsPointIndex = null;
+      }
       broadcastQueryObjects = null;
     } else {
       // Regular join does not need to set broadcast inderx
       broadcastQueryObjects = null;
       broadcastObjectsTreeIndex = null;
+      broadcastObjectsPointIndex = null;
     }
 
     // The reason for using objectRDD as the right side is that the partitions are built on the
     // right side.
     final JavaRDD<Pair<U, T>> joinResult;
-    if (broadcastObjectsTreeIndex == null && broadcastQueryObjects == null) {
+    if (broadcastObjectsTreeIndex == null
+        && broadcastObjectsPointIndex == null
+        && broadcastQueryObjects == null) {
       // no broadcast join
       final KnnJoinIndexJudgement<U, T> judgement =
           new KnnJoinIndexJudgement<>(
@@ -827,7 +842,7 @@ public class JoinQuery {
               candidateCount);
       joinResult =
           queryRDD.spatialPartitionedRDD.zipPartitions(objectRDD.spatialPartitionedRDD, judgement);
-    } else if (broadcastObjectsTreeIndex != null) {
+    } else if (broadcastObjectsTreeIndex != null || broadcastObjectsPointIndex != null) {
       // broadcast join with objectRDD as broadcast side
       final KnnJoinIndexJudgement<U, T> judgement =
           new KnnJoinIndexJudgement<>(
@@ -836,6 +851,7 @@ public class JoinQuery {
               includeTies,
               null,
               broadcastObjectsTreeIndex,
+              broadcastObjectsPointIndex,
               buildCount,
               streamCount,
               resultCount,
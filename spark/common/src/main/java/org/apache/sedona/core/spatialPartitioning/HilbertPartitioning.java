@@ -79,10 +79,22 @@ public class HilbertPartitioning implements Serializable {
    * @return the int
    */
   public static int computeHValue(int n, int x, int y) {
-    int h = 0;
-    for (int s = n / 2; s > 0; s /= 2) {
-      int rx = (x & s) > 0 ? 1 : 0;
-      int ry = (y & s) > 0 ? 1 : 0;
+    return (int) computeHValue((long) n, x, y);
+  }
+
+  /**
+   * Compute H value on a grid of up to 2^31 x 2^31 cells.
+   *
+   * @param n the grid size, a power of 2 not larger than 2^31
+   * @param x the x
+   * @param y the y
+   * @return the long
+   */
+  public static long computeHValue(long n, long x, long y) {
+    long h = 0;
+    for (long s = n / 2; s > 0; s /= 2) {
+      long rx = (x & s) > 0 ? 1 : 0;
+      long ry = (y & s) > 0 ? 1 : 0;
       h += s * s * ((3 * rx) ^ ry);
 
       // Rotate
@@ -93,7 +105,7 @@ public class HilbertPartitioning implements Serializable {
         }
 
         // Swap x and y
-        int t = x;
+        long t = x;
         x = y;
         y = t;
       }
@@ -137,13 +149,13 @@ public class HilbertPartitioning implements Serializable {
     int x =
         locationMapping(
             boundary.getMinX(),
-            boundary.getMaxX(),
-            (spatialObject.getMinX() + spatialObject.getMaxX()) / 2.0);
+            (spatialObject.getMinX() + spatialObject.getMaxX()) / 2.0,
+            boundary.getMaxX());
     int y =
         locationMapping(
             boundary.getMinY(),
-            boundary.getMaxY(),
-            (spatialObject.getMinY() + spatialObject.getMaxY()) / 2.0);
+            (spatialObject.getMinY() + spatialObject.getMaxY()) / 2.0,
+            boundary.getMaxY());
     return computeHValue(GRID_RESOLUTION + 1, x, y);
   }
 
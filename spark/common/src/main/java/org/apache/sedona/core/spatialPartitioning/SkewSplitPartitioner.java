@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.spatialPartitioning;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.sedona.core.joinJudgement.DedupParams;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import scala.Tuple2;
+
+/**
+ * The SkewSplitPartitioner splits some partitions of another partitioner into sub-partitions. The
+ * extent of a split partition is divided into the leaf zones of a {@link KDB} tree, and a geometry
+ * placed into a split partition by the parent partitioner is placed into every sub-partition it
+ * overlaps. A point is placed into exactly one sub-partition.
+ *
+ * <p>The sub-partitions tile the extent of the split partition, so that the de-dup logic of {@link
+ * org.apache.sedona.core.joinJudgement.DuplicatesFilter} works with the extents of the
+ * sub-partitions. The parent partitioner must support de-dup and must not have an overflow
+ * partition.
+ */
+public class SkewSplitPartitioner extends SpatialPartitioner {
+  private final SpatialPartitioner parent;
+
+  // Sub-partition trees of the split partitions, keyed by the partition ID of the parent
+  private final Map<Integer, KDB> splits;
+
+  // ID of the first sub-partition of each partition of the parent
+  private final int[] partitionOffsets;
+
+  /**
+   * @param parent the partitioner to split
+   * @param splits sub-partition trees keyed by the ID of the partition of the parent they split.
+   *     The extent of each tree must be the extent of the partition it splits.
+   */
+  public SkewSplitPartitioner(SpatialPartitioner parent, Map<Integer, KDB> splits) {
+    super(parent.getGridType(), splitGrids(parent, splits));
+    this.parent = parent;
+    this.splits = new HashMap<>(splits);
+    List<Envelope> parentGrids = parent.getGrids();
+    this.partitionOffsets = new int[parentGrids.size()];
+    int offset = 0;
+    for (int k = 0; k < parentGrids.size(); k++) {
+      partitionOffsets[k] = offset;
+      KDB tree = this.splits.get(k);
+      offset += tree == null ? 1 : tree.fetchLeafZones().size();
+    }
+    for (KDB tree : this.splits.values()) {
+      tree.dropElements();
+    }
+  }
+
+  private static List<Envelope> splitGrids(SpatialPartitioner parent, Map<Integer, KDB> splits) {
+    if (parent.getDedupParams() == null || parent.numPartitions() != parent.getGrids().size()) {
+      throw new IllegalArgumentException(
+          "Only partitioners supporting de-dup without overflow partition can be split");
+    }
+    List<Envelope> parentGrids = parent.getGrids();
+    List<Envelope> grids = new ArrayList<>();
+    for (int k = 0; k < parentGrids.size(); k++) {
+      KDB tree = splits.get(k);
+      if (tree == null) {
+        grids.add(parentGrids.get(k));
+      } else {
+        tree.assignLeafIds();
+        grids.addAll(tree.fetchLeafZones());
+      }
+    }
+    return grids;
+  }
+
+  public SpatialPartitioner getParent() {
+    return parent;
+  }
+
+  /** Returns true if the partition of the parent with the given ID is split. */
+  public boolean isSplit(int parentPartitionId) {
+    return splits.containsKey(parentPartitionId);
+  }
+
+  @Override
+  public Iterator<Tuple2<Integer, Geometry>> placeObject(Geometry spatialObject) throws Exception {
+    List<Tuple2<Integer, Geometry>> result = new ArrayList<>();
+    Iterator<Tuple2<Integer, Geometry>> placed = parent.placeObject(spatialObject);
+    while (placed.hasNext()) {
+      int partitionId = placed.next()._1();
+      KDB tree = splits.get(partitionId);
+      if (tree == null) {
+        result.add(new Tuple2<>(partitionOffsets[partitionId], spatialObject));
+      } else {
+        Iterator<Tuple2<Integer, Geometry>> subPlaced = tree.placeObject(spatialObject);
+        while (subPlaced.hasNext()) {
+          result.add(
+              new Tuple2<>(partitionOffsets[partitionId] + subPlaced.next()._1(), spatialObject));
+        }
+      }
+    }
+    return result.iterator();
+  }
+
+  @Nullable
+  @Override
+  public DedupParams getDedupParams() {
+    return new DedupParams(grids);
+  }
+
+  @Override
+  public int numPartitions() {
+    return grids.size();
+  }
+}
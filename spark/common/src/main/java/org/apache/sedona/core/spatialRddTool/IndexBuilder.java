@@ -40,7 +40,7 @@ public final class IndexBuilder<T extends Geometry>
   @Override
   public Iterator<SpatialIndex> call(Iterator<T> objectIterator) throws Exception {
     SpatialIndex spatialIndex;
-    if (indexType == IndexType.RTREE) {
+    if (indexType == IndexType.RTREE || indexType == IndexType.PACKED_RTREE) {
       spatialIndex = new STRtree();
     } else {
       spatialIndex = new Quadtree();
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.spatialRddTool;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.sedona.common.geometrySerde.GeometrySerializer;
+import org.apache.spark.sql.catalyst.expressions.UnsafeRow;
+import org.apache.spark.unsafe.Platform;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.ArrayListVisitor;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.SpatialIndex;
+import org.locationtech.jts.index.hprtree.HilbertEncoder;
+
+/**
+ * A read-only R-tree packed into primitive arrays. The tree is built in bulk from geometries
+ * sorted by the Hilbert code of their envelopes, and the bounds of the geometries and of the tree
+ * nodes are stored in a single double array.
+ *
+ * <p>The geometries are stored serialized in a single byte array, each followed by the {@link
+ * UnsafeRow} held in its user data. A geometry is deserialized the first time a query returns it,
+ * and its user data is an {@link UnsafeRow} pointing into the byte array. Queries return the same
+ * geometry object for an entry every time.
+ *
+ * <p>This index is used by broadcast index joins. It is broadcast as a few primitive arrays
+ * instead of a tree of geometry and row objects.
+ */
+public class PackedHilbertRTree implements SpatialIndex, Serializable, KryoSerializable {
+
+  public static final int DEFAULT_NODE_CAPACITY = 16;
+
+  private static final int HILBERT_LEVEL = 12;
+
+  private int nodeCapacity;
+
+  private int numFields;
+
+  // Bounds of the entries followed by the bounds of the nodes of each level up to the root. Each
+  // box takes 4 doubles: minX, minY, maxX, maxY
+  private double[] bounds;
+
+  // Index of the first box of each level in bounds. Level 0 holds the entries and the last level
+  // holds the root. The last element is the total number of boxes.
+  private int[] levelOffsets;
+
+  // Serialized geometry of each entry followed by its row
+  private byte[] data;
+
+  // Offset of each entry in data. The last element is the length of data.
+  private int[] entryOffsets;
+
+  // Offset of the row of each entry in data
+  private int[] rowOffsets;
+
+  private transient AtomicReferenceArray<Geometry> geometries;
+
+  private PackedHilbertRTree() {}
+
+  /**
+   * Build a packed R-tree from geometries holding {@link UnsafeRow}s in their user data. Empty
+   * geometries are not indexed since they don't intersect any query envelope.
+   *
+   * @param geometries the geometries to index
+   * @param nodeCapacity the maximum number of children of a node
+   * @return the packed R-tree
+   */
+  public static PackedHilbertRTree build(
+      Iterator<? extends Geometry> geometries, int nodeCapacity) {
+    if (nodeCapacity < 2) {
+      throw new IllegalArgumentException("Node capacity must be at least 2");
+    }
+    List<Geometry> entries = new ArrayList<>();
+    Envelope extent = new Envelope();
+    while (geometries.hasNext()) {
+      Geometry geometry = geometries.next();
+      Envelope envelope = geometry.getEnvelopeInternal();
+      if (!envelope.isNull()) {
+        entries.add(geometry);
+        extent.expandToInclude(envelope);
+      }
+    }
+
+    // Sort the entries by Hilbert code. The code takes the high 32 bits of the keys and the
+    // position of the entry takes the low 32 bits.
+    int numEntries = entries.size();
+    long[] keys = new long[numEntries];
+    if (numEntries > 0) {
+      HilbertEncoder encoder = new HilbertEncoder(HILBERT_LEVEL, extent);
+      for (int k = 0; k < numEntries; k++) {
+        keys[k] = ((long) encoder.encode(entries.get(k).getEnvelopeInternal()) << 32) | k;
+      }
+      Arrays.sort(keys);
+    }
+
+    List<Integer> levelOffsets = new ArrayList<>();
+    levelOffsets.add(0);
+    int numBoxes = numEntries;
+    for (int levelSize = numEntries; levelSize > 1; ) {
+      levelSize = (levelSize + nodeCapacity - 1) / nodeCapacity;
+      levelOffsets.add(numBoxes);
+      numBoxes += levelSize;
+    }
+    if (numEntries > 0) {
+      levelOffsets.add(numBoxes);
+    }
+
+    PackedHilbertRTree tree = new PackedHilbertRTree();
+    tree.nodeCapacity = nodeCapacity;
+    tree.levelOffsets = levelOffsets.stream().mapToInt(Integer::intValue).toArray();
+    tree.bounds = new double[4 * numBoxes];
+    tree.entryOffsets = new int[numEntries + 1];
+    tree.rowOffsets = new int[numEntries];
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (int k = 0; k < numEntries; k++) {
+      Geometry geometry = entries.get((int) keys[k]);
+      if (!(geometry.getUserData() instanceof UnsafeRow)) {
+        throw new IllegalArgumentException(
+            "Packed R-tree only indexes geometries holding an UnsafeRow in their user data");
+      }
+      UnsafeRow row = (UnsafeRow) geometry.getUserData();
+      if (k == 0) {
+        tree.numFields = row.numFields();
+      }
+      Envelope envelope = geometry.getEnvelopeInternal();
+      tree.setBox(
+          k, envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY());
+
+      byte[] geometryBytes = GeometrySerializer.serialize(geometry);
+      byte[] rowBytes = row.getBytes();
+      if ((long) output.size() + geometryBytes.length + rowBytes.length > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Packed R-tree cannot hold more than 2 GB of data");
+      }
+      tree.entryOffsets[k] = output.size();
+      output.write(geometryBytes, 0, geometryBytes.length);
+      tree.rowOffsets[k] = output.size();
+      output.write(rowBytes, 0, rowBytes.length);
+    }
+    tree.entryOffsets[numEntries] = output.size();
+    tree.data = output.toByteArray();
+
+    for (int level = 1; level < tree.levelOffsets.length - 1; level++) {
+      int childOffset = tree.levelOffsets[level - 1];
+      int numChildren = tree.levelSize(level - 1);
+      for (int node = 0; node < tree.levelSize(level); node++) {
+        int childStart = node * nodeCapacity;
+        int childEnd = Math.min(childStart + nodeCapacity, numChildren);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int child = childOffset + childStart; child < childOffset + childEnd; child++) {
+          minX = Math.min(minX, tree.bounds[4 * child]);
+          minY = Math.min(minY, tree.bounds[4 * child + 1]);
+          maxX = Math.max(maxX, tree.bounds[4 * child + 2]);
+          maxY = Math.max(maxY, tree.bounds[4 * child + 3]);
+        }
+        tree.setBox(tree.levelOffsets[level] + node, minX, minY, maxX, maxY);
+      }
+    }
+
+    tree.geometries = new AtomicReferenceArray<>(numEntries);
+    return tree;
+  }
+
+  /** Number of indexed geometries */
+  public int size() {
+    return rowOffsets.length;
+  }
+
+  @Override
+  public void insert(Envelope itemEnv, Object item) {
+    throw new UnsupportedOperationException("Packed R-tree does not support insertion");
+  }
+
+  @Override
+  public boolean remove(Envelope itemEnv, Object item) {
+    throw new UnsupportedOperationException("Packed R-tree does not support removal");
+  }
+
+  @Override
+  public List query(Envelope searchEnv) {
+    ArrayListVisitor visitor = new ArrayListVisitor();
+    query(searchEnv, visitor);
+    return visitor.getItems();
+  }
+
+  @Override
+  public void query(Envelope searchEnv, ItemVisitor visitor) {
+    int numLevels = levelOffsets.length - 1;
+    if (numLevels == 0 || searchEnv == null || searchEnv.isNull()) {
+      return;
+    }
+    queryNode(numLevels - 1, 0, searchEnv, visitor);
+  }
+
+  private void queryNode(int level, int node, Envelope searchEnv, ItemVisitor visitor) {
+    int box = levelOffsets[level] + node;
+    if (searchEnv.getMinX() > bounds[4 * box + 2]
+        || searchEnv.getMaxX() < bounds[4 * box]
+        || searchEnv.getMinY() > bounds[4 * box + 3]
+        || searchEnv.getMaxY() < bounds[4 * box + 1]) {
+      return;
+    }
+    if (level == 0) {
+      visitor.visitItem(getGeometry(node));
+      return;
+    }
+    int childStart = node * nodeCapacity;
+    int childEnd = Math.min(childStart + nodeCapacity, levelSize(level - 1));
+    for (int child = childStart; child < childEnd; child++) {
+      queryNode(level - 1, child, searchEnv, visitor);
+    }
+  }
+
+  private Geometry getGeometry(int entry) {
+    Geometry geometry = geometries.get(entry);
+    if (geometry == null) {
+      byte[] geometryBytes = Arrays.copyOfRange(data, entryOffsets[entry], rowOffsets[entry]);
+      geometry = GeometrySerializer.deserialize(geometryBytes);
+      UnsafeRow row = new UnsafeRow(numFields);
+      row.pointTo(
+          data,
+          Platform.BYTE_ARRAY_OFFSET + rowOffsets[entry],
+          entryOffsets[entry + 1] - rowOffsets[entry]);
+      geometry.setUserData(row);
+      // Keep the geometry deserialized by the first thread, so that an entry is always returned
+      // as the same object
+      if (!geometries.compareAndSet(entry, null, geometry)) {
+        geometry = geometries.get(entry);
+      }
+    }
+    return geometry;
+  }
+
+  private int levelSize(int level) {
+    return levelOffsets[level + 1] - levelOffsets[level];
+  }
+
+  private void setBox(int box, double minX, double minY, double maxX, double maxY) {
+    bounds[4 * box] = minX;
+    bounds[4 * box + 1] = minY;
+    bounds[4 * box + 2] = maxX;
+    bounds[4 * box + 3] = maxY;
+  }
+
+  private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    input.defaultReadObject();
+    geometries = new AtomicReferenceArray<>(size());
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output) {
+    output.writeInt(nodeCapacity);
+    output.writeInt(numFields);
+    output.writeInt(bounds.length);
+    output.writeDoubles(bounds);
+    output.writeInt(levelOffsets.length);
+    output.writeInts(levelOffsets);
+    output.writeInt(data.length);
+    output.writeBytes(data);
+    output.writeInt(entryOffsets.length);
+    output.writeInts(entryOffsets);
+    output.writeInt(rowOffsets.length);
+    output.writeInts(rowOffsets);
+  }
+
+  @Override
+  public void read(Kryo kryo, Input input) {
+    nodeCapacity = input.readInt();
+    numFields = input.readInt();
+    bounds = input.readDoubles(input.readInt());
+    levelOffsets = input.readInts(input.readInt());
+    data = input.readBytes(input.readInt());
+    entryOffsets = input.readInts(input.readInt());
+    rowOffsets = input.readInts(input.readInt());
+    geometries = new AtomicReferenceArray<>(size());
+  }
+}
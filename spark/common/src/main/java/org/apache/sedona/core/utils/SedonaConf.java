@@ -59,6 +59,27 @@ public class SedonaConf implements Serializable {
 
   private SpatialJoinOptimizationMode spatialJoinOptimizationMode;
 
+  // Parameters for splitting skewed partitions of partitioned spatial joins
+  private boolean skewSplitEnabled;
+
+  private double skewSplitFactor;
+
+  private long skewSplitMinPartitionSize;
+
+  private int skewSplitMaxSubPartitions;
+
+  // Parameters for the prepared geometry cache of broadcast index joins
+  private long preparedGeometryCacheMaxEntries;
+
+  private long preparedGeometryCacheMaxCoordinates;
+
+  // Parameters for the spatial partitioner cache of partitioned spatial joins
+  private boolean partitionerCacheEnabled;
+
+  private long partitionerCacheMaxEntries;
+
+  private String partitionerCachePath;
+
   // Parameters for knn joins
   private boolean includeTieBreakersInKNNJoins = false;
 
@@ -154,6 +175,25 @@ public class SedonaConf implements Serializable {
     this.spatialJoinOptimizationMode =
         SpatialJoinOptimizationMode.getSpatialJoinOptimizationMode(
             getConfigValue(confGetter, "join.optimizationmode", "nonequi"));
+    this.skewSplitEnabled =
+        Boolean.parseBoolean(getConfigValue(confGetter, "join.skewSplit.enabled", "false"));
+    this.skewSplitFactor =
+        Double.parseDouble(getConfigValue(confGetter, "join.skewSplit.factor", "4.0"));
+    this.skewSplitMinPartitionSize =
+        Long.parseLong(getConfigValue(confGetter, "join.skewSplit.minPartitionSize", "10000"));
+    this.skewSplitMaxSubPartitions =
+        Integer.parseInt(getConfigValue(confGetter, "join.skewSplit.maxSubPartitions", "64"));
+    this.preparedGeometryCacheMaxEntries =
+        Long.parseLong(
+            getConfigValue(confGetter, "join.preparedGeometryCache.maxEntries", "100000"));
+    this.preparedGeometryCacheMaxCoordinates =
+        Long.parseLong(
+            getConfigValue(confGetter, "join.preparedGeometryCache.maxCoordinates", "5000000"));
+    this.partitionerCacheEnabled =
+        Boolean.parseBoolean(getConfigValue(confGetter, "join.partitionerCache.enabled", "false"));
+    this.partitionerCacheMaxEntries =
+        Long.parseLong(getConfigValue(confGetter, "join.partitionerCache.maxEntries", "64"));
+    this.partitionerCachePath = getConfigValue(confGetter, "join.partitionerCache.path", "");
 
     // Parameters for knn joins
     this.includeTieBreakersInKNNJoins =
@@ -227,6 +267,42 @@ public class SedonaConf implements Serializable {
     return autoBroadcastJoinThreshold;
   }
 
+  public boolean isSkewSplitEnabled() {
+    return skewSplitEnabled;
+  }
+
+  public double getSkewSplitFactor() {
+    return skewSplitFactor;
+  }
+
+  public long getSkewSplitMinPartitionSize() {
+    return skewSplitMinPartitionSize;
+  }
+
+  public int getSkewSplitMaxSubPartitions() {
+    return skewSplitMaxSubPartitions;
+  }
+
+  public long getPreparedGeometryCacheMaxEntries() {
+    return preparedGeometryCacheMaxEntries;
+  }
+
+  public long getPreparedGeometryCacheMaxCoordinates() {
+    return preparedGeometryCacheMaxCoordinates;
+  }
+
+  public boolean isPartitionerCacheEnabled() {
+    return partitionerCacheEnabled;
+  }
+
+  public long getPartitionerCacheMaxEntries() {
+    return partitionerCacheMaxEntries;
+  }
+
+  public String getPartitionerCachePath() {
+    return partitionerCachePath;
+  }
+
   public boolean isIncludeTieBreakersInKNNJoins() {
     return includeTieBreakersInKNNJoins;
   }
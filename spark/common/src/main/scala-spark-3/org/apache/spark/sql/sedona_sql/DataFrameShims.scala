@@ -21,6 +21,7 @@ package org.apache.spark.sql.sedona_sql
 import org.apache.spark.rdd.RDD
 import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.expressions.{Expression, Literal}
+import org.apache.spark.sql.catalyst.expressions.aggregate.AggregateFunction
 import org.apache.spark.sql.execution.aggregate.ScalaUDAF
 import org.apache.spark.sql.expressions.UserDefinedAggregateFunction
 import org.apache.spark.sql.types.StructType
@@ -45,7 +46,10 @@ private[sql] object DataFrameShims {
     })
     val expressionConstructor = runtimeClass.getConstructor(classOf[Seq[Expression]])
     val expressionInstance = expressionConstructor.newInstance(exprArgs).asInstanceOf[E]
-    Column(expressionInstance)
+    expressionInstance match {
+      case aggregateFunction: AggregateFunction => Column(aggregateFunction.toAggregateExpression())
+      case _ => Column(expressionInstance)
+    }
   }
 
   def wrapAggregator[A <: UserDefinedAggregateFunction: ClassTag](arg: Any*): Column = {
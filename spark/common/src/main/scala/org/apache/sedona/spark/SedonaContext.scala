@@ -46,7 +46,10 @@ object SedonaContext {
     Seq(
       new TransformNestedUDTParquet(sparkSession),
       new SpatialFilterPushDownForGeoParquet(sparkSession),
-      new SpatialTemporalFilterPushDownForStacScan(sparkSession))
+      new SpatialFilterPushDownForRaster(sparkSession),
+      new SpatialTemporalFilterPushDownForStacScan(sparkSession),
+      new ClusterGeoParquetWrites(sparkSession),
+      new ShareGeometryDeserialization(sparkSession))
 
   def create(sqlContext: SQLContext): SQLContext = {
     create(sqlContext.sparkSession)
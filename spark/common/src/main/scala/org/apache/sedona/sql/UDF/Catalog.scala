@@ -346,6 +346,7 @@ object Catalog extends AbstractCatalog {
     function[RS_AsImage](),
     function[RS_ZonalStats](),
     function[RS_ZonalStatsAll](),
+    function[RS_ZonalStatsExplode](),
     function[RS_Resample](),
     function[RS_ReprojectMatch]("nearestneighbor"),
     function[RS_FromNetCDF](),
@@ -357,8 +358,10 @@ object Catalog extends AbstractCatalog {
     function[ST_BinaryDistanceBandColumn](),
     function[ST_WeightedDistanceBandColumn](),
     function[ST_GeogToGeometry](),
-    function[ST_GeomToGeography]())
+    function[ST_GeomToGeography](),
+    // aggregate functions
+    function[ST_Envelope_Aggr]())
 
   val aggregateExpressions: Seq[Aggregator[Geometry, _, _]] =
-    Seq(new ST_Envelope_Aggr, new ST_Intersection_Aggr, new ST_Union_Aggr())
+    Seq(new ST_Intersection_Aggr, new ST_Union_Aggr())
 }
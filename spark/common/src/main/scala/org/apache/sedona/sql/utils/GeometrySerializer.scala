@@ -19,7 +19,7 @@
 package org.apache.sedona.sql.utils
 
 import org.apache.sedona.common.geometrySerde
-import org.locationtech.jts.geom.{Geometry, GeometryFactory}
+import org.locationtech.jts.geom.{Envelope, Geometry, GeometryFactory}
 
 /**
  * SerDe using the WKB reader and writer objects
@@ -52,4 +52,29 @@ object GeometrySerializer {
     }
     geometrySerde.GeometrySerializer.deserialize(value)
   }
+
+  /**
+   * Given array of bytes returns the envelope of the serialized geometry without deserializing
+   * it
+   *
+   * @param value
+   *   Array of bytes represents a geometry
+   * @return
+   *   JTS envelope, which is a null envelope for empty geometries
+   */
+  def deserializeEnvelope(value: Array[Byte]): Envelope = {
+    geometrySerde.GeometrySerializer.deserializeEnvelope(value)
+  }
+
+  /**
+   * Check if the envelope of the serialized geometry could be read in constant time
+   *
+   * @param value
+   *   Array of bytes represents a geometry
+   * @return
+   *   true if the envelope is stored in the header or the geometry is a point
+   */
+  def hasBoundingBox(value: Array[Byte]): Boolean = {
+    geometrySerde.GeometrySerializer.hasBoundingBox(value)
+  }
 }
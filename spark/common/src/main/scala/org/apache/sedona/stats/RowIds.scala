@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.stats
+
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.functions.{col, monotonically_increasing_id}
+
+/**
+ * Assigns the row ids the stats algorithms use to tell the records of a dataframe apart when
+ * joining it with itself.
+ */
+object RowIds {
+
+  /**
+   * Adds a column identifying each record. When a key column is given, its values are reused as
+   * the ids and must be unique. Otherwise, long ids are generated from the partition and position
+   * of each record, which is much cheaper than hashing the contents of the records and does not
+   * collide on duplicate records. Generated ids depend on the order of the records, which may
+   * change every time the dataframe is computed, so the dataframe is locally checkpointed once
+   * the ids are assigned: both sides of a self-join then see the same id for the same record.
+   *
+   * @param dataframe
+   *   the dataframe to add the ids to
+   * @param idColumnName
+   *   the name of the column holding the ids
+   * @param keyColumn
+   *   the name of a column uniquely identifying the records, or null to generate the ids
+   * @return
+   *   The input DataFrame with the id column added.
+   */
+  def withRowIds(
+      dataframe: DataFrame,
+      idColumnName: String,
+      keyColumn: String = null): DataFrame = keyColumn match {
+    case null => dataframe.withColumn(idColumnName, monotonically_increasing_id()).localCheckpoint()
+    case _ =>
+      require(
+        dataframe.schema.fields.exists(_.name == keyColumn),
+        s"Id column $keyColumn not found in dataframe")
+      dataframe.withColumn(idColumnName, col(keyColumn))
+  }
+}
@@ -21,20 +21,22 @@ package org.apache.sedona.stats
 import org.apache.sedona.util.DfUtils.getGeometryColumnName
 import org.apache.spark.sql.functions._
 import org.apache.spark.sql.sedona_sql.expressions.st_functions.{ST_Distance, ST_DistanceSpheroid}
+import org.apache.spark.sql.types.{ArrayType, DataType, DoubleType, LongType, StructType}
 import org.apache.spark.sql.{Column, DataFrame}
 import scala.collection.JavaConverters._
 
 object Weighting {
 
   private val ID_COLUMN = "__id"
+  private val GEOMETRY_COLUMN = "__geometry"
+  private val NEIGHBORS_COLUMN = "__neighbors"
 
   /**
    * Annotates a dataframe with a weights column for each data record containing the other members
    * within the threshold and their weight. The dataframe should contain at least one GeometryType
-   * column. Rows must be unique. If one geometry column is present it will be used automatically.
-   * If two are present, the one named 'geometry' will be used. If more than one are present and
-   * neither is named 'geometry', the column name must be provided. The new column will be named
-   * 'cluster'.
+   * column. If one geometry column is present it will be used automatically. If two are present,
+   * the one named 'geometry' will be used. If more than one are present and neither is named
+   * 'geometry', the column name must be provided. The new column will be named 'cluster'.
    *
    * @param dataframe
    *   DataFrame with geometry column
@@ -59,6 +61,9 @@ object Weighting {
    *   the attributes to save in the neighbor column. Default is all columns.
    * @param resultName
    *   the name of the resulting column. Default is 'weights'.
+   * @param idColumn
+   *   the name of a column uniquely identifying the records. Default is null, in which case row
+   *   ids are generated.
    * @return
    *   The input DataFrame with a weight column added containing neighbors and their weights added
    *   to each row.
@@ -74,19 +79,13 @@ object Weighting {
       geometry: String = null,
       useSpheroid: Boolean = false,
       savedAttributes: Seq[String] = null,
-      resultName: String = "weights"): DataFrame = {
+      resultName: String = "weights",
+      idColumn: String = null): DataFrame = {
 
     require(threshold >= 0, "Threshold must be greater than or equal to 0")
     require(alpha < 0, "Alpha must be less than 0")
 
-    val geometryColumn = geometry match {
-      case null => getGeometryColumnName(dataframe.schema)
-      case _ =>
-        require(
-          dataframe.schema.fields.exists(_.name == geometry),
-          s"Geometry column $geometry not found in dataframe")
-        geometry
-    }
+    val geometryColumn = resolveGeometryColumn(dataframe, geometry)
 
     // Always include the geometry column in the saved attributes
     val savedAttributesWithGeom =
@@ -107,7 +106,7 @@ object Weighting {
         col(s"r.$geometryColumn")) > 0
     }
 
-    val formattedDataFrame = dataframe.withColumn(ID_COLUMN, sha2(to_json(struct("*")), 256))
+    val formattedDataFrame = RowIds.withRowIds(dataframe, ID_COLUMN, idColumn)
 
     formattedDataFrame
       .alias("l")
@@ -155,10 +154,10 @@ object Weighting {
   /**
    * Annotates a dataframe with a weights column for each data record containing the other members
    * within the threshold and their weight. Weights will always be 1.0. The dataframe should
-   * contain at least one GeometryType column. Rows must be unique. If one geometry column is
-   * present it will be used automatically. If two are present, the one named 'geometry' will be
-   * used. If more than one are present and neither is named 'geometry', the column name must be
-   * provided. The new column will be named 'cluster'.
+   * contain at least one GeometryType column. If one geometry column is present it will be used
+   * automatically. If two are present, the one named 'geometry' will be used. If more than one are
+   * present and neither is named 'geometry', the column name must be provided. The new column
+   * will be named 'cluster'.
    *
    * @param dataframe
    *   DataFrame with geometry column
@@ -203,10 +202,10 @@ object Weighting {
   /**
    * Annotates a dataframe with a weights column for each data record containing the other members
    * within the threshold and their weight. Weights will be dist^alpha. The dataframe should
-   * contain at least one GeometryType column. Rows must be unique. If one geometry column is
-   * present it will be used automatically. If two are present, the one named 'geometry' will be
-   * used. If more than one are present and neither is named 'geometry', the column name must be
-   * provided. The new column will be named 'cluster'.
+   * contain at least one GeometryType column. If one geometry column is present it will be used
+   * automatically. If two are present, the one named 'geometry' will be used. If more than one are
+   * present and neither is named 'geometry', the column name must be provided. The new column
+   * will be named 'cluster'.
    *
    * @param dataframe
    *   DataFrame with geometry column
@@ -256,6 +255,243 @@ object Weighting {
     savedAttributes = savedAttributes,
     resultName = resultName)
 
+  /**
+   * Annotates a dataframe with a sparse weights column for each data record containing the ids
+   * of the other members within the threshold and their weights. Unlike
+   * [[addDistanceBandColumn]], the neighbors are referenced by their ids instead of copies of
+   * their rows. The weights column is a struct of two aligned arrays, `neighbors` holding the
+   * long ids of the neighbors and `values` holding their weights, so the weights column of a
+   * dataframe is a sparse weights matrix in CSR layout with one matrix row per record.
+   * [[org.apache.sedona.stats.autocorrelation.Moran.getGlobal]] and
+   * [[org.apache.sedona.stats.hotspotDetection.GetisOrd.gLocal]] accept sparse weights columns.
+   *
+   * @param dataframe
+   *   DataFrame with geometry column
+   * @param threshold
+   *   Distance threshold for considering neighbors
+   * @param idColumn
+   *   name of the column holding the unique integral ids of the records
+   * @param binary
+   *   whether to use binary weights or inverse distance weights for neighbors (dist^alpha)
+   * @param alpha
+   *   alpha to use for inverse distance weights ignored when binary is true
+   * @param includeZeroDistanceNeighbors
+   *   whether to include neighbors that are 0 distance. If 0 distance neighbors are included and
+   *   binary is false, values are infinity as per the floating point spec (divide by 0)
+   * @param includeSelf
+   *   whether to include self in the list of neighbors
+   * @param selfWeight
+   *   the value to use for the self weight
+   * @param geometry
+   *   name of the geometry column
+   * @param useSpheroid
+   *   whether to use a cartesian or spheroidal distance calculation. Default is false
+   * @param resultName
+   *   the name of the resulting column. Default is 'weights'.
+   * @return
+   *   The input DataFrame with a sparse weights column added to each row.
+   */
+  def addSparseDistanceBandColumn(
+      dataframe: DataFrame,
+      threshold: Double,
+      idColumn: String,
+      binary: Boolean = true,
+      alpha: Double = -1.0,
+      includeZeroDistanceNeighbors: Boolean = false,
+      includeSelf: Boolean = false,
+      selfWeight: Double = 1.0,
+      geometry: String = null,
+      useSpheroid: Boolean = false,
+      resultName: String = "weights"): DataFrame = {
+
+    require(threshold >= 0, "Threshold must be greater than or equal to 0")
+    require(alpha < 0, "Alpha must be less than 0")
+
+    val records = selectIdAndGeometry(dataframe, idColumn, geometry)
+    val distanceFunction: (Column, Column) => Column =
+      if (useSpheroid) ST_DistanceSpheroid else ST_Distance
+    val distance = distanceFunction(col(s"l.$GEOMETRY_COLUMN"), col(s"r.$GEOMETRY_COLUMN"))
+    val joinCondition = if (includeZeroDistanceNeighbors) {
+      distance <= threshold
+    } else {
+      distance <= threshold && distance > 0
+    }
+
+    val neighbors = records
+      .alias("l")
+      .join(records.alias("r"), joinCondition && col(s"l.$ID_COLUMN") =!= col(s"r.$ID_COLUMN"))
+      .groupBy(col(s"l.$ID_COLUMN"))
+      .agg(
+        collect_list(
+          struct(
+            col(s"r.$ID_COLUMN").alias("neighbor"),
+            (if (binary) lit(1.0) else pow(distance, alpha)).alias("value")))
+          .alias(NEIGHBORS_COLUMN))
+
+    withSparseWeightsColumn(dataframe, idColumn, neighbors, includeSelf, selfWeight, resultName)
+  }
+
+  /**
+   * Annotates a dataframe with a sparse weights column for each data record containing the ids
+   * of its k nearest neighbors and their weights. The weights column has the same layout as the
+   * one produced by [[addSparseDistanceBandColumn]].
+   *
+   * @param dataframe
+   *   DataFrame with geometry column
+   * @param k
+   *   number of nearest neighbors of each record, not counting the record itself
+   * @param idColumn
+   *   name of the column holding the unique integral ids of the records
+   * @param binary
+   *   whether to use binary weights or inverse distance weights for neighbors (dist^alpha)
+   * @param alpha
+   *   alpha to use for inverse distance weights ignored when binary is true
+   * @param includeSelf
+   *   whether to include self in the list of neighbors
+   * @param selfWeight
+   *   the value to use for the self weight
+   * @param geometry
+   *   name of the geometry column
+   * @param useSpheroid
+   *   whether to use a cartesian or spheroidal distance calculation. Default is false
+   * @param resultName
+   *   the name of the resulting column. Default is 'weights'.
+   * @return
+   *   The input DataFrame with a sparse weights column added to each row.
+   */
+  def addSparseKNNColumn(
+      dataframe: DataFrame,
+      k: Int,
+      idColumn: String,
+      binary: Boolean = true,
+      alpha: Double = -1.0,
+      includeSelf: Boolean = false,
+      selfWeight: Double = 1.0,
+      geometry: String = null,
+      useSpheroid: Boolean = false,
+      resultName: String = "weights"): DataFrame = {
+
+    require(k > 0, "k must be a positive integer")
+    require(alpha < 0, "Alpha must be less than 0")
+
+    val records = selectIdAndGeometry(dataframe, idColumn, geometry)
+    val distanceFunction: (Column, Column) => Column =
+      if (useSpheroid) ST_DistanceSpheroid else ST_Distance
+    val distance = distanceFunction(col(s"l.$GEOMETRY_COLUMN"), col(s"r.$GEOMETRY_COLUMN"))
+
+    val neighbors = records
+      .alias("l")
+      .join(
+        records.alias("r"),
+        // k + 1 because we are not counting the row matching to itself
+        expr(s"ST_KNN(l.$GEOMETRY_COLUMN, r.$GEOMETRY_COLUMN, ${k + 1}, $useSpheroid)") &&
+          col(s"l.$ID_COLUMN") =!= col(s"r.$ID_COLUMN"))
+      .groupBy(col(s"l.$ID_COLUMN"))
+      .agg(
+        slice(
+          array_sort(
+            collect_list(
+              struct(
+                distance.alias("distance"),
+                col(s"r.$ID_COLUMN").alias("neighbor"),
+                (if (binary) lit(1.0) else pow(distance, alpha)).alias("value")))),
+          1,
+          k).alias(NEIGHBORS_COLUMN))
+
+    withSparseWeightsColumn(dataframe, idColumn, neighbors, includeSelf, selfWeight, resultName)
+  }
+
+  /**
+   * Whether the data type is the one of the sparse weights columns produced by
+   * [[addSparseDistanceBandColumn]] and [[addSparseKNNColumn]].
+   */
+  def isSparseWeights(dataType: DataType): Boolean = dataType match {
+    case struct: StructType =>
+      struct.fieldNames.toSeq == Seq("neighbors", "values") &&
+      (struct("neighbors").dataType match {
+        case ArrayType(LongType, _) => true
+        case _ => false
+      }) &&
+      (struct("values").dataType match {
+        case ArrayType(DoubleType, _) => true
+        case _ => false
+      })
+    case _ => false
+  }
+
+  /**
+   * Explodes a sparse weights column into one row per neighbor with the columns id, n_id and
+   * weight_value.
+   */
+  private[stats] def explodeSparseWeights(
+      dataframe: DataFrame,
+      idColumn: String,
+      weights: String): DataFrame = {
+    dataframe
+      .select(
+        col(idColumn).cast(LongType).alias("id"),
+        explode(
+          zip_with(
+            col(s"$weights.neighbors"),
+            col(s"$weights.values"),
+            (neighbor, value) =>
+              struct(neighbor.alias("n_id"), value.alias("weight_value")))).alias("w"))
+      .select("id", "w.n_id", "w.weight_value")
+  }
+
+  private def resolveGeometryColumn(dataframe: DataFrame, geometry: String): String = {
+    geometry match {
+      case null => getGeometryColumnName(dataframe.schema)
+      case _ =>
+        require(
+          dataframe.schema.fields.exists(_.name == geometry),
+          s"Geometry column $geometry not found in dataframe")
+        geometry
+    }
+  }
+
+  private def selectIdAndGeometry(
+      dataframe: DataFrame,
+      idColumn: String,
+      geometry: String): DataFrame = {
+    require(
+      dataframe.schema.fields.exists(_.name == idColumn),
+      s"Id column $idColumn not found in dataframe")
+    dataframe.select(
+      col(idColumn).cast(LongType).alias(ID_COLUMN),
+      col(resolveGeometryColumn(dataframe, geometry)).alias(GEOMETRY_COLUMN))
+  }
+
+  /**
+   * Adds the neighbors found for each record by id as a sparse weights column. Records without
+   * neighbors get empty arrays.
+   */
+  private def withSparseWeightsColumn(
+      dataframe: DataFrame,
+      idColumn: String,
+      neighbors: DataFrame,
+      includeSelf: Boolean,
+      selfWeight: Double,
+      resultName: String): DataFrame = {
+    val neighborIds = coalesce(
+      transform(col(NEIGHBORS_COLUMN), _("neighbor")),
+      array().cast(ArrayType(LongType)))
+    val values = coalesce(
+      transform(col(NEIGHBORS_COLUMN), _("value")),
+      array().cast(ArrayType(DoubleType)))
+    val weights = if (includeSelf) {
+      struct(
+        concat(neighborIds, array(dataframe(idColumn).cast(LongType))).alias("neighbors"),
+        concat(values, array(lit(selfWeight))).alias("values"))
+    } else {
+      struct(neighborIds.alias("neighbors"), values.alias("values"))
+    }
+    dataframe
+      .join(neighbors, dataframe(idColumn).cast(LongType) === neighbors(ID_COLUMN), "left")
+      .withColumn(resultName, weights)
+      .drop(ID_COLUMN, NEIGHBORS_COLUMN)
+  }
+
   def addDistanceBandColumnPython(
       dataframe: DataFrame,
       threshold: Double,
@@ -267,7 +503,8 @@ object Weighting {
       geometry: String = null,
       useSpheroid: Boolean = false,
       savedAttributes: java.util.ArrayList[String] = null,
-      resultName: String = "weights"): DataFrame = {
+      resultName: String = "weights",
+      idColumn: String = null): DataFrame = {
 
     val savedAttributesScala =
       if (savedAttributes != null) savedAttributes.asScala.toSeq
@@ -284,6 +521,7 @@ object Weighting {
       geometry,
       useSpheroid,
       savedAttributesScala,
-      resultName)
+      resultName,
+      idColumn)
   }
 }
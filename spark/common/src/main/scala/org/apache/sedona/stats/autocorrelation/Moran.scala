@@ -19,9 +19,11 @@
 package org.apache.sedona.stats.autocorrelation
 
 import org.apache.commons.math3.distribution.NormalDistribution
+import org.apache.sedona.stats.Weighting
 import org.apache.sedona.stats.autocorrelation.MoranResult
 import org.apache.spark.sql.{DataFrame, functions}
-import org.apache.spark.sql.functions.{col, explode, pow}
+import org.apache.spark.sql.functions.{coalesce, col, explode, lit, pow}
+import org.apache.spark.sql.types.LongType
 
 object Moran {
   private val ID_COLUMN = "id"
@@ -37,6 +39,13 @@ object Moran {
     normalDist.cumulativeProbability(x)
   }
 
+  /**
+   * Computes the global Moran's I of the value column. The weights column can be either the
+   * neighbors with their rows produced by [[Weighting.addDistanceBandColumn]], or the sparse
+   * weights produced by [[Weighting.addSparseDistanceBandColumn]] or
+   * [[Weighting.addSparseKNNColumn]]. For sparse weights, the neighbor values are looked up by
+   * the ids in the id column.
+   */
   def getGlobal(
       dataframe: DataFrame,
       twoTailed: Boolean = true,
@@ -54,12 +63,18 @@ object Moran {
 
     val n = data._2
 
-    val explodedWeights = dataframe
-      .select(col(idColumn), explode(col("weights")).alias("col"))
-      .select(
-        $"$idColumn".alias("id"),
-        $"col.neighbor.$idColumn".alias("n_id"),
-        $"col.value".alias("weight_value"))
+    val sparse = Weighting.isSparseWeights(dataframe.schema("weights").dataType)
+
+    val explodedWeights = if (sparse) {
+      Weighting.explodeSparseWeights(dataframe, idColumn, "weights")
+    } else {
+      dataframe
+        .select(col(idColumn), explode(col("weights")).alias("col"))
+        .select(
+          $"$idColumn".alias("id"),
+          $"col.neighbor.$idColumn".alias("n_id"),
+          $"col.value".alias("weight_value"))
+    }
 
     val s1Data = explodedWeights
       .alias("left")
@@ -82,20 +97,38 @@ object Moran {
 
     val s1 = sStats._1
 
-    val inumData = dataframe
-      .selectExpr(
-        s"$idColumn AS id",
-        s"$valueColumnName AS value",
-        f"$valueColumnName - ${yMean} AS z",
-        f"transform(weights, w -> struct(w.neighbor.$idColumn AS id, w.value AS w, w.neighbor.$valueColumnName, w.neighbor.$valueColumnName - ${yMean} AS z)) AS weight")
-      .selectExpr(
-        "z",
-        "AGGREGATE(transform(weight, x-> x.z*x.w), CAST(0.0 AS DOUBLE), (acc, x) -> acc + x) AS ZL",
-        "AGGREGATE(transform(weight, x-> x.w), CAST(0.0 AS DOUBLE), (acc, x) -> acc + x) AS w_sum",
-        "AGGREGATE(transform(weight, x-> x.w), CAST(0.0 AS DOUBLE), (acc, x) -> acc + x) AS w_sq_sum",
-        "z * z AS z2ss_comp")
-      .selectExpr("*", "(z * zl) AS inum_comp")
-      .selectExpr("sum(inum_comp)", "sum(w_sum)", "sum(z2ss_comp)")
+    val inumData = if (sparse) {
+      val z = dataframe.select(
+        col(idColumn).cast(LongType).alias("id"),
+        (col(valueColumnName) - yMean).alias("z"))
+      val zl = explodedWeights
+        .join(z.select($"id".alias("n_id"), $"z".alias("n_z")), "n_id")
+        .groupBy("id")
+        .agg(
+          functions.sum($"weight_value" * $"n_z").alias("zl"),
+          functions.sum("weight_value").alias("w_sum"))
+      z.join(zl, Seq("id"), "left")
+        .select(
+          ($"z" * coalesce($"zl", lit(0.0))).alias("inum_comp"),
+          coalesce($"w_sum", lit(0.0)).alias("w_sum"),
+          ($"z" * $"z").alias("z2ss_comp"))
+        .selectExpr("sum(inum_comp)", "sum(w_sum)", "sum(z2ss_comp)")
+    } else {
+      dataframe
+        .selectExpr(
+          s"$idColumn AS id",
+          s"$valueColumnName AS value",
+          f"$valueColumnName - ${yMean} AS z",
+          f"transform(weights, w -> struct(w.neighbor.$idColumn AS id, w.value AS w, w.neighbor.$valueColumnName, w.neighbor.$valueColumnName - ${yMean} AS z)) AS weight")
+        .selectExpr(
+          "z",
+          "AGGREGATE(transform(weight, x-> x.z*x.w), CAST(0.0 AS DOUBLE), (acc, x) -> acc + x) AS ZL",
+          "AGGREGATE(transform(weight, x-> x.w), CAST(0.0 AS DOUBLE), (acc, x) -> acc + x) AS w_sum",
+          "AGGREGATE(transform(weight, x-> x.w), CAST(0.0 AS DOUBLE), (acc, x) -> acc + x) AS w_sq_sum",
+          "z * z AS z2ss_comp")
+        .selectExpr("*", "(z * zl) AS inum_comp")
+        .selectExpr("sum(inum_comp)", "sum(w_sum)", "sum(z2ss_comp)")
+    }
 
     val s2Data = s1Data
       .groupBy("id")
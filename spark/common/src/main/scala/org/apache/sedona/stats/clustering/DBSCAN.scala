@@ -18,23 +18,57 @@
  */
 package org.apache.sedona.stats.clustering
 
+import org.apache.sedona.core.enums.GridType
+import org.apache.sedona.core.spatialPartitioning.SpatialPartitioner
+import org.apache.sedona.core.spatialRDD.SpatialRDD
 import org.apache.sedona.util.DfUtils.getGeometryColumnName
-import org.apache.spark.sql.functions._
+import org.apache.spark.broadcast.Broadcast
+import org.apache.spark.rdd.RDD
 import org.apache.spark.sql.sedona_sql.UDT.GeometryUDT
-import org.apache.spark.sql.sedona_sql.expressions.st_functions.{ST_Distance, ST_DistanceSpheroid}
-import org.apache.spark.sql.{Column, DataFrame}
-import org.graphframes.GraphFrame
+import org.apache.spark.sql.types.{BooleanType, LongType, StructType}
+import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.storage.StorageLevel
+import org.locationtech.jts.geom.{Envelope, Geometry, GeometryFactory, Point}
+import org.locationtech.jts.index.strtree.STRtree
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
 
 object DBSCAN {
 
-  private val ID_COLUMN = "__id"
+  private val NOISE: Long = -1L
+
+  /**
+   * A record to cluster. The geometry is the one distances are measured on, the centroid of the
+   * record geometry when using spheroid distances. The row is only carried by the copy of the
+   * record in its home partition, and is null in the partitions it is replicated to.
+   */
+  private case class Item(
+      id: Long,
+      geometry: Geometry,
+      row: Row,
+      isHome: Boolean = true,
+      isReplicated: Boolean = false,
+      isCore: Boolean = false)
+
+  /**
+   * A clustered record of a home partition, or a link between the local cluster of a core record
+   * and its id. The local clusters sharing a core record are merged into one cluster.
+   */
+  private case class Labeled(row: Row, isCore: Boolean, cluster: Long, linkId: Long)
 
   /**
    * Annotates a dataframe with a cluster label for each data record using the DBSCAN algorithm.
-   * The dataframe should contain at least one GeometryType column. Rows must be unique. If one
-   * geometry column is present it will be used automatically. If two are present, the one named
-   * 'geometry' will be used. If more than one are present and neither is named 'geometry', the
-   * column name must be provided. The new column will be named 'cluster'.
+   * The dataframe should contain at least one GeometryType column. If one geometry column is
+   * present it will be used automatically. If two are present, the one named 'geometry' will be
+   * used. If more than one are present and neither is named 'geometry', the column name must be
+   * provided. The new column will be named 'cluster'.
+   *
+   * The records are spatially partitioned using a KDB-tree, and each partition also receives the
+   * records within epsilon of its extent. Core records are found and clustered locally in each
+   * partition, then clusters sharing core records across partition borders are merged on the
+   * driver. Records with null or empty geometries are outliers. The clustered records are
+   * computed eagerly and locally checkpointed.
    *
    * @param dataframe
    *   dataframe to cluster. Must contain at least one GeometryType column
@@ -74,75 +108,256 @@ object DBSCAN {
 
     validateInputs(dataframe, epsilon, minPts, geometryCol)
 
-    val distanceFunction: (Column, Column) => Column =
-      if (useSpheroid) ST_DistanceSpheroid else ST_Distance
+    val geometryIndex = dataframe.schema.fieldIndex(geometryCol)
+    // The ids depend on the order of the rows within each partition, which is not deterministic
+    // if the dataframe is not. The records are checkpointed before being used, so that their ids
+    // are the same in every step of the clustering.
+    val items = dataframe.rdd
+      .zipWithUniqueId()
+      .map { case (row, id) =>
+        Item(id, distanceGeometry(row.getAs[Geometry](geometryIndex), useSpheroid), row)
+      }
+      .localCheckpoint()
+    items.count()
+    val validItems = items.filter(_.geometry != null)
+
+    val clustered = buildPartitioner(validItems, dataframe.rdd.getNumPartitions) match {
+      case Some(partitioner) =>
+        cluster(validItems, partitioner, epsilon, minPts, useSpheroid)
+      case None =>
+        validItems.sparkContext.emptyRDD[Labeled]
+    }
+    items.unpersist(blocking = false)
+    val invalid = dataframe.rdd
+      .filter(row => distanceGeometry(row.getAs[Geometry](geometryIndex), useSpheroid) == null)
+      .map(row => Labeled(row, isCore = false, NOISE, NOISE))
+    val labeled = if (includeOutliers) {
+      clustered.union(invalid)
+    } else {
+      clustered.filter(_.cluster != NOISE)
+    }
+
+    val schema = new StructType(dataframe.schema.fields)
+      .add(isCoreColumnName, BooleanType, nullable = false)
+      .add(clusterColumnName, LongType, nullable = false)
+    dataframe.sparkSession.createDataFrame(
+      labeled.map(l => Row.fromSeq(l.row.toSeq :+ l.isCore :+ l.cluster)),
+      schema)
+  }
 
-    val hasIdColumn = dataframe.columns.contains("id")
-    val idDataframe = if (hasIdColumn) {
-      dataframe
-        .withColumnRenamed("id", ID_COLUMN)
-        .withColumn("id", sha2(to_json(struct("*")), 256))
+  private def distanceGeometry(geometry: Geometry, useSpheroid: Boolean): Geometry = {
+    if (geometry == null || geometry.isEmpty) {
+      null
+    } else if (useSpheroid && !geometry.isInstanceOf[Point]) {
+      // Spheroid distances are measured between centroids
+      geometry.getCentroid
     } else {
-      dataframe.withColumn("id", sha2(to_json(struct("*")), 256))
+      geometry
     }
+  }
+
+  private def referencePoint(geometry: Geometry): Point = geometry match {
+    case point: Point => point
+    case _ => geometry.getFactory.createPoint(geometry.getEnvelopeInternal.centre())
+  }
 
-    val isCorePointsDF = idDataframe
-      .alias("left")
-      .join(
-        idDataframe.alias("right"),
-        distanceFunction(col(s"left.$geometryCol"), col(s"right.$geometryCol")) <= epsilon)
-      .groupBy(col(s"left.id"))
-      .agg(
-        first(struct("left.*")).alias("leftContents"),
-        count(col(s"right.id")).alias("neighbors_count"),
-        collect_list(col(s"right.id")).alias("neighbors"))
-      .withColumn(isCoreColumnName, col("neighbors_count") >= lit(minPts))
-      .select("leftContents.*", "neighbors", isCoreColumnName)
-      .checkpoint()
-
-    val corePointsDF = isCorePointsDF.filter(col(isCoreColumnName))
-    val borderPointsDF = isCorePointsDF.filter(!col(isCoreColumnName))
-
-    val coreEdgesDf = corePointsDF
-      .select(col("id").alias("src"), explode(col("neighbors")).alias("dst"))
-      .alias("left")
-      .join(corePointsDF.alias("right"), col("left.dst") === col(s"right.id"))
-      .select(col("left.src"), col(s"right.id").alias("dst"))
-
-    val connectedComponentsDF = GraphFrame(corePointsDF, coreEdgesDf).connectedComponents
-      .setUseLabelsAsComponents(false)
-      .run
-
-    val borderComponentsDF = borderPointsDF
-      .select(struct("*").alias("leftContent"), explode(col("neighbors")).alias("neighbor"))
-      .join(connectedComponentsDF.alias("right"), col("neighbor") === col(s"right.id"))
-      .groupBy(col("leftContent.id"))
-      .agg(
-        first(col("leftContent")).alias("leftContent"),
-        min(col(s"right.component")).alias("component"))
-      .select("leftContent.*", "component")
-
-    val clusteredPointsDf = borderComponentsDF.union(connectedComponentsDF)
-
-    val outliersDf = idDataframe
-      .join(clusteredPointsDf, Seq("id"), "left_anti")
-      .withColumn(isCoreColumnName, lit(false))
-      .withColumn("component", lit(-1))
-      .withColumn("neighbors", array().cast("array<string>"))
-
-    val completedDf = (
-      if (includeOutliers) clusteredPointsDf.unionByName(outliersDf)
-      else clusteredPointsDf
-    ).withColumnRenamed("component", clusterColumnName)
-
-    val returnDf = if (hasIdColumn) {
-      completedDf.drop("neighbors", "id").withColumnRenamed(ID_COLUMN, "id")
+  private def buildPartitioner(
+      items: RDD[Item],
+      numPartitions: Int): Option[SpatialPartitioner] = {
+    val spatialRDD = new SpatialRDD[Geometry]
+    spatialRDD.setRawSpatialRDD(items.map(item => referencePoint(item.geometry): Geometry))
+    spatialRDD.analyze()
+    if (spatialRDD.approximateTotalCount == 0) {
+      None
     } else {
-      completedDf.drop("neighbors", "id")
+      spatialRDD.calc_partitioner(
+        GridType.KDBTREE,
+        math.max(1, math.min(numPartitions.toLong, spatialRDD.approximateTotalCount).toInt))
+      Some(spatialRDD.getPartitioner)
+    }
+  }
+
+  /**
+   * The partition a record belongs to, the one containing its reference point. The record is
+   * clustered there, and is replicated to the other partitions within epsilon of it.
+   */
+  private def homePartition(geometry: Geometry, partitioner: SpatialPartitioner): Int = {
+    val partitions = partitioner.placeObject(referencePoint(geometry))
+    if (partitions.hasNext) partitions.next()._1 else 0
+  }
+
+  private def cluster(
+      items: RDD[Item],
+      partitioner: SpatialPartitioner,
+      epsilon: Double,
+      minPts: Int,
+      useSpheroid: Boolean): RDD[Labeled] = {
+    val sparkContext = items.sparkContext
+
+    // The extent of the records of each home partition. A record is replicated to the partitions
+    // whose extents are within epsilon of it, so that every partition holds all neighbors of its
+    // home records.
+    val extents = items
+      .map(item => (homePartition(item.geometry, partitioner), item.geometry.getEnvelopeInternal))
+      .reduceByKey { (left, right) =>
+        val extent = left.copy()
+        extent.expandToInclude(right)
+        extent
+      }
+      .collect()
+    val extentsBroadcast = sparkContext.broadcast(extents)
+
+    def replicate(items: RDD[Item]): RDD[(Int, Item)] = items
+      .mapPartitions { iter =>
+        val extentTree = new STRtree()
+        extentsBroadcast.value.foreach { case (partition, extent) =>
+          extentTree.insert(extent, partition)
+        }
+        iter.flatMap { item =>
+          val home = homePartition(item.geometry, partitioner)
+          val searchEnvelope = NeighborIndex.searchEnvelope(item.geometry, epsilon, useSpheroid)
+          val partitions = extentTree.query(searchEnvelope).asScala.map(_.asInstanceOf[Int])
+          partitions.map { partition =>
+            if (partition == home) {
+              (partition, item.copy(isReplicated = partitions.size > 1))
+            } else {
+              (partition, item.copy(row = null, isHome = false))
+            }
+          }
+        }
+      }
+      .partitionBy(partitioner)
+
+    // Find the core records of each partition
+    val coreFlagged = replicate(items).mapPartitions { iter =>
+      val local = iter.map(_._2).toArray
+      val index = NeighborIndex(local.map(_.geometry), epsilon, useSpheroid)
+      local.indices.iterator.filter(local(_).isHome).map { i =>
+        var numNeighbors = 0
+        index.forEachNeighbor(i) { _ =>
+          numNeighbors += 1
+          numNeighbors < minPts
+        }
+        local(i).copy(isCore = numNeighbors >= minPts)
+      }
+    }
+
+    // Cluster the records of each partition, now that the replicated records know whether they
+    // are core records
+    val labeled = replicate(coreFlagged)
+      .mapPartitions(iter => clusterPartition(iter.map(_._2).toArray, epsilon, useSpheroid))
+      .persist(StorageLevel.MEMORY_AND_DISK)
+
+    val merged = mergeClusters(
+      labeled
+        .filter(_.linkId != NOISE)
+        .map(l => (l.linkId, l.cluster))
+        .groupByKey()
+        .flatMap { case (_, clusters) =>
+          val first = clusters.head
+          clusters.iterator.filter(_ != first).map((first, _))
+        }
+        .collect())
+    extentsBroadcast.unpersist(blocking = false)
+
+    // The clustered records are checkpointed, so that the intermediate results can be released
+    val mergedBroadcast: Broadcast[Map[Long, Long]] = sparkContext.broadcast(merged)
+    val clustered = labeled
+      .filter(_.row != null)
+      .map(l => l.copy(cluster = mergedBroadcast.value.getOrElse(l.cluster, l.cluster)))
+      .localCheckpoint()
+    clustered.count()
+    labeled.unpersist(blocking = false)
+    mergedBroadcast.unpersist(blocking = false)
+    clustered
+  }
+
+  /**
+   * Clusters the records of one partition. Core records are connected to the core records within
+   * epsilon of them, and a local cluster is labeled by the smallest id of its core records so that
+   * the labels don't depend on the order of the records. A border record joins the cluster of its
+   * core neighbor with the smallest id.
+   */
+  private def clusterPartition(
+      local: Array[Item],
+      epsilon: Double,
+      useSpheroid: Boolean): Iterator[Labeled] = {
+    val index = NeighborIndex(local.map(_.geometry), epsilon, useSpheroid)
+    val unionFind = new UnionFind(local.length)
+    for (i <- local.indices if local(i).isHome && local(i).isCore) {
+      index.forEachNeighbor(i) { j =>
+        if (local(j).isCore) unionFind.union(i, j)
+        true
+      }
+    }
+
+    val clusterIds = Array.fill(local.length)(Long.MaxValue)
+    for (i <- local.indices if local(i).isCore) {
+      val root = unionFind.find(i)
+      clusterIds(root) = math.min(clusterIds(root), local(i).id)
+    }
+
+    // Only the local clusters reachable from home records need to be merged across partitions
+    val reachable = new Array[Boolean](local.length)
+    val homeLabels = new mutable.ArrayBuffer[Labeled]
+    for (i <- local.indices if local(i).isHome) {
+      val item = local(i)
+      val coreNeighbor = if (item.isCore) {
+        i
+      } else {
+        var nearestCore = -1
+        index.forEachNeighbor(i) { j =>
+          if (local(j).isCore && (nearestCore < 0 || local(j).id < local(nearestCore).id)) {
+            nearestCore = j
+          }
+          true
+        }
+        nearestCore
+      }
+      val label = if (coreNeighbor >= 0) {
+        val root = unionFind.find(coreNeighbor)
+        reachable(root) = true
+        clusterIds(root)
+      } else {
+        NOISE
+      }
+      val linkId = if (item.isCore && item.isReplicated) item.id else NOISE
+      homeLabels += Labeled(item.row, item.isCore, label, linkId)
     }
 
-    returnDf
+    val links = local.indices.iterator
+      .filter(i => !local(i).isHome && local(i).isCore && reachable(unionFind.find(i)))
+      .map(i => Labeled(null, isCore = true, clusterIds(unionFind.find(i)), local(i).id))
+    homeLabels.iterator ++ links
+  }
 
+  /**
+   * Merges the local clusters sharing core records. Returns the smallest cluster id of the
+   * merged clusters of each cluster, for the clusters merged with others.
+   */
+  private def mergeClusters(links: Array[(Long, Long)]): Map[Long, Long] = {
+    val parents = mutable.HashMap.empty[Long, Long]
+    def find(cluster: Long): Long = {
+      var root = cluster
+      while (parents.getOrElse(root, root) != root) {
+        root = parents(root)
+      }
+      var node = cluster
+      while (node != root) {
+        val next = parents(node)
+        parents(node) = root
+        node = next
+      }
+      root
+    }
+    links.foreach { case (left, right) =>
+      val leftRoot = find(left)
+      val rightRoot = find(right)
+      if (leftRoot != rightRoot) {
+        parents(math.max(leftRoot, rightRoot)) = math.min(leftRoot, rightRoot)
+      }
+    }
+    parents.keys.toList.map(cluster => cluster -> find(cluster)).toMap
   }
 
   private def validateInputs(
@@ -158,3 +373,29 @@ object DBSCAN {
       "geometry column must be of type GeometryType")
   }
 }
+
+private[clustering] class UnionFind(size: Int) {
+  private val parents = Array.tabulate(size)(i => i)
+
+  def find(i: Int): Int = {
+    var root = i
+    while (parents(root) != root) {
+      root = parents(root)
+    }
+    var node = i
+    while (parents(node) != root) {
+      val next = parents(node)
+      parents(node) = root
+      node = next
+    }
+    root
+  }
+
+  def union(i: Int, j: Int): Unit = {
+    val rootI = find(i)
+    val rootJ = find(j)
+    if (rootI != rootJ) {
+      parents(math.max(rootI, rootJ)) = math.min(rootI, rootJ)
+    }
+  }
+}
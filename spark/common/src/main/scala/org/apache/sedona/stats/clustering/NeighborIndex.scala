@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.stats.clustering
+
+import org.apache.sedona.common.sphere.{Haversine, Spheroid}
+import org.locationtech.jts.geom.{Envelope, Geometry, Point}
+import org.locationtech.jts.index.strtree.STRtree
+
+/**
+ * Finds the geometries within epsilon of each other among the geometries of one spatial
+ * partition.
+ */
+private[clustering] trait NeighborIndex {
+
+  /**
+   * Visits the indices of the geometries within epsilon of the i-th geometry, including i itself.
+   * The visit stops as soon as the visitor returns false.
+   */
+  def forEachNeighbor(i: Int)(visitor: Int => Boolean): Unit
+}
+
+private[clustering] object NeighborIndex {
+
+  // The polar radius, same as distance joins, so that expanded envelopes cover spheroid distances
+  private val SPHERE_RADIUS = 6357000.0
+
+  def apply(geometries: Array[Geometry], epsilon: Double, useSpheroid: Boolean): NeighborIndex = {
+    val gridIndex =
+      if (!useSpheroid && geometries.forall(_.isInstanceOf[Point])) {
+        GridNeighborIndex.build(geometries.map(_.asInstanceOf[Point]), epsilon)
+      } else {
+        None
+      }
+    gridIndex.getOrElse(new TreeNeighborIndex(geometries, epsilon, useSpheroid))
+  }
+
+  /**
+   * The envelope containing all geometries within epsilon of the given geometry. Spheroid
+   * distances are measured in meters between points in degrees.
+   */
+  def searchEnvelope(geometry: Geometry, epsilon: Double, useSpheroid: Boolean): Envelope = {
+    if (useSpheroid) {
+      Haversine.expandEnvelope(geometry.getEnvelopeInternal, epsilon, SPHERE_RADIUS)
+    } else {
+      val envelope = geometry.getEnvelopeInternal.copy()
+      envelope.expandBy(epsilon)
+      envelope
+    }
+  }
+}
+
+/**
+ * Neighbor index of points on the planar distance. Points are bucketed into square cells of
+ * epsilon, so the neighbors of a point are found in the 3x3 cells around it. Cells are stored as
+ * sorted primitive arrays instead of a hash map of boxed cell keys.
+ */
+private[clustering] class GridNeighborIndex private (
+    xs: Array[Double],
+    ys: Array[Double],
+    epsilon: Double,
+    cellX: Array[Int],
+    cellY: Array[Int],
+    cellKeys: Array[Long],
+    cellStarts: Array[Int],
+    pointsByCell: Array[Int])
+    extends NeighborIndex {
+
+  override def forEachNeighbor(i: Int)(visitor: Int => Boolean): Unit = {
+    val x = xs(i)
+    val y = ys(i)
+    var dx = -1
+    while (dx <= 1) {
+      var dy = -1
+      while (dy <= 1) {
+        val key = GridNeighborIndex.cellKey(cellX(i) + dx, cellY(i) + dy)
+        val cell = java.util.Arrays.binarySearch(cellKeys, key)
+        if (cell >= 0) {
+          var k = cellStarts(cell)
+          while (k < cellStarts(cell + 1)) {
+            val j = pointsByCell(k)
+            val distX = xs(j) - x
+            val distY = ys(j) - y
+            // Same as the distance of JTS points
+            if (Math.sqrt(distX * distX + distY * distY) <= epsilon && !visitor(j)) {
+              return
+            }
+            k += 1
+          }
+        }
+        dy += 1
+      }
+      dx += 1
+    }
+  }
+}
+
+private[clustering] object GridNeighborIndex {
+
+  // Cells are slightly larger than epsilon to absorb rounding errors of the cell computation
+  private val CELL_SIZE_FACTOR = 1.000001
+
+  private[clustering] def cellKey(cellX: Int, cellY: Int): Long =
+    (cellX.toLong << 32) | (cellY & 0xffffffffL)
+
+  /**
+   * Builds the grid index, or returns None if the points are empty or their extent is too large
+   * for the grid cells to be addressed by integers.
+   */
+  def build(points: Array[Point], epsilon: Double): Option[GridNeighborIndex] = {
+    val numPoints = points.length
+    if (numPoints == 0 || !(epsilon > 0)) {
+      return None
+    }
+    val xs = points.map(_.getX)
+    val ys = points.map(_.getY)
+    val minX = xs.min
+    val minY = ys.min
+    val cellSize = epsilon * CELL_SIZE_FACTOR
+    // Keep a margin so that the cells around each point are addressable as well
+    if ((xs.max - minX) / cellSize >= Int.MaxValue - 2 ||
+      (ys.max - minY) / cellSize >= Int.MaxValue - 2 ||
+      xs.exists(_.isNaN) || ys.exists(_.isNaN)) {
+      return None
+    }
+    val cellX = xs.map(x => ((x - minX) / cellSize).toInt)
+    val cellY = ys.map(y => ((y - minY) / cellSize).toInt)
+    val keys = Array.tabulate(numPoints)(i => cellKey(cellX(i), cellY(i)))
+
+    // Sort the distinct cell keys, then counting sort the points by their cells
+    val sortedKeys = keys.clone()
+    java.util.Arrays.sort(sortedKeys)
+    var numCells = 0
+    for (k <- 0 until numPoints) {
+      if (k == 0 || sortedKeys(k) != sortedKeys(numCells - 1)) {
+        sortedKeys(numCells) = sortedKeys(k)
+        numCells += 1
+      }
+    }
+    val cellKeys = java.util.Arrays.copyOf(sortedKeys, numCells)
+    val cellOfPoint = keys.map(java.util.Arrays.binarySearch(cellKeys, _))
+    val cellStarts = new Array[Int](numCells + 1)
+    cellOfPoint.foreach(cell => cellStarts(cell + 1) += 1)
+    for (cell <- 0 until numCells) {
+      cellStarts(cell + 1) += cellStarts(cell)
+    }
+    val nextSlot = java.util.Arrays.copyOf(cellStarts, numCells)
+    val pointsByCell = new Array[Int](numPoints)
+    for (i <- 0 until numPoints) {
+      val cell = cellOfPoint(i)
+      pointsByCell(nextSlot(cell)) = i
+      nextSlot(cell) += 1
+    }
+    Some(
+      new GridNeighborIndex(xs, ys, epsilon, cellX, cellY, cellKeys, cellStarts, pointsByCell))
+  }
+}
+
+/**
+ * Neighbor index of arbitrary geometries, or of points on the spheroid, backed by an STR tree of
+ * the geometry envelopes.
+ */
+private[clustering] class TreeNeighborIndex(
+    geometries: Array[Geometry],
+    epsilon: Double,
+    useSpheroid: Boolean)
+    extends NeighborIndex {
+
+  private val tree = {
+    val tree = new STRtree()
+    geometries.indices.foreach(i => tree.insert(geometries(i).getEnvelopeInternal, i))
+    tree.build()
+    tree
+  }
+
+  override def forEachNeighbor(i: Int)(visitor: Int => Boolean): Unit = {
+    val geometry = geometries(i)
+    val candidates =
+      tree.query(NeighborIndex.searchEnvelope(geometry, epsilon, useSpheroid)).iterator()
+    while (candidates.hasNext) {
+      val j = candidates.next().asInstanceOf[Int]
+      val isNeighbor = if (useSpheroid) {
+        Spheroid.distance(geometry, geometries(j)) <= epsilon
+      } else {
+        geometry.isWithinDistance(geometries(j), epsilon)
+      }
+      if (isNeighbor && !visitor(j)) {
+        return
+      }
+    }
+  }
+}
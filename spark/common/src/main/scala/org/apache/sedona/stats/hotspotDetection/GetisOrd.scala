@@ -19,7 +19,9 @@
 package org.apache.sedona.stats.hotspotDetection
 
 import org.apache.commons.math3.distribution.NormalDistribution
+import org.apache.sedona.stats.Weighting
 import org.apache.spark.sql.functions.udf
+import org.apache.spark.sql.types.LongType
 import org.apache.spark.sql.{Column, DataFrame, functions => f}
 
 object GetisOrd {
@@ -36,11 +38,13 @@ object GetisOrd {
    * Weights should be the neighbors of this row. The members of the weights should be comprised
    * of structs containing a value column and a neighbor column. The neighbor column should be the
    * contents of the neighbors with the same types as the parent row (minus neighbors). You can
-   * use `wherobots.weighing.add_distance_band_column` to achieve this. To calculate the Gi*
-   * statistic, ensure the focal observation is in the neighbors array (i.e. the row is in the
-   * weights column) and `star=true`. Significance is calculated with a z score. Permutation tests
-   * are not yet implemented and thus island weight does nothing. The following columns will be
-   * added: G, E[G], V[G], Z, P.
+   * use `wherobots.weighing.add_distance_band_column` to achieve this. The weights can also be
+   * the sparse weights produced by [[Weighting.addSparseDistanceBandColumn]] or
+   * [[Weighting.addSparseKNNColumn]], in which case the x values of the neighbors are looked up
+   * by the ids in the id column. To calculate the Gi* statistic, ensure the focal observation is
+   * in the neighbors array (i.e. the row is in the weights column) and `star=true`. Significance
+   * is calculated with a z score. Permutation tests are not yet implemented and thus island
+   * weight does nothing. The following columns will be added: G, E[G], V[G], Z, P.
    *
    * @param dataframe
    *   the dataframe to perform the G statistic on
@@ -59,6 +63,9 @@ object GetisOrd {
    * @param islandWeight
    *   Not used. The weight for the simulated neighbor used for records without a neighbor in perm
    *   tests
+   * @param idColumn
+   *   The column name containing the ids of the records referenced by sparse weights. Not used
+   *   for other weights
    *
    * @return
    *   A dataframe with the original columns plus the columns G, E[G], V[G], Z, P.
@@ -69,7 +76,8 @@ object GetisOrd {
       weights: String = "weights",
       permutations: Int = 0,
       star: Boolean = false,
-      islandWeight: Double = 0.0): DataFrame = {
+      islandWeight: Double = 0.0,
+      idColumn: String = "id"): DataFrame = {
 
     val removeSelf = f.lit(if (star) 0.0 else 1.0)
 
@@ -78,15 +86,35 @@ object GetisOrd {
     val sumOfSquaresofAllY = f.lit(setStats.get(1))
     val countOfAllY = f.lit(setStats.get(2))
 
-    dataframe
-      .withColumn(
-        "G",
-        arraySum(
-          f.transform(
-            f.col(weights),
-            weight =>
-              weight("value") * weight("neighbor")(x))) / (sumOfAllY - removeSelf * f.col(x)))
-      .withColumn("W", arraySum(f.transform(f.col(weights), weight => weight.getField("value"))))
+    val (weighted, weightedSum, weightSum) =
+      if (Weighting.isSparseWeights(dataframe.schema(weights).dataType)) {
+        // Sum the weighted x values of the neighbors, joining only the ids and x values
+        val xById = dataframe.select(
+          f.col(idColumn).cast(LongType).alias("n_id"),
+          f.col(x).alias("n_x"))
+        val neighborSums = Weighting
+          .explodeSparseWeights(dataframe, idColumn, weights)
+          .join(xById, "n_id")
+          .groupBy(f.col("id").alias("__id"))
+          .agg(f.sum(f.col("weight_value") * f.col("n_x")).alias("__weighted_sum"))
+        (
+          dataframe.join(
+            neighborSums,
+            dataframe(idColumn).cast(LongType) === neighborSums("__id"),
+            "left"),
+          f.coalesce(f.col("__weighted_sum"), f.lit(0.0)),
+          arraySum(f.col(s"$weights.values")))
+      } else {
+        (
+          dataframe,
+          arraySum(
+            f.transform(f.col(weights), weight => weight("value") * weight("neighbor")(x))),
+          arraySum(f.transform(f.col(weights), weight => weight.getField("value"))))
+      }
+
+    weighted
+      .withColumn("G", weightedSum / (sumOfAllY - removeSelf * f.col(x)))
+      .withColumn("W", weightSum)
       .withColumn("EG", f.col("W") / (countOfAllY - removeSelf))
       .withColumn("Y1", (sumOfAllY - removeSelf * f.col(x)) / (countOfAllY - removeSelf))
       .withColumn(
@@ -100,6 +128,6 @@ object GetisOrd {
           2.0) * (countOfAllY - 1 - removeSelf) * f.pow(f.col("Y1"), 2.0)))
       .withColumn("Z", (f.col("G") - f.col("EG")) / f.sqrt(f.col("VG")))
       .withColumn("P", f.lit(1.0) - cdfUDF(f.abs(f.col("Z"))))
-      .drop("W", "Y1", "Y2")
+      .drop("W", "Y1", "Y2", "__id", "__weighted_sum")
   }
 }
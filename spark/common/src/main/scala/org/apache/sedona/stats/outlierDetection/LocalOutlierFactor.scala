@@ -18,6 +18,7 @@
  */
 package org.apache.sedona.stats.outlierDetection
 
+import org.apache.sedona.stats.RowIds
 import org.apache.sedona.util.DfUtils.getGeometryColumnName
 import org.apache.spark.sql.sedona_sql.expressions.st_functions.{ST_Distance, ST_DistanceSphere}
 import org.apache.spark.sql.{Column, DataFrame, SparkSession, functions => f}
@@ -29,10 +30,10 @@ object LocalOutlierFactor {
 
   /**
    * Annotates a dataframe with a column containing the local outlier factor for each data record.
-   * The dataframe should contain at least one GeometryType column. Rows must be unique. If one
-   * geometry column is present it will be used automatically. If two are present, the one named
-   * 'geometry' will be used. If more than one are present and neither is named 'geometry', the
-   * column name must be provided.
+   * The dataframe should contain at least one GeometryType column. If one geometry column is
+   * present it will be used automatically. If two are present, the one named 'geometry' will be
+   * used. If more than one are present and neither is named 'geometry', the column name must be
+   * provided.
    *
    * @param dataframe
    *   dataframe containing the point geometries
@@ -46,6 +47,9 @@ object LocalOutlierFactor {
    *   whether to use a cartesian or spheroidal distance calculation. Default is false
    * @param resultColumnName
    *   the name of the column containing the lof for each row. Default is "lof"
+   * @param idColumn
+   *   the name of a column uniquely identifying the records. Default is null, in which case row
+   *   ids are generated.
    *
    * @return
    *   A DataFrame containing the lof for each row
@@ -56,7 +60,8 @@ object LocalOutlierFactor {
       geometry: String = null,
       handleTies: Boolean = false,
       useSphere: Boolean = false,
-      resultColumnName: String = "lof"): DataFrame = {
+      resultColumnName: String = "lof",
+      idColumn: String = null): DataFrame = {
 
     if (k < 1)
       throw new IllegalArgumentException("k must be a positive integer")
@@ -79,22 +84,27 @@ object LocalOutlierFactor {
     val KNNFunction = "ST_KNN"
 
     // Store original contents, prep necessary columns
-    val formattedDataframe = dataframe
-      .withColumn(CONTENTS_COLUMN_NAME, f.struct("*"))
-      .withColumn(ID_COLUMN_NAME, f.sha2(f.to_json(f.col(CONTENTS_COLUMN_NAME)), 256))
+    val formattedDataframe = RowIds
+      .withRowIds(
+        dataframe.withColumn(CONTENTS_COLUMN_NAME, f.struct("*")),
+        ID_COLUMN_NAME,
+        idColumn)
       .withColumnRenamed(geometryColumn, "geometry")
 
-    val kDistanceDf = formattedDataframe
+    // Only the ids and geometries of the records are joined with their neighbors, the contents
+    // of the records are joined back by id once the lof is computed
+    val records = formattedDataframe.select(f.col(ID_COLUMN_NAME), f.col("geometry"))
+
+    val kDistanceDf = records
       .alias("l")
       .join(
-        formattedDataframe.alias("r"),
+        records.alias("r"),
         // k + 1 because we are not counting the row matching to itself
         f.expr(f"$KNNFunction(l.geometry, r.geometry, $k + 1, $useSpheroidString)") && f.col(
           f"l.$ID_COLUMN_NAME") =!= f.col(f"r.$ID_COLUMN_NAME"))
       .groupBy(f"l.$ID_COLUMN_NAME")
       .agg(
         f.first("l.geometry").alias("geometry"),
-        f.first(f"l.$CONTENTS_COLUMN_NAME").alias(CONTENTS_COLUMN_NAME),
         f.max(distanceFunction(f.col("l.geometry"), f.col("r.geometry"))).alias("k_distance"),
         f.collect_list(f"r.$ID_COLUMN_NAME").alias("neighbors"))
       .checkpoint()
@@ -103,7 +113,6 @@ object LocalOutlierFactor {
       .alias("A")
       .select(
         f.col(ID_COLUMN_NAME).alias("a_id"),
-        f.col(CONTENTS_COLUMN_NAME),
         f.col("geometry").alias("a_geometry"),
         f.explode(f.col("neighbors")).alias("n_id"))
       .join(
@@ -115,7 +124,6 @@ object LocalOutlierFactor {
       .select(
         f.col("a_id"),
         f.col("b_id"),
-        f.col(CONTENTS_COLUMN_NAME),
         f.array_max(
           f.array(
             f.col("b_k_distance"),
@@ -125,22 +133,21 @@ object LocalOutlierFactor {
       .agg(
         // + 1e-10 to avoid division by zero, matches sklearn impl
         (f.lit(1.0) / (f.mean("rd") + 1e-10)).alias("lrd"),
-        f.collect_list(f.col("b_id")).alias("neighbors"),
-        f.first(CONTENTS_COLUMN_NAME).alias(CONTENTS_COLUMN_NAME))
+        f.collect_list(f.col("b_id")).alias("neighbors"))
 
     val ret = lrdDf
       .select(
         f.col("a_id"),
         f.col("lrd").alias("a_lrd"),
-        f.col(CONTENTS_COLUMN_NAME),
         f.explode(f.col("neighbors")).alias("n_id"))
       .join(
         lrdDf.select(f.col("a_id").alias("b_id"), f.col("lrd").alias("b_lrd")),
         f.expr("n_id = b_id"))
       .groupBy("a_id")
-      .agg(
-        f.first(CONTENTS_COLUMN_NAME).alias(CONTENTS_COLUMN_NAME),
-        (f.sum("b_lrd") / (f.count("b_lrd") * f.first("a_lrd"))).alias(resultColumnName))
+      .agg((f.sum("b_lrd") / (f.count("b_lrd") * f.first("a_lrd"))).alias(resultColumnName))
+      .join(
+        formattedDataframe.select(f.col(ID_COLUMN_NAME), f.col(CONTENTS_COLUMN_NAME)),
+        f.col("a_id") === f.col(ID_COLUMN_NAME))
       .select(f.col(f"$CONTENTS_COLUMN_NAME.*"), f.col(resultColumnName))
 
     if (handleTies)
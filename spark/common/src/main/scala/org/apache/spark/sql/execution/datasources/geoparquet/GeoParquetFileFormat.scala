@@ -274,10 +274,22 @@ class GeoParquetFileFormat(val spatialFilter: Option[GeoParquetSpatialFilter])
       }
 
       // Prune file scans using pushed down spatial filters and per-column bboxes in geoparquet metadata
-      val shouldScanFile =
-        GeoParquetMetaData.parseKeyValueMetaData(footerFileMetaData.getKeyValueMetaData).forall {
-          metadata => spatialFilter.forall(_.evaluate(metadata.columns))
-        }
+      val geoParquetMetaData =
+        GeoParquetMetaData.parseKeyValueMetaData(footerFileMetaData.getKeyValueMetaData)
+      val shouldScanFile = geoParquetMetaData.forall { metadata =>
+        spatialFilter.forall(_.evaluate(metadata.columns))
+      }
+      // Prune row groups and pages using pushed down spatial filters and the statistics of the
+      // covering bbox columns
+      val coveringPredicate = if (enableParquetFilterPushDown) {
+        for {
+          metadata <- geoParquetMetaData
+          filter <- spatialFilter
+          predicate <- filter.toCoveringPredicate(metadata.columns, footerFileMetaData.getSchema)
+        } yield predicate
+      } else {
+        None
+      }
       if (!shouldScanFile) {
         // The entire file is pruned so that we don't need to scan this file.
         Seq.empty[InternalRow].iterator
@@ -299,13 +311,32 @@ class GeoParquetFileFormat(val spatialFilter: Option[GeoParquetSpatialFilter])
           }
 
         val attemptId = new TaskAttemptID(new TaskID(new JobID(), TaskType.MAP, 0), 0)
-        val hadoopAttemptContext =
-          new TaskAttemptContextImpl(broadcastedHadoopConf.value.value, attemptId)
+        val hadoopAttemptContext = coveringPredicate match {
+          case Some(predicate) =>
+            // The covering predicate depends on the metadata of this file, so it must not be set
+            // in the configuration shared by all files
+            val fileConf = new Configuration(sharedConf)
+            val coveringColumnsRequired = geoParquetMetaData.forall { metadata =>
+              metadata.columns.values.flatMap(_.covering).forall { covering =>
+                val bbox = covering.bbox
+                Seq(bbox.xmin, bbox.ymin, bbox.xmax, bbox.ymax).forall(
+                  GeoParquetFileFormat.containsField(requiredSchema, _))
+              }
+            }
+            if (!coveringColumnsRequired) {
+              // Page-level filtering treats the columns that are not read as null columns
+              fileConf.setBoolean(ParquetInputFormat.COLUMN_INDEX_FILTERING_ENABLED, false)
+            }
+            new TaskAttemptContextImpl(fileConf, attemptId)
+          case None =>
+            new TaskAttemptContextImpl(broadcastedHadoopConf.value.value, attemptId)
+        }
 
         // Try to push down filters when filter push-down is enabled.
-        // Notice: This push-down is RowGroups level, not individual records.
-        if (pushed.isDefined) {
-          ParquetInputFormat.setFilterPredicate(hadoopAttemptContext.getConfiguration, pushed.get)
+        // Notice: This push-down is RowGroups level, not individual records. The covering
+        // predicate only prunes row groups and pages, it is never used for filtering records.
+        (pushed ++ coveringPredicate).reduceOption(FilterApi.and).foreach { predicate =>
+          ParquetInputFormat.setFilterPredicate(hadoopAttemptContext.getConfiguration, predicate)
         }
         if (enableVectorizedReader) {
           logWarning(
@@ -361,6 +392,23 @@ class GeoParquetFileFormat(val spatialFilter: Option[GeoParquetSpatialFilter])
 
 object GeoParquetFileFormat extends Logging {
 
+  /**
+   * Check if a schema contains a (nested) field
+   */
+  private def containsField(schema: StructType, path: Seq[String]): Boolean = {
+    path match {
+      case Seq() => false
+      case Seq(name) => schema.fieldNames.contains(name)
+      case name +: rest =>
+        schema.find(_.name == name).exists { field =>
+          field.dataType match {
+            case struct: StructType => containsField(struct, rest)
+            case _ => false
+          }
+        }
+    }
+  }
+
   /**
    * Figures out a merged Parquet schema with a distributed Spark job.
    *
@@ -18,10 +18,15 @@
  */
 package org.apache.spark.sql.execution.datasources.geoparquet
 
+import org.apache.parquet.filter2.predicate.{FilterApi, FilterPredicate, SparkFilterApi}
+import org.apache.parquet.schema.MessageType
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName
 import org.apache.sedona.core.spatialOperator.SpatialPredicate
 import org.locationtech.jts.geom.Envelope
 import org.locationtech.jts.geom.Geometry
 
+import java.lang.{Double => JDouble, Float => JFloat}
+
 /**
  * Filters containing spatial predicates such as `ST_Within(geom, ST_GeomFromText(...))` will be
  * converted to [[GeoParquetSpatialFilter]] and get pushed down to [[GeoParquetFileFormat]] by
@@ -29,6 +34,24 @@ import org.locationtech.jts.geom.Geometry
  */
 trait GeoParquetSpatialFilter {
   def evaluate(columns: Map[String, GeometryFieldMetaData]): Boolean
+
+  /**
+   * Convert this filter to a Parquet filter predicate on the covering bbox columns of the file,
+   * so that Parquet can skip row groups and pages using the min/max statistics of the covering
+   * columns. Rows kept by the returned predicate are a superset of the rows satisfying this
+   * filter.
+   *
+   * @param columns
+   *   geometry column metadata of the file
+   * @param parquetSchema
+   *   schema of the file
+   * @return
+   *   None if this filter cannot be evaluated using covering columns
+   */
+  def toCoveringPredicate(
+      columns: Map[String, GeometryFieldMetaData],
+      parquetSchema: MessageType): Option[FilterPredicate] = None
+
   def simpleString: String
 }
 
@@ -40,6 +63,17 @@ object GeoParquetSpatialFilter {
       left.evaluate(columns) && right.evaluate(columns)
     }
 
+    override def toCoveringPredicate(
+        columns: Map[String, GeometryFieldMetaData],
+        parquetSchema: MessageType): Option[FilterPredicate] = {
+      (
+        left.toCoveringPredicate(columns, parquetSchema),
+        right.toCoveringPredicate(columns, parquetSchema)) match {
+        case (Some(l), Some(r)) => Some(FilterApi.and(l, r))
+        case (l, r) => l.orElse(r)
+      }
+    }
+
     override def simpleString: String = s"(${left.simpleString}) AND (${right.simpleString})"
   }
 
@@ -47,12 +81,23 @@ object GeoParquetSpatialFilter {
       extends GeoParquetSpatialFilter {
     override def evaluate(columns: Map[String, GeometryFieldMetaData]): Boolean =
       left.evaluate(columns) || right.evaluate(columns)
+
+    override def toCoveringPredicate(
+        columns: Map[String, GeometryFieldMetaData],
+        parquetSchema: MessageType): Option[FilterPredicate] = {
+      for {
+        l <- left.toCoveringPredicate(columns, parquetSchema)
+        r <- right.toCoveringPredicate(columns, parquetSchema)
+      } yield FilterApi.or(l, r)
+    }
+
     override def simpleString: String = s"(${left.simpleString}) OR (${right.simpleString})"
   }
 
   /**
    * Spatial predicate pushed down to GeoParquet data source. We'll use the bbox in column
-   * metadata to prune unrelated files.
+   * metadata to prune unrelated files, and the statistics of the covering bbox columns to prune
+   * unrelated row groups and pages.
    *
    * @param columnName
    *   name of filtered geometry column
@@ -86,6 +131,92 @@ object GeoParquetSpatialFilter {
         }
       }
     }
+
+    override def toCoveringPredicate(
+        columns: Map[String, GeometryFieldMetaData],
+        parquetSchema: MessageType): Option[FilterPredicate] = {
+      val queryEnvelope = queryWindow.getEnvelopeInternal
+      if (queryEnvelope.isNull) {
+        return None
+      }
+      for {
+        column <- columns.get(columnName)
+        covering <- column.covering
+        bbox = covering.bbox
+        xmin <- coveringColumn(parquetSchema, bbox.xmin)
+        ymin <- coveringColumn(parquetSchema, bbox.ymin)
+        xmax <- coveringColumn(parquetSchema, bbox.xmax)
+        ymax <- coveringColumn(parquetSchema, bbox.ymax)
+      } yield {
+        predicateType match {
+          case SpatialPredicate.COVERS =>
+            // The bbox of a geometry covering the query window covers the query window
+            and(
+              xmin.ltEq(queryEnvelope.getMinX),
+              ymin.ltEq(queryEnvelope.getMinY),
+              xmax.gtEq(queryEnvelope.getMaxX),
+              ymax.gtEq(queryEnvelope.getMaxY))
+          case SpatialPredicate.INTERSECTS =>
+            and(
+              xmin.ltEq(queryEnvelope.getMaxX),
+              ymin.ltEq(queryEnvelope.getMaxY),
+              xmax.gtEq(queryEnvelope.getMinX),
+              ymax.gtEq(queryEnvelope.getMinY))
+          case _ =>
+            throw new IllegalArgumentException(s"Unexpected predicate type: $predicateType")
+        }
+      }
+    }
+
     override def simpleString: String = s"$columnName ${predicateType.name} $queryWindow"
   }
+
+  private def and(predicates: FilterPredicate*): FilterPredicate = predicates.reduce(FilterApi.and)
+
+  /**
+   * Resolve a non-repeated float or double field of the covering column
+   */
+  private def coveringColumn(
+      parquetSchema: MessageType,
+      path: Seq[String]): Option[CoveringColumn] = {
+    val pathArray = path.toArray
+    if (!parquetSchema.containsPath(pathArray) ||
+      parquetSchema.getColumnDescription(pathArray).getMaxRepetitionLevel > 0) {
+      return None
+    }
+    val fieldType = parquetSchema.getType(pathArray: _*)
+    if (!fieldType.isPrimitive) {
+      None
+    } else {
+      fieldType.asPrimitiveType().getPrimitiveTypeName match {
+        case PrimitiveTypeName.DOUBLE => Some(DoubleCoveringColumn(pathArray))
+        case PrimitiveTypeName.FLOAT => Some(FloatCoveringColumn(pathArray))
+        case _ => None
+      }
+    }
+  }
+
+  private sealed trait CoveringColumn {
+    def ltEq(value: Double): FilterPredicate
+    def gtEq(value: Double): FilterPredicate
+  }
+
+  private case class DoubleCoveringColumn(path: Array[String]) extends CoveringColumn {
+    override def ltEq(value: Double): FilterPredicate =
+      FilterApi.ltEq(SparkFilterApi.doubleColumn(path), JDouble.valueOf(value))
+    override def gtEq(value: Double): FilterPredicate =
+      FilterApi.gtEq(SparkFilterApi.doubleColumn(path), JDouble.valueOf(value))
+  }
+
+  private case class FloatCoveringColumn(path: Array[String]) extends CoveringColumn {
+    // Round the bounds outwards, so that no row is wrongly pruned
+    override def ltEq(value: Double): FilterPredicate = {
+      val bound = if (value.toFloat < value) Math.nextUp(value.toFloat) else value.toFloat
+      FilterApi.ltEq(SparkFilterApi.floatColumn(path), JFloat.valueOf(bound))
+    }
+    override def gtEq(value: Double): FilterPredicate = {
+      val bound = if (value.toFloat > value) Math.nextDown(value.toFloat) else value.toFloat
+      FilterApi.gtEq(SparkFilterApi.floatColumn(path), JFloat.valueOf(bound))
+    }
+  }
 }
@@ -18,13 +18,19 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions
 
+import org.apache.sedona.common.geometrySerde.GeometrySerializer
+import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder
+import org.apache.spark.sql.catalyst.expressions.{AttributeReference, ExpectsInputTypes, Expression}
+import org.apache.spark.sql.catalyst.expressions.aggregate.ImperativeAggregate
 import org.apache.spark.sql.expressions.Aggregator
+import org.apache.spark.sql.sedona_sql.UDT.GeometryUDT
+import org.apache.spark.sql.types.{AbstractDataType, DataType, DoubleType, StructField, StructType}
 import org.locationtech.jts.geom.{Coordinate, Geometry, GeometryFactory}
 import org.locationtech.jts.operation.overlayng.OverlayNGRobust
 
 import scala.collection.JavaConverters._
-import scala.collection.mutable.ListBuffer
+import scala.collection.mutable.ArrayBuffer
 
 /**
  * traits for creating Aggregate Function
@@ -54,123 +60,183 @@ trait TraitSTAggregateExec {
   def finish(out: Geometry): Geometry = out
 }
 
+/**
+ * Aggregation buffer of ST_Union_Aggr. Inputs are collected in pending until a batch is full.
+ * Each batch is unioned into a partial result of level 0, and two partial results of the same
+ * level are unioned into one of the next level, so every input takes part in a logarithmic number
+ * of unions instead of being re-unioned with the growing result of all the previous batches.
+ */
+case class UnionAggrBuffer(
+    pending: ArrayBuffer[Geometry],
+    partials: ArrayBuffer[Geometry],
+    levels: ArrayBuffer[Int])
+
 private[apache] class ST_Union_Aggr(bufferSize: Int = 1000)
-    extends Aggregator[Geometry, ListBuffer[Geometry], Geometry] {
+    extends Aggregator[Geometry, UnionAggrBuffer, Geometry] {
 
   val serde = ExpressionEncoder[Geometry]()
-  val bufferSerde = ExpressionEncoder[ListBuffer[Geometry]]()
-
-  override def reduce(buffer: ListBuffer[Geometry], input: Geometry): ListBuffer[Geometry] = {
-    buffer += input
-    if (buffer.size >= bufferSize) {
-      // Perform the union when buffer size is reached
-      val unionGeometry = OverlayNGRobust.union(buffer.asJava)
-      buffer.clear()
-      buffer += unionGeometry
+  val bufferSerde = ExpressionEncoder[UnionAggrBuffer]()
+
+  override def reduce(buffer: UnionAggrBuffer, input: Geometry): UnionAggrBuffer = {
+    buffer.pending += input
+    if (buffer.pending.size >= bufferSize) {
+      flushPending(buffer)
     }
     buffer
   }
 
-  override def merge(
-      buffer1: ListBuffer[Geometry],
-      buffer2: ListBuffer[Geometry]): ListBuffer[Geometry] = {
-    buffer1 ++= buffer2
-    if (buffer1.size >= bufferSize) {
-      // Perform the union when buffer size is reached
-      val unionGeometry = OverlayNGRobust.union(buffer1.asJava)
-      buffer1.clear()
-      buffer1 += unionGeometry
+  override def merge(buffer1: UnionAggrBuffer, buffer2: UnionAggrBuffer): UnionAggrBuffer = {
+    buffer1.pending ++= buffer2.pending
+    if (buffer1.pending.size >= bufferSize) {
+      flushPending(buffer1)
+    }
+    buffer2.partials.indices.foreach { i =>
+      addPartial(buffer1, buffer2.partials(i), buffer2.levels(i))
     }
     buffer1
   }
 
-  override def finish(reduction: ListBuffer[Geometry]): Geometry = {
-    OverlayNGRobust.union(reduction.asJava)
+  override def finish(reduction: UnionAggrBuffer): Geometry = {
+    // The cascaded union packs the remaining geometries by their envelopes and unions
+    // neighboring ones pairwise
+    OverlayNGRobust.union((reduction.partials ++ reduction.pending).asJava)
   }
 
-  def bufferEncoder: ExpressionEncoder[ListBuffer[Geometry]] = bufferSerde
+  private def flushPending(buffer: UnionAggrBuffer): Unit = {
+    val unionGeometry = OverlayNGRobust.union(buffer.pending.asJava)
+    buffer.pending.clear()
+    addPartial(buffer, unionGeometry, 0)
+  }
+
+  private def addPartial(buffer: UnionAggrBuffer, partial: Geometry, level: Int): Unit = {
+    var unionGeometry = partial
+    var unionLevel = level
+    while (buffer.levels.nonEmpty && buffer.levels.last == unionLevel) {
+      val last = buffer.partials.size - 1
+      unionGeometry = OverlayNGRobust.union(Seq(buffer.partials(last), unionGeometry).asJava)
+      buffer.partials.remove(last)
+      buffer.levels.remove(last)
+      unionLevel += 1
+    }
+    buffer.partials += unionGeometry
+    buffer.levels += unionLevel
+  }
+
+  def bufferEncoder: ExpressionEncoder[UnionAggrBuffer] = bufferSerde
 
   def outputEncoder: ExpressionEncoder[Geometry] = serde
 
-  override def zero: ListBuffer[Geometry] = ListBuffer.empty
+  override def zero: UnionAggrBuffer =
+    UnionAggrBuffer(ArrayBuffer.empty, ArrayBuffer.empty, ArrayBuffer.empty)
 }
 
 /**
- * Return the envelope boundary of the entire column
+ * Return the envelope boundary of the entire column. The aggregation buffer holds the bounds of
+ * the envelope as four doubles, which are updated with the bounds read from the serialized
+ * geometries without deserializing them. The fixed size buffer lets the aggregate run in the hash
+ * aggregate and be partially aggregated without creating geometries for every row. Null and empty
+ * geometries are ignored, and the result is null when there is no other geometry.
  */
-private[apache] class ST_Envelope_Aggr
-    extends Aggregator[Geometry, Geometry, Geometry]
-    with TraitSTAggregateExec {
+private[apache] case class ST_Envelope_Aggr(
+    inputExpressions: Seq[Expression],
+    mutableAggBufferOffset: Int = 0,
+    inputAggBufferOffset: Int = 0)
+    extends ImperativeAggregate
+    with ExpectsInputTypes {
 
-  def reduce(buffer: Geometry, input: Geometry): Geometry = {
-    val accumulateEnvelope = buffer.getEnvelopeInternal
-    val newEnvelope = input.getEnvelopeInternal
-    val coordinates: Array[Coordinate] = new Array[Coordinate](5)
-    var minX = 0.0
-    var minY = 0.0
-    var maxX = 0.0
-    var maxY = 0.0
-    if (accumulateEnvelope.equals(initialGeometry.getEnvelopeInternal)) {
-      // Found the accumulateEnvelope is the initial value
-      minX = newEnvelope.getMinX
-      minY = newEnvelope.getMinY
-      maxX = newEnvelope.getMaxX
-      maxY = newEnvelope.getMaxY
-    } else if (newEnvelope.equals(initialGeometry.getEnvelopeInternal)) {
-      minX = accumulateEnvelope.getMinX
-      minY = accumulateEnvelope.getMinY
-      maxX = accumulateEnvelope.getMaxX
-      maxY = accumulateEnvelope.getMaxY
-    } else {
-      minX = Math.min(accumulateEnvelope.getMinX, newEnvelope.getMinX)
-      minY = Math.min(accumulateEnvelope.getMinY, newEnvelope.getMinY)
-      maxX = Math.max(accumulateEnvelope.getMaxX, newEnvelope.getMaxX)
-      maxY = Math.max(accumulateEnvelope.getMaxY, newEnvelope.getMaxY)
+  def this(inputExpressions: Seq[Expression]) = this(inputExpressions, 0, 0)
+
+  private lazy val child = inputExpressions.head
+
+  override def children: Seq[Expression] = inputExpressions
+
+  override def inputTypes: Seq[AbstractDataType] = Seq(GeometryUDT)
+
+  override def nullable: Boolean = true
+
+  override def dataType: DataType = GeometryUDT
+
+  override def prettyName: String = "ST_Envelope_Aggr"
+
+  override val aggBufferAttributes: Seq[AttributeReference] =
+    Seq("minX", "minY", "maxX", "maxY").map(name => AttributeReference(name, DoubleType)())
+
+  override lazy val inputAggBufferAttributes: Seq[AttributeReference] =
+    aggBufferAttributes.map(_.newInstance())
+
+  override def aggBufferSchema: StructType =
+    StructType(aggBufferAttributes.map(attr => StructField(attr.name, attr.dataType)))
+
+  override def withNewMutableAggBufferOffset(newOffset: Int): ImperativeAggregate =
+    copy(mutableAggBufferOffset = newOffset)
+
+  override def withNewInputAggBufferOffset(newOffset: Int): ImperativeAggregate =
+    copy(inputAggBufferOffset = newOffset)
+
+  override def initialize(buffer: InternalRow): Unit = {
+    buffer.setDouble(mutableAggBufferOffset, Double.PositiveInfinity)
+    buffer.setDouble(mutableAggBufferOffset + 1, Double.PositiveInfinity)
+    buffer.setDouble(mutableAggBufferOffset + 2, Double.NegativeInfinity)
+    buffer.setDouble(mutableAggBufferOffset + 3, Double.NegativeInfinity)
+  }
+
+  override def update(buffer: InternalRow, input: InternalRow): Unit = {
+    val bytes = child.eval(input).asInstanceOf[Array[Byte]]
+    if (bytes != null) {
+      val envelope = GeometrySerializer.deserializeEnvelope(bytes)
+      if (!envelope.isNull) {
+        expand(
+          buffer,
+          envelope.getMinX,
+          envelope.getMinY,
+          envelope.getMaxX,
+          envelope.getMaxY)
+      }
     }
-    coordinates(0) = new Coordinate(minX, minY)
-    coordinates(1) = new Coordinate(minX, maxY)
-    coordinates(2) = new Coordinate(maxX, maxY)
-    coordinates(3) = new Coordinate(maxX, minY)
-    coordinates(4) = coordinates(0)
-    val geometryFactory = new GeometryFactory()
-    geometryFactory.createPolygon(coordinates)
+  }
 
+  override def merge(buffer: InternalRow, inputBuffer: InternalRow): Unit = {
+    expand(
+      buffer,
+      inputBuffer.getDouble(inputAggBufferOffset),
+      inputBuffer.getDouble(inputAggBufferOffset + 1),
+      inputBuffer.getDouble(inputAggBufferOffset + 2),
+      inputBuffer.getDouble(inputAggBufferOffset + 3))
   }
 
-  def merge(buffer1: Geometry, buffer2: Geometry): Geometry = {
-    val leftEnvelope = buffer1.getEnvelopeInternal
-    val rightEnvelope = buffer2.getEnvelopeInternal
-    val coordinates: Array[Coordinate] = new Array[Coordinate](5)
-    var minX = 0.0
-    var minY = 0.0
-    var maxX = 0.0
-    var maxY = 0.0
-    if (leftEnvelope.equals(initialGeometry.getEnvelopeInternal)) {
-      minX = rightEnvelope.getMinX
-      minY = rightEnvelope.getMinY
-      maxX = rightEnvelope.getMaxX
-      maxY = rightEnvelope.getMaxY
-    } else if (rightEnvelope.equals(initialGeometry.getEnvelopeInternal)) {
-      minX = leftEnvelope.getMinX
-      minY = leftEnvelope.getMinY
-      maxX = leftEnvelope.getMaxX
-      maxY = leftEnvelope.getMaxY
+  private def expand(
+      buffer: InternalRow,
+      minX: Double,
+      minY: Double,
+      maxX: Double,
+      maxY: Double): Unit = {
+    val offset = mutableAggBufferOffset
+    buffer.setDouble(offset, math.min(buffer.getDouble(offset), minX))
+    buffer.setDouble(offset + 1, math.min(buffer.getDouble(offset + 1), minY))
+    buffer.setDouble(offset + 2, math.max(buffer.getDouble(offset + 2), maxX))
+    buffer.setDouble(offset + 3, math.max(buffer.getDouble(offset + 3), maxY))
+  }
+
+  override def eval(buffer: InternalRow): Any = {
+    val minX = buffer.getDouble(mutableAggBufferOffset)
+    val minY = buffer.getDouble(mutableAggBufferOffset + 1)
+    val maxX = buffer.getDouble(mutableAggBufferOffset + 2)
+    val maxY = buffer.getDouble(mutableAggBufferOffset + 3)
+    if (minX > maxX) {
+      null
     } else {
-      minX = Math.min(leftEnvelope.getMinX, rightEnvelope.getMinX)
-      minY = Math.min(leftEnvelope.getMinY, rightEnvelope.getMinY)
-      maxX = Math.max(leftEnvelope.getMaxX, rightEnvelope.getMaxX)
-      maxY = Math.max(leftEnvelope.getMaxY, rightEnvelope.getMaxY)
+      val coordinates: Array[Coordinate] = new Array[Coordinate](5)
+      coordinates(0) = new Coordinate(minX, minY)
+      coordinates(1) = new Coordinate(minX, maxY)
+      coordinates(2) = new Coordinate(maxX, maxY)
+      coordinates(3) = new Coordinate(maxX, minY)
+      coordinates(4) = coordinates(0)
+      GeometrySerializer.serialize(new GeometryFactory().createPolygon(coordinates))
     }
-
-    coordinates(0) = new Coordinate(minX, minY)
-    coordinates(1) = new Coordinate(minX, maxY)
-    coordinates(2) = new Coordinate(maxX, maxY)
-    coordinates(3) = new Coordinate(maxX, minY)
-    coordinates(4) = coordinates(0)
-    val geometryFactory = new GeometryFactory()
-    geometryFactory.createPolygon(coordinates)
   }
 
+  protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]): Expression =
+    copy(inputExpressions = newChildren)
 }
 
 /**
@@ -66,7 +66,8 @@ private[apache] case class ST_Distance(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class ST_YMax(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.yMax _) {
+    extends InferredExpression(Functions.yMax _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -74,7 +75,8 @@ private[apache] case class ST_YMax(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class ST_YMin(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.yMin _) {
+    extends InferredExpression(Functions.yMin _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -157,7 +159,10 @@ private[apache] case class ST_CrossesDateLine(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_NPoints(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.nPoints _) {
+    extends CodegenInferredExpression(Functions.nPoints _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.nPoints"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -242,7 +247,10 @@ private[apache] case class ST_Expand(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Length(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.length _) {
+    extends CodegenInferredExpression(Functions.length _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.length"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -268,7 +276,10 @@ private[apache] case class ST_Length2D(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Area(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.area _) {
+    extends CodegenInferredExpression(Functions.area _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.area"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -281,7 +292,8 @@ private[apache] case class ST_Area(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Centroid(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.getCentroid _) {
+    extends InferredExpression(Functions.getCentroid _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -406,7 +418,8 @@ private[apache] case class ST_IsValidTrajectory(inputExpressions: Seq[Expression
 private[apache] case class ST_IsValid(inputExpressions: Seq[Expression])
     extends InferredExpression(
       inferrableFunction2(Functions.isValid),
-      inferrableFunction1(Functions.isValid)) {
+      inferrableFunction1(Functions.isValid))
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -487,7 +500,8 @@ private[apache] case class ST_SimplifyPolygonHull(inputExpressions: Seq[Expressi
 }
 
 private[apache] case class ST_AsText(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.asWKT _) {
+    extends InferredExpression(Functions.asWKT _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -531,7 +545,10 @@ private[apache] case class ST_AsHEXEWKB(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class ST_SRID(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.getSRID _) {
+    extends CodegenInferredExpression(Functions.getSRID _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.getSRID"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -547,7 +564,10 @@ private[apache] case class ST_SetSRID(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class ST_GeometryType(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.geometryType _) {
+    extends CodegenInferredExpression(Functions.geometryType _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.geometryType"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -579,7 +599,10 @@ private[apache] case class ST_Azimuth(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class ST_X(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.x _) {
+    extends CodegenInferredExpression(Functions.x _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.x"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -587,7 +610,10 @@ private[apache] case class ST_X(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class ST_Y(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.y _) {
+    extends CodegenInferredExpression(Functions.y _)
+    with ReadOnlyGeometryInputs {
+
+  override protected def codegenFunction: String = s"${classOf[Functions].getName}.y"
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -950,7 +976,8 @@ private[apache] object ST_IsRing {
  *   Geometry
  */
 private[apache] case class ST_NumGeometries(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.numGeometries _) {
+    extends InferredExpression(Functions.numGeometries _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -1038,7 +1065,8 @@ private[apache] case class ST_Perimeter(inputExpressions: Seq[Expression])
     extends InferredExpression(
       inferrableFunction3(Functions.perimeter),
       inferrableFunction2(Functions.perimeter),
-      inferrableFunction1(Functions.perimeter)) {
+      inferrableFunction1(Functions.perimeter))
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -1308,7 +1336,8 @@ private[apache] case class ST_AsKML(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_IsEmpty(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.isEmpty _) {
+    extends InferredExpression(Functions.isEmpty _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -1321,7 +1350,8 @@ private[apache] case class ST_IsEmpty(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_XMax(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.xMax _) {
+    extends InferredExpression(Functions.xMax _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
@@ -1334,7 +1364,8 @@ private[apache] case class ST_XMax(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_XMin(inputExpressions: Seq[Expression])
-    extends InferredExpression(Functions.xMin _) {
+    extends InferredExpression(Functions.xMin _)
+    with ReadOnlyGeometryInputs {
 
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
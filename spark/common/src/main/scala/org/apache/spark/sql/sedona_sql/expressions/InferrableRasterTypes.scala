@@ -18,6 +18,7 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions
 
+import org.apache.sedona.common.raster.RasterHeader
 import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.expressions.Expression
 import org.apache.spark.sql.catalyst.util.ArrayData
@@ -33,15 +34,21 @@ object InferrableRasterTypes {
     new InferrableType[GridCoverage2D] {}
   implicit val gridCoverage2DArrayInstance: InferrableType[Array[GridCoverage2D]] =
     new InferrableType[Array[GridCoverage2D]] {}
+  implicit val rasterHeaderInstance: InferrableType[RasterHeader] =
+    new InferrableType[RasterHeader] {}
 
   def isRasterType(t: Type): Boolean = t =:= typeOf[GridCoverage2D]
   def isRasterArrayType(t: Type): Boolean = t =:= typeOf[Array[GridCoverage2D]]
+  def isRasterHeaderType(t: Type): Boolean = t =:= typeOf[RasterHeader]
 
   val rasterUDT: UserDefinedType[_] = RasterUDT
   val rasterUDTArray: ArrayType = DataTypes.createArrayType(RasterUDT)
 
   def rasterExtractor(expr: Expression)(input: InternalRow): Any = expr.toRaster(input)
 
+  def rasterHeaderExtractor(expr: Expression)(input: InternalRow): Any =
+    expr.toRasterHeader(input)
+
   def rasterSerializer(output: Any): Any =
     if (output != null) {
       output.asInstanceOf[GridCoverage2D].serialize
@@ -21,7 +21,8 @@ package org.apache.spark.sql.sedona_sql.expressions
 import org.apache.commons.lang3.StringUtils
 import org.apache.sedona.common.S2Geography.Geography
 import org.apache.spark.sql.catalyst.InternalRow
-import org.apache.spark.sql.catalyst.expressions.codegen.CodegenFallback
+import org.apache.spark.sql.catalyst.expressions.codegen.{CodeGenerator, CodegenContext, CodegenFallback, ExprCode}
+import org.apache.spark.sql.catalyst.expressions.codegen.Block.BlockHelper
 import org.apache.spark.sql.catalyst.expressions.{Expression, ImplicitCastInputTypes}
 import org.apache.spark.sql.catalyst.util.ArrayData
 import org.apache.spark.sql.sedona_sql.UDT.{GeographyUDT, GeometryUDT}
@@ -42,16 +43,142 @@ class InferredExpressionException(message: String, cause: Throwable)
 
 /**
  * This is the base class for wrapping Java/Scala functions as a catalyst expression in Spark SQL.
+ * Expressions extending this class are evaluated using [[eval]] in both interpreted and generated
+ * code.
  * @param fSeq
  *   The functions to be wrapped. Subclasses can simply pass a function to this constructor, and
  *   the function will be converted to [[InferrableFunction]] by [[InferrableFunctionConverter]]
  *   automatically.
  */
 abstract class InferredExpression(fSeq: InferrableFunction*)
+    extends InferredExpressionBase(fSeq: _*)
+    with CodegenFallback
+
+/**
+ * A variant of [[InferredExpression]] supporting whole-stage code generation. The generated code
+ * calls the wrapped static Java method directly, so that cheap functions can be fused with other
+ * expressions in the same stage. Arguments of the wrapped method could be geometries, strings or
+ * primitive values, and the method should return a primitive value, a boxed primitive value or a
+ * string.
+ * @param fSeq
+ *   The functions to be wrapped, see [[InferredExpression]].
+ */
+abstract class CodegenInferredExpression(fSeq: InferrableFunction*)
+    extends InferredExpressionBase(fSeq: _*) {
+
+  /**
+   * Fully qualified name of the static Java method called by generated code, for instance
+   * `org.apache.sedona.common.Functions.x`. It should be the same method as the wrapped
+   * function.
+   */
+  protected def codegenFunction: String
+
+  override protected def doGenCode(ctx: CodegenContext, ev: ExprCode): ExprCode = {
+    val argCodes = inputExpressions.zip(f.sparkInputTypes).map { case (expr, inputType) =>
+      genArgumentCode(ctx, expr, inputType)
+    }
+    val args = argCodes.map(_._2)
+    val result = ctx.freshName("result")
+    val exception = ctx.freshName("e")
+    val javaType = CodeGenerator.javaType(dataType)
+    val (resultType, resultValue) = dataType match {
+      case StringType => ("String", s"${classOf[UTF8String].getName}.fromString($result)")
+      case _ => (CodeGenerator.boxedType(dataType), result)
+    }
+    val notNullCondition = argCodes.map(arg => s"!${arg._1}").mkString(" && ")
+    val name = getClass.getSimpleName
+    val inferredExpressionClass = classOf[InferredExpression].getName
+    ev.copy(code = code"""
+      ${argCodes.map(_._3).mkString("\n")}
+      boolean ${ev.isNull} = true;
+      $javaType ${ev.value} = ${CodeGenerator.defaultValue(dataType)};
+      if ($notNullCondition) {
+        try {
+          $resultType $result = $codegenFunction(${args.mkString(", ")});
+          if ($result != null) {
+            ${ev.isNull} = false;
+            ${ev.value} = $resultValue;
+          }
+        } catch (Exception $exception) {
+          $inferredExpressionClass.throwExpressionInferenceException(
+            "$name", new Object[] {${args.mkString(", ")}}, $exception);
+        }
+      }""")
+  }
+
+  // Generate code for evaluating an argument of the wrapped method, returns the names of the
+  // null flag and the value, and the code
+  private def genArgumentCode(
+      ctx: CodegenContext,
+      expr: Expression,
+      inputType: AbstractDataType): (String, String, String) = {
+    val value = ctx.freshName("arg")
+    inputType match {
+      case _: GeometryUDT if expr.isInstanceOf[SharedGeometry] =>
+        // Deserialize the geometry once per row and share it with other expressions
+        val cacheRef = ctx.addReferenceObj(
+          "sharedGeometry",
+          expr.asInstanceOf[SharedGeometry].cache,
+          classOf[SharedGeometryCache].getName)
+        // The input row is unknown when the columns of the row are held by variables
+        val row = if (ctx.currentVars == null && ctx.INPUT_ROW != null) ctx.INPUT_ROW else "null"
+        val exprCode = expr.genCode(ctx)
+        val code = s"""
+          |${exprCode.code}
+          |$geometryClass $value = null;
+          |if (!${exprCode.isNull}) {
+          |  $value = $cacheRef.deserialize($row, ${exprCode.value});
+          |}""".stripMargin
+        (exprCode.isNull.toString, value, code)
+      case _: GeometryUDT if expr.isInstanceOf[SerdeAware] &&
+            expr.isInstanceOf[CodegenFallback] =>
+        // Evaluate the child without serializing its result. This is only possible when the
+        // child is evaluated using the input row, which is the case for CodegenFallback children.
+        val exprRef = ctx.addReferenceObj("expr", expr, classOf[SerdeAware].getName)
+        val isNull = ctx.freshName("isNull")
+        val code = s"""
+          |$geometryClass $value = ($geometryClass) $exprRef.evalWithoutSerialization(${ctx.INPUT_ROW});
+          |boolean $isNull = $value == null;""".stripMargin
+        (isNull, value, code)
+      case _: GeometryUDT =>
+        val exprCode = expr.genCode(ctx)
+        val code = s"""
+          |${exprCode.code}
+          |$geometryClass $value = null;
+          |if (!${exprCode.isNull}) {
+          |  $value = $geometrySerializerClass.deserialize(${exprCode.value});
+          |}""".stripMargin
+        (exprCode.isNull.toString, value, code)
+      case StringType =>
+        val exprCode = expr.genCode(ctx)
+        val code = s"""
+          |${exprCode.code}
+          |String $value = ${exprCode.isNull} ? null : ${exprCode.value}.toString();""".stripMargin
+        (exprCode.isNull.toString, value, code)
+      case DoubleType | IntegerType | LongType | BooleanType =>
+        val exprCode = expr.genCode(ctx)
+        (exprCode.isNull.toString, exprCode.value.toString, exprCode.code.toString)
+      case _ =>
+        throw new IllegalArgumentException(
+          s"Cannot generate code for ${getClass.getName} with argument type $inputType")
+    }
+  }
+
+  private def geometryClass: String = classOf[Geometry].getName
+
+  private def geometrySerializerClass: String =
+    classOf[org.apache.sedona.common.geometrySerde.GeometrySerializer].getName
+}
+
+/**
+ * Common implementation of [[InferredExpression]] and [[CodegenInferredExpression]].
+ * @param fSeq
+ *   The functions to be wrapped, see [[InferredExpression]].
+ */
+abstract class InferredExpressionBase(fSeq: InferrableFunction*)
     extends Expression
     with ImplicitCastInputTypes
     with SerdeAware
-    with CodegenFallback
     with FoldableExpression
     with Serializable {
 
@@ -132,6 +259,18 @@ abstract class InferredExpression(fSeq: InferrableFunction*)
 }
 
 object InferredExpression {
+
+  /**
+   * A variant of [[throwExpressionInferenceException]] for generated code, which could not
+   * easily build Scala collections.
+   */
+  def throwExpressionInferenceException(
+      name: String,
+      inputArgs: Array[AnyRef],
+      e: Exception): Nothing = {
+    throwExpressionInferenceException(name, inputArgs.toSeq, e)
+  }
+
   def throwExpressionInferenceException(
       name: String,
       inputArgs: Seq[Any],
@@ -214,6 +353,8 @@ object InferredTypes {
       expr.toGeographyArray(input)
     } else if (InferredRasterExpression.isRasterType(t)) {
       InferredRasterExpression.rasterExtractor
+    } else if (InferredRasterExpression.isRasterHeaderType(t)) {
+      InferredRasterExpression.rasterHeaderExtractor
     } else if (t =:= typeOf[Array[Double]]) { expr => input =>
       expr.eval(input).asInstanceOf[ArrayData].toDoubleArray()
     } else if (t =:= typeOf[String]) { expr => input =>
@@ -306,7 +447,8 @@ object InferredTypes {
       GeographyUDT
     } else if (t =:= typeOf[Array[Geography]] || t =:= typeOf[java.util.List[Geography]]) {
       DataTypes.createArrayType(GeographyUDT)
-    } else if (InferredRasterExpression.isRasterType(t)) {
+    } else if (InferredRasterExpression.isRasterType(t) ||
+      InferredRasterExpression.isRasterHeaderType(t)) {
       InferredRasterExpression.rasterUDT
     } else if (InferredRasterExpression.isRasterArrayType(t)) {
       InferredRasterExpression.rasterUDTArray
@@ -32,6 +32,13 @@ object InferredRasterExpression {
   def isRasterArrayType(t: Type): Boolean =
     isGeoToolsAvailable && InferrableRasterTypes.isRasterArrayType(t)
 
+  /**
+   * Raster headers are evaluated from rasters without reading their pixels, they are the
+   * arguments of functions that only need the metadata of rasters.
+   */
+  def isRasterHeaderType(t: Type): Boolean =
+    isGeoToolsAvailable && InferrableRasterTypes.isRasterHeaderType(t)
+
   def rasterUDT: UserDefinedType[_] = if (isGeoToolsAvailable) {
     InferrableRasterTypes.rasterUDT
   } else {
@@ -50,6 +57,12 @@ object InferredRasterExpression {
     null
   }
 
+  val rasterHeaderExtractor: Expression => InternalRow => Any = if (isGeoToolsAvailable) {
+    InferrableRasterTypes.rasterHeaderExtractor
+  } else { _ => _ =>
+    null
+  }
+
   val rasterSerializer: Any => Any = if (isGeoToolsAvailable) {
     InferrableRasterTypes.rasterSerializer
   } else { (_: Any) =>
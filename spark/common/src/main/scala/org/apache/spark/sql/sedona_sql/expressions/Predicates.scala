@@ -18,14 +18,17 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions
 
-import org.apache.sedona.common.Predicates
+import org.apache.sedona.common.{Predicates, geometrySerde}
+import org.apache.sedona.core.spatialOperator.{SpatialPredicate, SpatialPredicateEvaluators}
 import org.apache.sedona.sql.utils.GeometrySerializer
 import org.apache.spark.sql.catalyst.InternalRow
-import org.apache.spark.sql.catalyst.expressions.codegen.CodegenFallback
+import org.apache.spark.sql.catalyst.expressions.codegen.{CodegenContext, ExprCode}
+import org.apache.spark.sql.catalyst.expressions.codegen.Block.BlockHelper
 import org.apache.spark.sql.catalyst.expressions.{ExpectsInputTypes, Expression}
 import org.apache.spark.sql.sedona_sql.UDT.GeometryUDT
 import org.apache.spark.sql.types.{AbstractDataType, BooleanType, DataType}
-import org.locationtech.jts.geom.Geometry
+import org.locationtech.jts.geom.{Envelope, Geometry}
+import org.locationtech.jts.geom.prep.{PreparedGeometry, PreparedGeometryFactory}
 import org.apache.spark.sql.sedona_sql.expressions.InferrableFunctionConverter._
 
 abstract class ST_Predicate
@@ -46,7 +49,177 @@ abstract class ST_Predicate
 
   override def children: Seq[Expression] = inputExpressions
 
+  /**
+   * The spatial predicate evaluated by this expression. When one of the arguments is a constant,
+   * the constant geometry is deserialized only once and wrapped in a [[PreparedGeometry]], which
+   * is then evaluated against the geometry of each row using the evaluator of this predicate.
+   * Predicates returning None here are always evaluated using [[evalGeom]].
+   */
+  protected def spatialPredicate: Option[SpatialPredicate] = None
+
+  /**
+   * Build an evaluator for evaluating this predicate against a prepared constant geometry.
+   * @param preparedOnLeft
+   *   whether the prepared geometry is the left argument of this predicate
+   * @return
+   *   the evaluator, or None if this predicate does not support prepared geometries
+   */
+  protected def preparedEvaluator(
+      preparedOnLeft: Boolean): Option[(PreparedGeometry, Geometry) => Boolean] = {
+    spatialPredicate.map { predicate =>
+      val evaluator = if (preparedOnLeft) {
+        SpatialPredicateEvaluators.create(predicate)
+      } else {
+        SpatialPredicateEvaluators.create(SpatialPredicate.inverse(predicate))
+      }
+      (prepared: PreparedGeometry, geom: Geometry) => evaluator.eval(prepared, geom)
+    }
+  }
+
+  /**
+   * The result of this predicate when both geometries are non-empty and their envelopes do not
+   * intersect, or None if the result cannot be determined by comparing envelopes. This allows
+   * skipping deserialization of geometries whose envelopes could be read cheaply from the
+   * serialized bytes.
+   */
+  protected def disjointEnvelopeResult: Option[Boolean] = spatialPredicate.map(_ => false)
+
+  // Using transient lazy val to prepare the constant argument once per task
+  @transient private lazy val preparedArgument: Option[PreparedArgument] = {
+    val constantIndex = inputExpressions.indexWhere(_.foldable)
+    if (constantIndex < 0) {
+      None
+    } else {
+      preparedEvaluator(constantIndex == 0).flatMap { evaluator =>
+        val bytes = inputExpressions(constantIndex).eval().asInstanceOf[Array[Byte]]
+        if (bytes == null) {
+          None
+        } else {
+          val geometry = GeometrySerializer.deserialize(bytes)
+          val prepared = PreparedGeometryFactory.prepare(geometry)
+          Some(
+            PreparedArgument(
+              prepared,
+              constantIndex == 0,
+              inputExpressions(1 - constantIndex),
+              evaluator))
+        }
+      }
+    }
+  }
+
+  /**
+   * Name of the static method in [[Predicates]] evaluating this predicate. Generated code calls
+   * this method directly when none of the arguments is prepared.
+   */
+  protected def predicateFunction: String
+
   override final def eval(inputRow: InternalRow): Any = {
+    preparedArgument match {
+      case Some(argument) =>
+        evalWithPreparedArgument(
+          argument.otherExpression.eval(inputRow).asInstanceOf[Array[Byte]],
+          argument)
+      case None => evalWithoutPreparedArgument(inputRow)
+    }
+  }
+
+  /**
+   * Evaluate this predicate against the prepared constant argument. This is called by generated
+   * code for each row when one of the arguments is a constant.
+   * @param array
+   *   the serialized geometry of the non-constant argument
+   * @return
+   *   the result of this predicate, or null if any of the arguments is null
+   */
+  private[expressions] def evalPrepared(array: Array[Byte]): Any = {
+    preparedArgument match {
+      case Some(argument) => evalWithPreparedArgument(array, argument)
+      // The constant argument is null
+      case None => null
+    }
+  }
+
+  override protected def doGenCode(ctx: CodegenContext, ev: ExprCode): ExprCode = {
+    val predicateRef = ctx.addReferenceObj("predicate", this)
+    val constantIndex = inputExpressions.indexWhere(_.foldable)
+    if (constantIndex >= 0 && preparedEvaluator(constantIndex == 0).isDefined) {
+      val other = inputExpressions(1 - constantIndex).genCode(ctx)
+      val result = ctx.freshName("result")
+      ev.copy(code = code"""
+        ${other.code}
+        boolean ${ev.isNull} = true;
+        boolean ${ev.value} = false;
+        if (!${other.isNull}) {
+          Object $result = $predicateRef.evalPrepared(${other.value});
+          if ($result != null) {
+            ${ev.isNull} = false;
+            ${ev.value} = (java.lang.Boolean) $result;
+          }
+        }""")
+    } else {
+      val left = inputExpressions(0).genCode(ctx)
+      val right = inputExpressions(1).genCode(ctx)
+      val geometryClass = classOf[Geometry].getName
+      val serializerClass = classOf[geometrySerde.GeometrySerializer].getName
+      val leftGeometry = ctx.freshName("leftGeometry")
+      val rightGeometry = ctx.freshName("rightGeometry")
+      val exception = ctx.freshName("e")
+      val envelopeCheck = disjointEnvelopeResult match {
+        case Some(disjointResult) =>
+          s"""if ($predicateRef.isDisjoint(${left.value}, ${right.value})) {
+             |  ${ev.value} = $disjointResult;
+             |} else""".stripMargin
+        case None => ""
+      }
+      ev.copy(code = code"""
+        ${left.code}
+        boolean ${ev.isNull} = true;
+        boolean ${ev.value} = false;
+        if (!${left.isNull}) {
+          ${right.code}
+          if (!${right.isNull}) {
+            ${ev.isNull} = false;
+            $envelopeCheck {
+              $geometryClass $leftGeometry = $serializerClass.deserialize(${left.value});
+              $geometryClass $rightGeometry = $serializerClass.deserialize(${right.value});
+              try {
+                ${ev.value} = ${classOf[Predicates].getName}.$predicateFunction(
+                  $leftGeometry, $rightGeometry);
+              } catch (Exception $exception) {
+                ${classOf[InferredExpression].getName}.throwExpressionInferenceException(
+                  "${getClass.getSimpleName}",
+                  new Object[] {$leftGeometry, $rightGeometry},
+                  $exception);
+              }
+            }
+          }
+        }""")
+    }
+  }
+
+  private def evalWithPreparedArgument(array: Array[Byte], argument: PreparedArgument): Any = {
+    if (array == null) {
+      null
+    } else if (isDisjoint(argument.prepared.getGeometry.getEnvelopeInternal, array)) {
+      disjointEnvelopeResult.get
+    } else {
+      val geometry = GeometrySerializer.deserialize(array)
+      try {
+        argument.evaluator(argument.prepared, geometry)
+      } catch {
+        case e: Exception =>
+          val constantGeometry = argument.prepared.getGeometry
+          InferredExpression.throwExpressionInferenceException(
+            getClass.getSimpleName,
+            if (argument.preparedOnLeft) Seq(constantGeometry, geometry)
+            else Seq(geometry, constantGeometry),
+            e)
+      }
+    }
+  }
+
+  private def evalWithoutPreparedArgument(inputRow: InternalRow): Any = {
     val leftArray = inputExpressions(0).eval(inputRow).asInstanceOf[Array[Byte]]
     if (leftArray == null) {
       null
@@ -54,6 +227,8 @@ abstract class ST_Predicate
       val rightArray = inputExpressions(1).eval(inputRow).asInstanceOf[Array[Byte]]
       if (rightArray == null) {
         null
+      } else if (isDisjoint(leftArray, rightArray)) {
+        disjointEnvelopeResult.get
       } else {
         val leftGeometry = GeometrySerializer.deserialize(leftArray)
         val rightGeometry = GeometrySerializer.deserialize(rightArray)
@@ -70,17 +245,57 @@ abstract class ST_Predicate
     }
   }
 
+  // Check if the envelopes of both geometries are non-empty and disjoint. Envelopes are only read
+  // when it is cheaper than deserializing the geometries.
+  private[expressions] def isDisjoint(leftArray: Array[Byte], rightArray: Array[Byte]): Boolean = {
+    disjointEnvelopeResult.isDefined && GeometrySerializer.hasBoundingBox(leftArray) &&
+    GeometrySerializer.hasBoundingBox(rightArray) &&
+    isDisjoint(GeometrySerializer.deserializeEnvelope(leftArray), rightArray)
+  }
+
+  private def isDisjoint(envelope: Envelope, array: Array[Byte]): Boolean = {
+    if (disjointEnvelopeResult.isEmpty || envelope.isNull ||
+      !GeometrySerializer.hasBoundingBox(array)) {
+      false
+    } else {
+      val otherEnvelope = GeometrySerializer.deserializeEnvelope(array)
+      !otherEnvelope.isNull && !envelope.intersects(otherEnvelope)
+    }
+  }
+
   def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean
 }
 
+/**
+ * A constant argument of [[ST_Predicate]] prepared for repeated evaluation.
+ *
+ * @param prepared
+ *   the prepared constant geometry
+ * @param preparedOnLeft
+ *   whether the constant geometry is the left argument of the predicate
+ * @param otherExpression
+ *   the non-constant argument evaluated for each row
+ * @param evaluator
+ *   evaluates the predicate against the geometry of the non-constant argument
+ */
+private[expressions] case class PreparedArgument(
+    prepared: PreparedGeometry,
+    preparedOnLeft: Boolean,
+    otherExpression: Expression,
+    evaluator: (PreparedGeometry, Geometry) => Boolean)
+
 /**
  * Test if leftGeometry full contains rightGeometry
  *
  * @param inputExpressions
  */
 private[apache] case class ST_Contains(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "contains"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.CONTAINS)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.contains(leftGeometry, rightGeometry)
@@ -97,8 +312,12 @@ private[apache] case class ST_Contains(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Intersects(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "intersects"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.INTERSECTS)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.intersects(leftGeometry, rightGeometry)
@@ -115,8 +334,12 @@ private[apache] case class ST_Intersects(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Within(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "within"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.WITHIN)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.within(leftGeometry, rightGeometry)
@@ -133,8 +356,12 @@ private[apache] case class ST_Within(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Covers(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "covers"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.COVERS)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.covers(leftGeometry, rightGeometry)
@@ -151,8 +378,12 @@ private[apache] case class ST_Covers(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_CoveredBy(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "coveredBy"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.COVERED_BY)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.coveredBy(leftGeometry, rightGeometry)
@@ -169,8 +400,12 @@ private[apache] case class ST_CoveredBy(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Crosses(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "crosses"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.CROSSES)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.crosses(leftGeometry, rightGeometry)
@@ -187,8 +422,12 @@ private[apache] case class ST_Crosses(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Overlaps(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "overlaps"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.OVERLAPS)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.overlaps(leftGeometry, rightGeometry)
@@ -205,8 +444,12 @@ private[apache] case class ST_Overlaps(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Touches(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "touches"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.TOUCHES)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.touches(leftGeometry, rightGeometry)
@@ -241,8 +484,12 @@ private[apache] case class ST_RelateMatch(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Equals(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "equals"
+
+  override protected def spatialPredicate: Option[SpatialPredicate] =
+    Some(SpatialPredicate.EQUALS)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     // Returns GeometryCollection object
@@ -260,8 +507,15 @@ private[apache] case class ST_Equals(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_Disjoint(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "disjoint"
+
+  override protected def preparedEvaluator(
+      preparedOnLeft: Boolean): Option[(PreparedGeometry, Geometry) => Boolean] =
+    Some((prepared: PreparedGeometry, geom: Geometry) => prepared.disjoint(geom))
+
+  override protected def disjointEnvelopeResult: Option[Boolean] = Some(true)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.disjoint(leftGeometry, rightGeometry)
@@ -278,8 +532,11 @@ private[apache] case class ST_Disjoint(inputExpressions: Seq[Expression])
  * @param inputExpressions
  */
 private[apache] case class ST_OrderingEquals(inputExpressions: Seq[Expression])
-    extends ST_Predicate
-    with CodegenFallback {
+    extends ST_Predicate {
+
+  override protected def predicateFunction: String = "orderingEquals"
+
+  override protected def disjointEnvelopeResult: Option[Boolean] = Some(false)
 
   override def evalGeom(leftGeometry: Geometry, rightGeometry: Geometry): Boolean = {
     Predicates.orderingEquals(leftGeometry, rightGeometry)
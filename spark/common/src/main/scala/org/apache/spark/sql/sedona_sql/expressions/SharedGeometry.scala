@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.expressions
+
+import org.apache.sedona.sql.utils.GeometrySerializer
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.UnsafeRow
+import org.apache.spark.sql.catalyst.expressions.codegen.{CodegenContext, ExprCode}
+import org.apache.spark.sql.catalyst.expressions.{Expression, UnaryExpression}
+import org.apache.spark.sql.types.DataType
+import org.apache.spark.util.LongAccumulator
+import org.locationtech.jts.geom.Geometry
+
+/**
+ * Marker for expressions which never modify the geometries passed as their arguments. Geometries
+ * deserialized for these expressions could be shared with other expressions evaluated on the
+ * same row, see [[SharedGeometry]].
+ */
+trait ReadOnlyGeometryInputs extends InferredExpressionBase
+
+/**
+ * Wraps a geometry expression referenced by several expressions of the same operator. The
+ * serialized geometry is deserialized once per row and the deserialized geometry is passed to all
+ * parent expressions through [[evalWithoutSerialization]]. This expression is inserted by
+ * [[org.apache.spark.sql.sedona_sql.optimization.ShareGeometryDeserialization]], and its parents
+ * must not modify the shared geometry.
+ *
+ * @param child
+ *   the geometry expression to share
+ * @param cache
+ *   the cache shared by all occurrences of this expression in the operator
+ */
+private[apache] case class SharedGeometry(child: Expression, cache: SharedGeometryCache)
+    extends UnaryExpression
+    with SerdeAware {
+
+  override def dataType: DataType = child.dataType
+
+  override def nullable: Boolean = child.nullable
+
+  override def toString: String = s"SharedGeometry($child)"
+
+  override def eval(input: InternalRow): Any = child.eval(input)
+
+  override def evalWithoutSerialization(input: InternalRow): Any =
+    cache.deserialize(input, child.eval(input).asInstanceOf[Array[Byte]])
+
+  // Generated code of parent expressions which are not aware of this expression simply uses the
+  // serialized geometry
+  override protected def doGenCode(ctx: CodegenContext, ev: ExprCode): ExprCode =
+    child.genCode(ctx)
+
+  override protected def withNewChildInternal(newChild: Expression): Expression =
+    copy(child = newChild)
+}
+
+/**
+ * Remembers the last deserialized geometry of a [[SharedGeometry]]. The cache is shared by all
+ * copies of the same [[SharedGeometry]] expression evaluated in a task, since they are serialized
+ * along with the operator.
+ *
+ * The cached geometry is reused for the parent expressions evaluated on the same row. Operators
+ * often reuse the same row object for the next row, so the serialized geometry of a row that
+ * looks like the last one is compared with the last serialized geometry before reusing the
+ * cached geometry. Rows that are obviously different from the last one are deserialized right
+ * away.
+ *
+ * In whole-stage generated code the row is unknown, but the shared geometry is evaluated once per
+ * row into a variable read by all parent expressions, so they all pass the same array. The same
+ * array is therefore reused without being compared when the row is unknown.
+ *
+ * @param deserializationsSaved
+ *   metric for the number of deserializations saved by reusing the cached geometry
+ */
+private[apache] class SharedGeometryCache(val deserializationsSaved: LongAccumulator)
+    extends Serializable {
+  @transient private var lastRow: InternalRow = _
+  @transient private var lastRowBaseObject: AnyRef = _
+  @transient private var lastRowBaseOffset: Long = _
+  @transient private var lastBinary: Array[Byte] = _
+  @transient private var lastGeometry: Geometry = _
+
+  /**
+   * Deserializes a geometry, or returns the geometry deserialized for the last parent expression
+   * if it was evaluated on the same row.
+   *
+   * @param row
+   *   the row the geometry was evaluated on, or null when it is unknown, as in whole-stage
+   *   generated code
+   * @param binary
+   *   the serialized geometry
+   * @return
+   *   the deserialized geometry
+   */
+  def deserialize(row: InternalRow, binary: Array[Byte]): Geometry = {
+    if (binary == null) {
+      null
+    } else if (mayBeLastRow(row) && ((row == null) || (binary ne lastBinary)) &&
+      java.util.Arrays.equals(binary, lastBinary)) {
+      deserializationsSaved.add(1)
+      lastGeometry
+    } else {
+      lastGeometry = GeometrySerializer.deserialize(binary)
+      // Serialized geometries are fresh arrays which are not modified afterwards, so the binary is
+      // kept without being copied. Outside of generated code, a binary returned twice as the same
+      // array may have been modified in between, which is why it is not considered equal to the
+      // last one. Arrays.equals returns right away for the same array.
+      lastBinary = binary
+      lastRow = row
+      row match {
+        case unsafeRow: UnsafeRow =>
+          lastRowBaseObject = unsafeRow.getBaseObject
+          lastRowBaseOffset = unsafeRow.getBaseOffset
+        case _ =>
+          lastRowBaseObject = null
+      }
+      lastGeometry
+    }
+  }
+
+  // Whether the row could be the row the last geometry was deserialized from. Rows that are
+  // different objects, or unsafe rows pointing to different memory, are different rows.
+  private def mayBeLastRow(row: InternalRow): Boolean = {
+    lastBinary != null && (row eq lastRow) && (row match {
+      case unsafeRow: UnsafeRow =>
+        (unsafeRow.getBaseObject eq lastRowBaseObject) &&
+        unsafeRow.getBaseOffset == lastRowBaseOffset
+      case _ => true
+    })
+  }
+}
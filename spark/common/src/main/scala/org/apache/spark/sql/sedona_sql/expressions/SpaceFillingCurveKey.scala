@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.expressions
+
+import org.apache.sedona.common.geometrySerde.GeometrySerializer
+import org.apache.sedona.core.spatialPartitioning.HilbertPartitioning
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{Expression, UnaryExpression}
+import org.apache.spark.sql.catalyst.expressions.codegen.CodegenFallback
+import org.apache.spark.sql.types.{DataType, LongType}
+import org.locationtech.jts.geom.Envelope
+
+/**
+ * Position of the center of the bounding box of a geometry along a space filling curve. Sorting
+ * geometries by this key places nearby geometries close to each other.
+ *
+ * When the extent of the data is known, the coordinates are mapped linearly to a grid of 2^31 x
+ * 2^31 cells covering the extent. Otherwise the curve does not depend on the extent of the data:
+ * the coordinates are mapped to the most significant 31 bits of their order-preserving IEEE 754
+ * representation, which gives a resolution relative to the magnitude of the coordinates (about
+ * 1e-4 for longitudes between 64 and 128 degrees). Empty and null geometries have a null key.
+ *
+ * @param child
+ *   the serialized geometry
+ * @param curve
+ *   the space filling curve, either `hilbert` or `zorder`
+ * @param extent
+ *   the extent of the data, if known. Coordinates outside of the extent are clamped to it.
+ */
+private[apache] case class SpaceFillingCurveKey(
+    child: Expression,
+    curve: String,
+    extent: Option[Envelope] = None)
+    extends UnaryExpression
+    with CodegenFallback {
+
+  require(
+    SpaceFillingCurveKey.curves.contains(curve),
+    s"Unsupported space filling curve: $curve. Supported curves: " +
+      SpaceFillingCurveKey.curves.mkString(", "))
+
+  override def nullable: Boolean = true
+
+  override def dataType: DataType = LongType
+
+  override def eval(input: InternalRow): Any = {
+    val bytes = child.eval(input).asInstanceOf[Array[Byte]]
+    if (bytes == null) {
+      return null
+    }
+    val envelope = GeometrySerializer.deserializeEnvelope(bytes)
+    if (envelope.isNull) {
+      null
+    } else {
+      val centerX = (envelope.getMinX + envelope.getMaxX) / 2
+      val centerY = (envelope.getMinY + envelope.getMaxY) / 2
+      val (x, y) = extent match {
+        case Some(e) =>
+          (
+            SpaceFillingCurveKey.toGridCoordinate(centerX, e.getMinX, e.getMaxX),
+            SpaceFillingCurveKey.toGridCoordinate(centerY, e.getMinY, e.getMaxY))
+        case None =>
+          (
+            SpaceFillingCurveKey.toGridCoordinate(centerX),
+            SpaceFillingCurveKey.toGridCoordinate(centerY))
+      }
+      if (curve == SpaceFillingCurveKey.HILBERT) {
+        HilbertPartitioning.computeHValue(SpaceFillingCurveKey.GRID_SIZE, x, y)
+      } else {
+        SpaceFillingCurveKey.interleave(x, y)
+      }
+    }
+  }
+
+  protected def withNewChildInternal(newChild: Expression): Expression =
+    copy(child = newChild)
+}
+
+private[apache] object SpaceFillingCurveKey {
+  val HILBERT = "hilbert"
+  val ZORDER = "zorder"
+  val curves: Seq[String] = Seq(HILBERT, ZORDER)
+
+  private val GRID_BITS = 31
+  private val GRID_SIZE = 1L << GRID_BITS
+
+  /**
+   * Map a coordinate to a cell of the grid. The mapping preserves the order of the coordinates.
+   */
+  def toGridCoordinate(value: Double): Long = {
+    val bits = java.lang.Double.doubleToLongBits(value)
+    // Flip the bits of negative numbers and the sign bit of positive numbers, so that the
+    // unsigned order of the result is the order of the doubles
+    val sortable = if (bits < 0) ~bits else bits ^ Long.MinValue
+    sortable >>> (64 - GRID_BITS)
+  }
+
+  /**
+   * Map a coordinate to a cell of the grid covering the range from `min` to `max`.
+   */
+  def toGridCoordinate(value: Double, min: Double, max: Double): Long = {
+    if (max <= min) {
+      0L
+    } else {
+      val cell = ((value - min) / (max - min) * GRID_SIZE).toLong
+      Math.max(0L, Math.min(GRID_SIZE - 1, cell))
+    }
+  }
+
+  /**
+   * Interleave the bits of the grid coordinates into a Z-order value
+   */
+  def interleave(x: Long, y: Long): Long = {
+    var z = 0L
+    var i = 0
+    while (i < GRID_BITS) {
+      z |= ((x >>> i) & 1L) << (2 * i)
+      z |= ((y >>> i) & 1L) << (2 * i + 1)
+      i += 1
+    }
+    z
+  }
+}
@@ -18,22 +18,128 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions.raster
 
-import org.apache.sedona.common.raster.{RasterAccessors, RasterBandAccessors}
+import org.apache.sedona.common.raster.serde.Serde
 import org.apache.sedona.common.utils.RasterUtils
-import org.apache.sedona.sql.utils.RasterSerializer
 import org.apache.spark.sql.Encoder
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder
 import org.apache.spark.sql.expressions.Aggregator
 import org.geotools.coverage.grid.GridCoverage2D
 
-import java.awt.image.WritableRaster
+import java.awt.image.{ComponentSampleModel, DataBuffer, DataBufferByte, DataBufferDouble, DataBufferFloat, DataBufferInt, DataBufferShort, DataBufferUShort}
 import javax.media.jai.RasterFactory
 import scala.collection.mutable.ArrayBuffer
+import scala.reflect.ClassTag
 
-case class BandData(index: Int, width: Int, height: Int, serializedRaster: Array[Byte])
+/**
+ * The bands of a raster aggregated by RS_Union_Aggr. The pixels of each band are kept in a
+ * primitive array of the data type of the raster, in the field matching that data type, and the
+ * metadata of the raster is kept apart from them.
+ */
+case class BandData(
+    index: Int,
+    width: Int,
+    height: Int,
+    dataType: Int,
+    metadata: Array[Byte],
+    byteBands: Array[Array[Byte]] = null,
+    shortBands: Array[Array[Short]] = null,
+    intBands: Array[Array[Int]] = null,
+    floatBands: Array[Array[Float]] = null,
+    doubleBands: Array[Array[Double]] = null) {
+
+  def numBands: Int = dataType match {
+    case DataBuffer.TYPE_BYTE => byteBands.length
+    case DataBuffer.TYPE_USHORT | DataBuffer.TYPE_SHORT => shortBands.length
+    case DataBuffer.TYPE_INT => intBands.length
+    case DataBuffer.TYPE_FLOAT => floatBands.length
+    case _ => doubleBands.length
+  }
+
+  /** Reads a sample of a band the same way as the sample model of the original raster. */
+  def sample(band: Int, i: Int): Double = dataType match {
+    case DataBuffer.TYPE_BYTE => byteBands(band)(i) & 0xff
+    case DataBuffer.TYPE_USHORT => shortBands(band)(i) & 0xffff
+    case DataBuffer.TYPE_SHORT => shortBands(band)(i)
+    case DataBuffer.TYPE_INT => intBands(band)(i)
+    case DataBuffer.TYPE_FLOAT => floatBands(band)(i)
+    case _ => doubleBands(band)(i)
+  }
+}
+
+object BandData {
+  def apply(index: Int, raster: GridCoverage2D): BandData = {
+    val data = RasterUtils.getRaster(raster.getRenderedImage)
+    val width = data.getWidth
+    val height = data.getHeight
+    val numBands = data.getNumBands
+    val dataType = data.getDataBuffer.getDataType
+    val metadata = Serde.serializeMetadata(raster)
+    val size = width * height
+
+    def samples(band: Int): Array[Int] =
+      data.getSamples(data.getMinX, data.getMinY, width, height, band, new Array[Int](size))
+
+    // Copies the samples of a band row by row from its bank, if the samples of each row are
+    // adjacent in the bank
+    def bankSamples[T: ClassTag](band: Int, bank: Int => Array[T]): Option[Array[T]] =
+      data.getSampleModel match {
+        case sampleModel: ComponentSampleModel if sampleModel.getPixelStride == 1 =>
+          val bankIndex = sampleModel.getBankIndices()(band)
+          val source = bank(bankIndex)
+          val offset = data.getDataBuffer.getOffsets()(bankIndex) + sampleModel.getOffset(
+            data.getMinX - data.getSampleModelTranslateX,
+            data.getMinY - data.getSampleModelTranslateY,
+            band)
+          val target = new Array[T](size)
+          for (row <- 0 until height) {
+            val rowOffset = offset + row * sampleModel.getScanlineStride
+            System.arraycopy(source, rowOffset, target, row * width, width)
+          }
+          Some(target)
+        case _ => None
+      }
+
+    dataType match {
+      case DataBuffer.TYPE_BYTE =>
+        val bands = Array.tabulate(numBands) { b =>
+          val copied = data.getDataBuffer match {
+            case buffer: DataBufferByte => bankSamples(b, buffer.getData)
+            case _ => None
+          }
+          copied.getOrElse(samples(b).map(_.toByte))
+        }
+        BandData(index, width, height, dataType, metadata, byteBands = bands)
+      case DataBuffer.TYPE_USHORT | DataBuffer.TYPE_SHORT =>
+        val bands = Array.tabulate(numBands) { b =>
+          val copied = data.getDataBuffer match {
+            case buffer: DataBufferUShort => bankSamples(b, buffer.getData)
+            case buffer: DataBufferShort => bankSamples(b, buffer.getData)
+            case _ => None
+          }
+          copied.getOrElse(samples(b).map(_.toShort))
+        }
+        BandData(index, width, height, dataType, metadata, shortBands = bands)
+      case DataBuffer.TYPE_INT =>
+        val bands = Array.tabulate(numBands)(samples)
+        BandData(index, width, height, dataType, metadata, intBands = bands)
+      case DataBuffer.TYPE_FLOAT =>
+        val bands = Array.tabulate(numBands) { b =>
+          data.getSamples(data.getMinX, data.getMinY, width, height, b, new Array[Float](size))
+        }
+        BandData(index, width, height, dataType, metadata, floatBands = bands)
+      case _ =>
+        val bands = Array.tabulate(numBands) { b =>
+          data.getSamples(data.getMinX, data.getMinY, width, height, b, new Array[Double](size))
+        }
+        BandData(index, width, height, DataBuffer.TYPE_DOUBLE, metadata, doubleBands = bands)
+    }
+  }
+}
 
 /**
- * Return a raster containing bands at given indexes from all rasters in a given column
+ * Return a raster containing bands at given indexes from all rasters in a given column. The
+ * pixels of the input rasters are copied once into primitive band arrays when they are reduced,
+ * and these arrays become the banks of the data buffer of the result without being copied again.
  */
 class RS_Union_Aggr
     extends Aggregator[(GridCoverage2D, Int), ArrayBuffer[BandData], GridCoverage2D] {
@@ -44,22 +150,23 @@ class RS_Union_Aggr
       buffer: ArrayBuffer[BandData],
       input: (GridCoverage2D, Int)): ArrayBuffer[BandData] = {
     val (raster, index) = input
-    val renderedImage = raster.getRenderedImage
-    val width = renderedImage.getWidth
-    val height = renderedImage.getHeight
-    val serializedRaster = RasterSerializer.serialize(raster)
-    raster.dispose(true)
+    val bandData =
+      try {
+        BandData(index, raster)
+      } finally {
+        raster.dispose(true)
+      }
 
     // First check if this is the first raster to set dimensions or validate against existing dimensions
     if (buffer.nonEmpty) {
       val refWidth = buffer.head.width
       val refHeight = buffer.head.height
-      if (width != refWidth || height != refHeight) {
+      if (bandData.width != refWidth || bandData.height != refHeight) {
         throw new IllegalArgumentException("All rasters must have the same dimensions")
       }
     }
 
-    buffer += BandData(index, width, height, serializedRaster)
+    buffer += bandData
     buffer
   }
 
@@ -89,48 +196,66 @@ class RS_Union_Aggr
       throw new IllegalArgumentException("Index should be in an arithmetic sequence.")
     }
 
-    val rasters = sortedMerged.map(d => RasterSerializer.deserialize(d.serializedRaster))
-    try {
-      val gridSampleDimensions = rasters.flatMap(_.getSampleDimensions).toArray
-      val totalBands = rasters.map(_.getNumSampleDimensions).sum
-      val referenceRaster = rasters.head
-      val width = RasterAccessors.getWidth(referenceRaster)
-      val height = RasterAccessors.getHeight(referenceRaster)
-      val dataTypeCode =
-        RasterUtils.getRaster(referenceRaster.getRenderedImage).getDataBuffer.getDataType
-      val resultRaster: WritableRaster =
-        RasterFactory.createBandedRaster(dataTypeCode, width, height, totalBands, null)
-
-      var currentBand = 0
-      rasters.foreach { raster =>
-        var bandIndex = 0
-        while (bandIndex < raster.getNumSampleDimensions) {
-          if (RasterUtils.isDataTypeIntegral(dataTypeCode)) {
-            val band = RasterUtils
-              .getRaster(raster.getRenderedImage)
-              .getSamples(0, 0, width, height, bandIndex, new Array[Int](width * height))
-            resultRaster.setSamples(0, 0, width, height, currentBand, band)
-          } else {
-            val band = RasterUtils
-              .getRaster(raster.getRenderedImage)
-              .getSamples(0, 0, width, height, bandIndex, new Array[Double](width * height))
-            resultRaster.setSamples(0, 0, width, height, currentBand, band)
+    val metadata = sortedMerged.map(d => Serde.deserializeMetadata(d.metadata))
+    val gridSampleDimensions = metadata.flatMap(_.getBands).toArray
+    val reference = sortedMerged.head
+    val width = reference.width
+    val height = reference.height
+    val dataType = reference.dataType
+    val dataBuffer = toDataBuffer(sortedMerged, dataType, width * height)
+    val numBands = gridSampleDimensions.length
+    val resultRaster = RasterFactory.createBandedRaster(
+      dataBuffer,
+      width,
+      height,
+      width,
+      Array.range(0, numBands),
+      new Array[Int](numBands),
+      null)
+
+    val noDataValue = RasterUtils.getNoDataValue(metadata.head.getBands()(0)) match {
+      case value if value.isNaN => null
+      case value => java.lang.Double.valueOf(value)
+    }
+    RasterUtils.create(
+      resultRaster,
+      metadata.head.getGridGeometry,
+      gridSampleDimensions,
+      noDataValue)
+  }
+
+  /**
+   * Builds a data buffer whose banks are the bands of the rasters. Bands of the type of the
+   * result are used as they are, and only the bands of other types are converted.
+   */
+  private def toDataBuffer(rasters: Seq[BandData], dataType: Int, size: Int): DataBuffer = {
+    def banks[T: ClassTag](
+        sameType: BandData => Array[Array[T]],
+        convert: Double => T): Array[Array[T]] = {
+      rasters.flatMap { raster =>
+        if (raster.dataType == dataType) {
+          sameType(raster).toSeq
+        } else {
+          (0 until raster.numBands).map { b =>
+            Array.tabulate(size)(i => convert(raster.sample(b, i)))
           }
-          currentBand += 1
-          bandIndex += 1
         }
-      }
+      }.toArray
+    }
 
-      val noDataValue = RasterBandAccessors.getBandNoDataValue(referenceRaster)
-      RasterUtils.clone(
-        resultRaster,
-        referenceRaster.getGridGeometry,
-        gridSampleDimensions,
-        referenceRaster,
-        noDataValue,
-        false)
-    } finally {
-      rasters.foreach(_.dispose(true))
+    dataType match {
+      case DataBuffer.TYPE_BYTE =>
+        new DataBufferByte(banks(_.byteBands, _.toInt.toByte), size)
+      case DataBuffer.TYPE_USHORT =>
+        new DataBufferUShort(banks(_.shortBands, _.toInt.toShort), size)
+      case DataBuffer.TYPE_SHORT =>
+        new DataBufferShort(banks(_.shortBands, _.toInt.toShort), size)
+      case DataBuffer.TYPE_INT =>
+        new DataBufferInt(banks(_.intBands, _.toInt), size)
+      case DataBuffer.TYPE_FLOAT =>
+        new DataBufferFloat(banks(_.floatBands, _.toFloat), size)
+      case _ =>
+        new DataBufferDouble(banks(_.doubleBands, identity), size)
     }
   }
 
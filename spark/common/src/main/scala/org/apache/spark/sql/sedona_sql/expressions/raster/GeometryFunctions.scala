@@ -18,7 +18,7 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions.raster
 
-import org.apache.sedona.common.raster.GeometryFunctions
+import org.apache.sedona.common.raster.{GeometryFunctions, RasterHeader}
 import org.apache.spark.sql.catalyst.expressions.Expression
 import org.apache.spark.sql.sedona_sql.expressions.InferredExpression
 import org.apache.spark.sql.sedona_sql.expressions.InferrableFunctionConverter._
@@ -32,7 +32,7 @@ private[apache] case class RS_ConvexHull(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class RS_Envelope(inputExpressions: Seq[Expression])
-    extends InferredExpression(GeometryFunctions.envelope _) {
+    extends InferredExpression(GeometryFunctions.envelope(_: RasterHeader)) {
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
   }
@@ -18,28 +18,28 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions.raster
 
-import org.apache.sedona.common.raster.RasterAccessors
+import org.apache.sedona.common.raster.{RasterAccessors, RasterHeader}
 import org.apache.spark.sql.catalyst.expressions.Expression
 import org.apache.spark.sql.sedona_sql.expressions.InferrableFunctionConverter._
 import org.apache.spark.sql.sedona_sql.expressions.InferrableRasterTypes._
 import org.apache.spark.sql.sedona_sql.expressions.InferredExpression
 
 private[apache] case class RS_NumBands(inputExpressions: Seq[Expression])
-    extends InferredExpression(RasterAccessors.numBands _) {
+    extends InferredExpression(RasterAccessors.numBands(_: RasterHeader)) {
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
   }
 }
 
 private[apache] case class RS_SRID(inputExpressions: Seq[Expression])
-    extends InferredExpression(RasterAccessors.srid _) {
+    extends InferredExpression(RasterAccessors.srid(_: RasterHeader)) {
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
   }
 }
 
 private[apache] case class RS_Width(inputExpressions: Seq[Expression])
-    extends InferredExpression(RasterAccessors.getWidth _) {
+    extends InferredExpression(RasterAccessors.getWidth(_: RasterHeader)) {
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
   }
@@ -60,7 +60,7 @@ private[apache] case class RS_UpperLeftY(inputExpressions: Seq[Expression])
 }
 
 private[apache] case class RS_Height(inputExpressions: Seq[Expression])
-    extends InferredExpression(RasterAccessors.getHeight _) {
+    extends InferredExpression(RasterAccessors.getHeight(_: RasterHeader)) {
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]) = {
     copy(inputExpressions = newChildren)
   }
@@ -82,8 +82,8 @@ private[apache] case class RS_ScaleY(inputExpressions: Seq[Expression])
 
 private[apache] case class RS_GeoReference(inputExpressions: Seq[Expression])
     extends InferredExpression(
-      inferrableFunction2(RasterAccessors.getGeoReference),
-      inferrableFunction1(RasterAccessors.getGeoReference)) {
+      inferrableFunction2(RasterAccessors.getGeoReference(_: RasterHeader, _: String)),
+      inferrableFunction1(RasterAccessors.getGeoReference(_: RasterHeader))) {
   protected def withNewChildrenInternal(newChildren: IndexedSeq[Expression]): Expression = {
     copy(inputExpressions = newChildren)
   }
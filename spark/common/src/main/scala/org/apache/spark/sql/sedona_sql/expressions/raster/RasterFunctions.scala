@@ -19,13 +19,16 @@
 package org.apache.spark.sql.sedona_sql.expressions.raster
 
 import org.apache.sedona.common.raster.{RasterAccessors, RasterBandAccessors}
+import org.apache.sedona.sql.utils.GeometrySerializer
 import org.apache.spark.sql.catalyst.InternalRow
-import org.apache.spark.sql.catalyst.expressions.{ExpectsInputTypes, Expression}
+import org.apache.spark.sql.catalyst.expressions.{ExpectsInputTypes, Expression, Generator}
 import org.apache.spark.sql.catalyst.expressions.codegen.CodegenFallback
+import org.apache.spark.sql.catalyst.util.ArrayData
 import org.apache.spark.sql.sedona_sql.UDT.{GeometryUDT, RasterUDT}
 import org.apache.spark.sql.sedona_sql.expressions.implicits.InputExpressionEnhancer
 import org.apache.spark.sql.sedona_sql.expressions.raster.implicits.RasterInputExpressionEnhancer
-import org.apache.spark.sql.types.{AbstractDataType, BooleanType, DataType, DoubleType, IntegerType, StructField, StructType}
+import org.apache.spark.sql.types.{AbstractDataType, ArrayType, BooleanType, DataType, DoubleType, IntegerType, StructField, StructType}
+import org.locationtech.jts.geom.Geometry
 
 private[apache] case class RS_Metadata(inputExpressions: Seq[Expression])
     extends Expression
@@ -50,15 +53,15 @@ private[apache] case class RS_Metadata(inputExpressions: Seq[Expression])
       StructField("tileHeight", IntegerType, nullable = false)))
 
   override def eval(input: InternalRow): Any = {
-    // Evaluate the input expressions
-    val rasterGeom = inputExpressions(0).toRaster(input)
+    // Evaluate the header of the raster, its pixels are not needed
+    val header = inputExpressions(0).toRasterHeader(input)
 
-    // Check if the raster geometry is null
-    if (rasterGeom == null) {
+    // Check if the raster header is null
+    if (header == null) {
       null
     } else {
       // Get the metadata using the Java method
-      val metaData = RasterAccessors.rasterMetadata(rasterGeom)
+      val metaData = RasterAccessors.rasterMetadata(header)
 
       // Create an InternalRow with the metadata
       InternalRow(
@@ -235,6 +238,88 @@ private[apache] case class RS_ZonalStatsAll(inputExpressions: Seq[Expression])
   }
 }
 
+/**
+ * Computes the zonal statistics of an array of zones over a raster, and generates one row per zone
+ * holding the index of the zone in the array and the same statistics as RS_ZonalStatsAll. All the
+ * zones are rasterized into a single label grid which is swept once, so this is much cheaper than
+ * evaluating RS_ZonalStatsAll for each zone. Zones that are null or do not intersect the raster do
+ * not generate rows.
+ */
+private[apache] case class RS_ZonalStatsExplode(inputExpressions: Seq[Expression])
+    extends Generator
+    with CodegenFallback
+    with ExpectsInputTypes {
+
+  override def eval(input: InternalRow): TraversableOnce[InternalRow] = {
+    val raster = inputExpressions(0).toRaster(input)
+    val zoneArray = inputExpressions(1).eval(input).asInstanceOf[ArrayData]
+    if (raster == null || zoneArray == null) {
+      return Nil
+    }
+    val band = if (inputExpressions.length >= 3) {
+      inputExpressions(2).eval(input).asInstanceOf[Int]
+    } else {
+      1
+    }
+    val allTouched = if (inputExpressions.length >= 4) {
+      inputExpressions(3).eval(input).asInstanceOf[Boolean]
+    } else {
+      false
+    }
+    val noData = if (inputExpressions.length >= 5) {
+      inputExpressions(4).eval(input).asInstanceOf[Boolean]
+    } else {
+      true
+    }
+
+    val zones = Array.tabulate[Geometry](zoneArray.numElements()) { i =>
+      if (zoneArray.isNullAt(i)) null else GeometrySerializer.deserialize(zoneArray.getBinary(i))
+    }
+    try {
+      val zonalStats =
+        RasterBandAccessors.getZonalStatsAll(raster, zones, band, allTouched, noData)
+      zonalStats.indices.filter(zonalStats(_) != null).map { i =>
+        InternalRow.fromSeq(i +: zonalStats(i).map(_.asInstanceOf[Any]))
+      }
+    } finally {
+      raster.dispose(true)
+    }
+  }
+
+  override def elementSchema: StructType = StructType(
+    Seq(
+      StructField("index", IntegerType, nullable = false),
+      StructField("count", DoubleType, nullable = false),
+      StructField("sum", DoubleType, nullable = true),
+      StructField("mean", DoubleType, nullable = true),
+      StructField("median", DoubleType, nullable = true),
+      StructField("mode", DoubleType, nullable = true),
+      StructField("stddev", DoubleType, nullable = true),
+      StructField("variance", DoubleType, nullable = true),
+      StructField("min", DoubleType, nullable = true),
+      StructField("max", DoubleType, nullable = true)))
+
+  override def children: Seq[Expression] = inputExpressions
+
+  protected def withNewChildrenInternal(
+      newChildren: IndexedSeq[Expression]): RS_ZonalStatsExplode = {
+    copy(inputExpressions = newChildren)
+  }
+
+  override def inputTypes: Seq[AbstractDataType] = {
+    val zonesType = ArrayType(GeometryUDT)
+    if (inputExpressions.length == 3) {
+      Seq(RasterUDT, zonesType, IntegerType)
+    } else if (inputExpressions.length == 4) {
+      Seq(RasterUDT, zonesType, IntegerType, BooleanType)
+    } else if (inputExpressions.length >= 5) {
+      Seq(RasterUDT, zonesType, IntegerType, BooleanType, BooleanType)
+    } else {
+      Seq(RasterUDT, zonesType)
+    }
+  }
+}
+
 private[apache] case class RS_GeoTransform(inputExpressions: Seq[Expression])
     extends Expression
     with CodegenFallback
@@ -18,6 +18,7 @@
  */
 package org.apache.spark.sql.sedona_sql.expressions.raster
 
+import org.apache.sedona.common.raster.RasterHeader
 import org.apache.sedona.common.raster.serde.Serde
 import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.expressions.Expression
@@ -40,6 +41,26 @@ object implicits {
         }
       }
     }
+
+    /**
+     * Evaluates the header of the input raster. Serialized rasters are not deserialized as a
+     * whole: their pixels are not read.
+     */
+    def toRasterHeader(input: InternalRow): RasterHeader = {
+      if (inputExpression.isInstanceOf[SerdeAware]) {
+        inputExpression
+          .asInstanceOf[SerdeAware]
+          .evalWithoutSerialization(input) match {
+          case raster: GridCoverage2D => RasterHeader.of(raster)
+          case _ => null
+        }
+      } else {
+        inputExpression.eval(input).asInstanceOf[Array[Byte]] match {
+          case binary: Array[Byte] => Serde.deserializeHeader(binary)
+          case _ => null
+        }
+      }
+    }
   }
 
   implicit class RasterEnhancer(raster: GridCoverage2D) {
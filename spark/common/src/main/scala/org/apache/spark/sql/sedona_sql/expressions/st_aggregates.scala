@@ -20,18 +20,13 @@ package org.apache.spark.sql.sedona_sql.expressions
 
 import org.apache.spark.sql.catalyst.expressions.Expression
 import org.apache.spark.sql.Column
+import org.apache.spark.sql.sedona_sql.DataFrameShims._
 import org.apache.spark.sql.functions.{col, udaf}
 
 object st_aggregates {
-  def ST_Envelope_Aggr(geometry: Column): Column = {
-    val aggrFunc = udaf(new ST_Envelope_Aggr)
-    aggrFunc(geometry)
-  }
+  def ST_Envelope_Aggr(geometry: Column): Column = wrapExpression[ST_Envelope_Aggr](geometry)
 
-  def ST_Envelope_Aggr(geometry: String): Column = {
-    val aggrFunc = udaf(new ST_Envelope_Aggr)
-    aggrFunc(col(geometry))
-  }
+  def ST_Envelope_Aggr(geometry: String): Column = wrapExpression[ST_Envelope_Aggr](geometry)
 
   def ST_Intersection_Aggr(geometry: Column): Column = {
     val aggrFunc = udaf(new ST_Intersection_Aggr)
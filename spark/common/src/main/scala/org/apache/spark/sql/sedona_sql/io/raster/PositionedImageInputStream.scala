@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.io.raster
+
+import org.apache.hadoop.fs.FSDataInputStream
+
+import javax.imageio.stream.ImageInputStreamImpl
+
+/**
+ * An ImageInputStream backed by the positioned reads of a Hadoop input stream. Image readers
+ * seek around the file to decode the TIFF directory and the image blocks they need, so only the
+ * byte ranges actually touched are fetched from the underlying file system.
+ *
+ * Small reads such as TIFF directory entries are served from a read-ahead buffer, so that
+ * parsing the header does not turn into one request per field on object stores. Reads larger
+ * than the buffer go straight to the file system.
+ *
+ * @param in
+ *   the Hadoop input stream, closed when this stream is closed
+ * @param fileLength
+ *   the length of the file in bytes
+ * @param bufferSize
+ *   size of the read-ahead buffer in bytes
+ */
+private[io] class PositionedImageInputStream(
+    in: FSDataInputStream,
+    fileLength: Long,
+    bufferSize: Int = 64 * 1024)
+    extends ImageInputStreamImpl {
+
+  private val buffer = new Array[Byte](bufferSize)
+  private var bufferStart = 0L
+  private var bufferLength = 0
+
+  override def read(): Int = {
+    checkClosed()
+    bitOffset = 0
+    if (streamPos >= fileLength || !fillBuffer()) {
+      -1
+    } else {
+      val b = buffer((streamPos - bufferStart).toInt)
+      streamPos += 1
+      b & 0xff
+    }
+  }
+
+  override def read(b: Array[Byte], off: Int, len: Int): Int = {
+    checkClosed()
+    if (off < 0 || len < 0 || off + len > b.length || off + len < 0) {
+      throw new IndexOutOfBoundsException(
+        "off < 0 || len < 0 || off+len > b.length || off+len < 0!")
+    }
+    bitOffset = 0
+    if (len == 0) {
+      return 0
+    }
+    val toRead = math.min(len.toLong, fileLength - streamPos).toInt
+    if (toRead <= 0) {
+      -1
+    } else if (toRead >= bufferSize) {
+      val n = in.read(streamPos, b, off, toRead)
+      if (n > 0) streamPos += n
+      n
+    } else if (!fillBuffer()) {
+      -1
+    } else {
+      val offsetInBuffer = (streamPos - bufferStart).toInt
+      val n = math.min(toRead, bufferLength - offsetInBuffer)
+      System.arraycopy(buffer, offsetInBuffer, b, off, n)
+      streamPos += n
+      n
+    }
+  }
+
+  override def length(): Long = fileLength
+
+  override def close(): Unit = {
+    super.close()
+    in.close()
+  }
+
+  /**
+   * Make sure that the byte at the current stream position is in the buffer.
+   *
+   * @return
+   *   false if the end of the file was reached
+   */
+  private def fillBuffer(): Boolean = {
+    if (streamPos >= bufferStart && streamPos < bufferStart + bufferLength) {
+      true
+    } else {
+      val len = math.min(bufferSize.toLong, fileLength - streamPos).toInt
+      val n = in.read(streamPos, buffer, 0, len)
+      bufferStart = streamPos
+      bufferLength = math.max(n, 0)
+      n > 0
+    }
+  }
+}
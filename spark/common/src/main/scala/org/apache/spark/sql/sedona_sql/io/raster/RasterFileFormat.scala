@@ -18,6 +18,7 @@
  */
 package org.apache.spark.sql.sedona_sql.io.raster
 
+import org.apache.hadoop.conf.Configuration
 import org.apache.hadoop.fs.{FileStatus, Path}
 import org.apache.hadoop.mapreduce.{Job, TaskAttemptContext}
 import org.apache.hadoop.mapreduce.JobContext
@@ -27,22 +28,77 @@ import org.apache.hadoop.mapreduce.lib.output.PathOutputCommitter
 import org.apache.hadoop.mapreduce.lib.output.PathOutputCommitterFactory
 import org.apache.spark.sql.SparkSession
 import org.apache.spark.sql.catalyst.InternalRow
-import org.apache.spark.sql.execution.datasources.{FileFormat, OutputWriter, OutputWriterFactory}
-import org.apache.spark.sql.sources.DataSourceRegister
-import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.execution.datasources.{FileFormat, OutputWriter, OutputWriterFactory, PartitionedFile}
+import org.apache.spark.sql.execution.datasources.geoparquet.GeoParquetSpatialFilter
+import org.apache.spark.sql.sedona_sql.UDT.{GeometryUDT, RasterUDT}
+import org.apache.spark.sql.sources.{DataSourceRegister, Filter}
+import org.apache.spark.sql.types.{IntegerType, StructField, StructType}
+import org.apache.spark.util.SerializableConfiguration
 
 import java.io.IOException
 import java.util.UUID
 
-private[spark] class RasterFileFormat extends FileFormat with DataSourceRegister {
+/**
+ * Reads GeoTIFF files as tiles and writes raster columns back to files. When reading, each file
+ * is cut into tiles aligned with its internal blocks (or with the tileWidth and tileHeight
+ * options), and only the byte ranges of the blocks covered by the requested tiles are read.
+ *
+ * @param spatialFilter
+ *   spatial predicate on the bbox column pushed down by
+ *   [[org.apache.spark.sql.sedona_sql.optimization.SpatialFilterPushDownForRaster]], tiles not
+ *   satisfying it are skipped without being read
+ */
+private[spark] class RasterFileFormat(val spatialFilter: Option[GeoParquetSpatialFilter])
+    extends FileFormat
+    with DataSourceRegister {
+
+  def this() = this(None)
+
+  override def equals(other: Any): Boolean = other.isInstanceOf[RasterFileFormat] &&
+    other.asInstanceOf[RasterFileFormat].spatialFilter == spatialFilter
+
+  override def hashCode(): Int = getClass.hashCode()
+
+  override def toString(): String = {
+    "Raster" + spatialFilter
+      .map(filter => " with spatial filter [" + filter.simpleString + "]")
+      .getOrElse("")
+  }
+
+  def withSpatialPredicates(spatialFilter: GeoParquetSpatialFilter): RasterFileFormat =
+    new RasterFileFormat(Some(spatialFilter))
 
   override def inferSchema(
       sparkSession: SparkSession,
       options: Map[String, String],
-      files: Seq[FileStatus]): Option[StructType] = {
-    throw new UnsupportedOperationException(
-      "Please use 'binaryFile' data source to reading raster files")
-    None
+      files: Seq[FileStatus]): Option[StructType] = Some(RasterFileFormat.readSchema)
+
+  override def isSplitable(
+      sparkSession: SparkSession,
+      options: Map[String, String],
+      path: Path): Boolean = true
+
+  override def buildReader(
+      sparkSession: SparkSession,
+      dataSchema: StructType,
+      partitionSchema: StructType,
+      requiredSchema: StructType,
+      filters: Seq[Filter],
+      options: Map[String, String],
+      hadoopConf: Configuration): PartitionedFile => Iterator[InternalRow] = {
+    val broadcastedHadoopConf =
+      sparkSession.sparkContext.broadcast(new SerializableConfiguration(hadoopConf))
+    val rasterOptions = new RasterOptions(options)
+    val pushedSpatialFilter = spatialFilter
+
+    (file: PartitionedFile) => {
+      new RasterTileReader(
+        file,
+        broadcastedHadoopConf.value.value,
+        rasterOptions,
+        requiredSchema,
+        pushedSpatialFilter)
+    }
   }
 
   override def prepareWrite(
@@ -95,6 +151,20 @@ private[spark] class RasterFileFormat extends FileFormat with DataSourceRegister
 
 }
 
+private[spark] object RasterFileFormat {
+
+  /**
+   * Schema of the rows read from raster files: the tile, its column and row index within the
+   * tile grid of the file, and the footprint of the tile in the CRS of the raster.
+   */
+  val readSchema: StructType = StructType(
+    Seq(
+      StructField("rast", RasterUDT, nullable = false),
+      StructField("x", IntegerType, nullable = false),
+      StructField("y", IntegerType, nullable = false),
+      StructField("bbox", GeometryUDT, nullable = false)))
+}
+
 // class for writing raster images
 private class RasterFileWriter(
     savePath: String,
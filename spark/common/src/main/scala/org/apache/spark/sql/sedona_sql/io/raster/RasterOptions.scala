@@ -32,4 +32,16 @@ private[io] class RasterOptions(@transient private val parameters: CaseInsensiti
   val rasterField = parameters.get("rasterField")
   // Use direct committer to directly write to the final destination
   val useDirectCommitter = parameters.getOrElse("useDirectCommitter", "true").toBoolean
+  // Width of the tiles to read, defaults to a multiple of the internal block width of the image
+  val tileWidth: Option[Int] = parameters.get("tileWidth").map(parseTileSize("tileWidth", _))
+  // Height of the tiles to read, defaults to a multiple of the internal block height of the image
+  val tileHeight: Option[Int] = parameters.get("tileHeight").map(parseTileSize("tileHeight", _))
+
+  private def parseTileSize(name: String, value: String): Int = {
+    val size = value.toInt
+    if (size <= 0) {
+      throw new IllegalArgumentException(s"$name must be positive, but got $size")
+    }
+    size
+  }
 }
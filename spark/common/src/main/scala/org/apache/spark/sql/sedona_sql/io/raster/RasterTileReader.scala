@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.io.raster
+
+import org.apache.hadoop.conf.Configuration
+import org.apache.sedona.common.raster.{RasterAccessors, RasterConstructors}
+import org.apache.sedona.common.utils.RasterUtils
+import org.apache.spark.TaskContext
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow
+import org.apache.spark.sql.execution.datasources.PartitionedFile
+import org.apache.spark.sql.execution.datasources.geoparquet.{GeoParquetSpatialFilter, GeometryFieldMetaData}
+import org.apache.spark.sql.sedona_sql.UDT.{GeometryUDT, RasterUDT}
+import org.apache.spark.sql.types.StructType
+import org.geotools.coverage.grid.GridCoverage2D
+import org.geotools.gce.geotiff.GeoTiffReader
+import org.geotools.util.factory.Hints
+import org.locationtech.jts.geom.{Coordinate, Geometry, GeometryFactory, PrecisionModel}
+
+import java.io.Closeable
+
+/**
+ * Reads the tiles of a GeoTIFF file that belong to a file split.
+ *
+ * The file is opened through positioned reads, and the image is decoded lazily, so that only
+ * the TIFF directory and the image blocks covered by the emitted tiles are fetched. Every split
+ * of the file plans the same tile grid, and a tile is read by the split containing the byte
+ * offset proportional to its index in the grid. This spreads the tiles of a large file over as
+ * many tasks as Spark splits the file into, and reads every tile exactly once.
+ *
+ * @param file
+ *   the file split to read
+ * @param conf
+ *   Hadoop configuration for opening the file
+ * @param options
+ *   raster read options
+ * @param requiredSchema
+ *   the columns to emit, a subset of [[RasterFileFormat.readSchema]]
+ * @param spatialFilter
+ *   pushed down spatial predicate on the bbox column
+ */
+private[io] class RasterTileReader(
+    file: PartitionedFile,
+    conf: Configuration,
+    options: RasterOptions,
+    requiredSchema: StructType,
+    spatialFilter: Option[GeoParquetSpatialFilter])
+    extends Iterator[InternalRow]
+    with Closeable {
+
+  private val path = file.toPath
+  private val fileSystem = path.getFileSystem(conf)
+  private val fileLength =
+    if (file.fileSize > 0) file.fileSize else fileSystem.getFileStatus(path).getLen
+  private val stream = new PositionedImageInputStream(fileSystem.open(path), fileLength)
+  private var closed = false
+  Option(TaskContext.get()).foreach(_.addTaskCompletionListener[Unit](_ => close()))
+
+  private val raster: GridCoverage2D =
+    try {
+      val reader = new GeoTiffReader(
+        stream,
+        new Hints(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, java.lang.Boolean.TRUE))
+      reader.read(null)
+    } catch {
+      case e: Throwable =>
+        close()
+        throw e
+    }
+
+  private val image = raster.getRenderedImage
+  private val width = image.getWidth
+  private val height = image.getHeight
+  private val tileWidth =
+    options.tileWidth.getOrElse(RasterTileReader.defaultTileSize(image.getTileWidth, width))
+  private val tileHeight =
+    options.tileHeight.getOrElse(RasterTileReader.defaultTileSize(image.getTileHeight, height))
+  private val numTileX = (width + tileWidth - 1) / tileWidth
+  private val numTileY = (height + tileHeight - 1) / tileHeight
+  private val numTiles = numTileX.toLong * numTileY
+  private val bandIndices = (1 to raster.getNumSampleDimensions).toArray
+  private val geometryFactory =
+    new GeometryFactory(new PrecisionModel(), RasterAccessors.srid(raster))
+  private val fieldNames = requiredSchema.fieldNames
+
+  private val tiles: Iterator[(Int, Int, Geometry)] = (0L until numTiles).iterator
+    .filter(isInSplit)
+    .map { index =>
+      val tileX = (index % numTileX).toInt
+      val tileY = (index / numTileX).toInt
+      (tileX, tileY, tileFootprint(tileX, tileY))
+    }
+    .filter { case (_, _, footprint) => satisfiesSpatialFilter(footprint) }
+
+  override def hasNext: Boolean = {
+    val more = tiles.hasNext
+    if (!more) close()
+    more
+  }
+
+  override def next(): InternalRow = {
+    val (tileX, tileY, footprint) = tiles.next()
+    val values: Array[Any] = fieldNames.map {
+      case "rast" =>
+        val tile = RasterConstructors
+          .generateTile(raster, bandIndices, tileWidth, tileHeight, tileX, tileY, false, Double.NaN)
+          .getCoverage
+        RasterUDT.serialize(tile)
+      case "x" => tileX
+      case "y" => tileY
+      case "bbox" => GeometryUDT.serialize(footprint)
+      case other => throw new IllegalArgumentException(s"Unknown raster column: $other")
+    }
+    new GenericInternalRow(values)
+  }
+
+  override def close(): Unit = {
+    if (!closed) {
+      closed = true
+      stream.close()
+    }
+  }
+
+  /**
+   * Tiles are assigned to splits by mapping their index to a byte offset proportional to it,
+   * the split containing that offset reads the tile.
+   */
+  private def isInSplit(index: Long): Boolean = {
+    val offset = (index.toDouble * fileLength / numTiles).toLong
+    offset >= file.start && offset < file.start + file.length
+  }
+
+  private def tileFootprint(tileX: Int, tileY: Int): Geometry = {
+    // 1-based pixel coordinates of the upper left and lower right corners of the tile
+    val minCol = tileX * tileWidth + 1
+    val minRow = tileY * tileHeight + 1
+    val maxCol = math.min(minCol + tileWidth, width + 1)
+    val maxRow = math.min(minRow + tileHeight, height + 1)
+    val corners = Seq((minCol, minRow), (maxCol, minRow), (maxCol, maxRow), (minCol, maxRow))
+      .map { case (col, row) =>
+        val point = RasterUtils.getWorldCornerCoordinates(raster, col, row)
+        new Coordinate(point.getX, point.getY)
+      }
+    geometryFactory.createPolygon((corners :+ corners.head).toArray)
+  }
+
+  private def satisfiesSpatialFilter(footprint: Geometry): Boolean = {
+    spatialFilter.forall { filter =>
+      val envelope = footprint.getEnvelopeInternal
+      val bbox = Seq(envelope.getMinX, envelope.getMinY, envelope.getMaxX, envelope.getMaxY)
+      filter.evaluate(Map("bbox" -> GeometryFieldMetaData("WKB", Seq("Polygon"), bbox)))
+    }
+  }
+}
+
+private[io] object RasterTileReader {
+
+  /**
+   * Tiles default to the internal blocks of the image, grown by whole blocks until they are at
+   * least this many pixels wide and high. This keeps striped TIFFs, whose blocks are often a
+   * single row high, from producing one tile per row.
+   */
+  val MinDefaultTileSize = 256
+
+  def defaultTileSize(blockSize: Int, imageSize: Int): Int = {
+    val blocks = math.max(1, (MinDefaultTileSize + blockSize - 1) / blockSize)
+    math.min(imageSize, blockSize * blocks)
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.optimization
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.expressions.{Alias, Ascending, Attribute, CreateNamedStruct, Expression, Literal, SortOrder}
+import org.apache.spark.sql.catalyst.plans.logical.{LogicalPlan, Project, RepartitionByExpression, Sort}
+import org.apache.spark.sql.catalyst.rules.Rule
+import org.apache.spark.sql.execution.datasources.{InsertIntoHadoopFsRelationCommand, WriteFiles}
+import org.apache.spark.sql.execution.datasources.geoparquet.GeoParquetFileFormatBase
+import org.apache.spark.sql.execution.datasources.geoparquet.GeoParquetMetaData.GEOPARQUET_COVERING_KEY
+import org.apache.spark.sql.sedona_sql.UDT.GeometryUDT
+import org.apache.spark.sql.sedona_sql.expressions.{ST_XMax, ST_XMin, ST_YMax, ST_YMin, SpaceFillingCurveKey}
+import org.locationtech.jts.geom.Envelope
+
+/**
+ * Spatially clusters the rows written by the GeoParquet writer when the `geoparquet.clustering`
+ * write option is set to `hilbert` or `zorder`:
+ *
+ * {{{
+ *   df.write.format("geoparquet").option("geoparquet.clustering", "hilbert").save(path)
+ * }}}
+ *
+ * The rows are range partitioned by the position of their geometry on the space filling curve,
+ * so that each output file covers a compact region, and sorted by the same key within each file,
+ * so that each row group covers a compact region. The bounding boxes recorded in the GeoParquet
+ * metadata of each file and the statistics of the covering column of each row group are then
+ * tight, and spatial filters on the written data skip most files and row groups.
+ *
+ * A covering column `<geometry>_bbox` is added to the written data unless a covering column was
+ * configured using `geoparquet.covering` options. The geometry column used for clustering can be
+ * chosen using `geoparquet.clustering.column`, and the number of output files (per partition
+ * directory) is controlled using `geoparquet.clustering.numFiles`. The curve adapts to the
+ * magnitude of the coordinates by default; when the extent of the data is known, setting
+ * `geoparquet.clustering.extent` to `minX,minY,maxX,maxY` gives a uniform grid over the extent
+ * and more compact files.
+ */
+class ClusterGeoParquetWrites(sparkSession: SparkSession) extends Rule[LogicalPlan] {
+  import ClusterGeoParquetWrites._
+
+  override def apply(plan: LogicalPlan): LogicalPlan = plan transform {
+    case cmd: InsertIntoHadoopFsRelationCommand
+        if cmd.fileFormat.isInstanceOf[GeoParquetFileFormatBase] &&
+          getOption(cmd.options, CLUSTERING_KEY).isDefined =>
+      clusterWrite(cmd)
+  }
+
+  private def clusterWrite(cmd: InsertIntoHadoopFsRelationCommand): LogicalPlan = {
+    val curve = getOption(cmd.options, CLUSTERING_KEY).get.toLowerCase
+    if (!SpaceFillingCurveKey.curves.contains(curve)) {
+      throw new IllegalArgumentException(
+        s"Unsupported value of $CLUSTERING_KEY: $curve. Supported values: " +
+          SpaceFillingCurveKey.curves.mkString(", "))
+    }
+    if (cmd.bucketSpec.isDefined) {
+      throw new IllegalArgumentException(
+        s"$CLUSTERING_KEY cannot be used together with bucketed writes")
+    }
+    val numFiles = getOption(cmd.options, CLUSTERING_NUM_FILES_KEY).map(_.toInt)
+    numFiles.foreach { n =>
+      require(n > 0, s"$CLUSTERING_NUM_FILES_KEY should be positive, got $n")
+    }
+
+    val extent = getOption(cmd.options, CLUSTERING_EXTENT_KEY).map(parseExtent)
+
+    val (query, writeFiles) = cmd.query match {
+      case w: WriteFiles => (w.child, Some(w))
+      case q => (q, None)
+    }
+    // The ordering required by the writer, usually the partition columns. On Spark 3.4+ the
+    // writer has already sorted the query by it.
+    val (requiredOrdering, child) = query match {
+      case Sort(order, false, sortChild) if writeFiles.isDefined => (order, sortChild)
+      case _ => (cmd.partitionColumns.map(SortOrder(_, Ascending)), query)
+    }
+
+    val dataColumns =
+      child.output.filterNot(attr => cmd.partitionColumns.exists(_.semanticEquals(attr)))
+    val geometryColumn = findGeometryColumn(cmd.options, dataColumns)
+    val coveringColumnName = s"${geometryColumn.name}_bbox"
+    val addCoveringColumn = !cmd.options.keys.exists(
+      _.toLowerCase.startsWith(GEOPARQUET_COVERING_KEY.toLowerCase)) &&
+      !child.output.exists(attr => resolver(attr.name, coveringColumnName))
+
+    val curveKey = Alias(SpaceFillingCurveKey(geometryColumn, curve, extent), CURVE_KEY_COLUMN)()
+    val keyOrder = SortOrder(curveKey.toAttribute, Ascending)
+    val withKey = Project(child.output :+ curveKey, child)
+    val partitioned = RepartitionByExpression(
+      cmd.partitionColumns.map(SortOrder(_, Ascending)) :+ keyOrder,
+      withKey,
+      numFiles)
+    val sorted = Sort(requiredOrdering :+ keyOrder, global = false, partitioned)
+    val coveringColumn =
+      if (addCoveringColumn) Some(Alias(bboxStruct(geometryColumn), coveringColumnName)())
+      else None
+    val clustered = Project(child.output ++ coveringColumn, sorted)
+
+    val options = cmd.options.filter { case (key, _) => !isClusteringOption(key) } ++
+      coveringColumn.map(_ =>
+        s"$GEOPARQUET_COVERING_KEY.${geometryColumn.name}" -> coveringColumnName)
+    val newQuery = writeFiles match {
+      case Some(w) => w.copy(child = clustered, options = options)
+      case None => clustered
+    }
+    val outputColumnNames =
+      if (addCoveringColumn) cmd.outputColumnNames :+ coveringColumnName
+      else cmd.outputColumnNames
+    cmd.copy(query = newQuery, options = options, outputColumnNames = outputColumnNames)
+  }
+
+  private def findGeometryColumn(
+      options: Map[String, String],
+      dataColumns: Seq[Attribute]): Attribute = {
+    val geometryColumns = dataColumns.filter(_.dataType.isInstanceOf[GeometryUDT])
+    getOption(options, CLUSTERING_COLUMN_KEY) match {
+      case Some(name) =>
+        geometryColumns.find(attr => resolver(attr.name, name)).getOrElse {
+          throw new IllegalArgumentException(
+            s"$CLUSTERING_COLUMN_KEY refers to $name, which is not a geometry column")
+        }
+      case None if geometryColumns.size == 1 => geometryColumns.head
+      case None if geometryColumns.isEmpty =>
+        throw new IllegalArgumentException(
+          s"$CLUSTERING_KEY requires a geometry column in the written data")
+      case None =>
+        throw new IllegalArgumentException(
+          s"$CLUSTERING_KEY is ambiguous when there are multiple geometry columns. " +
+            s"Please specify the geometry column using $CLUSTERING_COLUMN_KEY")
+    }
+  }
+
+  private def bboxStruct(geometry: Expression): Expression = CreateNamedStruct(
+    Seq(
+      Literal("xmin"),
+      ST_XMin(Seq(geometry)),
+      Literal("ymin"),
+      ST_YMin(Seq(geometry)),
+      Literal("xmax"),
+      ST_XMax(Seq(geometry)),
+      Literal("ymax"),
+      ST_YMax(Seq(geometry))))
+
+  private def parseExtent(value: String): Envelope = {
+    val bounds = value.split(",").map(_.trim.toDouble)
+    if (bounds.length != 4 || bounds(0) >= bounds(2) || bounds(1) >= bounds(3)) {
+      throw new IllegalArgumentException(
+        s"$CLUSTERING_EXTENT_KEY should be minX,minY,maxX,maxY, got $value")
+    }
+    new Envelope(bounds(0), bounds(2), bounds(1), bounds(3))
+  }
+
+  private def resolver = sparkSession.sessionState.conf.resolver
+}
+
+object ClusterGeoParquetWrites {
+
+  /**
+   * Write option for clustering the written rows along a space filling curve, either `hilbert`
+   * or `zorder`.
+   */
+  val CLUSTERING_KEY = "geoparquet.clustering"
+
+  /**
+   * Write option for choosing the geometry column used for clustering. It is required when the
+   * written data has multiple geometry columns.
+   */
+  val CLUSTERING_COLUMN_KEY = "geoparquet.clustering.column"
+
+  /**
+   * Write option for the number of files written by a clustered write. It defaults to
+   * `spark.sql.shuffle.partitions`.
+   */
+  val CLUSTERING_NUM_FILES_KEY = "geoparquet.clustering.numFiles"
+
+  /**
+   * Write option for the extent of the written geometries, formatted as `minX,minY,maxX,maxY`.
+   */
+  val CLUSTERING_EXTENT_KEY = "geoparquet.clustering.extent"
+
+  private val CURVE_KEY_COLUMN = "__sedona_curve_key"
+
+  private def getOption(options: Map[String, String], key: String): Option[String] =
+    options.collectFirst { case (k, v) if k.equalsIgnoreCase(key) => v }
+
+  private def isClusteringOption(key: String): Boolean =
+    Seq(CLUSTERING_KEY, CLUSTERING_COLUMN_KEY, CLUSTERING_NUM_FILES_KEY, CLUSTERING_EXTENT_KEY)
+      .exists(_.equalsIgnoreCase(key))
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.optimization
+
+import org.apache.sedona.core.monitoring.Metrics
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.expressions.{Expression, NamedExpression}
+import org.apache.spark.sql.catalyst.plans.logical.{Filter, LogicalPlan, Project}
+import org.apache.spark.sql.catalyst.rules.Rule
+import org.apache.spark.sql.sedona_sql.UDT.GeometryUDT
+import org.apache.spark.sql.sedona_sql.expressions.{ReadOnlyGeometryInputs, SerdeAware, SharedGeometry, SharedGeometryCache}
+
+import scala.collection.mutable
+
+/**
+ * Shares the deserialized geometry among expressions evaluated on the same row. A query such as
+ * `SELECT ST_Area(geom), ST_Centroid(geom), ST_IsValid(geom) FROM t` deserializes `geom` once per
+ * row instead of once per function. Only the arguments of [[ReadOnlyGeometryInputs]] expressions
+ * are shared, since other functions may modify their input geometries in place.
+ *
+ * The number of saved deserializations is reported by the `sedona.serde.deserializationsSaved`
+ * accumulator. The rule is disabled by default, it is enabled by setting
+ * `spark.sedona.optimizer.shareGeometryDeserialization` to true.
+ */
+class ShareGeometryDeserialization(sparkSession: SparkSession) extends Rule[LogicalPlan] {
+
+  // The metric is registered once for the session instead of every time the rule is applied
+  private lazy val deserializationsSaved =
+    Metrics.createMetric(sparkSession.sparkContext, "serde", "deserializationsSaved")
+
+  override def apply(plan: LogicalPlan): LogicalPlan = {
+    val enableSharing =
+      sparkSession.conf
+        .get("spark.sedona.optimizer.shareGeometryDeserialization", "false")
+        .toBoolean
+    if (!enableSharing) plan
+    else {
+      plan transform {
+        case project @ Project(projectList, _) =>
+          shareGeometries(projectList) match {
+            case Some(newProjectList) =>
+              project.copy(projectList = newProjectList.asInstanceOf[Seq[NamedExpression]])
+            case None => project
+          }
+        case filter @ Filter(condition, _) =>
+          shareGeometries(Seq(condition)) match {
+            case Some(Seq(newCondition)) => filter.copy(condition = newCondition)
+            case _ => filter
+          }
+      }
+    }
+  }
+
+  private def shareGeometries(expressions: Seq[Expression]): Option[Seq[Expression]] = {
+    val counts = mutable.HashMap.empty[Expression, Int]
+    expressions.foreach(_.foreach {
+      case consumer: ReadOnlyGeometryInputs =>
+        consumer.children.filter(isShareable).foreach { arg =>
+          val key = arg.canonicalized
+          counts(key) = counts.getOrElse(key, 0) + 1
+        }
+      case _ =>
+    })
+    val sharedArgs = counts.filter(_._2 > 1).keys
+    if (sharedArgs.isEmpty) {
+      None
+    } else {
+      val caches = sharedArgs.map(_ -> new SharedGeometryCache(deserializationsSaved)).toMap
+      Some(expressions.map(_.transformDown {
+        case consumer: ReadOnlyGeometryInputs =>
+          consumer.withNewChildren(consumer.children.map { arg =>
+            caches.get(arg.canonicalized) match {
+              case Some(cache) if isShareable(arg) => SharedGeometry(arg, cache)
+              case _ => arg
+            }
+          })
+      }))
+    }
+  }
+
+  // Geometries produced by SerdeAware expressions are already passed to their parents without
+  // serialization. Sharing them would force them to be serialized.
+  private def isShareable(expr: Expression): Boolean = {
+    expr.dataType.isInstanceOf[GeometryUDT] && expr.deterministic && !expr.foldable &&
+    !expr.isInstanceOf[SerdeAware]
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.optimization
+
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.expressions.SubqueryExpression
+import org.apache.spark.sql.catalyst.plans.logical.{Filter, LogicalPlan}
+import org.apache.spark.sql.execution.datasources.{DataSourceStrategy, HadoopFsRelation, LogicalRelation}
+import org.apache.spark.sql.execution.datasources.geoparquet.GeoParquetSpatialFilter.AndFilter
+import org.apache.spark.sql.sedona_sql.io.raster.RasterFileFormat
+import org.apache.spark.sql.sedona_sql.optimization.ExpressionUtils.splitConjunctivePredicates
+
+/*
+ * This class is responsible for pushing down spatial filters on the bbox column to the raster
+ * data source, so that tiles falling outside the query window are skipped without being read.
+ * It extends and reuses the `SpatialFilterPushDownForGeoParquet` class to translate the
+ * spatial predicates.
+ */
+class SpatialFilterPushDownForRaster(sparkSession: SparkSession)
+    extends SpatialFilterPushDownForGeoParquet(sparkSession) {
+
+  override def apply(plan: LogicalPlan): LogicalPlan = {
+    val enableSpatialFilterPushDown =
+      sparkSession.conf.get("spark.sedona.raster.spatialFilterPushDown", "true").toBoolean
+    if (!enableSpatialFilterPushDown) plan
+    else {
+      plan transform {
+        case filter @ Filter(condition, lr: LogicalRelation) if isRasterRelation(lr) =>
+          val filters = splitConjunctivePredicates(condition)
+          val normalizedFilters = DataSourceStrategy.normalizeExprs(filters, lr.output)
+          val (_, normalizedFiltersWithoutSubquery) =
+            normalizedFilters.partition(SubqueryExpression.hasSubquery)
+          val spatialFilters = translateToGeoParquetSpatialFilters(normalizedFiltersWithoutSubquery)
+          val hadoopFsRelation = lr.relation.asInstanceOf[HadoopFsRelation]
+          val fileFormat = hadoopFsRelation.fileFormat.asInstanceOf[RasterFileFormat]
+          if (spatialFilters.isEmpty) filter
+          else {
+            val combinedSpatialFilter = spatialFilters.reduce(AndFilter)
+            val newFileFormat = fileFormat.withSpatialPredicates(combinedSpatialFilter)
+            val newRelation = hadoopFsRelation.copy(fileFormat = newFileFormat)(sparkSession)
+            filter.copy(child = lr.copy(relation = newRelation))
+          }
+      }
+    }
+  }
+
+  private def isRasterRelation(lr: LogicalRelation): Boolean =
+    lr.relation.isInstanceOf[HadoopFsRelation] &&
+      lr.relation.asInstanceOf[HadoopFsRelation].fileFormat.isInstanceOf[RasterFileFormat]
+}
@@ -20,9 +20,11 @@ package org.apache.spark.sql.sedona_sql.strategy.join
 
 import org.apache.sedona.core.spatialOperator.{SpatialPredicate, SpatialPredicateEvaluators}
 import org.apache.sedona.core.spatialOperator.SpatialPredicateEvaluators.SpatialPredicateEvaluator
+import org.apache.sedona.core.utils.SedonaConf
 import org.apache.sedona.sql.utils.{GeometrySerializer, RasterSerializer}
 
 import scala.collection.JavaConverters._
+import org.apache.spark.TaskContext
 import org.apache.spark.broadcast.Broadcast
 import org.apache.spark.internal.Logging
 import org.apache.spark.rdd.RDD
@@ -35,11 +37,10 @@ import org.apache.spark.sql.execution.{RowIterator, SparkPlan}
 import org.apache.spark.sql.sedona_sql.UDT.RasterUDT
 import org.apache.spark.sql.sedona_sql.execution.SedonaBinaryExecNode
 import org.locationtech.jts.geom.Geometry
-import org.locationtech.jts.geom.prep.{PreparedGeometry, PreparedGeometryFactory}
+import org.locationtech.jts.geom.prep.PreparedGeometry
 import org.locationtech.jts.index.SpatialIndex
 
 import java.util.Collections
-import scala.collection.mutable
 
 case class BroadcastIndexJoinExec(
     left: SparkPlan,
@@ -74,7 +75,16 @@ case class BroadcastIndexJoinExec(
   }
 
   override lazy val metrics = Map(
-    "numOutputRows" -> SQLMetrics.createMetric(sparkContext, "number of output rows"))
+    "numOutputRows" -> SQLMetrics.createMetric(sparkContext, "number of output rows"),
+    "numPreparedGeometryCacheHits" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of prepared geometry cache hits"),
+    "numPreparedGeometryCacheMisses" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of prepared geometry cache misses"),
+    "numPreparedGeometryCacheEvictions" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of prepared geometry cache evictions"))
 
   private val (streamed, broadcast) = indexBuildSide match {
     case LeftSide => (right, left.asInstanceOf[SpatialIndexExec])
@@ -84,7 +94,11 @@ case class BroadcastIndexJoinExec(
   // Using lazy val to avoid serialization
   @transient private lazy val boundCondition: (InternalRow => Boolean) = extraCondition match {
     case Some(condition) =>
-      Predicate.create(condition, streamed.output ++ broadcast.output).eval _ // SPARK3 anchor
+      Predicate
+        .create(
+          SpheroidDistanceFilter.withLowerBound(condition),
+          streamed.output ++ broadcast.output)
+        .eval _ // SPARK3 anchor
     //      newPredicate(condition, broadcast.output ++ streamed.output).eval _ // SPARK2 anchor
     case None =>
       (r: InternalRow) => true
@@ -132,9 +146,8 @@ case class BroadcastIndexJoinExec(
 
   private def innerJoin(
       streamIter: Iterator[(Geometry, UnsafeRow)],
-      index: Broadcast[SpatialIndex]): Iterator[InternalRow] = {
-    val factory = new PreparedGeometryFactory()
-    val preparedGeometries = new mutable.HashMap[Geometry, PreparedGeometry]
+      index: Broadcast[SpatialIndex],
+      prepare: Geometry => PreparedGeometry): Iterator[InternalRow] = {
     val joinedRow = new JoinedRow
     streamIter.flatMap { case (geom, row) =>
       joinedRow.withLeft(row)
@@ -143,10 +156,7 @@ case class BroadcastIndexJoinExec(
         .iterator
         .asScala
         .asInstanceOf[Iterator[Geometry]]
-        .filter(candidate =>
-          evaluator.eval(
-            preparedGeometries.getOrElseUpdate(candidate, { factory.create(candidate) }),
-            geom))
+        .filter(candidate => evaluator.eval(prepare(candidate), geom))
         .map(candidate => joinedRow.withRight(candidate.getUserData.asInstanceOf[UnsafeRow]))
         .filter(boundCondition)
     }
@@ -154,9 +164,8 @@ case class BroadcastIndexJoinExec(
 
   private def semiJoin(
       streamIter: Iterator[(Geometry, UnsafeRow)],
-      index: Broadcast[SpatialIndex]): Iterator[InternalRow] = {
-    val factory = new PreparedGeometryFactory()
-    val preparedGeometries = new mutable.HashMap[Geometry, PreparedGeometry]
+      index: Broadcast[SpatialIndex],
+      prepare: Geometry => PreparedGeometry): Iterator[InternalRow] = {
     val joinedRow = new JoinedRow
     streamIter.flatMap { case (geom, row) =>
       val left = row
@@ -166,13 +175,7 @@ case class BroadcastIndexJoinExec(
         .iterator
         .asScala
         .asInstanceOf[Iterator[Geometry]]
-        .filter(candidate =>
-          evaluator.eval(
-            preparedGeometries.getOrElseUpdate(
-              candidate, {
-                factory.create(candidate)
-              }),
-            geom))
+        .filter(candidate => evaluator.eval(prepare(candidate), geom))
         .map(candidate => joinedRow.withRight(candidate.getUserData.asInstanceOf[UnsafeRow]))
         .exists(boundCondition)
 
@@ -186,9 +189,8 @@ case class BroadcastIndexJoinExec(
 
   private def antiJoin(
       streamIter: Iterator[(Geometry, UnsafeRow)],
-      index: Broadcast[SpatialIndex]): Iterator[InternalRow] = {
-    val factory = new PreparedGeometryFactory()
-    val preparedGeometries = new mutable.HashMap[Geometry, PreparedGeometry]
+      index: Broadcast[SpatialIndex],
+      prepare: Geometry => PreparedGeometry): Iterator[InternalRow] = {
     val joinedRow = new JoinedRow
     streamIter.flatMap { case (geom, row) =>
       val left = row
@@ -196,13 +198,7 @@ case class BroadcastIndexJoinExec(
       val anyMatches = (if (geom == null) Collections.EMPTY_LIST
                         else index.value.query(geom.getEnvelopeInternal)).iterator.asScala
         .asInstanceOf[Iterator[Geometry]]
-        .filter(candidate =>
-          evaluator.eval(
-            preparedGeometries.getOrElseUpdate(
-              candidate, {
-                factory.create(candidate)
-              }),
-            geom))
+        .filter(candidate => evaluator.eval(prepare(candidate), geom))
         .map(candidate => joinedRow.withRight(candidate.getUserData.asInstanceOf[UnsafeRow]))
         .exists(boundCondition)
 
@@ -216,9 +212,8 @@ case class BroadcastIndexJoinExec(
 
   private def outerJoin(
       streamIter: Iterator[(Geometry, UnsafeRow)],
-      index: Broadcast[SpatialIndex]): Iterator[InternalRow] = {
-    val factory = new PreparedGeometryFactory()
-    val preparedGeometries = new mutable.HashMap[Geometry, PreparedGeometry]
+      index: Broadcast[SpatialIndex],
+      prepare: Geometry => PreparedGeometry): Iterator[InternalRow] = {
     val joinedRow = new JoinedRow
     val nullRow = new GenericInternalRow(broadcast.output.length)
 
@@ -227,13 +222,7 @@ case class BroadcastIndexJoinExec(
       val candidates = (if (geom == null) Collections.EMPTY_LIST
                         else index.value.query(geom.getEnvelopeInternal)).iterator.asScala
         .asInstanceOf[Iterator[Geometry]]
-        .filter(candidate =>
-          evaluator.eval(
-            preparedGeometries.getOrElseUpdate(
-              candidate, {
-                factory.create(candidate)
-              }),
-            geom))
+        .filter(candidate => evaluator.eval(prepare(candidate), geom))
 
       new RowIterator {
         private var found = false
@@ -259,6 +248,12 @@ case class BroadcastIndexJoinExec(
 
   override protected def doExecute(): RDD[InternalRow] = {
     val numOutputRows = longMetric("numOutputRows")
+    val numCacheHits = longMetric("numPreparedGeometryCacheHits")
+    val numCacheMisses = longMetric("numPreparedGeometryCacheMisses")
+    val numCacheEvictions = longMetric("numPreparedGeometryCacheEvictions")
+    val sedonaConf = SedonaConf.fromActiveSession
+    val cacheMaxEntries = sedonaConf.getPreparedGeometryCacheMaxEntries
+    val cacheMaxCoordinates = sedonaConf.getPreparedGeometryCacheMaxCoordinates
     val boundStreamShape = BindReferences.bindReference(streamShape, streamed.output)
     val streamResultsRaw = streamed.execute().asInstanceOf[RDD[UnsafeRow]]
 
@@ -267,15 +262,25 @@ case class BroadcastIndexJoinExec(
     val streamShapes = createStreamShapes(streamResultsRaw, boundStreamShape)
 
     streamShapes.mapPartitions { streamedIter =>
+      // Prepared geometries of the broadcast index are shared by all tasks on this executor
+      val preparedGeometryCache =
+        PreparedGeometryCache.get(broadcastIndex.value, cacheMaxEntries, cacheMaxCoordinates)
+      TaskContext
+        .get()
+        .addTaskCompletionListener[Unit](_ =>
+          numCacheEvictions += preparedGeometryCache.drainEvictionCount())
+      val prepare = (candidate: Geometry) =>
+        preparedGeometryCache.getOrPrepare(candidate, numCacheHits, numCacheMisses)
+
       val joinedIter = joinType match {
         case _: InnerLike =>
-          innerJoin(streamedIter, broadcastIndex)
+          innerJoin(streamedIter, broadcastIndex, prepare)
         case LeftSemi =>
-          semiJoin(streamedIter, broadcastIndex)
+          semiJoin(streamedIter, broadcastIndex, prepare)
         case LeftAnti =>
-          antiJoin(streamedIter, broadcastIndex)
+          antiJoin(streamedIter, broadcastIndex, prepare)
         case LeftOuter | RightOuter =>
-          outerJoin(streamedIter, broadcastIndex)
+          outerJoin(streamedIter, broadcastIndex, prepare)
         case x: Any =>
           throw new IllegalArgumentException(
             s"BroadcastIndexJoinExec should not take $x as the JoinType")
@@ -72,6 +72,8 @@ case class DistanceJoinExec(
     with TraitJoinQueryExec
     with Logging {
 
+  override lazy val metrics = skewSplitMetrics ++ partitionerCacheMetrics
+
   private lazy val boundRadius = if (distanceBoundToLeft) {
     BindReferences.bindReference(distance, left.output)
   } else {
@@ -94,6 +96,12 @@ case class DistanceJoinExec(
     }
   }
 
+  override protected def dominantShapeDescription(dominantLeft: Boolean): Seq[String] = {
+    // The geometries of the side bound to the distance are expanded by the distance
+    super.dominantShapeDescription(dominantLeft) ++
+      Seq(boundRadius.canonicalized.toString, distanceBoundToLeft.toString, isGeography.toString)
+  }
+
   protected def withNewChildrenInternal(newLeft: SparkPlan, newRight: SparkPlan): SparkPlan = {
     copy(left = newLeft, right = newRight)
   }
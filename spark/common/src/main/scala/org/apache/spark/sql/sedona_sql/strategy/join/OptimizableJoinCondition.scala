@@ -18,7 +18,7 @@
  */
 package org.apache.spark.sql.sedona_sql.strategy.join
 
-import org.apache.spark.sql.catalyst.expressions.{And, Expression, LessThan, LessThanOrEqual, Literal}
+import org.apache.spark.sql.catalyst.expressions.{And, Expression, GreaterThan, GreaterThanOrEqual, LessThan, LessThanOrEqual, Literal}
 import org.apache.spark.sql.catalyst.plans.logical.LogicalPlan
 import org.apache.spark.sql.sedona_sql.expressions._
 import org.apache.spark.sql.sedona_sql.expressions.raster.RS_Predicate
@@ -32,10 +32,11 @@ case class OptimizableJoinCondition(left: LogicalPlan, right: LogicalPlan) {
    * @param expression
    *   the join condition
    * @return
-   *   an optional tuple containing the spatial predicate and the other predicates
+   *   an optional tuple containing the spatial predicate and the other predicates. Distance
+   *   predicates written as `d >= ST_Distance(a, b)` are returned as `ST_Distance(a, b) <= d`.
    */
   def unapply(expression: Expression): Option[(Expression, Option[Expression])] = {
-    val predicates = ExpressionUtils.splitConjunctivePredicates(expression)
+    val predicates = ExpressionUtils.splitConjunctivePredicates(expression).map(normalize)
     val (maybeSpatialPredicate, otherPredicates) = extractFirstOptimizablePredicate(predicates)
     maybeSpatialPredicate match {
       case Some(spatialPredicate) =>
@@ -45,6 +46,20 @@ case class OptimizableJoinCondition(left: LogicalPlan, right: LogicalPlan) {
     }
   }
 
+  private def normalize(expression: Expression): Expression = expression match {
+    case GreaterThanOrEqual(larger, smaller) if isDistance(smaller) =>
+      LessThanOrEqual(smaller, larger)
+    case GreaterThan(larger, smaller) if isDistance(smaller) => LessThan(smaller, larger)
+    case _ => expression
+  }
+
+  private def isDistance(expression: Expression): Boolean = expression match {
+    case _: ST_Distance | _: ST_DistanceSphere | _: ST_DistanceSpheroid | _: ST_FrechetDistance |
+        _: ST_HausdorffDistance =>
+      true
+    case _ => false
+  }
+
   private def extractFirstOptimizablePredicate(
       expressions: Seq[Expression]): (Option[Expression], Seq[Expression]) = {
     expressions match {
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.strategy.join
+
+import com.github.benmanes.caffeine.cache.{Cache, Caffeine, RemovalCause, RemovalListener, Weigher}
+import org.apache.spark.sql.execution.metric.SQLMetric
+import org.locationtech.jts.geom.Geometry
+import org.locationtech.jts.geom.prep.{PreparedGeometry, PreparedGeometryFactory}
+import org.locationtech.jts.index.SpatialIndex
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Bounded cache of prepared geometries built from the entries of a broadcast spatial index. The
+ * cache is shared by all tasks probing the same broadcast index on an executor. Entries are keyed
+ * by the identity of the geometries stored in the index, so looking up an entry does not hash
+ * the coordinates of the geometry.
+ *
+ * The cache holds at most `maxEntries` prepared geometries, and the total number of coordinates
+ * of the cached geometries is at most `maxCoordinates`. Least recently used entries are evicted
+ * when the cache is full.
+ *
+ * @param maxEntries
+ *   maximum number of cached prepared geometries
+ * @param maxCoordinates
+ *   maximum total number of coordinates of cached prepared geometries
+ */
+private[join] class PreparedGeometryCache(maxEntries: Long, maxCoordinates: Long) {
+  private val factory = new PreparedGeometryFactory
+  private val evictionCount = new AtomicLong()
+
+  private val cache: Cache[Geometry, PreparedGeometry] = {
+    // Every entry weighs at least minWeight, so that the total weight limit also bounds the
+    // number of entries
+    val minWeight = math.max(1L, maxCoordinates / math.max(1L, maxEntries))
+    Caffeine
+      .newBuilder()
+      .weakKeys()
+      // Run evictions on the probing thread, so that evictions are counted by the task causing them
+      .executor((command: Runnable) => command.run())
+      .maximumWeight(math.max(1L, maxCoordinates))
+      .weigher[Geometry, PreparedGeometry](new Weigher[Geometry, PreparedGeometry] {
+        override def weigh(geometry: Geometry, prepared: PreparedGeometry): Int =
+          math.min(Int.MaxValue.toLong, math.max(minWeight, geometry.getNumPoints.toLong)).toInt
+      })
+      .removalListener[Geometry, PreparedGeometry](
+        new RemovalListener[Geometry, PreparedGeometry] {
+          override def onRemoval(
+              geometry: Geometry,
+              prepared: PreparedGeometry,
+              cause: RemovalCause): Unit = {
+            if (cause == RemovalCause.SIZE) evictionCount.incrementAndGet()
+          }
+        })
+      .build[Geometry, PreparedGeometry]()
+  }
+
+  /**
+   * Get the prepared geometry of an entry of the broadcast index. The prepared geometry is built
+   * when it is not in the cache.
+   *
+   * @param geometry
+   *   geometry stored in the broadcast index
+   * @param hits
+   *   metric for the number of cache hits
+   * @param misses
+   *   metric for the number of cache misses
+   * @return
+   *   the prepared geometry
+   */
+  def getOrPrepare(geometry: Geometry, hits: SQLMetric, misses: SQLMetric): PreparedGeometry = {
+    val cached = cache.getIfPresent(geometry)
+    if (cached != null) {
+      hits += 1
+      cached
+    } else {
+      misses += 1
+      val prepared = factory.create(geometry)
+      cache.put(geometry, prepared)
+      prepared
+    }
+  }
+
+  /**
+   * Get the number of entries evicted since the last call of this method. Tasks sharing this
+   * cache drain the eviction count when they complete, so that each eviction is reported once.
+   */
+  def drainEvictionCount(): Long = evictionCount.getAndSet(0)
+}
+
+private[join] object PreparedGeometryCache {
+
+  // Caches of the broadcast indexes on this executor, keyed by the identity of the broadcast
+  // index. The cache of an index is released once the broadcast index is garbage collected.
+  private val caches: Cache[SpatialIndex, PreparedGeometryCache] =
+    Caffeine.newBuilder().weakKeys().build[SpatialIndex, PreparedGeometryCache]()
+
+  /**
+   * Get the prepared geometry cache of a broadcast index, creating it if it does not exist
+   *
+   * @param index
+   *   the value of the broadcast index
+   * @param maxEntries
+   *   maximum number of cached prepared geometries, used when creating the cache
+   * @param maxCoordinates
+   *   maximum total number of coordinates of cached prepared geometries, used when creating the
+   *   cache
+   * @return
+   *   the cache shared by all tasks probing this index
+   */
+  def get(index: SpatialIndex, maxEntries: Long, maxCoordinates: Long): PreparedGeometryCache = {
+    caches.get(
+      index,
+      new java.util.function.Function[SpatialIndex, PreparedGeometryCache] {
+        override def apply(index: SpatialIndex): PreparedGeometryCache =
+          new PreparedGeometryCache(maxEntries, maxCoordinates)
+      })
+  }
+}
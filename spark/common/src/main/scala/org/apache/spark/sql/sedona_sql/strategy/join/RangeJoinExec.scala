@@ -52,6 +52,8 @@ case class RangeJoinExec(
     with TraitJoinQueryExec
     with Logging {
 
+  override lazy val metrics = skewSplitMetrics ++ partitionerCacheMetrics
+
   protected def withNewChildrenInternal(newLeft: SparkPlan, newRight: SparkPlan): SparkPlan = {
     copy(left = newLeft, right = newRight)
   }
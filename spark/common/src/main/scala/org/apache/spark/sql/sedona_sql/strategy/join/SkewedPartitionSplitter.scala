@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.strategy.join
+
+import org.apache.sedona.core.spatialPartitioning.{KDB, SkewSplitPartitioner, SpatialPartitioner}
+import org.apache.sedona.core.spatialRDD.SpatialRDD
+import org.apache.sedona.core.utils.SedonaConf
+import org.apache.spark.internal.Logging
+import org.locationtech.jts.geom.{Envelope, Geometry}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Sizes of the partitions of a spatial join before and after splitting its skewed partitions
+ *
+ * @param partitioner
+ *   partitioner splitting the skewed partitions, or None if no partition is skewed
+ * @param numSkewedPartitions
+ *   number of split partitions
+ * @param sizesBefore
+ *   number of geometries of both sides in each partition before splitting
+ * @param sizesAfter
+ *   estimated number of geometries of both sides in each partition after splitting
+ */
+private[join] case class SkewSplitResult(
+    partitioner: Option[SkewSplitPartitioner],
+    numSkewedPartitions: Int,
+    sizesBefore: Array[Long],
+    sizesAfter: Array[Long])
+
+/**
+ * Splits the skewed partitions of a partitioned spatial join. The geometries of both sides are
+ * counted per partition without shuffling them. A partition is skewed when it holds more than
+ * `factor` times the median partition size and more than `minPartitionSize` geometries.
+ *
+ * The extent of a skewed partition is split by a KDB tree built from a sample of the larger side
+ * of the partition, so that the larger side is spread across the sub-partitions. Geometries of
+ * either side are placed into every sub-partition they overlap, so only the points of the larger
+ * side are not replicated.
+ */
+private[join] object SkewedPartitionSplitter extends Logging {
+
+  private val samplesPerSubPartition = 100
+
+  // Upper bound of the number of envelopes collected to the driver when splitting partitions
+  private val maxSamples = 100000
+
+  /**
+   * Split the skewed partitions of two spatial RDDs partitioned by the same partitioner
+   *
+   * @return
+   *   None if the partitioner cannot be split, otherwise the partitioner splitting the skewed
+   *   partitions and the partition sizes
+   */
+  def split(
+      left: SpatialRDD[Geometry],
+      right: SpatialRDD[Geometry],
+      sedonaConf: SedonaConf): Option[SkewSplitResult] = {
+    val partitioner = left.getPartitioner
+    if (partitioner.getDedupParams == null ||
+      partitioner.numPartitions != partitioner.getGrids.size) {
+      // Partitions can only be split when they tile the space without overflow partition
+      return None
+    }
+
+    val leftCounts = countPartitions(left, partitioner)
+    val rightCounts = countPartitions(right, partitioner)
+    val sizes = leftCounts.zip(rightCounts).map { case (l, r) => l + r }
+    val medianSize = median(sizes)
+    val threshold =
+      math.max(sedonaConf.getSkewSplitFactor * medianSize, sedonaConf.getSkewSplitMinPartitionSize)
+    val targetSize = math.max(medianSize, 1L)
+    val numSubPartitions = sizes.indices
+      .filter(k => sizes(k) > threshold)
+      .map { k =>
+        val n = math.min(
+          sedonaConf.getSkewSplitMaxSubPartitions.toLong,
+          (sizes(k) + targetSize - 1) / targetSize)
+        k -> n.toInt
+      }
+      .filter(_._2 >= 2)
+      .toMap
+    if (numSubPartitions.isEmpty) {
+      return Some(SkewSplitResult(None, 0, sizes, sizes))
+    }
+
+    val (leftLarger, rightLarger) = numSubPartitions.partition { case (k, _) =>
+      leftCounts(k) >= rightCounts(k)
+    }
+    val samples = sampleEnvelopes(left, partitioner, leftLarger, leftCounts) ++
+      sampleEnvelopes(right, partitioner, rightLarger, rightCounts)
+
+    val grids = partitioner.getGrids
+    val splits = new java.util.HashMap[Integer, KDB]()
+    val sizesAfter = new ArrayBuffer[Long]()
+    sizes.indices.foreach { k =>
+      val envelopes = samples.getOrElse(k, Array.empty[Envelope])
+      val tree = numSubPartitions.get(k) match {
+        case Some(n) if envelopes.length >= 2 =>
+          val tree = new KDB(math.max(1, envelopes.length / n), n, grids.get(k))
+          envelopes.foreach(tree.insert)
+          Some(tree)
+        case _ => None
+      }
+      val leafSampleCounts = tree.map(leafItemCounts).getOrElse(Seq.empty)
+      if (leafSampleCounts.size >= 2) {
+        splits.put(k, tree.get)
+        val larger = math.max(leftCounts(k), rightCounts(k))
+        val smaller = math.min(leftCounts(k), rightCounts(k))
+        // The smaller side may be replicated into every sub-partition. Non-point geometries of
+        // the larger side crossing the boundaries of sub-partitions are not accounted for.
+        leafSampleCounts.foreach { count =>
+          sizesAfter += larger * count / envelopes.length + smaller
+        }
+      } else {
+        sizesAfter += sizes(k)
+      }
+    }
+
+    if (splits.isEmpty) {
+      Some(SkewSplitResult(None, 0, sizes, sizes))
+    } else {
+      val splitPartitioner = new SkewSplitPartitioner(partitioner, splits)
+      log.info(
+        s"[SedonaSQL] Split ${splits.size} skewed partitions, number of partitions: " +
+          s"${sizes.length} -> ${splitPartitioner.numPartitions}")
+      Some(SkewSplitResult(Some(splitPartitioner), splits.size, sizes, sizesAfter.toArray))
+    }
+  }
+
+  def median(sizes: Array[Long]): Long = {
+    if (sizes.isEmpty) 0L else sizes.sorted.apply(sizes.length / 2)
+  }
+
+  private def countPartitions(
+      spatialRDD: SpatialRDD[Geometry],
+      partitioner: SpatialPartitioner): Array[Long] = {
+    val numPartitions = partitioner.numPartitions
+    spatialRDD.rawSpatialRDD.rdd.treeAggregate(new Array[Long](numPartitions))(
+      (counts, geometry) => {
+        partitioner.placeObject(geometry).asScala.foreach(placed => counts(placed._1) += 1)
+        counts
+      },
+      (counts, other) => {
+        counts.indices.foreach(k => counts(k) += other(k))
+        counts
+      })
+  }
+
+  /**
+   * Sample the envelopes of the geometries placed into the given partitions. Each partition is
+   * sampled at its own rate, so that about `samplesPerSubPartition` envelopes are drawn per
+   * sub-partition, and no more than `maxSamples` envelopes are drawn in total. The envelopes are
+   * clipped to the extent of the partition, so that they can be inserted into a KDB tree covering
+   * the partition.
+   */
+  private def sampleEnvelopes(
+      spatialRDD: SpatialRDD[Geometry],
+      partitioner: SpatialPartitioner,
+      numSubPartitions: Map[Int, Int],
+      counts: Array[Long]): Map[Int, Array[Envelope]] = {
+    if (numSubPartitions.isEmpty) {
+      return Map.empty
+    }
+    val targets = numSubPartitions.map { case (k, n) =>
+      k -> math.min(samplesPerSubPartition.toLong * n, counts(k)).toDouble
+    }
+    val scale = math.min(1.0, maxSamples / targets.values.sum)
+    val fractions = targets.map { case (k, target) =>
+      k -> math.min(1.0, target * scale / counts(k))
+    }
+    val grids = partitioner.getGrids
+    val seed = new java.util.Random().nextLong()
+    spatialRDD.rawSpatialRDD.rdd
+      .mapPartitionsWithIndex { (index, geometries) =>
+        val random = new java.util.Random(seed + index)
+        geometries.flatMap { geometry =>
+          partitioner
+            .placeObject(geometry)
+            .asScala
+            .map(_._1.intValue())
+            .filter(k => fractions.get(k).exists(random.nextDouble() < _))
+            .map(k => (k, geometry.getEnvelopeInternal.intersection(grids.get(k))))
+        }
+      }
+      .collect()
+      .groupBy(_._1)
+      .map { case (k, envelopes) => k -> envelopes.map(_._2) }
+  }
+
+  private def leafItemCounts(tree: KDB): Seq[Int] = {
+    val counts = new ArrayBuffer[Int]()
+    tree.traverse(new KDB.Visitor {
+      override def visit(node: KDB): Boolean = {
+        if (node.isLeaf) {
+          counts += node.getItemCount
+        }
+        true
+      }
+    })
+    counts
+  }
+}
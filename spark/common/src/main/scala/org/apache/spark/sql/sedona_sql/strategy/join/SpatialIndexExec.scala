@@ -19,7 +19,8 @@
 package org.apache.spark.sql.sedona_sql.strategy.join
 
 import org.apache.sedona.core.enums.IndexType
-import org.apache.sedona.core.spatialRddTool.IndexBuilder
+import org.apache.sedona.core.spatialRDD.SpatialRDD
+import org.apache.sedona.core.spatialRddTool.{IndexBuilder, PackedHilbertRTree}
 
 import scala.jdk.CollectionConverters._
 import org.apache.spark.broadcast.Broadcast
@@ -30,6 +31,7 @@ import org.apache.spark.sql.catalyst.expressions.{Attribute, BindReferences, Exp
 import org.apache.spark.sql.execution.SparkPlan
 import org.apache.spark.sql.sedona_sql.execution.SedonaUnaryExecNode
 import org.locationtech.jts.geom.Geometry
+import org.locationtech.jts.index.SpatialIndex
 
 import java.util.Collections
 
@@ -69,18 +71,38 @@ case class SpatialIndexExec(
         }
     }
 
-    spatialRDD.buildIndex(indexType, false)
-    val spatialIndexes = spatialRDD.indexedRawRDD.take(1).asScala
-    val spatialIndex = if (spatialIndexes.nonEmpty) {
-      spatialIndexes.head
+    val spatialIndex = if (indexType == IndexType.PACKED_RTREE) {
+      buildPackedIndex(spatialRDD)
     } else {
-      // The broadcasted dataframe contains 0 partition. In this case, we should provide an empty spatial index.
-      val indexBuilder = new IndexBuilder[Geometry](indexType)
-      indexBuilder.call(Collections.emptyIterator()).next()
+      spatialRDD.buildIndex(indexType, false)
+      val spatialIndexes = spatialRDD.indexedRawRDD.take(1).asScala
+      if (spatialIndexes.nonEmpty) {
+        spatialIndexes.head
+      } else {
+        // The broadcasted dataframe contains 0 partition. In this case, we should provide an empty spatial index.
+        val indexBuilder = new IndexBuilder[Geometry](indexType)
+        indexBuilder.call(Collections.emptyIterator()).next()
+      }
     }
     sparkContext.broadcast(spatialIndex).asInstanceOf[Broadcast[T]]
   }
 
+  private def buildPackedIndex(spatialRDD: SpatialRDD[Geometry]): SpatialIndex = {
+    val spatialIndexes = spatialRDD.rawSpatialRDD.rdd
+      .mapPartitions { geometries =>
+        Iterator.single(
+          PackedHilbertRTree.build(geometries.asJava, PackedHilbertRTree.DEFAULT_NODE_CAPACITY))
+      }
+      .take(1)
+    if (spatialIndexes.nonEmpty) {
+      spatialIndexes.head
+    } else {
+      PackedHilbertRTree.build(
+        Collections.emptyIterator[Geometry](),
+        PackedHilbertRTree.DEFAULT_NODE_CAPACITY)
+    }
+  }
+
   protected def withNewChildInternal(newChild: SparkPlan): SparkPlan = {
     copy(child = newChild)
   }
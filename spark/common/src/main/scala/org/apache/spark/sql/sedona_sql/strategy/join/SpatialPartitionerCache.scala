@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.strategy.join
+
+import com.github.benmanes.caffeine.cache.{Cache, Caffeine}
+import org.apache.hadoop.fs.Path
+import org.apache.sedona.core.enums.GridType
+import org.apache.sedona.core.spatialPartitioning.SpatialPartitioner
+import org.apache.sedona.core.utils.SedonaConf
+import org.apache.spark.internal.Logging
+import org.apache.spark.serializer.JavaSerializer
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.execution.{FileSourceScanExec, SparkPlan}
+import org.apache.spark.sql.execution.datasources.PartitioningAwareFileIndex
+
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+
+/**
+ * Key of a cached spatial partitioner
+ *
+ * @param fingerprint
+ *   fingerprint of the plan of the dominant side of the join
+ * @param gridType
+ *   grid type of the partitioner
+ * @param numPartitions
+ *   requested number of partitions, or -1 if the number of partitions is derived from the data
+ */
+private[join] case class PartitionerCacheKey(
+    fingerprint: String,
+    gridType: GridType,
+    numPartitions: Int) {
+
+  def fileName: String =
+    s"partitioner-${gridType.name().toLowerCase}-$numPartitions-$fingerprint"
+}
+
+/**
+ * Session level cache of the spatial partitioners built by partitioned spatial joins. Building a
+ * partitioner scans the dominant side of the join twice: once for computing its extent and its
+ * count, and once for sampling it. Joins whose dominant side has the same plan as a previous join
+ * reuse the partitioner of the previous join instead.
+ *
+ * A partitioner is only cached when all the leaves of the dominant side plan are scans of listed
+ * files, and the fingerprint of the plan includes the path, the length and the modification time
+ * of every scanned file.
+ * Partitioners can optionally be persisted to a directory, so that they can be reloaded by
+ * other applications.
+ */
+private[join] object SpatialPartitionerCache extends Logging {
+
+  // Partitioners cached by each session. The partitioners of a session are released once the
+  // session is garbage collected.
+  private val caches: Cache[SparkSession, Cache[PartitionerCacheKey, SpatialPartitioner]] =
+    Caffeine
+      .newBuilder()
+      .weakKeys()
+      .build[SparkSession, Cache[PartitionerCacheKey, SpatialPartitioner]]()
+
+  /**
+   * Compute the fingerprint of the plan of the dominant side of a join
+   *
+   * @param plan
+   *   plan of the dominant side
+   * @param extras
+   *   descriptions of how the join derives the partitioned geometries from the rows of the plan
+   * @return
+   *   None if the plan does not only read files, otherwise the hex digest of the canonicalized
+   *   plan
+   */
+  def fingerprint(plan: SparkPlan, extras: Seq[String]): Option[String] = {
+    val canonicalized = plan.canonicalized
+    val leaves = canonicalized.collectLeaves()
+    val listsFiles = leaves.forall {
+      case scan: FileSourceScanExec =>
+        scan.relation.location.isInstanceOf[PartitioningAwareFileIndex]
+      case _ => false
+    }
+    if (leaves.isEmpty || !listsFiles) {
+      return None
+    }
+    val digest = MessageDigest.getInstance("SHA-256")
+    def update(s: String): Unit = {
+      digest.update(s.getBytes(StandardCharsets.UTF_8))
+      digest.update(0.toByte)
+    }
+    canonicalized.foreach { node =>
+      update(node.nodeName)
+      update(node.argString(Int.MaxValue))
+      node match {
+        case scan: FileSourceScanExec =>
+          // The plan of a file scan only shows an abbreviated location. Changes of the scanned
+          // files, including rewrites keeping their sizes, are detected by their listing.
+          val location = scan.relation.location.asInstanceOf[PartitioningAwareFileIndex]
+          location.rootPaths.foreach(path => update(path.toString))
+          location.allFiles().sortBy(_.getPath.toString).foreach { file =>
+            update(file.getPath.toString)
+            update(file.getLen.toString)
+            update(file.getModificationTime.toString)
+          }
+        case _ =>
+      }
+    }
+    extras.foreach(update)
+    Some(digest.digest().map(b => f"$b%02x").mkString)
+  }
+
+  /**
+   * Get a cached partitioner. Partitioners that are not cached in memory are loaded from the
+   * cache directory if they were persisted there.
+   *
+   * @return
+   *   the partitioner, or None if it is not cached
+   */
+  def get(
+      session: SparkSession,
+      key: PartitionerCacheKey,
+      sedonaConf: SedonaConf): Option[SpatialPartitioner] = {
+    val cache = sessionCache(session, sedonaConf)
+    Option(cache.getIfPresent(key)).orElse {
+      val loaded = persistedPath(key, sedonaConf).flatMap(path => load(session, path))
+      loaded.foreach(partitioner => cache.put(key, partitioner))
+      loaded
+    }
+  }
+
+  /**
+   * Cache a partitioner, and persist it to the cache directory if there is one
+   */
+  def put(
+      session: SparkSession,
+      key: PartitionerCacheKey,
+      partitioner: SpatialPartitioner,
+      sedonaConf: SedonaConf): Unit = {
+    sessionCache(session, sedonaConf).put(key, partitioner)
+    persistedPath(key, sedonaConf).foreach(path => save(session, path, partitioner))
+  }
+
+  private def sessionCache(
+      session: SparkSession,
+      sedonaConf: SedonaConf): Cache[PartitionerCacheKey, SpatialPartitioner] = {
+    caches.get(
+      session,
+      new java.util.function.Function[
+        SparkSession,
+        Cache[PartitionerCacheKey, SpatialPartitioner]] {
+        override def apply(
+            session: SparkSession): Cache[PartitionerCacheKey, SpatialPartitioner] =
+          Caffeine
+            .newBuilder()
+            .maximumSize(math.max(0L, sedonaConf.getPartitionerCacheMaxEntries))
+            .build[PartitionerCacheKey, SpatialPartitioner]()
+      })
+  }
+
+  private def persistedPath(key: PartitionerCacheKey, sedonaConf: SedonaConf): Option[Path] = {
+    val dir = sedonaConf.getPartitionerCachePath
+    if (dir == null || dir.isEmpty) None else Some(new Path(dir, key.fileName))
+  }
+
+  private def save(session: SparkSession, path: Path, partitioner: SpatialPartitioner): Unit = {
+    val fs = path.getFileSystem(session.sessionState.newHadoopConf())
+    // Write to a temporary file first, so that concurrent readers never see a partial file
+    val tmpPath = new Path(path.getParent, s".${path.getName}-${java.util.UUID.randomUUID()}")
+    try {
+      val stream = new JavaSerializer(session.sparkContext.getConf)
+        .newInstance()
+        .serializeStream(fs.create(tmpPath, true))
+      try {
+        stream.writeObject(partitioner)
+      } finally {
+        stream.close()
+      }
+      if (!fs.rename(tmpPath, path)) {
+        fs.delete(tmpPath, false)
+      }
+      log.info(s"[SedonaSQL] Saved spatial partitioner to $path")
+    } catch {
+      case e: java.io.IOException =>
+        log.warn(s"[SedonaSQL] Failed to save spatial partitioner to $path", e)
+        fs.delete(tmpPath, false)
+    }
+  }
+
+  private def load(session: SparkSession, path: Path): Option[SpatialPartitioner] = {
+    val fs = path.getFileSystem(session.sessionState.newHadoopConf())
+    try {
+      if (!fs.exists(path)) {
+        return None
+      }
+      val stream = new JavaSerializer(session.sparkContext.getConf)
+        .newInstance()
+        .deserializeStream(fs.open(path))
+      try {
+        val partitioner = stream.readObject[SpatialPartitioner]()
+        log.info(s"[SedonaSQL] Loaded spatial partitioner from $path")
+        Some(partitioner)
+      } finally {
+        stream.close()
+      }
+    } catch {
+      case e @ (_: java.io.IOException | _: ClassNotFoundException | _: ClassCastException) =>
+        // Partitioners persisted by incompatible versions are rebuilt
+        log.warn(s"[SedonaSQL] Failed to load spatial partitioner from $path", e)
+        None
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.spark.sql.sedona_sql.strategy.join
+
+import org.apache.sedona.common.sphere.Spheroid
+import org.apache.spark.sql.catalyst.expressions.{And, Cast, Expression, GreaterThan, GreaterThanOrEqual, LessThan, LessThanOrEqual, Literal, Multiply}
+import org.apache.spark.sql.sedona_sql.expressions.{ST_DWithin, ST_DistanceSphere, ST_DistanceSpheroid}
+import org.apache.spark.sql.types.{BooleanType, DoubleType}
+
+/**
+ * Geodesic distances on the WGS84 ellipsoid are expensive to compute, and most of the candidate
+ * pairs produced by the partitioning phase of a geodesic distance join are farther apart than the
+ * distance threshold. This rewrites the refinement condition of such joins so that each spheroid
+ * distance predicate is preceded by a Haversine distance predicate, which is an order of
+ * magnitude cheaper and rules out most of the far away pairs:
+ *
+ * ST_DistanceSpheroid(a, b) <= d
+ *
+ * becomes
+ *
+ * ST_DistanceSphere(a, b) * 0.99 <= d AND ST_DistanceSpheroid(a, b) <= d
+ *
+ * The scaled Haversine distance never exceeds the geodesic distance (see
+ * [[Spheroid.HAVERSINE_DISTANCE_LOWER_BOUND_RATIO]]), so the rewritten condition is equivalent to
+ * the original one.
+ */
+object SpheroidDistanceFilter {
+
+  def withLowerBound(condition: Expression): Expression = condition.transformUp {
+    case predicate @ LessThanOrEqual(ST_DistanceSpheroid(Seq(a, b)), distance) =>
+      And(lowerBound(a, b, distance), predicate)
+    case predicate @ LessThan(ST_DistanceSpheroid(Seq(a, b)), distance) =>
+      And(lowerBound(a, b, distance), predicate)
+    case predicate @ GreaterThanOrEqual(distance, ST_DistanceSpheroid(Seq(a, b))) =>
+      And(lowerBound(a, b, distance), predicate)
+    case predicate @ GreaterThan(distance, ST_DistanceSpheroid(Seq(a, b))) =>
+      And(lowerBound(a, b, distance), predicate)
+    case predicate @ ST_DWithin(Seq(a, b, distance, Literal(true, BooleanType))) =>
+      And(lowerBound(a, b, distance), predicate)
+  }
+
+  private def lowerBound(a: Expression, b: Expression, distance: Expression): Expression = {
+    val haversineDistance = Multiply(
+      ST_DistanceSphere(Seq(a, b)),
+      Literal(Spheroid.HAVERSINE_DISTANCE_LOWER_BOUND_RATIO))
+    val threshold = if (distance.dataType == DoubleType) distance else Cast(distance, DoubleType)
+    LessThanOrEqual(haversineDistance, threshold)
+  }
+}
@@ -21,12 +21,15 @@ package org.apache.spark.sql.sedona_sql.strategy.join
 import org.apache.sedona.core.enums.JoinSpartitionDominantSide
 import org.apache.sedona.core.spatialOperator.{JoinQuery, SpatialPredicate}
 import org.apache.sedona.core.spatialOperator.JoinQuery.JoinParams
+import org.apache.sedona.core.spatialRDD.SpatialRDD
 import org.apache.sedona.core.utils.SedonaConf
 import org.apache.spark.rdd.RDD
 import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.expressions.codegen.GenerateUnsafeRowJoiner
 import org.apache.spark.sql.catalyst.expressions.{Attribute, BindReferences, Expression, Predicate, UnsafeRow}
-import org.apache.spark.sql.execution.SparkPlan
+import org.apache.spark.sql.execution.{SQLExecution, SparkPlan}
+import org.apache.spark.sql.execution.metric.{SQLMetric, SQLMetrics}
+import org.apache.spark.storage.StorageLevel
 import org.locationtech.jts.geom.Geometry
 
 trait TraitJoinQueryExec extends TraitJoinQueryBase {
@@ -41,6 +44,35 @@ trait TraitJoinQueryExec extends TraitJoinQueryBase {
 
   override def output: Seq[Attribute] = left.output ++ right.output
 
+  protected lazy val skewSplitMetrics: Map[String, SQLMetric] = Map(
+    "numSkewedPartitions" -> SQLMetrics.createMetric(sparkContext, "number of skewed partitions"),
+    "numPartitionsBeforeSkewSplit" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of partitions before skew split"),
+    "numPartitionsAfterSkewSplit" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of partitions after skew split"),
+    "medianPartitionSizeBeforeSkewSplit" -> SQLMetrics.createMetric(
+      sparkContext,
+      "median partition size before skew split"),
+    "maxPartitionSizeBeforeSkewSplit" -> SQLMetrics.createMetric(
+      sparkContext,
+      "max partition size before skew split"),
+    "medianPartitionSizeAfterSkewSplit" -> SQLMetrics.createMetric(
+      sparkContext,
+      "estimated median partition size after skew split"),
+    "maxPartitionSizeAfterSkewSplit" -> SQLMetrics.createMetric(
+      sparkContext,
+      "estimated max partition size after skew split"))
+
+  protected lazy val partitionerCacheMetrics: Map[String, SQLMetric] = Map(
+    "numPartitionerCacheHits" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of partitioner cache hits"),
+    "numPartitionerCacheMisses" -> SQLMetrics.createMetric(
+      sparkContext,
+      "number of partitioner cache misses"))
+
   override protected def doExecute(): RDD[InternalRow] = {
     val boundLeftShape = BindReferences.bindReference(leftShape, left.output)
     val boundRightShape = BindReferences.bindReference(rightShape, right.output)
@@ -53,6 +85,73 @@ trait TraitJoinQueryExec extends TraitJoinQueryBase {
     val (leftShapes, rightShapes) =
       toSpatialRddPair(leftResultsRaw, boundLeftShape, rightResultsRaw, boundRightShape)
 
+    val cacheKey = partitionerCacheKey(sedonaConf)
+    cacheKey.flatMap(key => SpatialPartitionerCache.get(session, key, sedonaConf)) match {
+      case Some(partitioner) =>
+        // The dominant side was partitioned by a previous join, skip analyzing and sampling it
+        log.info(s"[SedonaSQL] Reusing cached spatial partitioner ${cacheKey.get.fileName}")
+        leftShapes.spatialPartitioning(partitioner)
+        rightShapes.spatialPartitioning(partitioner)
+        postPartitionerCacheMetric("numPartitionerCacheHits")
+      case None =>
+        partitionSpatialRdds(leftShapes, rightShapes, sedonaConf)
+        for (key <- cacheKey) {
+          Option(leftShapes.getPartitioner).foreach(
+            SpatialPartitionerCache.put(session, key, _, sedonaConf))
+          postPartitionerCacheMetric("numPartitionerCacheMisses")
+        }
+    }
+
+    if (sedonaConf.isSkewSplitEnabled && leftShapes.spatialPartitionedRDD != null &&
+      rightShapes.spatialPartitionedRDD != null) {
+      splitSkewedPartitions(leftShapes, rightShapes, sedonaConf)
+    }
+
+    val joinParams = new JoinParams(
+      sedonaConf.getUseIndex,
+      spatialPredicate,
+      sedonaConf.getIndexType,
+      sedonaConf.getJoinBuildSide)
+
+    // logInfo(s"leftShape count ${leftShapes.spatialPartitionedRDD.count()}")
+    // logInfo(s"rightShape count ${rightShapes.spatialPartitionedRDD.count()}")
+
+    val matchesRDD: RDD[(Geometry, Geometry)] =
+      (leftShapes.spatialPartitionedRDD, rightShapes.spatialPartitionedRDD) match {
+        case (null, null) =>
+          // Dominant side is empty, skipped creating partitioned RDDs. Result of join should also be empty.
+          sparkContext.parallelize(Seq[(Geometry, Geometry)]())
+        case _ => JoinQuery.spatialJoin(leftShapes, rightShapes, joinParams).rdd
+      }
+
+    logDebug(s"Join result has ${matchesRDD.count()} rows")
+
+    matchesRDD.mapPartitions { iter =>
+      val joinRow = {
+        val joiner = GenerateUnsafeRowJoiner.create(left.schema, right.schema)
+        (l: UnsafeRow, r: UnsafeRow) => joiner.join(l, r)
+      }
+
+      val joined = iter.map { case (l, r) =>
+        val leftRow = l.getUserData.asInstanceOf[UnsafeRow]
+        val rightRow = r.getUserData.asInstanceOf[UnsafeRow]
+        joinRow(leftRow, rightRow)
+      }
+
+      extraCondition match {
+        case Some(condition) =>
+          val boundCondition =
+            Predicate.create(SpheroidDistanceFilter.withLowerBound(condition), output)
+          joined.filter(row => boundCondition.eval(row))
+        case None => joined
+      }
+    }
+  }
+
+  private def partitionSpatialRdds(
+      leftShapes: SpatialRDD[Geometry],
+      rightShapes: SpatialRDD[Geometry],
+      sedonaConf: SedonaConf): Unit = {
     // Only do SpatialRDD analyze when the user doesn't know approximate total count of the spatial partitioning
     // dominant side rdd
     if (sedonaConf.getJoinApproximateTotalCount == -1) {
@@ -62,8 +161,10 @@ trait TraitJoinQueryExec extends TraitJoinQueryBase {
         rightShapes.analyze()
       }
     }
-    log.info("[SedonaSQL] Number of partitions on the left: " + leftResultsRaw.partitions.size)
-    log.info("[SedonaSQL] Number of partitions on the right: " + rightResultsRaw.partitions.size)
+    log.info(
+      "[SedonaSQL] Number of partitions on the left: " + leftShapes.rawSpatialRDD.partitions.size)
+    log.info(
+      "[SedonaSQL] Number of partitions on the right: " + rightShapes.rawSpatialRDD.partitions.size)
 
     var numPartitions = -1
     try {
@@ -102,44 +203,91 @@ trait TraitJoinQueryExec extends TraitJoinQueryBase {
         }
       }
     }
+  }
 
-    val joinParams = new JoinParams(
-      sedonaConf.getUseIndex,
-      spatialPredicate,
-      sedonaConf.getIndexType,
-      sedonaConf.getJoinBuildSide)
-
-    // logInfo(s"leftShape count ${leftShapes.spatialPartitionedRDD.count()}")
-    // logInfo(s"rightShape count ${rightShapes.spatialPartitionedRDD.count()}")
-
-    val matchesRDD: RDD[(Geometry, Geometry)] =
-      (leftShapes.spatialPartitionedRDD, rightShapes.spatialPartitionedRDD) match {
-        case (null, null) =>
-          // Dominant side is empty, skipped creating partitioned RDDs. Result of join should also be empty.
-          sparkContext.parallelize(Seq[(Geometry, Geometry)]())
-        case _ => JoinQuery.spatialJoin(leftShapes, rightShapes, joinParams).rdd
-      }
+  /**
+   * Get the key of the cached partitioner of this join
+   *
+   * @return
+   *   None if the partitioner cache is disabled or the partitioner of this join cannot be cached
+   */
+  private def partitionerCacheKey(sedonaConf: SedonaConf): Option[PartitionerCacheKey] = {
+    if (!sedonaConf.isPartitionerCacheEnabled || session == null) {
+      return None
+    }
+    val dominantLeft = sedonaConf.getJoinSpartitionDominantSide == JoinSpartitionDominantSide.LEFT
+    val dominantPlan = if (dominantLeft) left else right
+    val extras =
+      Seq(nodeName, leftShape.dataType.catalogString, rightShape.dataType.catalogString) ++
+        dominantShapeDescription(dominantLeft)
+    SpatialPartitionerCache
+      .fingerprint(dominantPlan, extras)
+      .map(PartitionerCacheKey(_, sedonaConf.getJoinGridType, sedonaConf.getFallbackPartitionNum))
+  }
 
-    logDebug(s"Join result has ${matchesRDD.count()} rows")
+  /**
+   * Describe how the geometries of the dominant side are derived from its rows. The description
+   * is part of the key of the cached partitioner.
+   */
+  protected def dominantShapeDescription(dominantLeft: Boolean): Seq[String] = {
+    val shape = if (dominantLeft) {
+      BindReferences.bindReference(leftShape, left.output)
+    } else {
+      BindReferences.bindReference(rightShape, right.output)
+    }
+    Seq(shape.canonicalized.toString)
+  }
 
-    matchesRDD.mapPartitions { iter =>
-      val joinRow = {
-        val joiner = GenerateUnsafeRowJoiner.create(left.schema, right.schema)
-        (l: UnsafeRow, r: UnsafeRow) => joiner.join(l, r)
-      }
+  /**
+   * Record whether this join reused a cached partitioner. The metrics are set on the driver, so
+   * they have to be posted to show up in the Spark UI.
+   */
+  private def postPartitionerCacheMetric(name: String): Unit = {
+    partitionerCacheMetrics(name).set(1)
+    val executionId = sparkContext.getLocalProperty(SQLExecution.EXECUTION_ID_KEY)
+    SQLMetrics.postDriverMetricUpdates(
+      sparkContext,
+      executionId,
+      Seq(partitionerCacheMetrics(name)))
+  }
 
-      val joined = iter.map { case (l, r) =>
-        val leftRow = l.getUserData.asInstanceOf[UnsafeRow]
-        val rightRow = r.getUserData.asInstanceOf[UnsafeRow]
-        joinRow(leftRow, rightRow)
+  private def splitSkewedPartitions(
+      leftShapes: SpatialRDD[Geometry],
+      rightShapes: SpatialRDD[Geometry],
+      sedonaConf: SedonaConf): Unit = {
+    // The partitions are counted and then sampled before the join is executed. The geometries are
+    // persisted so that the children of the join are executed once for both passes, and released
+    // once the geometries are partitioned by the final partitioner.
+    val persisted = Seq(leftShapes, rightShapes).map(_.rawSpatialRDD).filter { rdd =>
+      rdd.getStorageLevel == StorageLevel.NONE
+    }
+    persisted.foreach(_.persist(StorageLevel.MEMORY_AND_DISK))
+    val splitResult =
+      try {
+        val result = SkewedPartitionSplitter.split(leftShapes, rightShapes, sedonaConf)
+        result.flatMap(_.partitioner).foreach { partitioner =>
+          leftShapes.spatialPartitioning(partitioner)
+          rightShapes.spatialPartitioning(partitioner)
+        }
+        result
+      } finally {
+        persisted.foreach(_.unpersist(false))
       }
 
-      extraCondition match {
-        case Some(condition) =>
-          val boundCondition = Predicate.create(condition, output)
-          joined.filter(row => boundCondition.eval(row))
-        case None => joined
-      }
+    splitResult.foreach { result =>
+      skewSplitMetrics("numSkewedPartitions").set(result.numSkewedPartitions)
+      skewSplitMetrics("numPartitionsBeforeSkewSplit").set(result.sizesBefore.length)
+      skewSplitMetrics("numPartitionsAfterSkewSplit").set(result.sizesAfter.length)
+      skewSplitMetrics("medianPartitionSizeBeforeSkewSplit").set(
+        SkewedPartitionSplitter.median(result.sizesBefore))
+      skewSplitMetrics("maxPartitionSizeBeforeSkewSplit").set(
+        if (result.sizesBefore.isEmpty) 0L else result.sizesBefore.max)
+      skewSplitMetrics("medianPartitionSizeAfterSkewSplit").set(
+        SkewedPartitionSplitter.median(result.sizesAfter))
+      skewSplitMetrics("maxPartitionSizeAfterSkewSplit").set(
+        if (result.sizesAfter.isEmpty) 0L else result.sizesAfter.max)
+      val executionId = sparkContext.getLocalProperty(SQLExecution.EXECUTION_ID_KEY)
+      SQLMetrics.postDriverMetricUpdates(sparkContext, executionId, skewSplitMetrics.values.toSeq)
     }
   }
 
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.knnJudgement;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.sedona.common.sphere.Haversine;
+import org.apache.sedona.common.sphere.Spheroid;
+import org.apache.sedona.core.enums.DistanceMetric;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class PointKDTreeTest {
+  private static final GeometryFactory gf = new GeometryFactory();
+
+  @Test
+  public void testNearestNeighborsMatchBruteForce() {
+    Random random = new Random(42);
+    for (DistanceMetric metric : DistanceMetric.values()) {
+      for (int numPoints : new int[] {1, 7, 100, 2000}) {
+        List<Point> points = randomPoints(random, numPoints);
+        // Duplicated points
+        points.addAll(points.subList(0, Math.min(5, numPoints)));
+        PointKDTree<Point> tree = PointKDTree.build(points);
+        for (int k : new int[] {1, 4, 10}) {
+          PointKDTree<Point>.Searcher searcher = tree.searcher(k, metric);
+          for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            int[] ids = searcher.nearestNeighbors(x, y);
+            double[] expected = new double[points.size()];
+            for (int j = 0; j < points.size(); j++) {
+              expected[j] = distance(metric, x, y, points.get(j));
+            }
+            Arrays.sort(expected);
+            double[] actual = new double[ids.length];
+            for (int j = 0; j < ids.length; j++) {
+              actual[j] = distance(metric, x, y, tree.get(ids[j]));
+            }
+            assertArrayEquals(
+                Arrays.copyOf(expected, Math.min(k, points.size())), actual, 0);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testQueryEnvelope() {
+    List<Point> points = randomPoints(new Random(7), 1000);
+    PointKDTree<Point> tree = PointKDTree.build(points);
+    Envelope envelope = new Envelope(-30, 50, -10, 20);
+    List<Integer> ids = new ArrayList<>();
+    tree.query(envelope, ids::add);
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < points.size(); i++) {
+      if (envelope.contains(points.get(i).getCoordinate())) {
+        expected.add(i);
+      }
+    }
+    Collections.sort(ids);
+    assertEquals(expected, ids);
+  }
+
+  @Test
+  public void testOnlyPointsAreIndexed() {
+    List<Geometry> geometries = new ArrayList<>(randomPoints(new Random(1), 10));
+    assertTrue(PointKDTree.build(geometries) != null);
+    geometries.add(gf.createPoint());
+    assertNull(PointKDTree.build(geometries));
+    geometries.set(10, gf.toGeometry(new Envelope(0, 1, 0, 1)));
+    assertNull(PointKDTree.build(geometries));
+  }
+
+  @Test
+  public void testSupportedQueries() {
+    PointKDTree<Point> tree = PointKDTree.build(randomPoints(new Random(1), 10));
+    Point point = gf.createPoint(new Coordinate(10, 20));
+    Point outOfRange = gf.createPoint(new Coordinate(10, 200));
+    assertTrue(tree.supports(point, DistanceMetric.HAVERSINE));
+    assertTrue(tree.supports(outOfRange, DistanceMetric.EUCLIDEAN));
+    assertFalse(tree.supports(outOfRange, DistanceMetric.SPHEROID));
+    assertFalse(tree.supports(gf.createPoint(), DistanceMetric.EUCLIDEAN));
+    assertFalse(
+        tree.supports(gf.toGeometry(new Envelope(0, 1, 0, 1)), DistanceMetric.EUCLIDEAN));
+  }
+
+  private static List<Point> randomPoints(Random random, int numPoints) {
+    List<Point> points = new ArrayList<>();
+    for (int i = 0; i < numPoints; i++) {
+      points.add(
+          gf.createPoint(
+              new Coordinate(random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90)));
+    }
+    return points;
+  }
+
+  private static double distance(DistanceMetric metric, double x, double y, Point point) {
+    Coordinate coordinate = point.getCoordinate();
+    switch (metric) {
+      case HAVERSINE:
+        return Haversine.pointDistance(
+            x, y, coordinate.x, coordinate.y, Haversine.AVG_EARTH_RADIUS);
+      case SPHEROID:
+        return Spheroid.pointDistance(x, y, coordinate.x, coordinate.y);
+      default:
+        double dx = coordinate.x - x;
+        double dy = coordinate.y - y;
+        return dx * dx + dy * dy;
+    }
+  }
+}
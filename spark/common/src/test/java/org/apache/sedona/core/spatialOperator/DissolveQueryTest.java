@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.spatialOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.sedona.core.TestBase;
+import org.apache.sedona.core.spatialRDD.SpatialRDD;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+
+public class DissolveQueryTest extends TestBase {
+
+  private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+  @BeforeClass
+  public static void onceExecutedBeforeAll() {
+    initialize(DissolveQueryTest.class.getName());
+  }
+
+  @AfterClass
+  public static void teardown() {
+    sc.stop();
+  }
+
+  private static SpatialRDD<Geometry> spatialRDDOf(List<Geometry> geometries) {
+    SpatialRDD<Geometry> spatialRDD = new SpatialRDD<>();
+    spatialRDD.setRawSpatialRDD(sc.parallelize(geometries, 4));
+    return spatialRDD;
+  }
+
+  @Test
+  public void testDissolveParcels() throws Exception {
+    // Two separate blocks of 20 x 20 unit parcels
+    List<Geometry> parcels = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 20; j++) {
+        parcels.add(geometryFactory.toGeometry(new Envelope(i, i + 1, j, j + 1)));
+        parcels.add(geometryFactory.toGeometry(new Envelope(i + 30, i + 31, j, j + 1)));
+      }
+    }
+
+    List<Geometry> dissolved = DissolveQuery.SpatialDissolve(spatialRDDOf(parcels), 8).collect();
+
+    assertEquals(2, dissolved.size());
+    for (Geometry polygon : dissolved) {
+      assertEquals(400.0, polygon.getArea(), 1e-9);
+      assertEquals(4 * 20.0, polygon.getLength(), 1e-9);
+    }
+  }
+
+  @Test
+  public void testDissolveMatchesUnion() throws Exception {
+    List<Geometry> polygons = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      double x = (i * 37) % 100;
+      double y = (i * 61) % 100;
+      polygons.add(geometryFactory.toGeometry(new Envelope(x, x + 3, y, y + 3)).buffer(1));
+    }
+
+    List<Geometry> dissolved = DissolveQuery.SpatialDissolve(spatialRDDOf(polygons), 16).collect();
+
+    Geometry expected = OverlayNGRobust.union(polygons);
+    Geometry actual = geometryFactory.buildGeometry(dissolved);
+    assertEquals(expected.getNumGeometries(), dissolved.size());
+    assertTrue(actual.isValid());
+    assertEquals(0.0, OverlayNGRobust.union(dissolved).symDifference(expected).getArea(), 1e-6);
+  }
+
+  @Test
+  public void testDissolveEmptyRDD() throws Exception {
+    assertEquals(
+        0, DissolveQuery.SpatialDissolve(spatialRDDOf(Collections.emptyList())).count());
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.spatialPartitioning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+public class HilbertPartitioningTest {
+
+  @Test
+  public void testComputeHValue() {
+    // Hilbert curve of order 2, listed row by row from the bottom row
+    int[] expected = {0, 1, 14, 15, 3, 2, 13, 12, 4, 7, 8, 11, 5, 6, 9, 10};
+    int[] actual = new int[16];
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 4; x++) {
+        actual[y * 4 + x] = HilbertPartitioning.computeHValue(4, x, y);
+      }
+    }
+    assertArrayEquals(expected, actual);
+    assertEquals(
+        HilbertPartitioning.computeHValue(1 << 15, 12345, 23456),
+        HilbertPartitioning.computeHValue(1L << 15, 12345L, 23456L));
+  }
+
+  @Test
+  public void testGridIDOfQuadrants() throws Exception {
+    // The curve visits the lower left, upper left, upper right and lower right quadrants of the
+    // grid in this order, each quadrant covering a quarter of the H values
+    int quarter = 1 << 28;
+    int[] partitionBounds = {quarter - 1, 2 * quarter - 1, 3 * quarter - 1, Integer.MAX_VALUE};
+    Envelope boundary = new Envelope(0, 100, 0, 100);
+    assertEquals(
+        0, HilbertPartitioning.gridID(boundary, new Envelope(10, 20, 10, 20), partitionBounds));
+    assertEquals(
+        1, HilbertPartitioning.gridID(boundary, new Envelope(10, 20, 80, 90), partitionBounds));
+    assertEquals(
+        2, HilbertPartitioning.gridID(boundary, new Envelope(80, 90, 80, 90), partitionBounds));
+    assertEquals(
+        3, HilbertPartitioning.gridID(boundary, new Envelope(80, 90, 10, 20), partitionBounds));
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sedona.core.spatialRddTool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.spark.sql.catalyst.expressions.UnsafeRow;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.index.SpatialIndex;
+import org.locationtech.jts.index.strtree.STRtree;
+
+public class PackedHilbertRTreeTest {
+  private final GeometryFactory factory = new GeometryFactory();
+
+  private List<Geometry> randomGeometries(int numGeometries, Random random) {
+    List<Geometry> geometries = new ArrayList<>();
+    for (int k = 0; k < numGeometries; k++) {
+      double x = random.nextDouble() * 100;
+      double y = random.nextDouble() * 100;
+      Geometry geometry =
+          k % 3 == 0
+              ? factory.createPoint(new Coordinate(x, y))
+              : factory.toGeometry(
+                  new Envelope(x, x + random.nextDouble() * 5, y, y + random.nextDouble() * 5));
+      UnsafeRow row = new UnsafeRow(1);
+      row.pointTo(new byte[16], 16);
+      row.setLong(0, k);
+      geometry.setUserData(row);
+      geometries.add(geometry);
+    }
+    return geometries;
+  }
+
+  private Set<Long> queryIds(SpatialIndex index, Envelope window) {
+    Set<Long> ids = new TreeSet<>();
+    for (Object item : index.query(window)) {
+      ids.add(((UnsafeRow) ((Geometry) item).getUserData()).getLong(0));
+    }
+    return ids;
+  }
+
+  @Test
+  public void testQueryMatchesSTRtree() {
+    Random random = new Random(42);
+    List<Geometry> geometries = randomGeometries(1000, random);
+    STRtree strTree = new STRtree();
+    for (Geometry geometry : geometries) {
+      strTree.insert(geometry.getEnvelopeInternal(), geometry);
+    }
+    PackedHilbertRTree packedTree =
+        PackedHilbertRTree.build(geometries.iterator(), PackedHilbertRTree.DEFAULT_NODE_CAPACITY);
+    assertEquals(1000, packedTree.size());
+
+    for (int k = 0; k < 100; k++) {
+      double x = random.nextDouble() * 100;
+      double y = random.nextDouble() * 100;
+      Envelope window = new Envelope(x, x + random.nextDouble() * 20, y, y + 10);
+      assertEquals(queryIds(strTree, window), queryIds(packedTree, window));
+    }
+  }
+
+  @Test
+  public void testQueryReturnsSameGeometries() {
+    List<Geometry> geometries = randomGeometries(100, new Random(7));
+    PackedHilbertRTree tree = PackedHilbertRTree.build(geometries.iterator(), 4);
+    Envelope window = new Envelope(0, 100, 0, 100);
+    List first = tree.query(window);
+    List second = tree.query(window);
+    assertEquals(100, first.size());
+    for (int k = 0; k < first.size(); k++) {
+      assertSame(first.get(k), second.get(k));
+      Geometry geometry = (Geometry) first.get(k);
+      long id = ((UnsafeRow) geometry.getUserData()).getLong(0);
+      assertTrue(geometries.get((int) id).equalsExact(geometry));
+    }
+  }
+
+  @Test
+  public void testKryoSerialization() {
+    List<Geometry> geometries = randomGeometries(500, new Random(3));
+    PackedHilbertRTree tree =
+        PackedHilbertRTree.build(geometries.iterator(), PackedHilbertRTree.DEFAULT_NODE_CAPACITY);
+
+    Kryo kryo = new Kryo();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    Output output = new Output(bos);
+    kryo.writeObject(output, tree);
+    output.close();
+    PackedHilbertRTree copy =
+        kryo.readObject(new Input(bos.toByteArray()), PackedHilbertRTree.class);
+
+    assertEquals(tree.size(), copy.size());
+    Envelope window = new Envelope(20, 60, 30, 50);
+    assertEquals(queryIds(tree, window), queryIds(copy, window));
+  }
+
+  @Test
+  public void testEmptyTree() {
+    PackedHilbertRTree tree =
+        PackedHilbertRTree.build(
+            Collections.<Geometry>emptyIterator(), PackedHilbertRTree.DEFAULT_NODE_CAPACITY);
+    assertEquals(0, tree.size());
+    assertTrue(tree.query(new Envelope(0, 1, 0, 1)).isEmpty());
+
+    List<Geometry> geometries = randomGeometries(1, new Random(1));
+    tree = PackedHilbertRTree.build(geometries.iterator(), 2);
+    assertEquals(1, tree.query(geometries.get(0).getEnvelopeInternal()).size());
+  }
+}
@@ -19,7 +19,8 @@
 package org.apache.sedona.sql
 
 import org.apache.spark.sql.execution.joins.BroadcastNestedLoopJoinExec
-import org.apache.spark.sql.sedona_sql.strategy.join.BroadcastIndexJoinExec
+import org.apache.sedona.core.enums.IndexType
+import org.apache.spark.sql.sedona_sql.strategy.join.{BroadcastIndexJoinExec, SpatialIndexExec}
 import org.apache.spark.sql.functions._
 import org.apache.spark.sql.Row
 
@@ -2487,6 +2488,72 @@ class BroadcastIndexJoinSuite extends TestBaseScala {
     }
   }
 
+  describe("Sedona-SQL Broadcast join prepared geometry cache") {
+    it("Passed prepared geometry cache metrics") {
+      withConf(
+        Map(
+          "spark.sql.adaptive.enabled" -> "false",
+          "sedona.join.preparedGeometryCache.maxEntries" -> "1")) {
+        val polygonDf = buildPolygonDf.repartition(3)
+        val pointDf = buildPointDf.repartition(5)
+        val broadcastJoinDf = pointDf
+          .alias("pointDf")
+          .join(
+            broadcast(polygonDf).alias("polygonDf"),
+            expr("ST_Contains(polygonDf.polygonshape, pointDf.pointshape)"))
+        assert(broadcastJoinDf.collect().length == 1000)
+
+        val joinExec = broadcastJoinDf.queryExecution.executedPlan.collect {
+          case p: BroadcastIndexJoinExec => p
+        }.head
+        val hits = joinExec.metrics("numPreparedGeometryCacheHits").value
+        val misses = joinExec.metrics("numPreparedGeometryCacheMisses").value
+        val evictions = joinExec.metrics("numPreparedGeometryCacheEvictions").value
+        assert(hits + misses >= 1000)
+        assert(misses > 1)
+        assert(evictions > 0)
+        assert(evictions <= misses)
+      }
+    }
+  }
+
+  describe("Sedona-SQL Broadcast join with packed R-tree index") {
+    it("Passed broadcast joins with packed R-tree index") {
+      withConf(Map("sedona.global.indextype" -> "packed_rtree")) {
+        val polygonDf = buildPolygonDf.repartition(3)
+        val pointDf = buildPointDf.repartition(5)
+
+        val broadcastJoinDf = pointDf
+          .alias("pointDf")
+          .join(
+            broadcast(polygonDf).alias("polygonDf"),
+            expr("ST_Contains(polygonDf.polygonshape, pointDf.pointshape)"))
+        val indexExecs = broadcastJoinDf.queryExecution.sparkPlan.collect {
+          case p: SpatialIndexExec => p
+        }
+        assert(indexExecs.size === 1)
+        assert(indexExecs.head.indexType == IndexType.PACKED_RTREE)
+        assert(broadcastJoinDf.count() == 1000)
+
+        val distanceJoinDf = broadcast(pointDf)
+          .alias("pointDf1")
+          .join(
+            pointDf.alias("pointDf2"),
+            expr("ST_Distance(pointDf1.pointshape, pointDf2.pointshape) <= 2"))
+        val antiJoinDf = pointDf.join(
+          broadcast(polygonDf),
+          expr("ST_Contains(polygonshape, pointshape)"),
+          "left_anti")
+        val (expectedDistanceJoinCount, expectedAntiJoinCount) =
+          withConf(Map("sedona.global.indextype" -> "rtree")) {
+            (distanceJoinDf.count(), antiJoinDf.count())
+          }
+        assert(distanceJoinDf.count() == expectedDistanceJoinCount)
+        assert(antiJoinDf.count() == expectedAntiJoinCount)
+      }
+    }
+  }
+
   describe("Sedona-SQL Automatic broadcast") {
     it("Datasets smaller than threshold should be broadcasted") {
       val polygonDf = buildPolygonDf.repartition(3).alias("polygon")
@@ -23,14 +23,18 @@ import org.apache.hadoop.conf.Configuration
 import org.apache.hadoop.fs.Path
 import org.apache.parquet.hadoop.ParquetFileReader
 import org.apache.parquet.hadoop.util.HadoopInputFile
+import org.apache.parquet.schema.MessageTypeParser
+import org.apache.sedona.core.spatialOperator.SpatialPredicate
 import org.apache.sedona.sql.GeoParquetSpatialFilterPushDownSuite.readGeoParquetMetaDataMap
 import org.apache.sedona.sql.GeoParquetSpatialFilterPushDownSuite.writeTestDataAsGeoParquet
 import org.apache.spark.sql.DataFrame
 import org.apache.spark.sql.SparkSession
 import org.apache.spark.sql.execution.FileSourceScanExec
 import org.apache.spark.sql.execution.SimpleMode
-import org.apache.spark.sql.execution.datasources.geoparquet.{GeoParquetFileFormat, GeoParquetMetaData, GeoParquetSpatialFilter}
+import org.apache.spark.sql.execution.datasources.geoparquet.{Covering, CoveringBBox, GeoParquetFileFormat, GeoParquetMetaData, GeoParquetSpatialFilter, GeometryFieldMetaData}
+import org.apache.spark.sql.execution.datasources.geoparquet.GeoParquetSpatialFilter.{AndFilter, LeafFilter, OrFilter}
 import org.locationtech.jts.geom.Coordinate
+import org.locationtech.jts.geom.Envelope
 import org.locationtech.jts.geom.Geometry
 import org.locationtech.jts.geom.GeometryFactory
 import org.scalatest.prop.TableDrivenPropertyChecks
@@ -319,6 +323,131 @@ class GeoParquetSpatialFilterPushDownSuite extends TestBaseScala with TableDrive
     }
   }
 
+  describe("GeoParquet spatial filter push down to covering columns") {
+    it("Convert spatial filters to predicates on covering columns") {
+      val parquetSchema = MessageTypeParser.parseMessageType("""message spark_schema {
+          |  optional binary geom;
+          |  optional group bbox {
+          |    optional double xmin;
+          |    optional double ymin;
+          |    optional double xmax;
+          |    optional double ymax;
+          |  }
+          |}""".stripMargin)
+      val covering = Covering(
+        CoveringBBox(
+          Seq("bbox", "xmin"),
+          Seq("bbox", "ymin"),
+          None,
+          Seq("bbox", "xmax"),
+          Seq("bbox", "ymax"),
+          None))
+      val columns = Map(
+        "geom" -> GeometryFieldMetaData("WKB", Seq.empty, Seq.empty, covering = Some(covering)))
+      val queryWindow = new GeometryFactory().toGeometry(new Envelope(1, 2, 3, 4))
+
+      val intersects = LeafFilter("geom", SpatialPredicate.INTERSECTS, queryWindow)
+      assert(
+        intersects.toCoveringPredicate(columns, parquetSchema).map(_.toString).contains(
+          "and(and(and(lteq(bbox.xmin, 2.0), lteq(bbox.ymin, 4.0)), " +
+            "gteq(bbox.xmax, 1.0)), gteq(bbox.ymax, 3.0))"))
+      val covers = LeafFilter("geom", SpatialPredicate.COVERS, queryWindow)
+      assert(
+        covers.toCoveringPredicate(columns, parquetSchema).map(_.toString).contains(
+          "and(and(and(lteq(bbox.xmin, 1.0), lteq(bbox.ymin, 3.0)), " +
+            "gteq(bbox.xmax, 2.0)), gteq(bbox.ymax, 4.0))"))
+
+      // Filters on columns without covering cannot be converted
+      val other = LeafFilter("other", SpatialPredicate.INTERSECTS, queryWindow)
+      assert(other.toCoveringPredicate(columns, parquetSchema).isEmpty)
+      assert(OrFilter(intersects, other).toCoveringPredicate(columns, parquetSchema).isEmpty)
+      assert(
+        AndFilter(intersects, other).toCoveringPredicate(columns, parquetSchema) ==
+          intersects.toCoveringPredicate(columns, parquetSchema))
+    }
+
+    it("Prune row groups using statistics of covering columns") {
+      val path = tempDir + "/covering_row_groups"
+      sparkSession
+        .range(0, 10000)
+        .selectExpr("id", "ST_Point(CAST(id AS DOUBLE), CAST(id AS DOUBLE)) AS geom")
+        .selectExpr(
+          "id",
+          "geom",
+          "struct(ST_XMin(geom) AS xmin, ST_YMin(geom) AS ymin, " +
+            "ST_XMax(geom) AS xmax, ST_YMax(geom) AS ymax) AS bbox")
+        .coalesce(1)
+        .write
+        .format("geoparquet")
+        .option("geoparquet.covering.geom", "bbox")
+        .option("parquet.block.size", "4096")
+        .save(path)
+
+      val condition =
+        "ST_Intersects(geom, ST_GeomFromText('POLYGON ((100 100, 110 100, 110 110, 100 110, 100 100))'))"
+      Seq(Seq("id", "geom", "bbox"), Seq("id")).foreach { projection =>
+        val dfFiltered = sparkSession.read
+          .format("geoparquet")
+          .load(path)
+          .where(condition)
+          .select(projection.head, projection.tail: _*)
+        assert(dfFiltered.collect().map(_.getLong(0)).sorted === (100L to 110L))
+        val scan = dfFiltered.queryExecution.executedPlan.collectFirst {
+          case scan: FileSourceScanExec => scan
+        }.get
+        assert(scan.metrics("numOutputRows").value < 10000)
+      }
+    }
+  }
+
+  describe("Spatially clustered GeoParquet writes") {
+    val data = () =>
+      sparkSession
+        .range(0, 20000)
+        .selectExpr("id", "ST_Point(rand(1) * 100, rand(2) * 100) AS geom")
+
+    it("Improve the pruning ratio of files") {
+      val unclusteredPath = tempDir + "/unclustered"
+      data().repartition(8).write.format("geoparquet").save(unclusteredPath)
+      val unclusteredRatio = filePruningRatio(unclusteredPath)
+      info(s"pruning ratio of unclustered files: $unclusteredRatio")
+      assert(unclusteredRatio < 0.1)
+
+      Seq(
+        ("hilbert", Some("0,0,100,100"), 0.6),
+        ("zorder", Some("0,0,100,100"), 0.6),
+        ("hilbert", None, 0.4)).foreach { case (curve, extent, expectedRatio) =>
+        val path = tempDir + s"/clustered_${curve}_${extent.isDefined}"
+        val writer = data().write
+          .format("geoparquet")
+          .option("geoparquet.clustering", curve)
+          .option("geoparquet.clustering.numFiles", "8")
+        extent.foreach(writer.option("geoparquet.clustering.extent", _))
+        writer.save(path)
+
+        val clusteredRatio = filePruningRatio(path)
+        info(s"pruning ratio of $curve clustered files (extent = $extent): $clusteredRatio")
+        assert(clusteredRatio > expectedRatio)
+
+        // The clustering key is not written, and the covering column is added
+        val clusteredDf = sparkSession.read.format("geoparquet").load(path)
+        assert(clusteredDf.columns.toSeq == Seq("id", "geom", "geom_bbox"))
+        assert(clusteredDf.count() == 20000)
+        readGeoParquetMetaData(path).foreach { metadata =>
+          assert(metadata.columns("geom").covering.isDefined)
+        }
+      }
+    }
+
+    it("Reject invalid clustering options") {
+      val path = tempDir + "/clustered_invalid"
+      val e = intercept[IllegalArgumentException] {
+        data().write.format("geoparquet").option("geoparquet.clustering", "peano").save(path)
+      }
+      assert(e.getMessage.contains("peano"))
+    }
+  }
+
   /**
    * Test filter push down using specified query condition, and verify if the pushed down filter
    * prunes regions as expected. We'll also verify the correctness of query results.
@@ -340,6 +469,37 @@ class GeoParquetSpatialFilterPushDownSuite extends TestBaseScala with TableDrive
     assert(expectedResult sameElements actualResult)
   }
 
+  /**
+   * Fraction of the GeoParquet files in a directory that are pruned by a 10 x 10 grid of query
+   * windows covering the extent of the data, according to the bounding boxes in their metadata.
+   */
+  private def filePruningRatio(path: String): Double = {
+    val metadataSeq = readGeoParquetMetaData(path)
+    val factory = new GeometryFactory()
+    val evaluations = for {
+      i <- 0 until 10
+      j <- 0 until 10
+      metadata <- metadataSeq
+    } yield {
+      val window = factory.toGeometry(new Envelope(i * 10, i * 10 + 10, j * 10, j * 10 + 10))
+      LeafFilter("geom", SpatialPredicate.INTERSECTS, window).evaluate(metadata.columns)
+    }
+    evaluations.count(!_).toDouble / evaluations.size
+  }
+
+  private def readGeoParquetMetaData(path: String): Seq[GeoParquetMetaData] = {
+    new File(path).listFiles().filter(_.getName.endsWith(".parquet")).toSeq.flatMap { file =>
+      val reader = ParquetFileReader.open(
+        HadoopInputFile.fromPath(new Path(file.getPath), new Configuration()))
+      try {
+        GeoParquetMetaData.parseKeyValueMetaData(
+          reader.getFooter.getFileMetaData.getKeyValueMetaData)
+      } finally {
+        reader.close()
+      }
+    }
+  }
+
   private def getPushedDownSpatialFilter(df: DataFrame): Option[GeoParquetSpatialFilter] = {
     val executedPlan = df.queryExecution.executedPlan
     val fileSourceScanExec = executedPlan.find(_.isInstanceOf[FileSourceScanExec])
@@ -156,6 +156,60 @@ class GeoStatsSuite extends TestBaseScala {
     assert(functionDf.schema("cluster").dataType == LongType)
   }
 
+  it("dbscan should merge clusters across spatial partitions") {
+    // Chains of points spanning many spatial partitions, with dense blobs and sparse noise
+    val random = new scala.util.Random(42)
+    val records = (0 until 1200).map { i =>
+      val (x, y) = i % 4 match {
+        case 0 => (i * 0.125, 0.0)
+        case 1 => (i * 0.125, 30 + random.nextGaussian() * 0.2)
+        case 2 => (i % 7 * 15.0 + random.nextGaussian(), 60 + random.nextGaussian())
+        case _ => (random.nextDouble() * 300, 100 + random.nextDouble() * 300)
+      }
+      Record(i, x, y)
+    }
+    val df = spark
+      .createDataFrame(records)
+      .repartition(16)
+      .withColumn("geometry", expr("ST_Point(x, y)"))
+    val epsilon = 1.0
+    val minPts = 4
+
+    val result = dbscan(df, epsilon, minPts)
+      .select("id", "isCore", "cluster")
+      .collect()
+      .map(row => row.getInt(0) -> (row.getBoolean(1), row.getLong(2)))
+      .toMap
+    assert(result.size == records.size)
+
+    def neighbors(r: Record): Seq[Record] =
+      records.filter(o => math.hypot(r.x - o.x, r.y - o.y) <= epsilon)
+    val expectedCore = records.map(r => r.id -> (neighbors(r).size >= minPts)).toMap
+    assert(result.map { case (id, (isCore, _)) => id -> isCore } == expectedCore)
+
+    // Core points within epsilon of each other share a cluster, so each chain is one cluster
+    records.filter(r => expectedCore(r.id)).foreach { r =>
+      neighbors(r).filter(o => expectedCore(o.id)).foreach { o =>
+        assert(result(r.id)._2 == result(o.id)._2)
+      }
+    }
+    assert(result(0)._2 == result(1196)._2)
+    assert(result(1)._2 != result(0)._2)
+
+    // Border points join the cluster of one of their core neighbors, the others are noise
+    records.filterNot(r => expectedCore(r.id)).foreach { r =>
+      val coreClusters = neighbors(r).filter(o => expectedCore(o.id)).map(o => result(o.id)._2)
+      if (coreClusters.isEmpty) {
+        assert(result(r.id)._2 == -1)
+      } else {
+        assert(coreClusters.contains(result(r.id)._2))
+      }
+    }
+
+    val clusteredCount = result.values.count(_._2 != -1)
+    assert(dbscan(df, epsilon, minPts, includeOutliers = false).count() == clusteredCount)
+  }
+
   it("test dbscan with geom literal") {
     val error = intercept[IllegalArgumentException] {
       spark.sql("SELECT ST_DBSCAN(ST_GeomFromWKT('POINT(0.0 1.1)'), 1.0, 4, false)").collect()
@@ -18,7 +18,8 @@
  */
 package org.apache.sedona.sql
 
-import org.apache.spark.sql.{Column, DataFrame, Row}
+import org.apache.commons.io.FileUtils
+import org.apache.spark.sql.{Column, DataFrame, Row, SparkSession}
 import org.apache.spark.sql.functions.{col, expr}
 import org.apache.spark.sql.sedona_sql.UDT.GeometryUDT
 import org.apache.spark.sql.sedona_sql.expressions.st_constructors.ST_GeomFromText
@@ -28,6 +29,9 @@ import org.locationtech.jts.geom.Geometry
 import org.locationtech.jts.io.WKTReader
 import org.scalatest.prop.TableDrivenPropertyChecks
 
+import java.io.File
+import java.nio.file.{Files, StandardCopyOption}
+
 class SpatialJoinSuite extends TestBaseScala with TableDrivenPropertyChecks {
 
   val testDataDelimiter = "\t"
@@ -282,6 +286,221 @@ class SpatialJoinSuite extends TestBaseScala with TableDrivenPropertyChecks {
     }
   }
 
+  describe("Spatial join with skewed partitions") {
+    it("should split skewed partitions and produce the same result") {
+      val polygons = sparkSession
+        .range(0, 400)
+        .selectExpr("id", "CAST(id % 20 AS DOUBLE) * 5 AS x", "CAST(id DIV 20 AS DOUBLE) * 5 AS y")
+        .selectExpr("id", "ST_PolygonFromEnvelope(x, y, x + 2, y + 2) AS geom")
+      // Most of the points are in a small cluster covered by a single polygon
+      val points = sparkSession
+        .range(0, 5000)
+        .selectExpr(
+          "id",
+          "CASE WHEN id % 10 = 0 THEN CAST((id * 7) % 100 AS DOUBLE) + 0.5 " +
+            "ELSE 1 + CAST(id % 50 AS DOUBLE) / 50 END AS x",
+          "CASE WHEN id % 10 = 0 THEN CAST((id * 13) % 100 AS DOUBLE) + 0.5 " +
+            "ELSE 1 + CAST(id % 47 AS DOUBLE) / 47 END AS y")
+        .selectExpr("id", "ST_Point(x, y) AS geom")
+      polygons.createOrReplaceTempView("skewedPolygons")
+      points.createOrReplaceTempView("skewedPoints")
+      val query =
+        "SELECT skewedPolygons.id, skewedPoints.id FROM skewedPolygons JOIN skewedPoints " +
+          "ON ST_Intersects(skewedPolygons.geom, skewedPoints.geom)"
+
+      val conf = Map(
+        "spark.sql.adaptive.enabled" -> "false",
+        spatialJoinPartitionSideConfKey -> "left",
+        "sedona.join.numpartition" -> "8")
+      val expected = withConf(conf) {
+        sparkSession.sql(query).collect().map(row => (row.getLong(0), row.getLong(1))).sorted
+      }
+      withConf(
+        conf ++ Map(
+          "sedona.join.skewSplit.enabled" -> "true",
+          "sedona.join.skewSplit.factor" -> "2",
+          "sedona.join.skewSplit.minPartitionSize" -> "10")) {
+        val result = sparkSession.sql(query)
+        val actual = result.collect().map(row => (row.getLong(0), row.getLong(1))).sorted
+        assert(actual.length == 5000)
+        assert(actual === expected)
+
+        val joinExec = result.queryExecution.executedPlan.collect { case p: RangeJoinExec =>
+          p
+        }.head
+        val metrics = joinExec.metrics
+        assert(metrics("numSkewedPartitions").value >= 1)
+        assert(
+          metrics("numPartitionsAfterSkewSplit").value > metrics(
+            "numPartitionsBeforeSkewSplit").value)
+        assert(
+          metrics("maxPartitionSizeAfterSkewSplit").value < metrics(
+            "maxPartitionSizeBeforeSkewSplit").value)
+      }
+    }
+  }
+
+  describe("Spatial join with partitioner cache") {
+    it("should reuse the partitioner of the dominant side across queries") {
+      val tempDir = Files.createTempDirectory("sedona_partitioner_cache_test_").toFile
+      try {
+        val polygonPath = new File(tempDir, "polygons").getAbsolutePath
+        val pointPath = new File(tempDir, "points").getAbsolutePath
+        sparkSession
+          .range(0, 100)
+          .selectExpr(
+            "id",
+            "CAST(id % 10 AS DOUBLE) * 5 AS x",
+            "CAST(id DIV 10 AS DOUBLE) * 5 AS y")
+          .selectExpr("id", "ST_PolygonFromEnvelope(x, y, x + 2, y + 2) AS geom")
+          .write
+          .parquet(polygonPath)
+        sparkSession
+          .range(0, 1000)
+          .selectExpr("id", "ST_Point(CAST(id % 50 AS DOUBLE), CAST(id DIV 20 AS DOUBLE)) AS geom")
+          .write
+          .parquet(pointPath)
+
+        def join(session: SparkSession = sparkSession): DataFrame = {
+          val polygons = session.read.parquet(polygonPath)
+          val points = session.read.parquet(pointPath)
+          polygons
+            .alias("polygons")
+            .join(points.alias("points"), expr("ST_Intersects(polygons.geom, points.geom)"))
+            .selectExpr("polygons.id", "points.id")
+        }
+        def collect(df: DataFrame): Seq[(Long, Long)] =
+          df.collect().map(row => (row.getLong(0), row.getLong(1))).sorted.toSeq
+        def cacheMetric(df: DataFrame, name: String): Long =
+          df.queryExecution.executedPlan.collect { case p: RangeJoinExec =>
+            p.metrics(name).value
+          }.sum
+        def cacheHits(df: DataFrame): Long = cacheMetric(df, "numPartitionerCacheHits")
+        def cacheMisses(df: DataFrame): Long = cacheMetric(df, "numPartitionerCacheMisses")
+
+        val conf = Map(
+          "spark.sql.adaptive.enabled" -> "false",
+          spatialJoinPartitionSideConfKey -> "left",
+          "sedona.join.numpartition" -> "4")
+        val expected = withConf(conf)(collect(join()))
+        assert(expected.nonEmpty)
+
+        val cacheConf = conf ++ Map(
+          "sedona.join.partitionerCache.enabled" -> "true",
+          "sedona.join.partitionerCache.path" -> new File(tempDir, "partitioners").toURI.toString)
+        withConf(cacheConf) {
+          val first = join()
+          assert(collect(first) === expected)
+          assert(cacheHits(first) == 0)
+          assert(cacheMisses(first) == 1)
+
+          val second = join()
+          assert(collect(second) === expected)
+          assert(cacheHits(second) == 1)
+          assert(cacheMisses(second) == 0)
+
+          // Partitioners persisted by other sessions are reloaded
+          assert(new File(tempDir, "partitioners").list().exists(_.startsWith("partitioner-")))
+          val session = sparkSession.newSession()
+          cacheConf.foreach { case (key, value) => session.conf.set(key, value) }
+          SparkSession.setActiveSession(session)
+          try {
+            val third = join(session)
+            assert(collect(third) === expected)
+            assert(cacheHits(third) == 1)
+            assert(cacheMisses(third) == 0)
+          } finally {
+            SparkSession.setActiveSession(sparkSession)
+          }
+        }
+      } finally {
+        FileUtils.deleteDirectory(tempDir)
+      }
+    }
+
+    it("should not reuse the partitioner of files rewritten with the same size") {
+      val tempDir = Files.createTempDirectory("sedona_partitioner_cache_test_").toFile
+      try {
+        val polygonPath = new File(tempDir, "polygons").getAbsolutePath
+        val pointPath = new File(tempDir, "points").getAbsolutePath
+        // Uncompressed and not dictionary encoded, so that shifting the polygons keeps the sizes
+        // of the files
+        def writePolygons(path: String, offset: Double): Unit =
+          sparkSession
+            .range(0, 100)
+            .selectExpr(
+              "id",
+              s"CAST(id % 10 AS DOUBLE) * 5 + $offset AS x",
+              s"CAST(id DIV 10 AS DOUBLE) * 5 + $offset AS y")
+            .selectExpr("id", "ST_PolygonFromEnvelope(x, y, x + 2, y + 2) AS geom")
+            .write
+            .option("compression", "none")
+            .option("parquet.enable.dictionary", "false")
+            .parquet(path)
+        def dataFiles(path: String): Seq[File] =
+          new File(path).listFiles().filter(_.getName.endsWith(".parquet")).sortBy(_.getName).toSeq
+        writePolygons(polygonPath, 0)
+        sparkSession
+          .range(0, 1000)
+          .selectExpr(
+            "id",
+            "ST_Point(CAST(id % 50 AS DOUBLE) * 2, CAST(id DIV 20 AS DOUBLE) * 2) AS geom")
+          .write
+          .parquet(pointPath)
+
+        def join(): DataFrame = {
+          val polygons = sparkSession.read.parquet(polygonPath)
+          val points = sparkSession.read.parquet(pointPath)
+          polygons
+            .alias("polygons")
+            .join(points.alias("points"), expr("ST_Intersects(polygons.geom, points.geom)"))
+            .selectExpr("polygons.id", "points.id")
+        }
+        def cacheMisses(df: DataFrame): Long =
+          df.queryExecution.executedPlan.collect { case p: RangeJoinExec =>
+            p.metrics("numPartitionerCacheMisses").value
+          }.sum
+
+        val conf = Map(
+          "spark.sql.adaptive.enabled" -> "false",
+          spatialJoinPartitionSideConfKey -> "left",
+          "sedona.join.numpartition" -> "4")
+        val cacheConf = conf ++ Map(
+          "sedona.join.partitionerCache.enabled" -> "true",
+          "sedona.join.partitionerCache.path" -> new File(tempDir, "partitioners").toURI.toString)
+        withConf(cacheConf) {
+          val first = join()
+          assert(first.collect().nonEmpty)
+          assert(cacheMisses(first) == 1)
+        }
+
+        // Rewrite the polygon files in place with polygons moved out of the extent of the cached
+        // partitioner, keeping the names and the sizes of the files
+        val shiftedPath = new File(tempDir, "shifted").getAbsolutePath
+        writePolygons(shiftedPath, 50)
+        val files = dataFiles(polygonPath)
+        val shiftedFiles = dataFiles(shiftedPath)
+        assert(files.map(_.length()) === shiftedFiles.map(_.length()))
+        files.zip(shiftedFiles).foreach { case (file, shifted) =>
+          val lastModified = file.lastModified()
+          Files.copy(shifted.toPath, file.toPath, StandardCopyOption.REPLACE_EXISTING)
+          file.setLastModified(lastModified + 10000)
+          new File(file.getParentFile, s".${file.getName}.crc").delete()
+        }
+
+        val expected = withConf(conf)(join().collect().length)
+        assert(expected > 0)
+        withConf(cacheConf) {
+          val second = join()
+          assert(second.collect().length === expected)
+          assert(cacheMisses(second) == 1)
+        }
+      } finally {
+        FileUtils.deleteDirectory(tempDir)
+      }
+    }
+  }
+
   private def withOptimizationMode(mode: String)(body: => Unit): Unit = {
     withConf(Map("sedona.join.optimizationmode" -> mode))(body)
   }
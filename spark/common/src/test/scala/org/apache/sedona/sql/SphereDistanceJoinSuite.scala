@@ -82,6 +82,31 @@ class SphereDistanceJoinSuite extends TestBaseScala with TableDrivenPropertyChec
     }
   }
 
+  describe("Spheroid distance join written in other forms") {
+    // The test data contains points near the poles and on both sides of the antimeridian
+    val joinConditions = Table(
+      "join condition",
+      "ST_DWithin(df1.geom, df2.geom, 2000000, true)",
+      "ST_DWithin(df2.geom, df1.geom, df1.dist, true)",
+      "2000000 > ST_DistanceSpheroid(df1.geom, df2.geom)",
+      "df2.dist >= ST_DistanceSpheroid(df2.geom, df1.geom)",
+      "df1.dist > ST_DistanceSphere(df1.geom, df2.geom)")
+
+    forAll(joinConditions) { joinCondition =>
+      val query = s"SELECT df1.id, df2.id FROM df1 JOIN df2 ON $joinCondition"
+      it(s"spheroid distance join ON $joinCondition") {
+        val expected = withConf(Map("sedona.join.optimizationmode" -> "none")) {
+          val df = sparkSession.sql(query)
+          assert(!isUsingOptimizedSpatialJoin(df))
+          df.collect().map(row => (row.getInt(0), row.getInt(1))).sorted.toSeq
+        }
+        val result = sparkSession.sql(query)
+        assert(isUsingOptimizedSpatialJoin(result))
+        verifyResult(expected, result)
+      }
+    }
+  }
+
   describe("Sphere distance join with custom sphere radius") {
     it("do not optimize distance join with custom sphere radius") {
       val df = sparkSession.sql(
@@ -19,6 +19,8 @@
 package org.apache.sedona.sql
 
 import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.functions.{col, udaf}
+import org.apache.spark.sql.sedona_sql.expressions.ST_Union_Aggr
 import org.locationtech.jts.geom.{Coordinate, Geometry, GeometryFactory, Polygon}
 
 import scala.util.Random
@@ -50,6 +52,26 @@ class aggregateFunctionTestScala extends TestBaseScala {
       assert(boundary.take(1)(0).get(0) == geometryFactory.createPolygon(coordinates))
     }
 
+    it("Passed ST_Envelope_aggr with null and empty geometries") {
+      val envelopes = sparkSession
+        .sql("""
+          |SELECT k, ST_Envelope_Aggr(geom) AS envelope FROM (
+          |  SELECT k, ST_GeomFromWKT(wkt) AS geom FROM VALUES
+          |    (1, 'POINT (1 2)'),
+          |    (1, 'LINESTRING (-1 0, 3 5)'),
+          |    (1, 'POINT EMPTY'),
+          |    (1, NULL),
+          |    (2, 'POLYGON EMPTY'),
+          |    (2, NULL)
+          |    AS t(k, wkt))
+          |GROUP BY k ORDER BY k""".stripMargin)
+        .collect()
+
+      assert(
+        envelopes(0).getAs[Geometry](1).toText == "POLYGON ((-1 0, -1 5, 3 5, 3 0, -1 0))")
+      assert(envelopes(1).isNullAt(1))
+    }
+
     it("Passed ST_Union_aggr") {
 
       var polygonCsvDf = sparkSession.read
@@ -65,6 +87,21 @@ class aggregateFunctionTestScala extends TestBaseScala {
       assert(union.take(1)(0).get(0).asInstanceOf[Geometry].getArea == 10100)
     }
 
+    it("Passed ST_Union_aggr with cascaded partial unions") {
+      val polygonDf = sparkSession.read
+        .format("csv")
+        .option("delimiter", ",")
+        .option("header", "false")
+        .load(unionPolygonInputLocation)
+        .selectExpr(
+          "ST_PolygonFromEnvelope(cast(_c0 as double), cast(_c1 as double), cast(_c2 as double), cast(_c3 as double)) as polygonshape")
+        .repartition(4)
+
+      // A tiny buffer makes every partition produce several levels of partial unions
+      val union = polygonDf.select(udaf(new ST_Union_Aggr(3))(col("polygonshape")))
+      assert(math.abs(union.take(1)(0).get(0).asInstanceOf[Geometry].getArea - 10100) < 1e-6)
+    }
+
     it("Measured ST_Union_aggr wall time") {
       // number of random polygons to generate
       val numPolygons = 1000
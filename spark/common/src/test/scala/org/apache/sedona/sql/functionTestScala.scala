@@ -23,6 +23,7 @@ import org.apache.commons.io.FileUtils
 import org.apache.sedona.common.FunctionsGeoTools
 import org.apache.sedona.sql.implicits._
 import org.apache.spark.sql.catalyst.expressions.GenericRowWithSchema
+import org.apache.spark.sql.execution.{ProjectExec, WholeStageCodegenExec}
 import org.apache.spark.sql.functions._
 import org.apache.spark.sql.{DataFrame, Row}
 import org.geotools.referencing.CRS
@@ -334,6 +335,52 @@ class functionTestScala
       assert(functionDf.count() > 0)
     }
 
+    it("Passed geometry accessors with whole-stage code generation") {
+      val df = Seq(
+        "POINT (1 2)",
+        "LINESTRING (0 0, 3 4)",
+        "POLYGON ((0 0, 2 0, 2 2, 0 2, 0 0))",
+        "GEOMETRYCOLLECTION EMPTY",
+        null)
+        .toDF("wkt")
+        .selectExpr("ST_SetSRID(ST_GeomFromWKT(wkt), 4326) AS geom")
+        .cache()
+      try {
+        val resultDf = df.selectExpr(
+          "ST_X(geom)",
+          "ST_Y(geom)",
+          "ST_Area(geom)",
+          "ST_Length(geom)",
+          "ST_NPoints(geom)",
+          "ST_GeometryType(geom)",
+          "ST_SRID(geom)")
+        val codegenResult = resultDf.collect()
+        assert(resultDf.queryExecution.executedPlan.find {
+          case stage: WholeStageCodegenExec => stage.child.isInstanceOf[ProjectExec]
+          case _ => false
+        }.isDefined)
+        val interpretedResult = withConf(
+          Map(
+            "spark.sql.codegen.wholeStage" -> "false",
+            "spark.sql.codegen.factoryMode" -> "NO_CODEGEN")) {
+          df.selectExpr(
+              "ST_X(geom)",
+              "ST_Y(geom)",
+              "ST_Area(geom)",
+              "ST_Length(geom)",
+              "ST_NPoints(geom)",
+              "ST_GeometryType(geom)",
+              "ST_SRID(geom)")
+            .collect()
+        }
+        assert(codegenResult sameElements interpretedResult)
+        assert(codegenResult.head == Row(1.0, 2.0, 0.0, 0.0, 1, "ST_Point", 4326))
+        assert(codegenResult.last == Row(null, null, null, null, null, null, null))
+      } finally {
+        df.unpersist()
+      }
+    }
+
     it("Passed ST_Dimension with Geometry") {
       val geomTestCases = Map(
         ("'POINT (51.3168 -0.56)'") -> "0",
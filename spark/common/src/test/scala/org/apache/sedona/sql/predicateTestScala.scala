@@ -19,6 +19,7 @@
 package org.apache.sedona.sql
 
 import org.apache.spark.sql.catalyst.expressions.{EmptyRow, Literal}
+import org.apache.spark.sql.execution.{ProjectExec, WholeStageCodegenExec}
 import org.apache.spark.sql.sedona_sql.expressions.{ST_Contains, ST_CoveredBy, ST_Covers, ST_Crosses, ST_DWithin, ST_Disjoint, ST_Equals, ST_Intersects, ST_OrderingEquals, ST_Overlaps, ST_Point, ST_Touches, ST_Within}
 
 class predicateTestScala extends TestBaseScala {
@@ -362,6 +363,109 @@ class predicateTestScala extends TestBaseScala {
       assert(actual)
     }
 
+    it("Passed predicates with a constant geometry argument") {
+      import sparkSession.implicits._
+      val window = "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))"
+      // Polygons with many vertices are serialized with a bounding box in the header
+      def circle(x: Double, y: Double, r: Double): String = {
+        val coords = (0 to 100).map { k =>
+          val angle = 2 * math.Pi * (k % 100) / 100
+          s"${x + r * math.cos(angle)} ${y + r * math.sin(angle)}"
+        }
+        coords.mkString("POLYGON ((", ", ", "))")
+      }
+      val df = Seq(
+        circle(5, 5, 2),
+        circle(10, 5, 2),
+        circle(30, 30, 2),
+        "POINT (5 5)",
+        "POINT (10 5)",
+        "POINT (20 20)",
+        "LINESTRING (5 5, 15 15)",
+        "LINESTRING (0 0, 10 0)",
+        "POLYGON ((1 1, 2 1, 2 2, 1 2, 1 1))",
+        "POLYGON ((5 5, 15 5, 15 15, 5 15, 5 5))",
+        window,
+        null)
+        .map(wkt => (wkt, window))
+        .toDF("wkt", "window_wkt")
+        .selectExpr("ST_GeomFromWKT(wkt) AS geom", "ST_GeomFromWKT(window_wkt) AS window")
+      Seq(
+        "ST_Contains",
+        "ST_Intersects",
+        "ST_Within",
+        "ST_Covers",
+        "ST_CoveredBy",
+        "ST_Crosses",
+        "ST_Overlaps",
+        "ST_Touches",
+        "ST_Equals",
+        "ST_Disjoint",
+        "ST_OrderingEquals").foreach { predicate =>
+        val rows = df
+          .selectExpr(
+            s"$predicate(window, geom)",
+            s"$predicate(ST_GeomFromWKT('$window'), geom)",
+            s"$predicate(geom, window)",
+            s"$predicate(geom, ST_GeomFromWKT('$window'))")
+          .collect()
+        rows.foreach { row =>
+          assert(row.get(0) == row.get(1), s"$predicate with constant left argument")
+          assert(row.get(2) == row.get(3), s"$predicate with constant right argument")
+        }
+      }
+    }
+
+    it("Passed predicates with whole-stage code generation") {
+      import sparkSession.implicits._
+      val window = "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))"
+      val df = Seq(
+        ("POINT (5 5)", window),
+        ("POINT (20 20)", window),
+        ("LINESTRING (5 5, 15 15)", window),
+        ("POLYGON ((1 1, 2 1, 2 2, 1 2, 1 1))", "POINT (1 1)"),
+        (window, window),
+        (null, window),
+        ("POINT (5 5)", null))
+        .toDF("wkt", "window_wkt")
+        .selectExpr("ST_GeomFromWKT(wkt) AS geom", "ST_GeomFromWKT(window_wkt) AS window")
+        .cache()
+      try {
+        Seq(
+          "ST_Contains",
+          "ST_Intersects",
+          "ST_Within",
+          "ST_Covers",
+          "ST_CoveredBy",
+          "ST_Crosses",
+          "ST_Overlaps",
+          "ST_Touches",
+          "ST_Equals",
+          "ST_Disjoint",
+          "ST_OrderingEquals").foreach { predicate =>
+          val exprs = Seq(
+            s"$predicate(window, geom)",
+            s"$predicate(geom, ST_GeomFromWKT('$window'))",
+            s"$predicate(ST_GeomFromWKT('$window'), geom)")
+          val resultDf = df.selectExpr(exprs: _*)
+          val codegenResult = resultDf.collect()
+          assert(resultDf.queryExecution.executedPlan.find {
+            case stage: WholeStageCodegenExec => stage.child.isInstanceOf[ProjectExec]
+            case _ => false
+          }.isDefined)
+          val interpretedResult = withConf(
+            Map(
+              "spark.sql.codegen.wholeStage" -> "false",
+              "spark.sql.codegen.factoryMode" -> "NO_CODEGEN")) {
+            df.selectExpr(exprs: _*).collect()
+          }
+          assert(codegenResult sameElements interpretedResult, predicate)
+        }
+      } finally {
+        df.unpersist()
+      }
+    }
+
     Seq(
       ST_Contains,
       ST_Intersects,
@@ -21,6 +21,7 @@ package org.apache.sedona.sql
 import org.apache.commons.io.FileUtils
 import org.apache.hadoop.hdfs.MiniDFSCluster
 import org.apache.spark.sql.SaveMode
+import org.apache.spark.sql.execution.FileSourceScanExec
 import org.junit.Assert.assertEquals
 import org.scalatest.{BeforeAndAfter, GivenWhenThen}
 
@@ -222,6 +223,64 @@ class rasterIOTest extends TestBaseScala with BeforeAndAfter with GivenWhenThen
       assert(rasterDf.count() == rasterCount)
     }
 
+    it("should read geotiff as tiles using raster source") {
+      val tiles = sparkSession.read
+        .format("raster")
+        .option("tileWidth", "100")
+        .option("tileHeight", "100")
+        .load(rasterdatalocation + "test1.tiff")
+      assert(tiles.schema.fieldNames.toSeq == Seq("rast", "x", "y", "bbox"))
+      val expected = sparkSession.read
+        .format("binaryFile")
+        .load(rasterdatalocation + "test1.tiff")
+        .selectExpr("RS_TileExplode(RS_FromGeoTiff(content), 100, 100) AS (x, y, tile)")
+      val expectedCount = expected.count()
+      assert(tiles.count() == expectedCount)
+      val matched = tiles
+        .join(expected, Seq("x", "y"))
+        .where("RS_BandAsArray(rast, 1) = RS_BandAsArray(tile, 1)")
+        .where("ST_Equals(bbox, RS_Envelope(tile))")
+      assert(matched.count() == expectedCount)
+
+      // Without tile size options, tiles follow the 256 x 256 internal blocks of the file
+      val blocks = sparkSession.read.format("raster").load(rasterdatalocation + "test1.tiff")
+      assert(blocks.count() == 6)
+    }
+
+    it("should read each tile exactly once when a geotiff is split") {
+      withConf(Map("spark.sql.files.maxPartitionBytes" -> "16384")) {
+        val tiles = sparkSession.read
+          .format("raster")
+          .option("tileWidth", "64")
+          .option("tileHeight", "64")
+          .load(rasterdatalocation + "test1.tiff")
+        assert(tiles.rdd.getNumPartitions > 1)
+        val rows = tiles.select("x", "y").collect()
+        assert(rows.length == rows.distinct.length)
+        assert(rows.length == 8 * 9)
+      }
+    }
+
+    it("should skip tiles outside of the spatial filter") {
+      val tiles = sparkSession.read
+        .format("raster")
+        .option("tileWidth", "100")
+        .option("tileHeight", "100")
+        .load(rasterdatalocation + "test1.tiff")
+      val wkt = tiles
+        .where("x = 1 AND y = 2")
+        .selectExpr("ST_AsText(ST_Centroid(bbox))")
+        .first()
+        .getString(0)
+      val filtered = tiles.where(s"ST_Intersects(bbox, ST_GeomFromText('$wkt'))")
+      val rows = filtered.select("x", "y").collect()
+      assert(rows.map(row => (row.getInt(0), row.getInt(1))).toSeq == Seq((1, 2)))
+      val scan = filtered.queryExecution.executedPlan.collectFirst {
+        case scan: FileSourceScanExec => scan
+      }.get
+      assert(scan.metrics("numOutputRows").value == 1)
+    }
+
     it(
       "should read geotiff using binary source and write geotiff back to hdfs using raster source") {
       val miniHDFS: (MiniDFSCluster, String) = creatMiniHdfs()
@@ -25,7 +25,7 @@ import org.apache.spark.sql.functions._
 import org.apache.spark.sql.types.{DoubleType, IntegerType, StructField, StructType}
 import org.apache.spark.sql.{DataFrame, Row, SaveMode}
 import org.geotools.coverage.grid.GridCoverage2D
-import org.junit.Assert.{assertEquals, assertNotNull, assertNull, assertTrue}
+import org.junit.Assert.{assertArrayEquals, assertEquals, assertNotNull, assertNull, assertTrue}
 import org.locationtech.jts.geom.{Coordinate, Geometry}
 import org.scalatest.{BeforeAndAfter, GivenWhenThen}
 
@@ -1541,6 +1541,32 @@ class rasteralgebraTest extends TestBaseScala with BeforeAndAfter with GivenWhen
       assertTrue(expectedMetadata.equals(actualMetadata))
     }
 
+    it("Passed RS_Union_Aggr with bands of different data types") {
+      val df = sparkSession.read
+        .format("binaryFile")
+        .load(resourceFolder + "raster/test1.tiff")
+        .selectExpr("RS_FromGeoTiff(content) as raster")
+      val unioned = df
+        .selectExpr("raster", "1 as index")
+        .union(df.selectExpr("RS_MapAlgebra(raster, 'D', 'out = rast[0];') as raster", "2"))
+        .selectExpr("RS_Union_Aggr(raster, index) as raster")
+
+      // The bands take the data type of the raster with the lowest index
+      val expectedType = df.selectExpr("RS_BandPixelType(raster)").first().getString(0)
+      val actualTypes = unioned
+        .selectExpr("RS_BandPixelType(raster, 1)", "RS_BandPixelType(raster, 2)")
+        .first()
+      assertEquals(expectedType, actualTypes.getString(0))
+      assertEquals(expectedType, actualTypes.getString(1))
+
+      val expectedSum = df.selectExpr("RS_SummaryStats(raster, 'sum')").first().getDouble(0)
+      val actualSums = unioned
+        .selectExpr("RS_SummaryStats(raster, 'sum', 1)", "RS_SummaryStats(raster, 'sum', 2)")
+        .first()
+      assertEquals(expectedSum, actualSums.getDouble(0), 1e-6)
+      assertEquals(expectedSum, actualSums.getDouble(1), 1e-6)
+    }
+
     it("Passed multi-band RS_Union_Aggr") {
       var df = sparkSession.read
         .format("binaryFile")
@@ -1658,13 +1684,13 @@ class rasteralgebraTest extends TestBaseScala with BeforeAndAfter with GivenWhen
       assertEquals(185104.0, actual)
 
       actual = df.selectExpr("RS_ZonalStats(raster, geom, 1, 'mean', true, false)").first().get(0)
-      assertEquals(58.650240700685295, actual)
+      assertEquals(58.650240700685295, actual.asInstanceOf[Double], 1e-9)
 
       actual = df.selectExpr("RS_ZonalStats(raster, geom, 1, 'variance')").first().get(0)
-      assertEquals(8534.098251841822, actual)
+      assertEquals(8534.098251841822, actual.asInstanceOf[Double], 1e-9)
 
       actual = df.selectExpr("RS_ZonalStats(raster, geom, 'sd')").first().get(0)
-      assertEquals(92.3801832204387, actual)
+      assertEquals(92.3801832204387, actual.asInstanceOf[Double], 1e-9)
 
       // Test with a polygon in EPSG:4326
       actual = df
@@ -1699,13 +1725,13 @@ class rasteralgebraTest extends TestBaseScala with BeforeAndAfter with GivenWhen
 
       actual =
         df.selectExpr("RS_ZonalStats(raster, geom, 1, 'mean', false, false)").first().get(0)
-      assertEquals(226.54970883322787, actual)
+      assertEquals(226.54970883322787, actual.asInstanceOf[Double], 1e-9)
 
       actual = df.selectExpr("RS_ZonalStats(raster, geom, 1, 'variance', false)").first().get(0)
-      assertEquals(5596.966403503485, actual)
+      assertEquals(5596.966403503485, actual.asInstanceOf[Double], 1e-9)
 
       actual = df.selectExpr("RS_ZonalStats(raster, geom, 'sd')").first().get(0)
-      assertEquals(74.81287592054916, actual)
+      assertEquals(74.81287592054916, actual.asInstanceOf[Double], 1e-9)
     }
 
     it("Passed RS_ZonalStatsAll") {
@@ -1721,9 +1747,9 @@ class rasteralgebraTest extends TestBaseScala with BeforeAndAfter with GivenWhen
         .getStruct(0)
         .toSeq
         .slice(0, 9)
-      val expected = Seq(185104.0, 1.0795427e7, 58.32087367104147, 0.0, 0.0, 92.3801832204387,
+      val expected = Array(185104.0, 1.0795427e7, 58.32087367104147, 0.0, 0.0, 92.3801832204387,
         8534.098251841822, 0.0, 255.0)
-      assertTrue(expected.equals(actual))
+      assertArrayEquals(expected, actual.map(_.asInstanceOf[Double]).toArray, 1e-9)
 
       // Test with a polygon that does not intersect the raster in lenient mode
       val actual2 = df
@@ -1747,9 +1773,34 @@ class rasteralgebraTest extends TestBaseScala with BeforeAndAfter with GivenWhen
         .getStruct(0)
         .toSeq
         .slice(0, 9)
-      val expected = Seq(14249.0, 3229013.0, 226.61330619692416, 255.0, 255.0, 74.81287592054916,
-        5596.966403503485, 1.0, 255.0)
-      assertTrue(expected.equals(actual))
+      val expected = Array(14249.0, 3229013.0, 226.61330619692416, 255.0, 255.0,
+        74.81287592054916, 5596.966403503485, 1.0, 255.0)
+      assertArrayEquals(expected, actual.map(_.asInstanceOf[Double]).toArray, 1e-9)
+    }
+
+    it("Passed RS_ZonalStatsExplode") {
+      var df = sparkSession.read
+        .format("binaryFile")
+        .load(resourceFolder + "raster_geotiff_color/FAA_UTM18N_NAD83.tif")
+      df = df.selectExpr(
+        "RS_FromGeoTiff(content) as raster",
+        "array(ST_GeomFromWKT('POLYGON ((-8673439.6642 4572993.5327, -8673155.5737 4563873.2099, -8701890.3259 4562931.7093, -8682522.8735 4572703.8908, -8673439.6642 4572993.5327))', 3857), ST_GeomFromWKT('POLYGON ((-78.22106647832458748 37.76411511479908967, -78.20183062098976734 37.72863564460374874, -78.18088490966962922 37.76753482276972562, -78.22106647832458748 37.76411511479908967))'), ST_GeomFromWKT('POLYGON ((-77.96672569800863073 37.91971182746296876, -77.9688630154902711 37.89620133516485367, -77.93936803424354309 37.90517806858776595, -77.96672569800863073 37.91971182746296876))', 4326)) as zones")
+      val actual = df
+        .selectExpr("RS_ZonalStatsExplode(raster, zones, 1, false, true)")
+        .collect()
+        .map(row => row.getInt(0) -> row.toSeq.slice(1, 10))
+        .toMap
+      // The second zone does not intersect the raster
+      assertEquals(Set(0, 2), actual.keySet)
+      val expected = Array(185104.0, 1.0795427e7, 58.32087367104147, 0.0, 0.0, 92.3801832204387,
+        8534.098251841822, 0.0, 255.0)
+      assertArrayEquals(expected, actual(0).map(_.asInstanceOf[Double]).toArray, 1e-9)
+      val expected2 = df
+        .selectExpr("RS_ZonalStatsAll(raster, zones[2], 1, false, true)")
+        .first()
+        .getStruct(0)
+        .toSeq
+      assertTrue(expected2.equals(actual(2)))
     }
 
     it("Passed RS_SummaryStats with raster") {
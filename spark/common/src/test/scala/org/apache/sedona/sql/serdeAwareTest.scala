@@ -22,7 +22,8 @@ import org.apache.sedona.common.geometrySerde.GeometrySerializer
 import org.apache.sedona.common.raster.RasterConstructors.fromArcInfoAsciiGrid
 import org.apache.sedona.common.raster.serde.Serde
 import org.apache.spark.sql.catalyst.expressions.Literal
-import org.apache.spark.sql.sedona_sql.expressions.{ST_Buffer, ST_GeomFromText, ST_Point, ST_Union}
+import org.apache.spark.sql.execution.{ProjectExec, WholeStageCodegenExec}
+import org.apache.spark.sql.sedona_sql.expressions.{SharedGeometry, ST_Buffer, ST_GeomFromText, ST_Point, ST_Union}
 import org.apache.spark.sql.sedona_sql.expressions.raster.{RS_FromArcInfoAsciiGrid, RS_NumBands}
 import org.geotools.coverage.grid.GridCoverage2D
 import org.locationtech.jts.geom.{Coordinate, Geometry, GeometryFactory}
@@ -96,5 +97,74 @@ class SerdeAwareFunctionSpec extends TestBaseScala {
         mocked.close()
       }
     }
+
+    it("should share deserialized geometries among expressions evaluated on the same row") {
+      val df = sparkSession
+        .sql("""
+            |SELECT ST_GeomFromWKT(wkt) AS geom FROM VALUES
+            |('POLYGON ((0 0, 2 0, 2 2, 0 2, 0 0))'), ('POINT (1 2)'), (NULL) AS t(wkt)
+            |""".stripMargin)
+        .cache()
+      val exprs = Seq("ST_Area(geom)", "ST_Centroid(geom)", "ST_IsValid(geom)", "ST_X(geom)")
+      try {
+        withConf(Map("spark.sedona.optimizer.shareGeometryDeserialization" -> "true")) {
+          val resultDf = df.selectExpr(exprs: _*)
+          val sharedGeometries = resultDf.queryExecution.optimizedPlan.expressions.flatMap {
+            _.collect { case sharedGeometry: SharedGeometry => sharedGeometry }
+          }
+          assert(sharedGeometries.size == 4)
+          assert(sharedGeometries.map(_.cache).distinct.size == 1)
+
+          val deserializationsSaved = sharedGeometries.head.cache.deserializationsSaved
+          val savedBefore = deserializationsSaved.value
+          val result = resultDf.collect()
+          val expected =
+            withConf(Map("spark.sedona.optimizer.shareGeometryDeserialization" -> "false")) {
+              df.selectExpr(exprs: _*).collect()
+            }
+          assert(result sameElements expected)
+          // Each non-null geometry is deserialized once instead of 4 times
+          assert(deserializationsSaved.value - savedBefore == 6)
+        }
+      } finally {
+        df.unpersist()
+      }
+    }
+
+    it("should share deserialized geometries among expressions in whole-stage generated code") {
+      val df = sparkSession
+        .sql("""
+            |SELECT ST_GeomFromWKT(wkt) AS geom FROM VALUES
+            |('POINT (1 2)'), ('POINT (3 4)'), ('POINT (5 6)'), (NULL) AS t(wkt)
+            |""".stripMargin)
+        .cache()
+      val exprs = Seq("ST_X(geom)", "ST_Y(geom)", "ST_Area(geom)")
+      try {
+        withConf(Map("spark.sedona.optimizer.shareGeometryDeserialization" -> "true")) {
+          val resultDf = df.selectExpr(exprs: _*)
+          val sharedGeometries = resultDf.queryExecution.optimizedPlan.expressions.flatMap {
+            _.collect { case sharedGeometry: SharedGeometry => sharedGeometry }
+          }
+          assert(sharedGeometries.size == 3)
+
+          val deserializationsSaved = sharedGeometries.head.cache.deserializationsSaved
+          val savedBefore = deserializationsSaved.value
+          val result = resultDf.collect()
+          assert(resultDf.queryExecution.executedPlan.find {
+            case stage: WholeStageCodegenExec => stage.child.isInstanceOf[ProjectExec]
+            case _ => false
+          }.isDefined)
+          val expected =
+            withConf(Map("spark.sedona.optimizer.shareGeometryDeserialization" -> "false")) {
+              df.selectExpr(exprs: _*).collect()
+            }
+          assert(result sameElements expected)
+          // Each non-null geometry is deserialized once instead of 3 times
+          assert(deserializationsSaved.value - savedBefore == 6)
+        }
+      } finally {
+        df.unpersist()
+      }
+    }
   }
 }
@@ -174,5 +174,106 @@ class WeightingTest extends TestBaseScala {
         Weighting.addDistanceBandColumn(getData(), 2.0, geometry = "non_existent")
       }
     }
+
+    it("keeps duplicate rows apart") {
+      val duplicated = sparkSession
+        .createDataFrame(Seq(Point(0, 1.0, 1.0), Point(0, 1.0, 1.0), Point(1, 2.0, 1.0)))
+        .withColumn("geometry", ST_MakePoint("x", "y"))
+        .drop("x", "y")
+
+      val neighborCounts = Weighting
+        .addDistanceBandColumn(duplicated, 1.1, includeZeroDistanceNeighbors = true)
+        .select(f.size(f.col("weights")))
+        .collect()
+        .map(_.getInt(0))
+
+      assert(neighborCounts.toSeq == Seq(2, 2, 2))
+    }
+
+    it("uses the id column to identify records") {
+      val actualDf = Weighting
+        .addDistanceBandColumn(getData(), 1.0, idColumn = "id")
+        .select(
+          f.col("id"),
+          f.array_sort(f.transform(f.col("weights"), w => w("neighbor")("id"))))
+      val expectedDf = Weighting
+        .addDistanceBandColumn(getData(), 1.0)
+        .select(
+          f.col("id"),
+          f.array_sort(f.transform(f.col("weights"), w => w("neighbor")("id"))))
+
+      assertDataFramesEqual(actualDf, expectedDf)
+    }
+
+    it("identifies records consistently when their order is not deterministic") {
+      // The order of the records changes with every evaluation of a round-robin repartition
+      val actualDf = Weighting
+        .addDistanceBandColumn(getData().repartition(4), 1.0)
+        .select(
+          f.col("id"),
+          f.array_sort(f.transform(f.col("weights"), w => w("neighbor")("id"))))
+      val expectedDf = Weighting
+        .addDistanceBandColumn(getData(), 1.0, idColumn = "id")
+        .select(
+          f.col("id"),
+          f.array_sort(f.transform(f.col("weights"), w => w("neighbor")("id"))))
+
+      assertDataFramesEqual(actualDf, expectedDf)
+    }
+
+    it("throw IllegalArgumentException with non-existent id column") {
+      assertThrows[IllegalArgumentException] {
+        Weighting.addDistanceBandColumn(getData(), 1.0, idColumn = "non_existent")
+      }
+    }
+  }
+
+  describe("addSparseDistanceBandColumn") {
+
+    it("returns the same neighbors as addDistanceBandColumn") {
+      val actualDf = Weighting
+        .addSparseDistanceBandColumn(getData(), 1.0, "id")
+        .select(f.col("id"), f.array_sort(f.col("weights.neighbors").cast("array<int>")))
+      val expectedDf = Weighting
+        .addDistanceBandColumn(getData(), 1.0)
+        .select(
+          f.col("id"),
+          f.array_sort(f.transform(f.col("weights"), w => w("neighbor")("id"))))
+
+      assertDataFramesEqual(actualDf, expectedDf)
+    }
+
+    it("keeps records without neighbors and appends self") {
+      val result = Weighting
+        .addSparseDistanceBandColumn(getData(), .9, "id", includeSelf = true, selfWeight = 2.0)
+        .orderBy("id")
+        .select("id", "weights.neighbors", "weights.values")
+        .collect()
+
+      assert(result.length == 11)
+      assert(result.forall(row => row.getSeq[Long](1) == Seq(row.getInt(0).toLong)))
+      assert(result.forall(row => row.getSeq[Double](2) == Seq(2.0)))
+    }
+
+    it("throws IllegalArgumentException with non-existent id column") {
+      assertThrows[IllegalArgumentException] {
+        Weighting.addSparseDistanceBandColumn(getData(), 1.0, "non_existent")
+      }
+    }
+  }
+
+  describe("addSparseKNNColumn") {
+
+    it("returns k neighbors ordered by distance") {
+      val result = Weighting
+        .addSparseKNNColumn(getData(), 2, "id", binary = false)
+        .select("id", "weights.neighbors", "weights.values")
+        .collect()
+
+      assert(result.length == 11)
+      assert(result.forall(_.getSeq[Long](1).size == 2))
+      assert(result.forall(row => !row.getSeq[Long](1).contains(row.getInt(0).toLong)))
+      assert(result.forall(row => row.getSeq[Double](2).head >= row.getSeq[Double](2)(1)))
+    }
   }
 }
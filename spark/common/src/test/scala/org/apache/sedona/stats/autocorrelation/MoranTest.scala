@@ -96,5 +96,19 @@ class MoranTest extends TestBaseScala with AutoCorrelationFixtures {
       assert(moranResult.getPNorm < 0.44 && moranResult.getPNorm > 0.43)
       assert(moranResult.getI < 0.16 && moranResult.getI > 0.15)
     }
+
+    it("sparse weights give the same result as dense weights") {
+      val denseWeights = Weighting
+        .addDistanceBandColumn(zeroCorrelationFrame, 2.0, savedAttributes = Seq("id", "value"))
+      val sparseWeights =
+        Weighting.addSparseDistanceBandColumn(zeroCorrelationFrame, 2.0, "id")
+
+      val denseResult = Moran.getGlobal(denseWeights)
+      val sparseResult = Moran.getGlobal(sparseWeights)
+
+      assert(math.abs(sparseResult.getI - denseResult.getI) < 1e-9)
+      assert(math.abs(sparseResult.getPNorm - denseResult.getPNorm) < 1e-9)
+      assert(math.abs(sparseResult.getZNorm - denseResult.getZNorm) < 1e-9)
+    }
   }
 }
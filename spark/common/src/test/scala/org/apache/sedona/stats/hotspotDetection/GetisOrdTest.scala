@@ -88,5 +88,32 @@ class GetisOrdTest extends TestBaseScala {
           "Z",
           "P").sorted)
     }
+
+    it("returns the same statistics for sparse and dense weights") {
+      val denseResults = GetisOrd
+        .gLocal(
+          Weighting.addDistanceBandColumn(get_data(), 1.0, binary = false, alpha = -.5),
+          "v",
+          "weights")
+        .select("id", "G", "Z", "P")
+        .orderBy("id")
+        .collect()
+      val sparseResults = GetisOrd
+        .gLocal(
+          Weighting
+            .addSparseDistanceBandColumn(get_data(), 1.0, "id", binary = false, alpha = -.5),
+          "v",
+          "weights")
+        .select("id", "G", "Z", "P")
+        .orderBy("id")
+        .collect()
+
+      assert(sparseResults.map(_.getInt(0)) === denseResults.map(_.getInt(0)))
+      sparseResults.zip(denseResults).foreach { case (sparse, dense) =>
+        for (i <- 1 to 3) {
+          assert(math.abs(sparse.getDouble(i) - dense.getDouble(i)) < 1e-9)
+        }
+      }
+    }
   }
 }